@@ -0,0 +1,50 @@
+package ch.m3ts.jmh;
+
+import com.google.audio.calculators.AudioCalculator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AudioCalculator.getFrequency on a buffer of the audio recorder (16 bit PCM, 44.1 kHz), holding
+ * the sound of a bounce at about 5 kHz.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AudioCalculatorBenchmark {
+    private static final int SAMPLE_RATE = 44100;
+    private static final double FREQUENCY = 5000;
+    @Param({"3584", "7168"})
+    public int bufferSize;
+    private byte[] bytes;
+    private AudioCalculator audioCalculator;
+
+    @Setup
+    public void setUp() {
+        bytes = new byte[bufferSize];
+        for (int i = 0; i < bufferSize / 2; i++) {
+            short sample = (short) (Math.sin(2 * Math.PI * FREQUENCY * i / SAMPLE_RATE) * 12000);
+            bytes[2 * i] = (byte) sample;
+            bytes[2 * i + 1] = (byte) (sample >> 8);
+        }
+        audioCalculator = new AudioCalculator();
+    }
+
+    @Benchmark
+    public double getFrequency() {
+        audioCalculator.setBytes(bytes);
+        return audioCalculator.getFrequency();
+    }
+}
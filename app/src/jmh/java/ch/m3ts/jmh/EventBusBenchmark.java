@@ -0,0 +1,56 @@
+package ch.m3ts.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import ch.m3ts.eventbus.Event;
+import ch.m3ts.eventbus.Subscribable;
+import ch.m3ts.eventbus.TTEvent;
+import ch.m3ts.eventbus.TTEventBus;
+import ch.m3ts.eventbus.event.ball.TableSideChangeData;
+import ch.m3ts.util.Side;
+
+/**
+ * TTEventBus.dispatch of an event to subscribers doing nothing but consuming it, i.e. the cost of
+ * the bus itself. The app has about 5 subscribers (Match, Referee, handler, stats, display).
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventBusBenchmark {
+    @Param({"1", "5"})
+    public int nSubscribers;
+    private TTEventBus eventBus;
+    private TableSideChangeData data;
+
+    @Setup
+    public void setUp(final Blackhole blackhole) {
+        eventBus = new TTEventBus();
+        for (int i = 0; i < nSubscribers; i++) {
+            eventBus.register(new Subscribable() {
+                @Override
+                public void handle(Event<?> event) {
+                    blackhole.consume(event.getData());
+                }
+            });
+        }
+        data = new TableSideChangeData(Side.LEFT);
+    }
+
+    @Benchmark
+    public void dispatch() {
+        eventBus.dispatch(new TTEvent<>(data));
+    }
+}
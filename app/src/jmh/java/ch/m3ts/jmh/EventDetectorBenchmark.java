@@ -0,0 +1,57 @@
+package ch.m3ts.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import ch.m3ts.detection.EventDetector;
+import ch.m3ts.eventbus.TTEventBus;
+import ch.m3ts.util.FrameClock;
+import ch.m3ts.util.Side;
+import cz.fmo.Lib;
+import cz.fmo.data.TrackSet;
+import cz.fmo.util.Config;
+import helper.RallySimulator;
+
+/**
+ * EventDetector.onObjectsDetected per frame of a rally, including the track set and the events
+ * dispatched (to a bus without subscribers). Time follows the frames, like in a replay.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventDetectorBenchmark {
+    private Lib.Detection[][] frames;
+    private EventDetector detector;
+    private FrameClock clock;
+    private long timeNs;
+    private int frame;
+
+    @Setup
+    public void setUp() {
+        frames = new RallySimulator(1).setDistractors(1).makeFrames(Side.LEFT, 20);
+        clock = new FrameClock();
+        detector = new EventDetector(new Config(30.f), RallySimulator.SRC_WIDTH, RallySimulator.SRC_HEIGHT,
+                new TrackSet(), RallySimulator.makeTable(), RallySimulator.makeHeader().makeZPositionCalc(),
+                new TTEventBus());
+        detector.setFrameClock(clock);
+    }
+
+    @Benchmark
+    public int onObjectsDetected() {
+        timeNs += RallySimulator.FRAME_NS;
+        clock.advanceTo(timeNs);
+        detector.onObjectsDetected(frames[frame], timeNs);
+        frame = (frame + 1) % frames.length;
+        return detector.getNumberOfDetections();
+    }
+}
@@ -0,0 +1,70 @@
+package ch.m3ts.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import ch.m3ts.detection.ZPositionCalc;
+import ch.m3ts.util.Table;
+import helper.RallySimulator;
+
+/**
+ * The geometry called for every detection: z position of the ball and its position to the table.
+ * Inputs cycle through random positions and radii in and around the table.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeometryBenchmark {
+    private static final int N_INPUTS = 1024; // power of two, see next()
+    private final int[] xs = new int[N_INPUTS];
+    private final int[] ys = new int[N_INPUTS];
+    private final double[] radii = new double[N_INPUTS];
+    private ZPositionCalc zPositionCalc;
+    private Table table;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        table = RallySimulator.makeTable();
+        zPositionCalc = RallySimulator.makeHeader().makeZPositionCalc();
+        Random random = new Random(42);
+        for (int i = 0; i < N_INPUTS; i++) {
+            xs[i] = random.nextInt(RallySimulator.SRC_WIDTH);
+            ys[i] = 300 + random.nextInt(300);
+            radii[i] = 3 + random.nextDouble() * 5;
+        }
+    }
+
+    private int next() {
+        index = (index + 1) & (N_INPUTS - 1);
+        return index;
+    }
+
+    @Benchmark
+    public double findZPosOfBallRel() {
+        return zPositionCalc.findZPosOfBallRel(radii[next()]);
+    }
+
+    @Benchmark
+    public boolean isOnOrAbove() {
+        int i = next();
+        return table.isOnOrAbove(xs[i], ys[i]);
+    }
+
+    @Benchmark
+    public boolean isBounceOn() {
+        int i = next();
+        return table.isBounceOn(xs[i], ys[i]);
+    }
+}
@@ -0,0 +1,90 @@
+package ch.m3ts.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import ch.m3ts.display.statistic.data.MatchData;
+import ch.m3ts.display.statistic.data.MatchDataCodec;
+import helper.MatchStatsSimulator;
+
+/**
+ * Encoding and decoding the statistics of a 5 game match with MatchDataCodec and with Java
+ * serialization, as they were sent before, and decoding the summary the display is sent first.
+ * The sizes are printed on setup, with the length of the Base64 text sent in the parts of the
+ * transfer.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchDataCodecBenchmark {
+    private MatchData match;
+    private byte[] serialized;
+    private byte[] encoded;
+    private byte[] summary;
+
+    @Setup
+    public void setUp() throws IOException {
+        match = MatchStatsSimulator.makeMatch(5);
+        serialized = serialize();
+        encoded = encode();
+        summary = MatchDataCodec.encodeSummary(match);
+        System.out.println("Java serialization: " + serialized.length + " bytes, " +
+                getBase64Length(serialized.length) + " chars in Base64");
+        System.out.println("MatchDataCodec: " + encoded.length + " bytes, " +
+                getBase64Length(encoded.length) + " chars in Base64");
+        System.out.println("Summary: " + summary.length + " bytes, " +
+                getBase64Length(summary.length) + " chars in Base64");
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(match);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public MatchData deserialize() throws IOException, ClassNotFoundException {
+        return (MatchData) new ObjectInputStream(new ByteArrayInputStream(serialized)).readObject();
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return MatchDataCodec.encode(match);
+    }
+
+    @Benchmark
+    public MatchData decode() throws IOException {
+        return MatchDataCodec.decode(encoded);
+    }
+
+    @Benchmark
+    public MatchData decodeSummary() throws IOException {
+        return MatchDataCodec.decode(summary);
+    }
+
+    /**
+     * @return length of the bytes in Base64.DEFAULT, with a line break after every 76 chars
+     */
+    private static int getBase64Length(int nBytes) {
+        int chars = (nBytes + 2) / 3 * 4;
+        return chars + (chars + 75) / 76;
+    }
+}
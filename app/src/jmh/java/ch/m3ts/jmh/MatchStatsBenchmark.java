@@ -0,0 +1,81 @@
+package ch.m3ts.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import ch.m3ts.detection.ZPositionCalc;
+import ch.m3ts.display.statistic.data.GameData;
+import ch.m3ts.display.statistic.data.MatchData;
+import ch.m3ts.display.statistic.data.PointData;
+import ch.m3ts.display.statistic.data.TrackData;
+import ch.m3ts.display.statistic.processing.StatsProcessing;
+import ch.m3ts.util.Side;
+import helper.MatchStatsSimulator;
+import helper.RallySimulator;
+
+/**
+ * Processing the tracks of all points of a 5 game match like the StatsCreator does: putting the
+ * tracks of a strike together, positions in mm and velocities. The tracks are copied within the
+ * benchmark: subtract the copyMatch baseline for the cost of the processing.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchStatsBenchmark {
+    private static final int GAMES = 5;
+    private List<List<TrackData>> pointTracks;
+    private ZPositionCalc zPositionCalc;
+
+    @Setup
+    public void setUp() {
+        zPositionCalc = RallySimulator.makeHeader().makeZPositionCalc();
+        pointTracks = new ArrayList<>(GAMES * MatchStatsSimulator.POINTS_PER_GAME);
+        for (int g = 0; g < GAMES; g++) {
+            for (int p = 0; p < MatchStatsSimulator.POINTS_PER_GAME; p++) {
+                Side server = (p / 2) % 2 == 0 ? Side.LEFT : Side.RIGHT;
+                pointTracks.add(MatchStatsSimulator.makeTracks(MatchStatsSimulator.getStrikes(g, p), server));
+            }
+        }
+    }
+
+    @Benchmark
+    public List<List<TrackData>> copyMatch() {
+        List<List<TrackData>> copy = new ArrayList<>(pointTracks.size());
+        for (List<TrackData> tracks : pointTracks) copy.add(MatchStatsSimulator.copyTracks(tracks));
+        return copy;
+    }
+
+    @Benchmark
+    public MatchData processMatch() {
+        List<List<TrackData>> copy = copyMatch();
+        List<GameData> games = new ArrayList<>(GAMES);
+        List<PointData> points = new ArrayList<>(MatchStatsSimulator.POINTS_PER_GAME);
+        for (int i = 0; i < copy.size(); i++) {
+            List<TrackData> tracks = copy.get(i);
+            int p = i % MatchStatsSimulator.POINTS_PER_GAME;
+            PointData point = new PointData("Out of Frame for too long", tracks, Side.LEFT, p / 2 + 1, p - p / 2,
+                    Side.RIGHT, Side.LEFT, Side.LEFT, 5);
+            StatsProcessing.calculatePositionsInMm(tracks, zPositionCalc);
+            StatsProcessing.recalculateVelocity(tracks, zPositionCalc, RallySimulator.FRAME_RATE);
+            point.setFastestStrikes();
+            points.add(point);
+            if (p == MatchStatsSimulator.POINTS_PER_GAME - 1) {
+                games.add(new GameData(points));
+                points = new ArrayList<>(MatchStatsSimulator.POINTS_PER_GAME);
+            }
+        }
+        return new MatchData(games, "Hans", "Peter", "01.06.2020 10:00", null);
+    }
+}
@@ -0,0 +1,104 @@
+package ch.m3ts.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import ch.m3ts.detection.ZPositionCalc;
+import ch.m3ts.display.statistic.data.DetectionData;
+import ch.m3ts.display.statistic.data.TrackData;
+import ch.m3ts.display.statistic.processing.StatsProcessing;
+import ch.m3ts.util.Side;
+import helper.RallySimulator;
+
+/**
+ * StatsProcessing on the tracks of a point. The methods changing the tracks work on a copy, made
+ * within the benchmark: subtract the copyTracks baseline for their own cost.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatsProcessingBenchmark {
+    private static final int DETECTIONS_PER_TRACK = 15;
+    @Param({"12", "120"})
+    public int nTracks;
+    private List<TrackData> tracks;
+    private ZPositionCalc zPositionCalc;
+
+    @Setup
+    public void setUp() {
+        zPositionCalc = RallySimulator.makeHeader().makeZPositionCalc();
+        tracks = new ArrayList<>(nTracks);
+        for (int t = 0; t < nTracks; t++) {
+            // every third track continues the strike of the track before, to be put together
+            boolean toRight = (t - t / 3) % 2 == 0;
+            Side striker = toRight ? Side.LEFT : Side.RIGHT;
+            List<DetectionData> detections = new ArrayList<>(DETECTIONS_PER_TRACK);
+            for (int i = 0; i < DETECTIONS_PER_TRACK; i++) {
+                // latest detection first, like in the stats of a point
+                int step = DETECTIONS_PER_TRACK - 1 - i;
+                int x = toRight ? 200 + step * 60 : 1100 - step * 60;
+                detections.add(new DetectionData(x, 350 + step * 10, 0.3 + step * 0.01, 40 + step,
+                        step == 10, toRight ? 1 : -1));
+            }
+            tracks.add(new TrackData(detections, 50 + t % 7, striker));
+        }
+    }
+
+    @Benchmark
+    public List<TrackData> copyTracks() {
+        List<TrackData> copy = new ArrayList<>(tracks.size());
+        for (TrackData track : tracks) {
+            List<DetectionData> detections = new ArrayList<>(track.getDetections().size());
+            for (DetectionData d : track.getDetections()) {
+                detections.add(new DetectionData(d.getX(), d.getY(), d.getZ(), d.getVelocity(), d.wasBounce(), d.getDirectionX()));
+            }
+            copy.add(new TrackData(detections, track.getAverageVelocity(), track.getStriker()));
+        }
+        return copy;
+    }
+
+    @Benchmark
+    public List<TrackData> putTogetherTracksOfSameStrikes() {
+        List<TrackData> copy = copyTracks();
+        StatsProcessing.putTogetherTracksOfSameStrikes(copy);
+        return copy;
+    }
+
+    @Benchmark
+    public List<TrackData> calculatePositionsInMm() {
+        List<TrackData> copy = copyTracks();
+        StatsProcessing.calculatePositionsInMm(copy, zPositionCalc);
+        return copy;
+    }
+
+    @Benchmark
+    public List<TrackData> recalculateVelocity() {
+        List<TrackData> copy = copyTracks();
+        StatsProcessing.recalculateVelocity(copy, zPositionCalc, RallySimulator.FRAME_RATE);
+        return copy;
+    }
+
+    @Benchmark
+    public Map<Side, Float> findFastestStrikeOfBothSides() {
+        return StatsProcessing.findFastestStrikeOfBothSides(tracks);
+    }
+
+    @Benchmark
+    public Map<Side, Integer> countAmountOfStrikesOfBothSides() {
+        return StatsProcessing.countAmountOfStrikesOfBothSides(tracks);
+    }
+}
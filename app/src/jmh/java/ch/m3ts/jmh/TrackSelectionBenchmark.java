@@ -0,0 +1,68 @@
+package ch.m3ts.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import ch.m3ts.detection.EventDetector;
+import ch.m3ts.detection.trackselection.TrackSelectionStrategy;
+import ch.m3ts.eventbus.TTEventBus;
+import ch.m3ts.util.FrameClock;
+import ch.m3ts.util.Side;
+import cz.fmo.Lib;
+import cz.fmo.data.Track;
+import cz.fmo.data.TrackSet;
+import cz.fmo.util.Config;
+import helper.RallySimulator;
+
+/**
+ * Every TrackSelectionStrategy on the tracks of a rally (ball, ball of the previous stroke and a
+ * second object), marked by an EventDetector like in a match.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrackSelectionBenchmark {
+    private static final int FRAMES_PLAYED = 30;
+    @Param({"ChooseNewestTrackSelection", "ChooseOldestTrackSelection",
+            "DirectionXAndMinimumDistanceTrackSelection", "MinimumDistanceTrackSelection",
+            "SameXDirectionTrackSelection", "SameXYDirectionTrackSelection"})
+    public String strategyName;
+    private TrackSelectionStrategy strategy;
+    private List<Track> tracks;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        strategy = (TrackSelectionStrategy) Class.forName(
+                TrackSelectionStrategy.class.getPackage().getName() + "." + strategyName).newInstance();
+        TrackSet trackSet = new TrackSet();
+        FrameClock clock = new FrameClock();
+        EventDetector detector = new EventDetector(new Config(30.f), RallySimulator.SRC_WIDTH,
+                RallySimulator.SRC_HEIGHT, trackSet, RallySimulator.makeTable(),
+                RallySimulator.makeHeader().makeZPositionCalc(), new TTEventBus());
+        detector.setFrameClock(clock);
+        Lib.Detection[][] frames = new RallySimulator(1).setDistractors(1).makeFrames(Side.LEFT, 2);
+        for (int i = 0; i < FRAMES_PLAYED; i++) {
+            long timeNs = (i + 1) * RallySimulator.FRAME_NS;
+            clock.advanceTo(timeNs);
+            detector.onObjectsDetected(frames[i], timeNs);
+        }
+        tracks = trackSet.getTracks();
+    }
+
+    @Benchmark
+    public Track selectTrack() {
+        return strategy.selectTrack(tracks, 1, 1, 640, 480);
+    }
+}
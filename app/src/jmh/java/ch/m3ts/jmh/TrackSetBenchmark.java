@@ -0,0 +1,51 @@
+package ch.m3ts.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import ch.m3ts.util.Side;
+import cz.fmo.Lib;
+import cz.fmo.data.TrackSet;
+import cz.fmo.util.Config;
+import helper.RallySimulator;
+
+/**
+ * TrackSet.addDetections per frame of a rally, with the ball alone or next to a second object.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrackSetBenchmark {
+    @Param({"false", "true"})
+    public boolean withSecondObject;
+    private Lib.Detection[][] frames;
+    private TrackSet trackSet;
+    private long timeNs;
+    private int frame;
+
+    @Setup
+    public void setUp() {
+        frames = new RallySimulator(1).setDistractors(withSecondObject ? 1 : 0).makeFrames(Side.LEFT, 20);
+        trackSet = new TrackSet();
+        trackSet.setConfig(new Config(30.f));
+    }
+
+    @Benchmark
+    public int addDetections() {
+        timeNs += RallySimulator.FRAME_NS;
+        trackSet.addDetections(frames[frame], RallySimulator.SRC_WIDTH, RallySimulator.SRC_HEIGHT, timeNs);
+        frame = (frame + 1) % frames.length;
+        return trackSet.getTracks().size();
+    }
+}
@@ -10,10 +10,12 @@ public final class ConnectionEvent {
     public static final String CONNECTION = "onConnected";
     public static final String TABLE_FRAME = "onTableFrame";
     public static final String STATS_PART = "onStatsPart";
+    public static final String GAME_STATS_PART = "onGameStatsPart";
     public static final String POINT_DEDUCTION = "onPointDeduction";
     public static final String POINT_ADDITION = "onPointAddition";
     public static final String STATUS_REQUEST = "requestStatus";
     public static final String STATS_REQUEST = "requestStats";
+    public static final String GAME_STATS_REQUEST = "requestGameStats";
     public static final String PAUSE = "onPause";
     public static final String RESUME = "onResume";
     public static final String TABLE_FRAME_REQUEST = "onRequestTableFrame";
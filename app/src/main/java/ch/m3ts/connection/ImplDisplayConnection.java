@@ -8,18 +8,20 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.ByteArrayInputStream;
-import java.io.ObjectInputStream;
-
 import ch.m3ts.connection.pubnub.ByteToBase64;
 import ch.m3ts.connection.pubnub.JSONInfo;
 import ch.m3ts.display.DisplayConnectCallback;
+import ch.m3ts.display.statistic.data.GameData;
 import ch.m3ts.display.statistic.data.MatchData;
+import ch.m3ts.display.statistic.data.MatchDataCodec;
 import ch.m3ts.eventbus.Event;
 import ch.m3ts.eventbus.EventBus;
 import ch.m3ts.eventbus.Subscribable;
 import ch.m3ts.eventbus.TTEvent;
 import ch.m3ts.eventbus.TTEventBus;
+import ch.m3ts.eventbus.event.GameStatsData;
+import ch.m3ts.eventbus.event.GameStatsPartData;
+import ch.m3ts.eventbus.event.RequestGameStatsData;
 import ch.m3ts.eventbus.event.RequestStatsData;
 import ch.m3ts.eventbus.event.RestartMatchData;
 import ch.m3ts.eventbus.event.StatsData;
@@ -51,6 +53,17 @@ public abstract class ImplDisplayConnection extends Callback implements ScoreMan
         send(ConnectionEvent.STATS_REQUEST, null);
     }
 
+    private void requestGameStats(int game) {
+        try {
+            JSONObject json = new JSONObject();
+            json.put(JSONInfo.EVENT_PROPERTY, ConnectionEvent.GAME_STATS_REQUEST);
+            json.put(JSONInfo.GAME_PROPERTY, game);
+            sendData(json);
+        } catch (JSONException ex) {
+            Log.d("Unable to send JSON to endpoint \n" + ex.getMessage());
+        }
+    }
+
     public void onRequestTableFrame() {
         send(ConnectionEvent.TABLE_FRAME_REQUEST, null);
     }
@@ -136,6 +149,7 @@ public abstract class ImplDisplayConnection extends Callback implements ScoreMan
                         break;
                     case ConnectionEvent.TABLE_FRAME:
                     case ConnectionEvent.STATS_PART:
+                    case ConnectionEvent.GAME_STATS_PART:
                         this.handlePart(json);
                         break;
                     default:
@@ -151,6 +165,8 @@ public abstract class ImplDisplayConnection extends Callback implements ScoreMan
         int encodedPartIndex = json.getInt(JSONInfo.PART_INDEX);
         int numberOfParts = json.getInt(JSONInfo.MULTIPART_NUMBER_OF_PARTS);
         String encodedPart = json.getString(JSONInfo.PART_DATA);
+        if (json.getString(JSONInfo.EVENT_PROPERTY).equals(ConnectionEvent.GAME_STATS_PART))
+            TTEventBus.getInstance().dispatch(new TTEvent<>(new GameStatsPartData(json.getInt(JSONInfo.GAME_PROPERTY))));
         if (encodedPartIndex == 0) {
             this.numberOfEncodedParts = 1;
             this.encodedMultipartComplete = encodedPart;
@@ -169,7 +185,7 @@ public abstract class ImplDisplayConnection extends Callback implements ScoreMan
                 if (this.numberOfEncodedParts == numberOfParts) {
                     handleMultipartTransmissionCompletion(json);
                 } else {
-                    handleMultipartTransmissionRetry(json.getString(JSONInfo.EVENT_PROPERTY));
+                    handleMultipartTransmissionRetry(json);
                 }
             }
         }
@@ -185,28 +201,37 @@ public abstract class ImplDisplayConnection extends Callback implements ScoreMan
                 break;
             case ConnectionEvent.STATS_PART:
                 try {
-                    byte[] b = android.util.Base64.decode(this.encodedMultipartComplete, android.util.Base64.DEFAULT);
-                    ByteArrayInputStream bi = new ByteArrayInputStream(b);
-                    ObjectInputStream si = new ObjectInputStream(bi);
-                    MatchData stats = (MatchData) si.readObject();
+                    byte[] b = ByteToBase64.decodeToByte(this.encodedMultipartComplete);
+                    MatchData stats = MatchDataCodec.decode(b);
                     TTEventBus.getInstance().dispatch(new TTEvent<>(new StatsData(stats)));
                 } catch (Exception e) {
                     Log.d("Failed to serialize Stats:" + e.getMessage());
                 }
                 break;
+            case ConnectionEvent.GAME_STATS_PART:
+                try {
+                    GameData game = MatchDataCodec.decodeGame(ByteToBase64.decodeToByte(this.encodedMultipartComplete));
+                    TTEventBus.getInstance().dispatch(new TTEvent<>(new GameStatsData(json.getInt(JSONInfo.GAME_PROPERTY), game)));
+                } catch (Exception e) {
+                    Log.d("Failed to serialize Stats:" + e.getMessage());
+                }
+                break;
         }
         this.numberOfEncodedParts = 0;
         this.encodedMultipartComplete = "";
     }
 
-    private void handleMultipartTransmissionRetry(String event) {
-        switch (event) {
+    private void handleMultipartTransmissionRetry(JSONObject json) throws JSONException {
+        switch (json.getString(JSONInfo.EVENT_PROPERTY)) {
             case ConnectionEvent.TABLE_FRAME:
                 onRequestTableFrame();
                 break;
             case ConnectionEvent.STATS_PART:
                 requestStats();
                 break;
+            case ConnectionEvent.GAME_STATS_PART:
+                requestGameStats(json.getInt(JSONInfo.GAME_PROPERTY));
+                break;
         }
     }
 
@@ -233,6 +258,8 @@ public abstract class ImplDisplayConnection extends Callback implements ScoreMan
             this.onRestartMatch();
         } else if (data instanceof RequestStatsData) {
             this.requestStats();
+        } else if (data instanceof RequestGameStatsData) {
+            this.requestGameStats(((RequestGameStatsData) data).getGame());
         }
     }
 }
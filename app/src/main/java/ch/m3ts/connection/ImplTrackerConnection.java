@@ -1,21 +1,20 @@
 package ch.m3ts.connection;
 
-import android.util.Base64;
-
 import com.pubnub.api.Callback;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.ByteArrayOutputStream;
-import java.io.ObjectOutputStream;
+import java.util.List;
 
 import ch.m3ts.connection.pubnub.ByteToBase64;
 import ch.m3ts.connection.pubnub.CameraBytesConversions;
 import ch.m3ts.connection.pubnub.JSONInfo;
 import ch.m3ts.display.statistic.StatsCreator;
+import ch.m3ts.display.statistic.data.GameData;
 import ch.m3ts.display.statistic.data.MatchData;
+import ch.m3ts.display.statistic.data.MatchDataCodec;
 import ch.m3ts.eventbus.Event;
 import ch.m3ts.eventbus.Subscribable;
 import ch.m3ts.eventbus.TTEvent;
@@ -53,6 +52,7 @@ public abstract class ImplTrackerConnection extends Callback implements TrackerC
                 this.initTrackerCallback.updateLoadingBar(index);
                 break;
             case ConnectionEvent.STATS_PART:
+            case ConnectionEvent.GAME_STATS_PART:
                 // not needed so far
                 break;
         }
@@ -64,6 +64,7 @@ public abstract class ImplTrackerConnection extends Callback implements TrackerC
                 this.initTrackerCallback.frameSent();
                 break;
             case ConnectionEvent.STATS_PART:
+            case ConnectionEvent.GAME_STATS_PART:
                 // not needed so far
                 break;
         }
@@ -119,12 +120,8 @@ public abstract class ImplTrackerConnection extends Callback implements TrackerC
 
     private void sendStats() {
         try {
-            ByteArrayOutputStream bo = new ByteArrayOutputStream();
-            ObjectOutputStream so = new ObjectOutputStream(bo);
             MatchData stats = StatsCreator.getInstance().createStats();
-            so.writeObject(stats);
-            so.flush();
-            String encodedStats = android.util.Base64.encodeToString(bo.toByteArray(), Base64.DEFAULT);
+            String encodedStats = ByteToBase64.encodeToString(MatchDataCodec.encodeSummary(stats));
             JSONObject json = new JSONObject();
             json.put(JSONInfo.EVENT_PROPERTY, ConnectionEvent.STATS_PART);
             sendMultipartData(json, encodedStats);
@@ -135,6 +132,25 @@ public abstract class ImplTrackerConnection extends Callback implements TrackerC
         }
     }
 
+    private void sendGameStats(int gameIndex) {
+        try {
+            List<GameData> games = StatsCreator.getInstance().createStats().getGameStats();
+            if (gameIndex < 0 || gameIndex >= games.size()) {
+                Log.d("No stats of game " + gameIndex);
+                return;
+            }
+            String encodedGame = ByteToBase64.encodeToString(MatchDataCodec.encodeGame(games.get(gameIndex)));
+            JSONObject json = new JSONObject();
+            json.put(JSONInfo.EVENT_PROPERTY, ConnectionEvent.GAME_STATS_PART);
+            json.put(JSONInfo.GAME_PROPERTY, gameIndex);
+            sendMultipartData(json, encodedGame);
+        } catch (JSONException ex) {
+            Log.d(JSON_SEND_EXCEPTION_MESSAGE + ex.getMessage());
+        } catch (Exception e) {
+            Log.d("Failed to serialize Stats");
+        }
+    }
+
     public void onWin(Side side, int wins) {
         send(ConnectionEvent.WIN, side.toString(), null, wins, null);
     }
@@ -176,6 +192,9 @@ public abstract class ImplTrackerConnection extends Callback implements TrackerC
                     case ConnectionEvent.STATS_REQUEST:
                         sendStats();
                         break;
+                    case ConnectionEvent.GAME_STATS_REQUEST:
+                        sendGameStats(json.getInt(JSONInfo.GAME_PROPERTY));
+                        break;
                     case ConnectionEvent.PAUSE:
                         TTEventBus.getInstance().dispatch(new TTEvent<>(new PauseMatch()));
                         break;
@@ -2,6 +2,7 @@ package ch.m3ts.detection;
 
 import android.support.annotation.NonNull;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
@@ -9,6 +10,7 @@ import java.util.concurrent.TimeUnit;
 
 import ch.m3ts.detection.audio.AudioBounceDetection;
 import ch.m3ts.detection.timeouts.TimeoutTimerTask;
+import ch.m3ts.detection.trace.DetectionTraceWriter;
 import ch.m3ts.detection.trackselection.ChooseNewestTrackSelection;
 import ch.m3ts.detection.trackselection.TrackSelectionStrategy;
 import ch.m3ts.eventbus.EventBus;
@@ -25,6 +27,8 @@ import ch.m3ts.eventbus.event.ball.StrikerSideChangeData;
 import ch.m3ts.eventbus.event.ball.TableSideChangeData;
 import ch.m3ts.util.DirectionX;
 import ch.m3ts.util.DirectionY;
+import ch.m3ts.util.FrameClock;
+import ch.m3ts.util.Log;
 import ch.m3ts.util.Side;
 import ch.m3ts.util.Table;
 import cz.fmo.Lib;
@@ -65,14 +69,20 @@ public class EventDetector implements Lib.Callback, AudioBounceDetection.Callbac
     private final ZPositionCalc zPositionCalc;
     private Track currentTrack;
     private final EventBus eventBus;
-    private final Timer timeoutTimer;
+    private Timer timeoutTimer;
     private final BallCurvePredictor ballCurvePredictor;
     private final TrackSelectionStrategy trackSelectionStrategy;
     private boolean checkForBallMovingIntoNet;
     private boolean checkForSideChange;
+    private FrameClock frameClock;
+    private volatile DetectionTraceWriter traceWriter;
 
     public EventDetector(Config config, int srcWidth, int srcHeight, TrackSet trackSet, @NonNull Table table, ZPositionCalc calc) {
-        this.eventBus = TTEventBus.getInstance();
+        this(config, srcWidth, srcHeight, trackSet, table, calc, TTEventBus.getInstance());
+    }
+
+    public EventDetector(Config config, int srcWidth, int srcHeight, TrackSet trackSet, @NonNull Table table, ZPositionCalc calc, EventBus eventBus) {
+        this.eventBus = eventBus;
         this.srcHeight = srcHeight;
         this.srcWidth = srcWidth;
         this.trackSet = trackSet;
@@ -85,7 +95,6 @@ public class EventDetector implements Lib.Callback, AudioBounceDetection.Callbac
         this.table = table;
         this.numberOfDetections = 0;
         this.zPositionCalc = calc;
-        this.timeoutTimer = new Timer("timeoutTimer");
         this.ballCurvePredictor = new LinearBallCurvePredictor();
         this.checkForBallMovingIntoNet = true;
         this.checkForSideChange = true;
@@ -93,6 +102,26 @@ public class EventDetector implements Lib.Callback, AudioBounceDetection.Callbac
         trackSet.setConfig(config);
     }
 
+    /**
+     * Uses the given clock instead of the system clock for detection times and the detection
+     * timeout, used when replaying faster than real time.
+     *
+     * @param frameClock clock of the replayed video, null to use the system clock
+     */
+    public void setFrameClock(FrameClock frameClock) {
+        this.frameClock = frameClock;
+    }
+
+    /**
+     * Writes all detections and audio bounces received from now on to the given trace, so the run
+     * can be reproduced with a DetectionTracePlayer.
+     *
+     * @param traceWriter trace to write to, null to stop tracing
+     */
+    public void setTraceWriter(DetectionTraceWriter traceWriter) {
+        this.traceWriter = traceWriter;
+    }
+
     @Override
     public void log(String message) {
         // Lib logs will be ignored for now
@@ -100,13 +129,15 @@ public class EventDetector implements Lib.Callback, AudioBounceDetection.Callbac
 
     @Override
     public void onObjectsDetected(Lib.Detection[] detections) {
-        this.onObjectsDetected(detections, System.nanoTime());
+        this.onObjectsDetected(detections, nanoTime());
     }
 
     @Override
     public void onAudioBounceDetected() {
+        long now = nanoTime();
+        traceAudioBounce(now);
         if (currentTrack != null &&
-                TimeUnit.MILLISECONDS.convert(System.nanoTime() - currentTrack.getLastDetectionTime(), TimeUnit.NANOSECONDS)
+                TimeUnit.MILLISECONDS.convert(now - currentTrack.getLastDetectionTime(), TimeUnit.NANOSECONDS)
                         < AUDIO_BOUNCE_THRESHOLD_MS) {
             Side ballBouncedOnSide = table.getHorizontalSideOfDetection(previousCenterX);
             eventBus.dispatch(new TTEvent<>(new BallBounceAudioData(ballBouncedOnSide)));
@@ -115,6 +146,9 @@ public class EventDetector implements Lib.Callback, AudioBounceDetection.Callbac
 
     public void onObjectsDetected(Lib.Detection[] detections, long detectionTime) {
         synchronized (mLock) {
+            traceDetections(detections, detectionTime);
+            // FMO reports every frame processed, a frame without detections must not end the tracks
+            if (detections.length == 0) return;
             trackSet.addDetections(detections, this.srcWidth, this.srcHeight, detectionTime);
             if (!trackSet.getTracks().isEmpty()) {
                 Track track = selectTrack(trackSet.getTracks());
@@ -209,7 +243,40 @@ public class EventDetector implements Lib.Callback, AudioBounceDetection.Callbac
 
     private void setTimeoutTimer(int currentNumberOfDetections) {
         TimerTask timeoutTimerTask = new TimeoutTimerTask(this, currentNumberOfDetections);
-        timeoutTimer.schedule(timeoutTimerTask, MILLISECONDS_TILL_TIMEOUT);
+        if (frameClock != null) {
+            frameClock.schedule(timeoutTimerTask, MILLISECONDS_TILL_TIMEOUT);
+        } else {
+            // created on first use, detectors driven by a frame clock never start the timer thread
+            if (timeoutTimer == null) timeoutTimer = new Timer("timeoutTimer");
+            timeoutTimer.schedule(timeoutTimerTask, MILLISECONDS_TILL_TIMEOUT);
+        }
+    }
+
+    private void traceDetections(Lib.Detection[] detections, long detectionTime) {
+        DetectionTraceWriter writer = this.traceWriter;
+        if (writer == null) return;
+        try {
+            writer.writeDetections(detectionTime, detections);
+        } catch (IOException e) {
+            Log.e("Unable to write the detection trace, continuing without", e);
+            this.traceWriter = null;
+        }
+    }
+
+    private void traceAudioBounce(long time) {
+        DetectionTraceWriter writer = this.traceWriter;
+        if (writer == null) return;
+        try {
+            writer.writeAudioBounce(time);
+        } catch (IOException e) {
+            Log.e("Unable to write the detection trace, continuing without", e);
+            this.traceWriter = null;
+        }
+    }
+
+    private long nanoTime() {
+        FrameClock clock = this.frameClock;
+        return clock != null ? clock.nanoTime() : System.nanoTime();
     }
 
     private void savePreviousDetection(Lib.Detection detection) {
@@ -8,23 +8,31 @@ import org.opencv.video.Video;
 
 public class BackgroundModelingStrategy implements GestureDetectionStrategy {
     private static final double PERCENTAGE_THRESHOLD = 0.6;
-    private Mat fgMask;
+    private final Mat fgMask;
     private final BackgroundSubtractor backSub;
+    private boolean hasFirstFrame = false;
 
     public BackgroundModelingStrategy() {
         OpenCVLoader.initDebug();   // pls no delete, need to init here because of unit testing...
         backSub = Video.createBackgroundSubtractorKNN();
+        fgMask = new Mat();
     }
 
     @Override
     public boolean isRacketInPicture(Mat bgr) {
-        if (fgMask == null) {
-            fgMask = bgr;
+        if (!hasFirstFrame) {
+            hasFirstFrame = true;
             return false;
         } else {
+            // fgMask is reused across frames, apply() only reallocates it if the size changes
             backSub.apply(bgr, fgMask);
             double percentNotInBackground = Core.countNonZero(fgMask) / (double) fgMask.total();
             return percentNotInBackground > PERCENTAGE_THRESHOLD && percentNotInBackground != 1.0;
         }
     }
+
+    @Override
+    public void release() {
+        fgMask.release();
+    }
 }
@@ -1,33 +1,33 @@
 package ch.m3ts.detection.gesture;
 
-import org.opencv.core.Core;
 import org.opencv.core.Mat;
-import org.opencv.core.Scalar;
-import org.opencv.imgproc.Imgproc;
-
-import static org.opencv.core.Core.inRange;
 
+/**
+ * Detects a black racket by the ratio of dark pixels (HSV value of 70 or less) in the picture.
+ */
 public class BlackThresholdingStrategy implements GestureDetectionStrategy {
-    private static final double PERCENTAGE_THRESHOLD_BLACK = 0.8;
+    static final double PERCENTAGE_THRESHOLD_BLACK = 0.8;
+    private final ColorClassifier classifier;
 
-    @Override
-    public boolean isRacketInPicture(Mat bgr) {
-        Mat mask = segmentBlackColor(bgr);
-        double percentBlack = Core.countNonZero(mask) / (double) mask.total();
-        return percentBlack > PERCENTAGE_THRESHOLD_BLACK;
+    public BlackThresholdingStrategy() {
+        this(0);
     }
 
     /**
-     * Segments black color from image with two color ranges.
-     *
-     * @param bgr mat with bgr color space
-     * @return image where black pixels in original images are 255 and others 0
+     * @param expectedPixels amount of pixels of the pictures which will be checked
      */
-    private Mat segmentBlackColor(Mat bgr) {
-        Mat mask1 = new Mat();
-        Mat hsv = new Mat();
-        Imgproc.cvtColor(bgr, hsv, Imgproc.COLOR_BGR2HSV, 3);
-        inRange(hsv, new Scalar(0, 0, 0), new Scalar(255, 255, 70), mask1);
-        return mask1;
+    public BlackThresholdingStrategy(int expectedPixels) {
+        this.classifier = new ColorClassifier(expectedPixels);
+    }
+
+    @Override
+    public boolean isRacketInPicture(Mat bgr) {
+        classifier.classify(bgr);
+        return classifier.getBlackRatio() > PERCENTAGE_THRESHOLD_BLACK;
+    }
+
+    @Override
+    public void release() {
+        classifier.release();
     }
 }
@@ -0,0 +1,137 @@
+package ch.m3ts.detection.gesture;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+/**
+ * Classifies the pixels of a BGR region of interest as red and/or black in a single pass.
+ * <p>
+ * The pixel data is copied once into a pooled buffer and the HSV hue, saturation and value of
+ * each pixel are computed on the fly, so no intermediate full-size HSV images or masks are
+ * allocated per frame. The thresholds correspond to the former OpenCV inRange() segmentations.
+ */
+class ColorClassifier {
+    private static final int MAX_COLOR_CHANNEL_OFFSET = 10;
+    private static final int CYAN_HUE = 90;
+    private static final int MAX_HUE = 180;
+    private static final int MIN_SATURATION_RED = 120;
+    private static final int MIN_SATURATION_RED_INVERTED = 70;
+    private static final int MIN_VALUE_RED = 50;
+    private static final int MAX_VALUE_BLACK = 70;
+    private static final int CHANNELS = 3;
+    private byte[] pixels;
+    private int redPixels;
+    private int blackPixels;
+    private int totalPixels;
+
+    /**
+     * @param expectedPixels amount of pixels of the region of interest, used to pre-size the
+     *                       working buffer (0 if unknown, the buffer is then sized on first use)
+     */
+    ColorClassifier(int expectedPixels) {
+        this.pixels = new byte[Math.max(0, expectedPixels) * CHANNELS];
+    }
+
+    /**
+     * Counts the red and black pixels of the given image.
+     *
+     * @param bgr mat (or submat) with bgr color space and 8 bit per channel
+     */
+    void classify(Mat bgr) {
+        if (bgr.type() != CvType.CV_8UC3) {
+            throw new IllegalArgumentException("Expected a CV_8UC3 mat, got type " + bgr.type());
+        }
+        totalPixels = (int) bgr.total();
+        redPixels = 0;
+        blackPixels = 0;
+        if (totalPixels == 0) return;
+        int length = totalPixels * CHANNELS;
+        if (pixels.length < length) {
+            pixels = new byte[length];
+        }
+        bgr.get(0, 0, pixels);
+        for (int i = 0; i < length; i += CHANNELS) {
+            int b = pixels[i] & 0xFF;
+            int g = pixels[i + 1] & 0xFF;
+            int r = pixels[i + 2] & 0xFF;
+            if (isBlack(r, g, b)) {
+                blackPixels++;
+            }
+            if (isRed(r, g, b)) {
+                redPixels++;
+            }
+        }
+    }
+
+    double getRedRatio() {
+        return totalPixels == 0 ? 0 : redPixels / (double) totalPixels;
+    }
+
+    double getBlackRatio() {
+        return totalPixels == 0 ? 0 : blackPixels / (double) totalPixels;
+    }
+
+    /**
+     * Drops the pooled buffer, the classifier may still be used afterwards.
+     */
+    void release() {
+        pixels = new byte[0];
+    }
+
+    /**
+     * A pixel is black if its HSV value (the largest channel) is at most MAX_VALUE_BLACK.
+     */
+    static boolean isBlack(int r, int g, int b) {
+        return Math.max(r, Math.max(g, b)) <= MAX_VALUE_BLACK;
+    }
+
+    /**
+     * A pixel is red if its hue lies within MAX_COLOR_CHANNEL_OFFSET above pure red and it is
+     * saturated and bright enough, or if its inverted pixel is a saturated and bright enough cyan
+     * (hue within MAX_COLOR_CHANNEL_OFFSET of CYAN_HUE, which also covers the reds just below 180).
+     */
+    static boolean isRed(int r, int g, int b) {
+        int max = Math.max(r, Math.max(g, b));
+        int min = Math.min(r, Math.min(g, b));
+        int diff = max - min;
+        if (diff == 0) return false;
+        boolean isRedNormal = hue(r, g, b, max, diff) <= MAX_COLOR_CHANNEL_OFFSET
+                && max >= MIN_VALUE_RED && saturation(max, diff) >= MIN_SATURATION_RED;
+        if (isRedNormal) return true;
+        int maxInverted = 255 - min;
+        int hueInverted = hue(255 - r, 255 - g, 255 - b, maxInverted, diff);
+        return Math.abs(hueInverted - CYAN_HUE) <= MAX_COLOR_CHANNEL_OFFSET
+                && maxInverted >= MIN_VALUE_RED && saturation(maxInverted, diff) >= MIN_SATURATION_RED_INVERTED;
+    }
+
+    /**
+     * @return hue in the OpenCV 8 bit range [0, 180), rounded like cvtColor(COLOR_BGR2HSV)
+     */
+    static int hue(int r, int g, int b) {
+        int max = Math.max(r, Math.max(g, b));
+        int diff = max - Math.min(r, Math.min(g, b));
+        return diff == 0 ? 0 : hue(r, g, b, max, diff);
+    }
+
+    private static int hue(int r, int g, int b, int max, int diff) {
+        int sector;
+        if (max == r) {
+            sector = g - b;
+        } else if (max == g) {
+            sector = b - r + 2 * diff;
+        } else {
+            sector = r - g + 4 * diff;
+        }
+        // 30 * sector / diff rounded half up, the 8 bit hue covers 360 degrees in 180 steps
+        int numerator = 60 * sector + diff;
+        int hue = numerator >= 0 ? numerator / (2 * diff) : -((2 * diff - 1 - numerator) / (2 * diff));
+        return hue < 0 ? hue + MAX_HUE : hue;
+    }
+
+    /**
+     * @return saturation in the range [0, 255], rounded like cvtColor(COLOR_BGR2HSV)
+     */
+    private static int saturation(int max, int diff) {
+        return (510 * diff + max) / (2 * max);
+    }
+}
@@ -4,4 +4,9 @@ import org.opencv.core.Mat;
 
 public interface GestureDetectionStrategy {
     boolean isRacketInPicture(Mat bgr);
+
+    /**
+     * Frees the native memory held by the working set of this strategy.
+     */
+    void release();
 }
@@ -0,0 +1,145 @@
+package ch.m3ts.detection.gesture;
+
+import org.opencv.android.OpenCVLoader;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.imgproc.Imgproc;
+
+import ch.m3ts.util.Log;
+import cz.fmo.util.GenericThread;
+
+/**
+ * Runs the ready to serve gesture detection off the camera thread.
+ * <p>
+ * The camera thread only copies the gesture area out of the YUV frame (see submitFrame()), the
+ * conversion and the thresholding happen on this thread. There is only one pending slot: if the
+ * camera delivers a new frame before the previous one got processed, the stale one is dropped.
+ * A detected gesture is reported by the ReadyToServeDetector itself.
+ */
+public class GestureDetectionThread extends GenericThread<GestureDetectionThreadHandler> {
+    private final Object mLock = new Object();
+    private final Mat mYuv = new Mat();
+    private final Mat mBgr = new Mat();
+    private Area mWrite = new Area();
+    private Area mPending = new Area();
+    private Area mRead = new Area();
+    private boolean mHasPending = false;
+    private boolean mIsQuitting = false;
+    private int mDroppedFrames = 0;
+    private int mProcessedFrames = 0;
+
+    public GestureDetectionThread() {
+        super("GestureDetectionThread");
+    }
+
+    @Override
+    protected GestureDetectionThreadHandler makeHandler() {
+        return new GestureDetectionThreadHandler(this);
+    }
+
+    @Override
+    protected void teardown() {
+        mYuv.release();
+        mBgr.release();
+        Log.d("Gesture detection processed " + mProcessedFrames + " frames, dropped " + mDroppedFrames);
+    }
+
+    /**
+     * Copies the gesture area of the detector out of the frame and hands it over to this thread.
+     * Never blocks on the detection, call this from the camera thread. Frames submitted after
+     * quit() are ignored.
+     *
+     * @param dataYUV420SP frame in NV21 format
+     * @param frameWidth   width of the frame in pixels
+     * @param frameHeight  height of the frame in pixels
+     * @param detector     detector which evaluates the gesture area
+     */
+    public void submitFrame(byte[] dataYUV420SP, int frameWidth, int frameHeight, ReadyToServeDetector detector) {
+        if (!mWrite.crop(dataYUV420SP, frameWidth, frameHeight, detector)) return;
+        synchronized (mLock) {
+            if (mIsQuitting) return;
+            Area swap = mPending;
+            mPending = mWrite;
+            mWrite = swap;
+            if (mHasPending) mDroppedFrames++;
+            mHasPending = true;
+            // the thread is not asked to quit before this message is sent, so its handler is there
+            getHandler().sendFrame();
+        }
+    }
+
+    /**
+     * Ends the thread after the message queued last, safe to call while the camera thread is in
+     * submitFrame().
+     */
+    public void quit() {
+        synchronized (mLock) {
+            if (mIsQuitting) return;
+            mIsQuitting = true;
+            getHandler().sendKill();
+        }
+    }
+
+    /**
+     * Takes the newest pending gesture area and runs the detection on it.
+     */
+    void frameAvailable() {
+        synchronized (mLock) {
+            if (!mHasPending) return;
+            Area swap = mRead;
+            mRead = mPending;
+            mPending = swap;
+            mHasPending = false;
+        }
+        if (!OpenCVLoader.initDebug()) return;
+        mYuv.create(mRead.height + mRead.height / 2, mRead.width, CvType.CV_8UC1);
+        mYuv.put(0, 0, mRead.bytes);
+        Imgproc.cvtColor(mYuv, mBgr, Imgproc.COLOR_YUV2BGR_NV21, 3);
+        mRead.detector.isReadyToServeInArea(mBgr);
+        mRead.detector = null;
+        mProcessedFrames++;
+    }
+
+    /**
+     * Gesture area of one frame in NV21 format, together with the detector it belongs to.
+     */
+    private static class Area {
+        private byte[] bytes = new byte[0];
+        private int width;
+        private int height;
+        private ReadyToServeDetector detector;
+
+        /**
+         * Copies the gesture area (aligned to even coordinates, as required by NV21) out of the
+         * frame.
+         *
+         * @return false if the area lies outside of the frame
+         */
+        private boolean crop(byte[] frame, int frameWidth, int frameHeight, ReadyToServeDetector detector) {
+            Rect area = detector.getGestureArea();
+            int x0 = Math.max(0, area.x) & ~1;
+            int y0 = Math.max(0, area.y) & ~1;
+            int x1 = Math.min(frameWidth, area.x + area.width + 1) & ~1;
+            int y1 = Math.min(frameHeight, area.y + area.height + 1) & ~1;
+            if (x1 <= x0 || y1 <= y0) return false;
+            this.width = x1 - x0;
+            this.height = y1 - y0;
+            this.detector = detector;
+            int size = width * height + width * height / 2;
+            if (bytes.length < size) bytes = new byte[size];
+            int offset = 0;
+            for (int row = y0; row < y1; row++) {
+                System.arraycopy(frame, row * frameWidth + x0, bytes, offset, width);
+                offset += width;
+            }
+            // interleaved VU plane with half the vertical resolution
+            int uvStart = frameWidth * frameHeight;
+            for (int row = y0 / 2; row < y1 / 2; row++) {
+                System.arraycopy(frame, uvStart + row * frameWidth + x0, bytes, offset, width);
+                offset += width;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package ch.m3ts.detection.gesture;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Message handler for GestureDetectionThread.
+ */
+public class GestureDetectionThreadHandler extends android.os.Handler {
+    private static final int KILL = 1;
+    private static final int FRAME = 2;
+    private final WeakReference<GestureDetectionThread> mThreadRef;
+
+    GestureDetectionThreadHandler(GestureDetectionThread thread) {
+        mThreadRef = new WeakReference<>(thread);
+    }
+
+    /**
+     * Send a command to end the execution of the thread as soon as possible.
+     */
+    public void sendKill() {
+        if (hasMessages(KILL)) return;
+        sendMessage(obtainMessage(KILL));
+    }
+
+    /**
+     * Notify the thread that a new gesture area is pending. Only one message is kept in the queue,
+     * the thread always processes the newest area anyway.
+     */
+    void sendFrame() {
+        if (hasMessages(FRAME)) return;
+        sendMessage(obtainMessage(FRAME));
+    }
+
+    @Override
+    public void handleMessage(android.os.Message msg) {
+        GestureDetectionThread thread = mThreadRef.get();
+        if (thread == null) return;
+        switch (msg.what) {
+            case KILL:
+                thread.kill();
+                break;
+            case FRAME:
+                thread.frameAvailable();
+                break;
+            default:
+                break;
+        }
+    }
+}
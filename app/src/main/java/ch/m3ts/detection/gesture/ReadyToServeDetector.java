@@ -19,14 +19,17 @@ public class ReadyToServeDetector {
     private final ReadyToServeCallback callback;
     private final Side server;
     private final GestureDetectionStrategy gestureDetectionStrategy;
+    private final Rect gestureArea;
     private int gestureFrameCounter = 0;
+    private boolean isReleased = false;
 
     public ReadyToServeDetector(Table table, Side server, ReadyToServeCallback callback, boolean useRedSideOnly) {
         this.table = table;
         this.server = server;
         this.callback = callback;
+        this.gestureArea = calculateGestureArea();
         if (useRedSideOnly) {
-            this.gestureDetectionStrategy = new RedThresholdingStrategy();
+            this.gestureDetectionStrategy = new RedThresholdingStrategy(gestureArea.width * gestureArea.height);
         } else {
             this.gestureDetectionStrategy = new BackgroundModelingStrategy();
         }
@@ -41,13 +44,28 @@ public class ReadyToServeDetector {
      * @return true if gesture was active for 15 frames and false otherwise
      */
     public boolean isReadyToServe(Mat bgrMat) {
+        return isReadyToServe(bgrMat, false);
+    }
+
+    /**
+     * Same as isReadyToServe(Mat), but for a frame which was already cropped to the gesture area
+     * (see getGestureArea()), used by the GestureDetectionThread.
+     *
+     * @param areaBgrMat gesture area of a frame as a BGR OpenCV Mat
+     * @return true if gesture was active for 15 frames and false otherwise
+     */
+    public boolean isReadyToServeInArea(Mat areaBgrMat) {
+        return isReadyToServe(areaBgrMat, true);
+    }
+
+    private synchronized boolean isReadyToServe(Mat bgrMat, boolean isCropped) {
         boolean isReady = false;
-        if (OpenCVLoader.initDebug()) {
+        if (!isReleased && OpenCVLoader.initDebug()) {
             gestureFrameCounter++;
             if (gestureFrameCounter % 3 == 0) {
-                if (isRacketInArea(bgrMat)) {
+                boolean isRacketInArea = isCropped ? gestureDetectionStrategy.isRacketInPicture(bgrMat) : isRacketInArea(bgrMat);
+                if (isRacketInArea) {
                     if (gestureFrameCounter >= GESTURE_HOLD_TIME_IN_FRAMES) {
-                        // TODO: change this to use eventbus
                         this.callback.onGestureDetected();
                         isReady = true;
                     }
@@ -59,13 +77,31 @@ public class ReadyToServeDetector {
         return isReady;
     }
 
-    private boolean isRacketInArea(Mat bgrMat) {
-        Mat resizedMat = resizeMatToAreaSize(bgrMat);
-        return gestureDetectionStrategy.isRacketInPicture(resizedMat);
+    /**
+     * Frees the working set of the gesture detection strategy, call when the detector is not used
+     * anymore. Detection calls after this always return false.
+     */
+    public synchronized void release() {
+        if (isReleased) return;
+        isReleased = true;
+        gestureDetectionStrategy.release();
+    }
+
+    /**
+     * @return square around the table corner of the server in which the gesture gets detected
+     */
+    public Rect getGestureArea() {
+        return gestureArea.clone();
     }
 
-    private Mat resizeMatToAreaSize(Mat bgrMat) {
-        return bgrMat.submat(getGestureArea());
+    private boolean isRacketInArea(Mat bgrMat) {
+        // submat only creates a header pointing into bgrMat, release it right after use
+        Mat areaMat = bgrMat.submat(gestureArea);
+        try {
+            return gestureDetectionStrategy.isRacketInPicture(areaMat);
+        } finally {
+            areaMat.release();
+        }
     }
 
     /**
@@ -73,7 +109,7 @@ public class ReadyToServeDetector {
      *
      * @return rect with with sides in the size of GESTURE_AREA_PERCENTAGE_RELATIVE_TO_TABLE of the table width
      */
-    private Rect getGestureArea() {
+    private Rect calculateGestureArea() {
         int width = (int) (this.table.getWidth() * GESTURE_AREA_PERCENTAGE_RELATIVE_TO_TABLE);
         Point position = this.table.getCornerDownLeft();
         int positionX = position.x;
@@ -2,17 +2,33 @@ package ch.m3ts.detection.gesture;
 
 import org.opencv.core.Mat;
 
+/**
+ * Detects a racket showing either its red or its black side. Both ratios are computed in the
+ * same pass over the picture.
+ */
 public class RedBlackThresholdingStrategy implements GestureDetectionStrategy {
-    private BlackThresholdingStrategy blackThresholdingStrategy;
-    private RedThresholdingStrategy redThresholdingStrategy;
+    private final ColorClassifier classifier;
 
     public RedBlackThresholdingStrategy() {
-        this.blackThresholdingStrategy = new BlackThresholdingStrategy();
-        this.redThresholdingStrategy = new RedThresholdingStrategy();
+        this(0);
+    }
+
+    /**
+     * @param expectedPixels amount of pixels of the pictures which will be checked
+     */
+    public RedBlackThresholdingStrategy(int expectedPixels) {
+        this.classifier = new ColorClassifier(expectedPixels);
     }
 
     @Override
     public boolean isRacketInPicture(Mat bgr) {
-        return redThresholdingStrategy.isRacketInPicture(bgr) || blackThresholdingStrategy.isRacketInPicture(bgr);
+        classifier.classify(bgr);
+        return classifier.getRedRatio() > RedThresholdingStrategy.PERCENTAGE_THRESHOLD ||
+                classifier.getBlackRatio() > BlackThresholdingStrategy.PERCENTAGE_THRESHOLD_BLACK;
+    }
+
+    @Override
+    public void release() {
+        classifier.release();
     }
 }
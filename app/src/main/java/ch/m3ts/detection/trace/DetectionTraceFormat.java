@@ -0,0 +1,55 @@
+package ch.m3ts.detection.trace;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Binary format of a detection trace.
+ * <p>
+ * The file starts with MAGIC and VERSION, followed by the header: source width and height (int),
+ * viewing angle (double), frame rate (float), the two lower table corners and the bottom of the
+ * net (int x and y each). Then, a record follows per frame processed by FMO (a detection batch,
+ * empty if nothing was detected) and per audio bounce. A record starts with its type and the time
+ * since the previous record (zig-zag varint, ns).
+ * RECORD_DETECTIONS continues with the number of detections (varint) and for each detection the
+ * fields set by FMO: id, predecessor id, center x and y (int), direction x and y, length, radius and
+ * velocity (float). RECORD_AUDIO_BOUNCE has no further data. A record cut short by a crash is
+ * ignored.
+ */
+final class DetectionTraceFormat {
+    static final int MAGIC = 0x4d335454; // "M3TT"
+    static final int VERSION = 2;
+    static final byte RECORD_DETECTIONS = 1;
+    static final byte RECORD_AUDIO_BOUNCE = 2;
+
+    private DetectionTraceFormat() {
+    }
+
+    static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint in detection trace");
+    }
+
+    static void writeZigZag(DataOutputStream out, long value) throws IOException {
+        writeVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    static long readZigZag(DataInputStream in) throws IOException {
+        long value = readVarLong(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
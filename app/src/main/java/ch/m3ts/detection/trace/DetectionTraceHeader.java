@@ -0,0 +1,76 @@
+package ch.m3ts.detection.trace;
+
+import android.graphics.Point;
+
+import ch.m3ts.detection.ZPositionCalc;
+import ch.m3ts.util.Table;
+
+/**
+ * Everything besides the detections themselves which the EventDetector needs to reproduce a
+ * traced run: size of the source images, camera parameters and the table.
+ */
+public class DetectionTraceHeader {
+    private final int srcWidth;
+    private final int srcHeight;
+    private final double viewingAngle;
+    private final float frameRate;
+    private final int[] tableCorners;
+    private final int[] tableNet;
+
+    public DetectionTraceHeader(int srcWidth, int srcHeight, double viewingAngle, float frameRate, Table table) {
+        this(srcWidth, srcHeight, viewingAngle, frameRate,
+                new int[]{
+                        table.getCornerDownLeft().x, table.getCornerDownLeft().y,
+                        table.getCornerDownRight().x, table.getCornerDownRight().y,
+                },
+                new int[]{table.getNetBottom().x, table.getNetBottom().y});
+    }
+
+    DetectionTraceHeader(int srcWidth, int srcHeight, double viewingAngle, float frameRate, int[] tableCorners, int[] tableNet) {
+        this.srcWidth = srcWidth;
+        this.srcHeight = srcHeight;
+        this.viewingAngle = viewingAngle;
+        this.frameRate = frameRate;
+        this.tableCorners = tableCorners;
+        this.tableNet = tableNet;
+    }
+
+    public int getSrcWidth() {
+        return srcWidth;
+    }
+
+    public int getSrcHeight() {
+        return srcHeight;
+    }
+
+    /**
+     * @return horizontal viewing angle of the camera, in degrees
+     */
+    public double getViewingAngle() {
+        return viewingAngle;
+    }
+
+    public float getFrameRate() {
+        return frameRate;
+    }
+
+    int[] getTableCorners() {
+        return tableCorners;
+    }
+
+    int[] getTableNet() {
+        return tableNet;
+    }
+
+    public Table makeTable() {
+        Point[] corners = new Point[]{
+                new Point(tableCorners[0], tableCorners[1]),
+                new Point(tableCorners[2], tableCorners[3]),
+        };
+        return new Table(corners, new Point(tableNet[0], tableNet[1]));
+    }
+
+    public ZPositionCalc makeZPositionCalc() {
+        return new ZPositionCalc(viewingAngle, makeTable().getWidth(), srcWidth);
+    }
+}
@@ -0,0 +1,61 @@
+package ch.m3ts.detection.trace;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import ch.m3ts.detection.EventDetector;
+import ch.m3ts.util.FrameClock;
+
+/**
+ * Feeds the records of a detection trace to an EventDetector, reproducing the event sequence of
+ * the traced run without video or FMO. All timing follows the times in the trace, so the detector
+ * (and the Referee, for its timeouts) must use the FrameClock of the player. Each trace goes on
+ * from the current time of the clock, so several traces can be played one after another.
+ */
+public class DetectionTracePlayer {
+    // longer than any timeout of the EventDetector and the Referee
+    private static final long TAIL_NS = TimeUnit.SECONDS.toNanos(5);
+    private final FrameClock clock;
+
+    public DetectionTracePlayer(FrameClock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Plays the records, followed by enough time for pending timeouts to run out.
+     *
+     * @param records records of a trace, see DetectionTraceReader.readAll
+     */
+    public void play(List<DetectionTraceRecord> records, EventDetector detector) {
+        play(records, detector, null);
+    }
+
+    /**
+     * Plays the records like play(records, detector), reporting each record played to the listener.
+     */
+    public void play(List<DetectionTraceRecord> records, EventDetector detector, PlaybackListener listener) {
+        long lastTimeNs = clock.nanoTime();
+        long offsetNs = records.isEmpty() ? 0 : lastTimeNs - records.get(0).getTimeNs();
+        for (DetectionTraceRecord record : records) {
+            lastTimeNs = record.getTimeNs() + offsetNs;
+            clock.advanceTo(lastTimeNs);
+            long start = System.nanoTime();
+            if (record.isAudioBounce()) {
+                detector.onAudioBounceDetected();
+            } else {
+                detector.onObjectsDetected(record.getDetections(), lastTimeNs);
+            }
+            if (listener != null) listener.onRecordPlayed(record, System.nanoTime() - start);
+        }
+        clock.advanceTo(lastTimeNs + TAIL_NS);
+    }
+
+    public interface PlaybackListener {
+        /**
+         * @param record       record just played
+         * @param processingNs time the detector took for the record, including the handling of
+         *                     the events it dispatched
+         */
+        void onRecordPlayed(DetectionTraceRecord record, long processingNs);
+    }
+}
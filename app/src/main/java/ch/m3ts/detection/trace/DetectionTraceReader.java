@@ -0,0 +1,113 @@
+package ch.m3ts.detection.trace;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import cz.fmo.Lib;
+
+/**
+ * Reads a trace written by DetectionTraceWriter, record by record.
+ */
+public class DetectionTraceReader implements Closeable {
+    private final DataInputStream in;
+    private final DetectionTraceHeader header;
+    private long lastTimeNs = 0;
+
+    public DetectionTraceReader(File file) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            this.header = readHeader();
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    private DetectionTraceHeader readHeader() throws IOException {
+        if (in.readInt() != DetectionTraceFormat.MAGIC) throw new IOException("Not a detection trace");
+        int version = in.readInt();
+        if (version != DetectionTraceFormat.VERSION) {
+            throw new IOException("Unsupported detection trace version " + version);
+        }
+        int srcWidth = in.readInt();
+        int srcHeight = in.readInt();
+        double viewingAngle = in.readDouble();
+        float frameRate = in.readFloat();
+        int[] tableCorners = new int[4];
+        for (int i = 0; i < tableCorners.length; i++) tableCorners[i] = in.readInt();
+        int[] tableNet = new int[2];
+        for (int i = 0; i < tableNet.length; i++) tableNet[i] = in.readInt();
+        return new DetectionTraceHeader(srcWidth, srcHeight, viewingAngle, frameRate, tableCorners, tableNet);
+    }
+
+    public DetectionTraceHeader getHeader() {
+        return header;
+    }
+
+    /**
+     * @return the next record, null at the end of the trace
+     */
+    public DetectionTraceRecord next() throws IOException {
+        try {
+            byte type = in.readByte();
+            long timeNs = lastTimeNs + DetectionTraceFormat.readZigZag(in);
+            DetectionTraceRecord record;
+            if (type == DetectionTraceFormat.RECORD_DETECTIONS) {
+                record = new DetectionTraceRecord(timeNs, readDetections());
+            } else if (type == DetectionTraceFormat.RECORD_AUDIO_BOUNCE) {
+                record = new DetectionTraceRecord(timeNs, null);
+            } else {
+                throw new IOException("Bad record type " + type);
+            }
+            lastTimeNs = timeNs;
+            return record;
+        } catch (EOFException e) {
+            // end of the trace, possibly with an incomplete last record
+            return null;
+        }
+    }
+
+    /**
+     * @return all remaining records of the trace
+     */
+    public List<DetectionTraceRecord> readAll() throws IOException {
+        List<DetectionTraceRecord> records = new ArrayList<>();
+        DetectionTraceRecord record;
+        while ((record = next()) != null) {
+            records.add(record);
+        }
+        return records;
+    }
+
+    private Lib.Detection[] readDetections() throws IOException {
+        long count = DetectionTraceFormat.readVarLong(in);
+        if (count < 0 || count > Integer.MAX_VALUE) throw new IOException("Bad detection count " + count);
+        Lib.Detection[] detections = new Lib.Detection[(int) count];
+        for (int i = 0; i < detections.length; i++) {
+            Lib.Detection detection = new Lib.Detection();
+            detection.id = in.readInt();
+            detection.predecessorId = in.readInt();
+            detection.centerX = in.readInt();
+            detection.centerY = in.readInt();
+            detection.directionX = in.readFloat();
+            detection.directionY = in.readFloat();
+            detection.length = in.readFloat();
+            detection.radius = in.readFloat();
+            detection.velocity = in.readFloat();
+            detections[i] = detection;
+        }
+        return detections;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,31 @@
+package ch.m3ts.detection.trace;
+
+import cz.fmo.Lib;
+
+/**
+ * A detection batch or an audio bounce read from a trace.
+ */
+public class DetectionTraceRecord {
+    private final long timeNs;
+    private final Lib.Detection[] detections;
+
+    public DetectionTraceRecord(long timeNs, Lib.Detection[] detections) {
+        this.timeNs = timeNs;
+        this.detections = detections;
+    }
+
+    public long getTimeNs() {
+        return timeNs;
+    }
+
+    public boolean isAudioBounce() {
+        return detections == null;
+    }
+
+    /**
+     * @return the detections as reported by FMO, null for an audio bounce
+     */
+    public Lib.Detection[] getDetections() {
+        return detections;
+    }
+}
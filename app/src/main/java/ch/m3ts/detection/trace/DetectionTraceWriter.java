@@ -0,0 +1,109 @@
+package ch.m3ts.detection.trace;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+import ch.m3ts.util.AsyncLogWriter;
+import ch.m3ts.util.Log;
+import cz.fmo.Lib;
+
+/**
+ * Writes the detections of FMO and the audio bounces, as received by the EventDetector, to a
+ * trace file (see DetectionTraceFormat). Detections and audio bounces arrive on different threads,
+ * records are written in the order of the calls. Calls after close() are ignored.
+ * <p>
+ * Records are encoded on the calling thread and written by an AsyncLogWriter. If the writer has
+ * to drop a record, the trace ends there, as the records after it could not be decoded.
+ */
+public class DetectionTraceWriter implements Closeable {
+    public static final String EXTENSION = ".bin";
+    private final File file;
+    private final AsyncLogWriter writer;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(buffer);
+    private long lastTimeNs = 0;
+    private boolean isClosed = false;
+
+    public DetectionTraceWriter(File file, DetectionTraceHeader header) throws IOException {
+        this(file, header, AsyncLogWriter.getInstance());
+    }
+
+    public DetectionTraceWriter(File file, DetectionTraceHeader header, AsyncLogWriter writer) throws IOException {
+        this.file = file;
+        this.writer = writer;
+        // the writer appends, start with an empty file
+        new FileOutputStream(file).close();
+        out.writeInt(DetectionTraceFormat.MAGIC);
+        out.writeInt(DetectionTraceFormat.VERSION);
+        out.writeInt(header.getSrcWidth());
+        out.writeInt(header.getSrcHeight());
+        out.writeDouble(header.getViewingAngle());
+        out.writeFloat(header.getFrameRate());
+        for (int value : header.getTableCorners()) out.writeInt(value);
+        for (int value : header.getTableNet()) out.writeInt(value);
+        writeBuffer();
+    }
+
+    /**
+     * @param timeNs time of the detections, as passed to EventDetector.onObjectsDetected
+     */
+    public synchronized void writeDetections(long timeNs, Lib.Detection[] detections) throws IOException {
+        if (isClosed) return;
+        writeRecordStart(DetectionTraceFormat.RECORD_DETECTIONS, timeNs);
+        DetectionTraceFormat.writeVarLong(out, detections.length);
+        for (Lib.Detection detection : detections) {
+            out.writeInt(detection.id);
+            out.writeInt(detection.predecessorId);
+            out.writeInt(detection.centerX);
+            out.writeInt(detection.centerY);
+            out.writeFloat(detection.directionX);
+            out.writeFloat(detection.directionY);
+            out.writeFloat(detection.length);
+            out.writeFloat(detection.radius);
+            out.writeFloat(detection.velocity);
+        }
+        writeBuffer();
+    }
+
+    public synchronized void writeAudioBounce(long timeNs) throws IOException {
+        if (isClosed) return;
+        writeRecordStart(DetectionTraceFormat.RECORD_AUDIO_BOUNCE, timeNs);
+        writeBuffer();
+    }
+
+    private void writeRecordStart(byte type, long timeNs) throws IOException {
+        out.writeByte(type);
+        DetectionTraceFormat.writeZigZag(out, timeNs - lastTimeNs);
+        lastTimeNs = timeNs;
+    }
+
+    private void writeBuffer() {
+        boolean isWritten = writer.write(file, buffer.toByteArray());
+        buffer.reset();
+        if (!isWritten) {
+            Log.w("Log writer is full, ending the detection trace " + file.getName());
+            isClosed = true;
+        }
+    }
+
+    /**
+     * Blocks until all records are in the file.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            isClosed = true;
+        }
+        try {
+            writer.close(file);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while closing " + file.getName());
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package ch.m3ts.display.statistic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ch.m3ts.detection.ZPositionCalc;
+import ch.m3ts.display.statistic.data.DetectionData;
+import ch.m3ts.display.statistic.data.GameData;
+import ch.m3ts.display.statistic.data.MatchData;
+import ch.m3ts.display.statistic.data.PointData;
+import ch.m3ts.display.statistic.data.TrackData;
+import ch.m3ts.util.Side;
+
+/**
+ * Number of bounces per cell of a grid over the table seen from above (like the bird view of the
+ * ZPosVisualizer), kept per game and per striker. The heat map of a game or a player is summed up
+ * from the grid, without going over the points again.
+ * <p>
+ * Points can be added while the grid is read, e.g. on a worker while the heat map is shown.
+ */
+public class BounceGrid {
+    public static final int COLUMNS = 64;
+    public static final int ROWS = 40;
+    public static final int ALL_GAMES = -1;
+    private static final int CELLS = COLUMNS * ROWS;
+    private static final int OTHER_STRIKER = 2;
+    // per game: cells for left, right and any other striker
+    private final List<int[][]> games = new ArrayList<>();
+
+    public static BounceGrid of(MatchData match) {
+        BounceGrid grid = new BounceGrid();
+        List<GameData> gameStats = match.getGameStats();
+        for (int game = 0; game < gameStats.size(); game++) {
+            for (PointData point : gameStats.get(game).getPoints()) {
+                grid.addPoint(game, point);
+            }
+        }
+        return grid;
+    }
+
+    public synchronized void addPoint(int game, PointData point) {
+        for (TrackData track : point.getTracks()) {
+            for (DetectionData detection : track.getDetections()) {
+                if (detection.wasBounce()) addBounce(game, track.getStriker(), detection);
+            }
+        }
+    }
+
+    /**
+     * @param detection bounce with x in mm along the table and z relative to the width of the table
+     *                  with its offsets, bounces off the table are left out
+     */
+    public synchronized void addBounce(int game, Side striker, DetectionData detection) {
+        double x = detection.getX() / ZPositionCalc.TABLE_TENNIS_TABLE_LENGTH_MM;
+        double z = detection.getZ();
+        if (x < 0 || x > 1 || z < 0 || z > 1) return;
+        int column = Math.min((int) (x * COLUMNS), COLUMNS - 1);
+        // the far side of the table is on top
+        int row = Math.min((int) ((1 - z) * ROWS), ROWS - 1);
+        while (games.size() <= game) games.add(new int[OTHER_STRIKER + 1][CELLS]);
+        games.get(game)[getStrikerIndex(striker)][row * COLUMNS + column]++;
+    }
+
+    public synchronized int getGames() {
+        return games.size();
+    }
+
+    /**
+     * @param game    index of the game, ALL_GAMES for the whole match
+     * @param striker player whose strikes bounced, null for both
+     * @return bounces per cell, row by row from the far side of the table
+     */
+    public synchronized int[] getDensity(int game, Side striker) {
+        int[] density = new int[CELLS];
+        int from = game == ALL_GAMES ? 0 : game;
+        int to = game == ALL_GAMES ? games.size() : Math.min(game + 1, games.size());
+        for (int g = from; g < to; g++) {
+            int[][] cells = games.get(g);
+            for (int s = 0; s < cells.length; s++) {
+                if (striker != null && s != getStrikerIndex(striker)) continue;
+                for (int i = 0; i < CELLS; i++) density[i] += cells[s][i];
+            }
+        }
+        return density;
+    }
+
+    private static int getStrikerIndex(Side striker) {
+        if (striker == Side.LEFT) return 0;
+        if (striker == Side.RIGHT) return 1;
+        return OTHER_STRIKER;
+    }
+}
@@ -16,17 +16,18 @@ import android.widget.TextView;
 
 import java.util.Map;
 
-import ch.m3ts.display.statistic.data.DetectionData;
 import ch.m3ts.display.statistic.data.GameData;
 import ch.m3ts.display.statistic.data.MatchData;
 import ch.m3ts.display.statistic.data.PlayerData;
-import ch.m3ts.display.statistic.data.PointData;
-import ch.m3ts.display.statistic.data.TrackData;
+import ch.m3ts.util.MatchScheduler;
 import ch.m3ts.util.Side;
 import cz.fmo.R;
 
-public class GameStatsFragment extends Fragment implements SurfaceHolder.Callback {
+public class GameStatsFragment extends Fragment implements SurfaceHolder.Callback, GameStatsLoader.Listener {
+    private final MatchScheduler scheduler = new MatchScheduler("gameHeatMapScheduler");
     private GameData game;
+    private int gameIndex;
+    private volatile HeatMapHolder heatMapHolder;
 
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
@@ -36,8 +37,10 @@ public class GameStatsFragment extends Fragment implements SurfaceHolder.Callbac
     }
 
     private void setViews(View v) {
-        int gameIndex = getArguments().getInt("game");
-        MatchData stats = ((StatsActivity) getActivity()).getStats();
+        gameIndex = getArguments().getInt("game");
+        StatsActivity activity = (StatsActivity) getActivity();
+        activity.showGame(gameIndex);
+        MatchData stats = activity.getStats();
         this.game = stats.getGameStats().get(gameIndex);
         Map<Side, PlayerData> playerStats = this.game.getPlayerStats();
         ((TextView) v.findViewById(R.id.gstTitle)).setText(String.format(getString(R.string.gstTitle), gameIndex + 1));
@@ -79,23 +82,49 @@ public class GameStatsFragment extends Fragment implements SurfaceHolder.Callbac
         SurfaceHolder holder = surface.getHolder();
         holder.setFormat(PixelFormat.TRANSPARENT);
         holder.addCallback(this);
+        surface.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                showNextPlayerOnHeatMap();
+            }
+        });
     }
 
     @Override
-    public void surfaceCreated(SurfaceHolder holder) {
-        drawHeatMap(holder);
+    public void surfaceCreated(final SurfaceHolder holder) {
+        final StatsActivity activity = (StatsActivity) getActivity();
+        final View container = activity.findViewById(R.id.game_stats);
+        final int paintColor = activity.getColor(R.color.primary_light);
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                heatMapHolder = new HeatMapHolder(container, holder, paintColor, activity.getBounceGrid(), gameIndex);
+                heatMapHolder.draw();
+            }
+        }, 0);
     }
 
-    private void drawHeatMap(SurfaceHolder holder) {
-        HeatMapHolder heatMapHolder = new HeatMapHolder(getActivity().findViewById(R.id.game_stats), holder, getActivity().getColor(R.color.primary_light), ((StatsActivity) getActivity()).getStats().getTableCorners());
-        for (PointData point : this.game.getPoints()) {
-            for (TrackData track : point.getTracks()) {
-                for (DetectionData detection : track.getDetections()) {
-                    heatMapHolder.addDetection(detection);
-                }
+    @Override
+    public void onGameLoaded(int game, GameData gameStats) {
+        if (game == gameIndex) redrawHeatMap();
+    }
+
+    private void showNextPlayerOnHeatMap() {
+        HeatMapHolder shownHeatMap = heatMapHolder;
+        if (shownHeatMap == null) return;
+        shownHeatMap.showNextPlayer();
+        redrawHeatMap();
+    }
+
+    private void redrawHeatMap() {
+        final HeatMapHolder shownHeatMap = heatMapHolder;
+        if (shownHeatMap == null) return;
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                shownHeatMap.draw();
             }
-        }
-        heatMapHolder.draw();
+        }, 0);
     }
 
     @Override
@@ -107,4 +136,22 @@ public class GameStatsFragment extends Fragment implements SurfaceHolder.Callbac
     public void surfaceDestroyed(SurfaceHolder holder) {
 
     }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        ((StatsActivity) getActivity()).addGameListener(this);
+    }
+
+    @Override
+    public void onPause() {
+        super.onPause();
+        ((StatsActivity) getActivity()).removeGameListener(this);
+    }
+
+    @Override
+    public void onDestroy() {
+        scheduler.shutdown();
+        super.onDestroy();
+    }
 }
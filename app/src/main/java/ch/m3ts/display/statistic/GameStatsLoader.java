@@ -0,0 +1,150 @@
+package ch.m3ts.display.statistic;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import ch.m3ts.display.statistic.data.GameData;
+import ch.m3ts.display.statistic.data.MatchData;
+import ch.m3ts.display.statistic.data.PointData;
+import ch.m3ts.eventbus.Event;
+import ch.m3ts.eventbus.EventBus;
+import ch.m3ts.eventbus.Subscribable;
+import ch.m3ts.eventbus.TTEvent;
+import ch.m3ts.eventbus.event.GameStatsData;
+import ch.m3ts.eventbus.event.GameStatsPartData;
+import ch.m3ts.eventbus.event.RequestGameStatsData;
+import ch.m3ts.util.MatchScheduler;
+
+/**
+ * Fetches the games of a summary (see MatchDataCodec.encodeSummary) with the tracks of their
+ * points from the tracker, one game at a time so the parts of two games do not get mixed up.
+ * Games are fetched in order, a game the user opens is fetched next. A request is sent again when
+ * no part of its answer arrived for RETRY_DELAY_MS, a game sent in many parts keeps its request.
+ */
+class GameStatsLoader implements Subscribable {
+    static final long RETRY_DELAY_MS = 5000;
+    private static final int NONE = -1;
+    private final EventBus eventBus;
+    private final Listener listener;
+    private final long retryDelayMs;
+    private final MatchScheduler scheduler = new MatchScheduler("gameStatsLoader");
+    private final LinkedList<Integer> missingGames = new LinkedList<>();
+    private int requestedGame = NONE;
+    private MatchScheduler.Handle retry;
+
+    interface Listener {
+        /**
+         * Called on the thread the answer of the tracker arrives on.
+         */
+        void onGameLoaded(int game, GameData stats);
+    }
+
+    GameStatsLoader(EventBus eventBus, Listener listener) {
+        this(eventBus, listener, RETRY_DELAY_MS);
+    }
+
+    GameStatsLoader(EventBus eventBus, Listener listener, long retryDelayMs) {
+        this.eventBus = eventBus;
+        this.listener = listener;
+        this.retryDelayMs = retryDelayMs;
+    }
+
+    /**
+     * Starts to fetch the games of the stats which have been left out, forgetting the games of
+     * stats loaded before.
+     */
+    synchronized void load(MatchData stats) {
+        missingGames.clear();
+        cancelRetry();
+        requestedGame = NONE;
+        List<GameData> games = stats.getGameStats();
+        for (int i = 0; i < games.size(); i++) {
+            if (isSummary(games.get(i))) missingGames.add(i);
+        }
+        requestNext();
+    }
+
+    /**
+     * Fetches the game next, after the one requested at the moment.
+     */
+    synchronized void prioritize(int game) {
+        if (game != requestedGame && missingGames.remove((Integer) game)) missingGames.addFirst(game);
+        requestNext();
+    }
+
+    synchronized boolean isLoaded(int game) {
+        return !missingGames.contains(game);
+    }
+
+    @Override
+    public void handle(Event<?> event) {
+        Object data = event.getData();
+        if (data instanceof GameStatsData) {
+            GameStatsData gameStats = (GameStatsData) data;
+            if (!onAnswer(gameStats.getGame())) return;
+            listener.onGameLoaded(gameStats.getGame(), gameStats.getStats());
+            requestNext();
+        } else if (data instanceof GameStatsPartData) {
+            onPart(((GameStatsPartData) data).getGame());
+        }
+    }
+
+    private synchronized void onPart(int game) {
+        if (game != requestedGame) return;
+        cancelRetry();
+        scheduleRetry(game);
+    }
+
+    /**
+     * @return false if the game is loaded already
+     */
+    private synchronized boolean onAnswer(int game) {
+        if (!missingGames.remove((Integer) game)) return false;
+        if (game == requestedGame) {
+            requestedGame = NONE;
+            cancelRetry();
+        }
+        return true;
+    }
+
+    private synchronized void requestNext() {
+        if (requestedGame != NONE || missingGames.isEmpty()) return;
+        int game = missingGames.getFirst();
+        requestedGame = game;
+        scheduleRetry(game);
+        eventBus.dispatch(new TTEvent<>(new RequestGameStatsData(game)));
+    }
+
+    private void scheduleRetry(final int game) {
+        retry = scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                requestAgain(game);
+            }
+        }, retryDelayMs);
+    }
+
+    private synchronized void requestAgain(int game) {
+        if (requestedGame != game) return;
+        requestedGame = NONE;
+        requestNext();
+    }
+
+    private void cancelRetry() {
+        if (retry != null) {
+            retry.cancel();
+            retry = null;
+        }
+    }
+
+    void close() {
+        scheduler.shutdown();
+    }
+
+    private static boolean isSummary(GameData game) {
+        for (PointData point : game.getPoints()) {
+            if (point.isSummary()) return true;
+        }
+        return false;
+    }
+}
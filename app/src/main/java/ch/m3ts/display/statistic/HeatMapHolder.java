@@ -1,53 +1,68 @@
 package ch.m3ts.display.statistic;
 
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.PorterDuff;
 import android.view.SurfaceHolder;
 import android.view.View;
 
-import java.util.Map;
-
-import ch.m3ts.display.statistic.data.DetectionData;
 import ch.m3ts.tracker.visualization.ZPosVisualizer;
 import ch.m3ts.util.Side;
 
+/**
+ * Draws the bounces of a BounceGrid as a heat map onto the table in bird view. The grid is turned
+ * into one bitmap of a pixel per cell, which is scaled onto the table, so drawing does not depend
+ * on the number of bounces. Call draw() off the UI thread.
+ */
 public class HeatMapHolder {
-    private int paintColor;
-    private View container;
-    private ZPosVisualizer zPosVisualizer;
-    private Map<Side, Integer> tableCorners;
-    private SurfaceHolder holder;
-    private Canvas canvas;
+    private final int paintColor;
+    private final View container;
+    private final SurfaceHolder holder;
+    private final BounceGrid grid;
+    private final int game;
+    private Side player;
 
-    public HeatMapHolder(View container, SurfaceHolder holder, int paintColor, Map<Side, Integer> tableCorners) {
+    /**
+     * @param game index of the game to show, BounceGrid.ALL_GAMES for the whole match
+     */
+    public HeatMapHolder(View container, SurfaceHolder holder, int paintColor, BounceGrid grid, int game) {
         this.container = container;
         this.holder = holder;
         this.paintColor = paintColor;
-        this.tableCorners = tableCorners;
-        drawTable();
+        this.grid = grid;
+        this.game = game;
+    }
+
+    /**
+     * Switches from the bounces of both players to the ones of the left, then the right player and
+     * back, draw() again to show them.
+     */
+    public synchronized void showNextPlayer() {
+        if (player == null) player = Side.LEFT;
+        else if (player == Side.LEFT) player = Side.RIGHT;
+        else player = null;
     }
 
-    private void drawTable() {
-        canvas = holder.lockCanvas();
+    public synchronized void draw() {
+        Canvas canvas = holder.lockCanvas();
+        // the surface is gone, e.g. the fragment got left
+        if (canvas == null) return;
+        int[] colors = HeatMapPalette.toColors(grid.getDensity(game, player));
+        Bitmap bitmap = Bitmap.createBitmap(colors, BounceGrid.COLUMNS, BounceGrid.ROWS, Bitmap.Config.ARGB_8888);
+        canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
         Paint tablePaint = new Paint();
         tablePaint.setColor(paintColor);
         tablePaint.setStrokeWidth(5f);
-        Paint bouncePaint = new Paint();
-        bouncePaint.setColor(paintColor);
-        bouncePaint.setAlpha(20);
+        Paint densityPaint = new Paint();
+        densityPaint.setFilterBitmap(true);
         int height = container.getHeight();
         float canvasWidth = container.getWidth() * 0.5f;
-        zPosVisualizer = new ZPosVisualizer(bouncePaint, tablePaint, (float) container.getWidth() / 2 - canvasWidth / 2, height * 0.01f, canvasWidth);
+        ZPosVisualizer zPosVisualizer = new ZPosVisualizer(densityPaint, tablePaint, (float) container.getWidth() / 2 - canvasWidth / 2, height * 0.01f, canvasWidth);
+        zPosVisualizer.drawDensity(canvas, bitmap);
         zPosVisualizer.drawTableBirdView(canvas);
-    }
-
-    public void addDetection(DetectionData detection) {
-        if (detection.wasBounce()) {
-            zPosVisualizer.drawZPos(canvas, detection);
-        }
-    }
-
-    public void draw() {
         holder.unlockCanvasAndPost(canvas);
+        bitmap.recycle();
     }
 }
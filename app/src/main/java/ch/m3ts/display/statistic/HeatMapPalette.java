@@ -0,0 +1,53 @@
+package ch.m3ts.display.statistic;
+
+/**
+ * Colours of the heat map, from transparent blue for cells with few bounces over green and yellow
+ * to red for the cell with the most. Cells without bounces stay transparent.
+ */
+final class HeatMapPalette {
+    private static final int SIZE = 256;
+    private static final int[] STOPS = {0x002040FF, 0x902040FF, 0xB020C040, 0xD0FFE020, 0xF0FF2010};
+    private static final int[] COLORS = makeColors();
+
+    private HeatMapPalette() {
+    }
+
+    private static int[] makeColors() {
+        int[] colors = new int[SIZE];
+        int segments = STOPS.length - 1;
+        for (int i = 0; i < SIZE; i++) {
+            double position = (double) i / (SIZE - 1) * segments;
+            int segment = Math.min((int) position, segments - 1);
+            double t = position - segment;
+            colors[i] = blend(STOPS[segment], STOPS[segment + 1], t);
+        }
+        return colors;
+    }
+
+    private static int blend(int from, int to, double t) {
+        int color = 0;
+        for (int shift = 0; shift < 32; shift += 8) {
+            int a = from >>> shift & 0xFF;
+            int b = to >>> shift & 0xFF;
+            color |= (int) Math.round(a + (b - a) * t) << shift;
+        }
+        return color;
+    }
+
+    /**
+     * @param density bounces per cell
+     * @return ARGB colour per cell, scaled by the square root of the bounces so single bounces
+     * still show next to the most frequent ones
+     */
+    static int[] toColors(int[] density) {
+        int max = 0;
+        for (int count : density) max = Math.max(max, count);
+        int[] colors = new int[density.length];
+        if (max == 0) return colors;
+        double scale = (SIZE - 1) / Math.sqrt(max);
+        for (int i = 0; i < density.length; i++) {
+            if (density[i] > 0) colors[i] = COLORS[Math.max(1, (int) Math.round(Math.sqrt(density[i]) * scale))];
+        }
+        return colors;
+    }
+}
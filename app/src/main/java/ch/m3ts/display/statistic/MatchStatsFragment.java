@@ -18,18 +18,13 @@ import android.widget.TextView;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Properties;
-import java.util.Timer;
-import java.util.TimerTask;
 
 import ch.m3ts.EventBusSubscribedFragment;
 import ch.m3ts.connection.NearbyDisplayConnection;
 import ch.m3ts.connection.pubnub.PubNubDisplayConnection;
 import ch.m3ts.connection.pubnub.PubNubFactory;
-import ch.m3ts.display.statistic.data.DetectionData;
 import ch.m3ts.display.statistic.data.GameData;
 import ch.m3ts.display.statistic.data.MatchData;
-import ch.m3ts.display.statistic.data.PointData;
-import ch.m3ts.display.statistic.data.TrackData;
 import ch.m3ts.eventbus.Event;
 import ch.m3ts.eventbus.EventBus;
 import ch.m3ts.eventbus.TTEvent;
@@ -37,17 +32,21 @@ import ch.m3ts.eventbus.TTEventBus;
 import ch.m3ts.eventbus.event.RequestStatsData;
 import ch.m3ts.eventbus.event.StatsData;
 import ch.m3ts.util.Log;
+import ch.m3ts.util.MatchScheduler;
 import ch.m3ts.util.Side;
 import cz.fmo.R;
 import cz.fmo.util.Config;
 
-public class MatchStatsFragment extends EventBusSubscribedFragment implements SurfaceHolder.Callback {
+public class MatchStatsFragment extends EventBusSubscribedFragment implements SurfaceHolder.Callback, GameStatsLoader.Listener {
     private PubNubDisplayConnection pubNub;
     private NearbyDisplayConnection nearbyDisplayConnection;
     private String pubnubRoom;
     private MatchData stats;
     private ProgressDialog loadingSpinner;
     private SurfaceHolder heatMapSurfaceHolder;
+    private final MatchScheduler scheduler = new MatchScheduler("heatMapScheduler");
+    private MatchScheduler.Handle heatMapPolling;
+    private volatile HeatMapHolder heatMapHolder;
 
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
@@ -59,14 +58,17 @@ public class MatchStatsFragment extends EventBusSubscribedFragment implements Su
     }
 
     private void retrieveStats(Bundle bundle) {
-        if (new Config(getActivity()).isUsingPubnub()) {
-            this.pubnubRoom = bundle.getString("room");
-            initPubNub(this.pubnubRoom);
-        } else {
-            this.nearbyDisplayConnection = NearbyDisplayConnection.getInstance();
-            this.nearbyDisplayConnection.init(getActivity());
+        // resumed while still waiting for the stats, the connection opened before is kept until onDestroy
+        if (this.pubNub == null && this.nearbyDisplayConnection == null) {
+            if (new Config(getActivity()).isUsingPubnub()) {
+                this.pubnubRoom = bundle.getString("room");
+                initPubNub(this.pubnubRoom);
+            } else {
+                this.nearbyDisplayConnection = NearbyDisplayConnection.getInstance();
+                this.nearbyDisplayConnection.init(getActivity());
+            }
+            registerEventBus();
         }
-        registerEventBus();
         TTEventBus.getInstance().dispatch(new TTEvent<>(new RequestStatsData()));
     }
 
@@ -93,6 +95,7 @@ public class MatchStatsFragment extends EventBusSubscribedFragment implements Su
     @Override
     public void onResume() {
         super.onResume();
+        ((StatsActivity) getActivity()).addGameListener(this);
         if (stats == null) {
             retrieveStats(this.getArguments());
         } else {
@@ -103,6 +106,14 @@ public class MatchStatsFragment extends EventBusSubscribedFragment implements Su
     @Override
     public void onPause() {
         super.onPause();
+        ((StatsActivity) getActivity()).removeGameListener(this);
+    }
+
+    /**
+     * Keeps the connection while the stats of a game are shown, its tracks are still on the way.
+     */
+    @Override
+    public void onDestroy() {
         Config mConfig = new Config(getActivity());
         EventBus eventBus = TTEventBus.getInstance();
         if (mConfig.isUsingPubnub()) {
@@ -110,8 +121,9 @@ public class MatchStatsFragment extends EventBusSubscribedFragment implements Su
         } else {
             eventBus.unregister(this.nearbyDisplayConnection);
         }
-        eventBus.unregister(this);
         if (this.pubNub != null) this.pubNub.unsubscribe();
+        scheduler.shutdown();
+        super.onDestroy();
     }
 
     private void initPubNub(String pubnubRoom) {
@@ -192,38 +204,67 @@ public class MatchStatsFragment extends EventBusSubscribedFragment implements Su
         heatMapSurfaceHolder = surface.getHolder();
         heatMapSurfaceHolder.setFormat(PixelFormat.TRANSPARENT);
         heatMapSurfaceHolder.addCallback(this);
+        surface.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                showNextPlayerOnHeatMap();
+            }
+        });
     }
 
     private void displayHeatMap(View v) {
         if (this.stats != null) {
-            HeatMapHolder heatMapHolder = new HeatMapHolder(v.findViewById(R.id.match_stats), heatMapSurfaceHolder, getActivity().getColor(R.color.primary_light), ((StatsActivity) getActivity()).getStats().getTableCorners());
-            for (GameData game : this.stats.getGameStats()) {
-                for (PointData point : game.getPoints()) {
-                    for (TrackData track : point.getTracks()) {
-                        for (DetectionData detection : track.getDetections()) {
-                            heatMapHolder.addDetection(detection);
-                        }
-                    }
-                }
-            }
+            BounceGrid grid = ((StatsActivity) getActivity()).getBounceGrid();
+            heatMapHolder = new HeatMapHolder(v.findViewById(R.id.match_stats), heatMapSurfaceHolder, getActivity().getColor(R.color.primary_light), grid, BounceGrid.ALL_GAMES);
             heatMapHolder.draw();
             loadingSpinner.dismiss();
         }
     }
 
+    @Override
+    public void onGameLoaded(int game, GameData gameStats) {
+        final HeatMapHolder shownHeatMap = heatMapHolder;
+        if (shownHeatMap == null) return;
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                shownHeatMap.draw();
+            }
+        }, 0);
+    }
+
+    private void showNextPlayerOnHeatMap() {
+        final HeatMapHolder shownHeatMap = heatMapHolder;
+        if (shownHeatMap == null) return;
+        shownHeatMap.showNextPlayer();
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                shownHeatMap.draw();
+            }
+        }, 0);
+    }
+
     private void tryToDisplayHeatMap() {
-        final Timer timer = new Timer();
-        timer.schedule(new TimerTask() {
+        cancelHeatMapPolling();
+        heatMapPolling = scheduler.scheduleAtFixedRate(new Runnable() {
             @Override
             public void run() {
                 if (stats != null) {
+                    cancelHeatMapPolling();
                     displayHeatMap(getView());
-                    timer.cancel();
                 }
             }
         }, 0, 500);
     }
 
+    private synchronized void cancelHeatMapPolling() {
+        if (heatMapPolling != null) {
+            heatMapPolling.cancel();
+            heatMapPolling = null;
+        }
+    }
+
     @Override
     public void surfaceCreated(SurfaceHolder holder) {
         tryToDisplayHeatMap();
@@ -236,6 +277,6 @@ public class MatchStatsFragment extends EventBusSubscribedFragment implements Su
 
     @Override
     public void surfaceDestroyed(SurfaceHolder holder) {
-        // no implementation needed
+        cancelHeatMapPolling();
     }
 }
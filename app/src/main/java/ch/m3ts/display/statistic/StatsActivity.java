@@ -8,16 +8,43 @@ import android.os.Bundle;
 import android.support.v4.app.FragmentActivity;
 import android.widget.FrameLayout;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import ch.m3ts.display.statistic.data.GameData;
 import ch.m3ts.display.statistic.data.MatchData;
+import ch.m3ts.display.statistic.data.PointData;
+import ch.m3ts.display.statistic.history.MatchHistory;
+import ch.m3ts.eventbus.TTEventBus;
+import ch.m3ts.util.Log;
+import ch.m3ts.util.Side;
 import cz.fmo.R;
 
-public class StatsActivity extends FragmentActivity {
+/**
+ * Shows the statistics of a match. The tracker sends a summary first, the games with the tracks
+ * of their points follow one by one (see GameStatsLoader) and are added to the heat map. The match
+ * is stored in the MatchHistory once all of its games arrived, or with the games arrived so far
+ * when the activity is left before.
+ */
+public class StatsActivity extends FragmentActivity implements GameStatsLoader.Listener {
+    private final List<GameStatsLoader.Listener> gameListeners = new CopyOnWriteArrayList<>();
+    private final Map<Integer, GameData> loadedGames = new HashMap<>();
+    private GameStatsLoader gameStatsLoader;
     private MatchData stats;
+    private BounceGrid bounceGrid;
+    private boolean isStoredInHistory;
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_stats);
+        gameStatsLoader = new GameStatsLoader(TTEventBus.getInstance(), this);
+        TTEventBus.getInstance().register(gameStatsLoader);
         Bundle bundle = getIntent().getExtras();
         FrameLayout relativeLayout = findViewById(R.id.background);
         AnimationDrawable animationDrawable = (AnimationDrawable) relativeLayout.getBackground();
@@ -32,11 +59,106 @@ public class StatsActivity extends FragmentActivity {
         transaction.commit();
     }
 
+    @Override
+    protected void onDestroy() {
+        TTEventBus.getInstance().unregister(gameStatsLoader);
+        gameStatsLoader.close();
+        synchronized (this) {
+            if (stats != null && !isStoredInHistory) storeInHistory();
+        }
+        super.onDestroy();
+    }
+
     public MatchData getStats() {
         return stats;
     }
 
     public void setStats(MatchData stats) {
-        this.stats = stats;
+        synchronized (this) {
+            this.stats = stats;
+            this.bounceGrid = null;
+            this.loadedGames.clear();
+            this.isStoredInHistory = false;
+        }
+        gameStatsLoader.load(stats);
+        storeInHistoryIfComplete();
+    }
+
+    /**
+     * Fetches the tracks of the game before the ones of the other games.
+     */
+    public void showGame(int game) {
+        gameStatsLoader.prioritize(game);
+    }
+
+    /**
+     * @param listener called when the tracks of a game have been added to the heat map
+     */
+    public void addGameListener(GameStatsLoader.Listener listener) {
+        gameListeners.add(listener);
+    }
+
+    public void removeGameListener(GameStatsLoader.Listener listener) {
+        gameListeners.remove(listener);
+    }
+
+    @Override
+    public void onGameLoaded(int game, GameData gameStats) {
+        synchronized (this) {
+            loadedGames.put(game, gameStats);
+            if (bounceGrid != null) addToBounceGrid(game, gameStats);
+        }
+        storeInHistoryIfComplete();
+        for (GameStatsLoader.Listener listener : gameListeners) listener.onGameLoaded(game, gameStats);
+    }
+
+    private synchronized void storeInHistoryIfComplete() {
+        if (stats == null || isStoredInHistory) return;
+        for (int i = 0; i < stats.getGameStats().size(); i++) {
+            if (!gameStatsLoader.isLoaded(i)) return;
+        }
+        storeInHistory();
+    }
+
+    /**
+     * Stores the stats with the games loaded so far on a thread of its own, which finishes even if
+     * the activity is destroyed meanwhile.
+     */
+    private void storeInHistory() {
+        isStoredInHistory = true;
+        List<GameData> games = new ArrayList<>(stats.getGameStats());
+        for (Map.Entry<Integer, GameData> game : loadedGames.entrySet()) {
+            games.set(game.getKey(), game.getValue());
+        }
+        final MatchData match = new MatchData(games, stats.getPlayerName(Side.LEFT), stats.getPlayerName(Side.RIGHT),
+                stats.getFormattedTimestamp(), stats.getTableCorners());
+        final File dir = new File(getFilesDir(), MatchHistory.DIRECTORY);
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try (MatchHistory history = MatchHistory.open(dir)) {
+                    history.add(match, System.currentTimeMillis());
+                } catch (IOException e) {
+                    Log.e("Could not store the match in the history", e);
+                }
+            }
+        }, "matchHistory").start();
+    }
+
+    /**
+     * Collects the bounces of the stats on the first call, so call it off the UI thread.
+     */
+    public synchronized BounceGrid getBounceGrid() {
+        if (bounceGrid == null && stats != null) {
+            bounceGrid = BounceGrid.of(stats);
+            for (Map.Entry<Integer, GameData> game : loadedGames.entrySet()) {
+                addToBounceGrid(game.getKey(), game.getValue());
+            }
+        }
+        return bounceGrid;
+    }
+
+    private void addToBounceGrid(int game, GameData gameStats) {
+        for (PointData point : gameStats.getPoints()) bounceGrid.addPoint(game, point);
     }
 }
\ No newline at end of file
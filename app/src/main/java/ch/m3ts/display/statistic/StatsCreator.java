@@ -4,6 +4,13 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
 
 import ch.m3ts.detection.ZPositionCalc;
 import ch.m3ts.display.statistic.data.DetectionData;
@@ -12,20 +19,57 @@ import ch.m3ts.display.statistic.data.MatchData;
 import ch.m3ts.display.statistic.data.PointData;
 import ch.m3ts.display.statistic.data.TrackData;
 import ch.m3ts.display.statistic.processing.StatsProcessing;
+import ch.m3ts.util.Log;
 import ch.m3ts.util.Side;
 import cz.fmo.Lib;
 import cz.fmo.data.Track;
 
+/**
+ * Collects the statistics of a match. The points are processed (positions in mm, velocities,
+ * merged strikes) on a worker thread, so the referee scoring a point does not wait for them.
+ * Everything passed in is handled on the worker in the order of the calls, createStats() waits
+ * for the worker to catch up. Stats created with a worker of their own end it with shutdown().
+ */
 public class StatsCreator {
-    private final Map<Side, Integer> tableCorners = new HashMap<>();
+    private static final float DEFAULT_FRAME_RATE = 30.f;
     private static StatsCreator instance;
+    private final Executor worker;
+    // null if the worker was passed in
+    private final ExecutorService ownWorker;
+    // only used on the worker
+    private final Map<Side, Integer> tableCorners = new HashMap<>();
     private List<PointData> points = new ArrayList<>();
     private List<GameData> games = new ArrayList<>();
     private String formattedMatchStart;
     private Map<Side, String> playerNames = new HashMap<>();
     private ZPositionCalc zCalc;
+    private float frameRate = DEFAULT_FRAME_RATE;
+
+    /**
+     * Creates stats of their own with a worker thread of their own, separate from the shared
+     * instance (e.g. for a benchmark run).
+     */
+    public StatsCreator() {
+        this(Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "statsWorker");
+                thread.setDaemon(true);
+                return thread;
+            }
+        }), true);
+    }
+
+    /**
+     * @param worker executor to process the points on, running its tasks one after the other
+     */
+    public StatsCreator(Executor worker) {
+        this(worker, false);
+    }
 
-    private StatsCreator() {
+    private StatsCreator(Executor worker, boolean isOwningWorker) {
+        this.worker = worker;
+        this.ownWorker = isOwningWorker ? (ExecutorService) worker : null;
     }
 
     public static StatsCreator getInstance() {
@@ -35,64 +79,166 @@ public class StatsCreator {
         return StatsCreator.instance;
     }
 
-    public void setZCalc(ZPositionCalc zCalc) {
-        this.zCalc = zCalc;
+    public void setZCalc(final ZPositionCalc zCalc) {
+        worker.execute(new Runnable() {
+            @Override
+            public void run() {
+                StatsCreator.this.zCalc = zCalc;
+            }
+        });
     }
 
-    public void addTableCorners(int tableCornerLeft, int tableCornerRight) {
-        this.tableCorners.put(Side.LEFT, tableCornerLeft);
-        this.tableCorners.put(Side.RIGHT, tableCornerRight);
+    /**
+     * @param frameRate frame rate of the camera or video the points are detected in
+     */
+    public void setFrameRate(final float frameRate) {
+        worker.execute(new Runnable() {
+            @Override
+            public void run() {
+                StatsCreator.this.frameRate = frameRate;
+            }
+        });
     }
 
-    public void addPoint(String decision, Side winner, int scoreLeft, int scoreRight, Side ballSide, Side striker, Side server, int duration, List<Track> tracks) {
-        List<DetectionData> detections = new ArrayList<>();
-        List<TrackData> trackDataList = new ArrayList<>();
-        for (Track track : tracks) {
-            Lib.Detection latest = track.getLatest();
-            while (latest != null) {
-                detections.add(new DetectionData(latest.centerX, latest.centerY, latest.centerZ, latest.velocity, latest.isBounce, (int) latest.directionX));
-                latest = latest.predecessor;
+    public void addTableCorners(final int tableCornerLeft, final int tableCornerRight) {
+        worker.execute(new Runnable() {
+            @Override
+            public void run() {
+                tableCorners.put(Side.LEFT, tableCornerLeft);
+                tableCorners.put(Side.RIGHT, tableCornerRight);
+            }
+        });
+    }
+
+    /**
+     * Hands the point over to the worker, which copies the detections of the tracks. Only the
+     * latest detection of each track is taken on the calling thread, the detections linked before
+     * it are not changed by the tracker anymore.
+     */
+    public void addPoint(final String decision, final Side winner, final int scoreLeft, final int scoreRight,
+                         final Side ballSide, final Side striker, final Side server, final int duration, List<Track> tracks) {
+        final int nTracks = tracks.size();
+        final Lib.Detection[] latestDetections = new Lib.Detection[nTracks];
+        final float[] avgVelocities = new float[nTracks];
+        final Side[] strikers = new Side[nTracks];
+        for (int i = 0; i < nTracks; i++) {
+            Track track = tracks.get(i);
+            latestDetections[i] = track.getLatest();
+            avgVelocities[i] = track.getAvgVelocity();
+            strikers[i] = track.getStriker();
+        }
+        worker.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    List<TrackData> trackDataList = new ArrayList<>(nTracks);
+                    for (int i = 0; i < nTracks; i++) {
+                        trackDataList.add(new TrackData(collectDetections(latestDetections[i]), avgVelocities[i],
+                                strikers[i]));
+                    }
+                    addPoint(new PointData(decision, trackDataList, winner, scoreLeft, scoreRight, ballSide, striker,
+                            server, duration), trackDataList);
+                } catch (RuntimeException e) {
+                    Log.e("Could not create the statistics of a point, leaving it out", e);
+                }
             }
-            trackDataList.add(new TrackData(detections, track.getAvgVelocity(), track.getStriker()));
-            detections = new ArrayList<>();
+        });
+    }
+
+    private static List<DetectionData> collectDetections(Lib.Detection latest) {
+        List<DetectionData> detections = new ArrayList<>();
+        while (latest != null) {
+            detections.add(new DetectionData(latest.centerX, latest.centerY, latest.centerZ, latest.velocity, latest.isBounce, (int) latest.directionX));
+            latest = latest.predecessor;
         }
-        PointData point = new PointData(decision, trackDataList, winner, scoreLeft, scoreRight, ballSide, striker, server, duration);
+        return detections;
+    }
+
+    private void addPoint(PointData point, List<TrackData> trackDataList) {
         StatsProcessing.calculatePositionsInMm(trackDataList, this.zCalc);
-        StatsProcessing.recalculateVelocity(trackDataList, this.zCalc);
+        StatsProcessing.recalculateVelocity(trackDataList, this.zCalc, this.frameRate);
         point.setFastestStrikes();  // important to call this AFTER velocity has been recalculated
-        if (points.isEmpty() && !games.isEmpty() && scoreLeft + scoreRight > 1) {
-            GameData lastGame = games.get(games.size() - 1);
-            lastGame.getPoints().add(point);
-            games.set(games.size() - 1, new GameData(lastGame.getPoints()));
+        int scoreSum = point.getScore(Side.LEFT) + point.getScore(Side.RIGHT);
+        if (points.isEmpty() && !games.isEmpty() && scoreSum > 1) {
+            // a correction of the last game, replace it instead of changing the points it was made of
+            List<PointData> lastGamePoints = new ArrayList<>(games.get(games.size() - 1).getPoints());
+            lastGamePoints.add(point);
+            games.set(games.size() - 1, new GameData(lastGamePoints));
         } else points.add(point);
     }
 
-    public void addMetaData(String start, String playerLeft, String playerRight) {
-        this.games = new ArrayList<>();
-        this.points = new ArrayList<>();
-        this.playerNames = new HashMap<>();
-        this.formattedMatchStart = start;
-        this.playerNames.put(Side.LEFT, playerLeft);
-        this.playerNames.put(Side.RIGHT, playerRight);
+    public void addMetaData(final String start, final String playerLeft, final String playerRight) {
+        worker.execute(new Runnable() {
+            @Override
+            public void run() {
+                games = new ArrayList<>();
+                points = new ArrayList<>();
+                playerNames = new HashMap<>();
+                formattedMatchStart = start;
+                playerNames.put(Side.LEFT, playerLeft);
+                playerNames.put(Side.RIGHT, playerRight);
+            }
+        });
     }
 
     public void addGame() {
-        if (!this.points.isEmpty()) {
-            GameData stats = new GameData(this.points);
-            this.games.add(stats);
-            this.points = new ArrayList<>();
-        }
+        worker.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (!points.isEmpty()) {
+                    games.add(new GameData(points));
+                    points = new ArrayList<>();
+                }
+            }
+        });
     }
 
     public void resetGame() {
-        if (this.games.isEmpty()) return;
-        List<PointData> lastGamePoints = this.games.get(this.games.size() - 1).getPoints();
-        lastGamePoints.addAll(points);
-        this.points = lastGamePoints;
-        this.games.remove(this.games.size() - 1);
+        worker.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (games.isEmpty()) return;
+                List<PointData> lastGamePoints = new ArrayList<>(games.remove(games.size() - 1).getPoints());
+                lastGamePoints.addAll(points);
+                points = lastGamePoints;
+            }
+        });
+    }
+
+    /**
+     * Ends the worker of stats created with one of their own, once the points handed over so far
+     * are processed. Nothing is to be passed in afterwards.
+     */
+    public void shutdown() {
+        if (ownWorker != null) ownWorker.shutdown();
     }
 
+    /**
+     * Waits for the points handed over so far and sums up the games played, the game in progress
+     * is left out.
+     */
     public MatchData createStats() {
-        return new MatchData(games, playerNames.get(Side.LEFT), playerNames.get(Side.RIGHT), formattedMatchStart, tableCorners);
+        FutureTask<MatchData> task = new FutureTask<>(new Callable<MatchData>() {
+            @Override
+            public MatchData call() {
+                return new MatchData(new ArrayList<>(games), playerNames.get(Side.LEFT), playerNames.get(Side.RIGHT),
+                        formattedMatchStart, new HashMap<>(tableCorners));
+            }
+        });
+        worker.execute(task);
+        boolean isInterrupted = false;
+        try {
+            while (true) {
+                try {
+                    return task.get();
+                } catch (InterruptedException e) {
+                    isInterrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Could not create the statistics", e.getCause());
+        } finally {
+            if (isInterrupted) Thread.currentThread().interrupt();
+        }
     }
 }
@@ -0,0 +1,386 @@
+package ch.m3ts.display.statistic.data;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ch.m3ts.util.Side;
+
+/**
+ * Binary format of the statistics of a match, used to send them to the display and to store them.
+ * <p>
+ * The data starts with MAGIC and VERSION (int), followed by the match start and the names of the
+ * left and right player (strings), the table corners (varint count, then side and zig-zag varint x
+ * each) and the referee decisions (varint count, then a string each), which the points refer to by
+ * index. Then the number of games (varint) and per game the number of points (varint) follow. A
+ * point consists of its decision index, winner, left and right score, last ball side, last
+ * striker, server and duration (zig-zag varint, s), followed by the number of tracks + 1. A track has
+ * its striker, average velocity (float bits as int) and number of detections, and per detection a
+ * flags byte (bounce, direction x) and the zig-zag varint deltas to the previous detection of the
+ * track of x, y, z in 1/Z_SCALE and velocity in 1/VELOCITY_SCALE. Counts and scores are varints,
+ * sides are bytes (0 none, ordinal + 1 otherwise), strings are their UTF-8 length + 1 as varint
+ * (0 for null) and bytes.
+ * <p>
+ * Aggregates (wins, strikes, fastest strikes, durations) are not stored, they are computed again
+ * when decoding. Only z and the velocity of the detections lose precision.
+ * <p>
+ * A summary (SUMMARY_MAGIC) has the same layout, but instead of its tracks a point has the strikes
+ * of left and right (varint) and their fastest strikes (float bits as int). It is a fraction of
+ * the size of the match and is sent first, the games with their tracks follow on request as a
+ * single game each (GAME_MAGIC, VERSION, the decisions and one game as above). A match stored
+ * before all of its games arrived keeps the points still in summary form: their number of tracks
+ * is written as 0 and followed by the strikes and fastest strikes as in a summary.
+ */
+public final class MatchDataCodec {
+    static final int MAGIC = 0x4d33534d; // "M3SM"
+    static final int SUMMARY_MAGIC = 0x4d335353; // "M3SS"
+    static final int GAME_MAGIC = 0x4d335347; // "M3SG"
+    static final int VERSION = 2;
+    static final double Z_SCALE = 1000;
+    static final double VELOCITY_SCALE = 100;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Side[] SIDES = Side.values();
+    private static final Side[] PLAYER_SIDES = {Side.LEFT, Side.RIGHT};
+    private static final int FLAG_BOUNCE = 1;
+    private static final int DIRECTION_SHIFT = 1;
+
+    private MatchDataCodec() {
+    }
+
+    public static byte[] encode(MatchData match) {
+        return encode(match, false);
+    }
+
+    /**
+     * Encodes the match without the tracks of its points, decode() reads it as a match whose
+     * points have no tracks but the same strikes and fastest strikes.
+     */
+    public static byte[] encodeSummary(MatchData match) {
+        return encode(match, true);
+    }
+
+    private static byte[] encode(MatchData match, boolean isSummary) {
+        Output out = new Output();
+        out.writeInt(isSummary ? SUMMARY_MAGIC : MAGIC);
+        out.writeInt(VERSION);
+        out.writeString(match.getFormattedTimestamp());
+        out.writeString(match.getPlayerName(Side.LEFT));
+        out.writeString(match.getPlayerName(Side.RIGHT));
+        Map<Side, Integer> tableCorners = match.getTableCorners();
+        out.writeVarInt(tableCorners == null ? 0 : tableCorners.size());
+        if (tableCorners != null) {
+            for (Map.Entry<Side, Integer> corner : tableCorners.entrySet()) {
+                out.writeSide(corner.getKey());
+                out.writeZigZag(corner.getValue());
+            }
+        }
+        writeGames(out, match.getGameStats(), isSummary);
+        return out.toByteArray();
+    }
+
+    /**
+     * Encodes a single game with the tracks of its points.
+     */
+    public static byte[] encodeGame(GameData game) {
+        Output out = new Output();
+        out.writeInt(GAME_MAGIC);
+        out.writeInt(VERSION);
+        writeGames(out, Collections.singletonList(game), false);
+        return out.toByteArray();
+    }
+
+    public static MatchData decode(byte[] bytes) throws IOException {
+        Input in = new Input(bytes);
+        int magic = in.readInt();
+        if (magic != MAGIC && magic != SUMMARY_MAGIC) throw new IOException("Not the statistics of a match");
+        readVersion(in);
+        String matchStart = in.readString();
+        String playerLeft = in.readString();
+        String playerRight = in.readString();
+        int nCorners = in.readCount();
+        Map<Side, Integer> tableCorners = new HashMap<>();
+        for (int i = 0; i < nCorners; i++) {
+            Side side = in.readSide();
+            tableCorners.put(side, (int) in.readZigZag());
+        }
+        List<GameData> games = readGames(in, magic == SUMMARY_MAGIC);
+        return new MatchData(games, playerLeft, playerRight, matchStart, tableCorners);
+    }
+
+    public static GameData decodeGame(byte[] bytes) throws IOException {
+        Input in = new Input(bytes);
+        if (in.readInt() != GAME_MAGIC) throw new IOException("Not the statistics of a game");
+        readVersion(in);
+        List<GameData> games = readGames(in, false);
+        if (games.size() != 1) throw new IOException("Expected one game, got " + games.size());
+        return games.get(0);
+    }
+
+    private static void readVersion(Input in) throws IOException {
+        int version = in.readInt();
+        if (version != VERSION) throw new IOException("Unsupported version " + version + " of match statistics");
+    }
+
+    private static void writeGames(Output out, List<GameData> games, boolean isSummary) {
+        List<String> decisions = new ArrayList<>();
+        Map<String, Integer> decisionIndices = new HashMap<>();
+        for (GameData game : games) {
+            for (PointData point : game.getPoints()) {
+                if (!decisionIndices.containsKey(point.getRefereeDecision())) {
+                    decisionIndices.put(point.getRefereeDecision(), decisions.size());
+                    decisions.add(point.getRefereeDecision());
+                }
+            }
+        }
+        out.writeVarInt(decisions.size());
+        for (String decision : decisions) out.writeString(decision);
+        out.writeVarInt(games.size());
+        for (GameData game : games) {
+            out.writeVarInt(game.getPoints().size());
+            for (PointData point : game.getPoints()) {
+                out.writeVarInt(decisionIndices.get(point.getRefereeDecision()));
+                writePoint(out, point, isSummary);
+            }
+        }
+    }
+
+    private static List<GameData> readGames(Input in, boolean isSummary) throws IOException {
+        int nDecisions = in.readCount();
+        String[] decisions = new String[nDecisions];
+        for (int i = 0; i < nDecisions; i++) decisions[i] = in.readString();
+        int nGames = in.readCount();
+        List<GameData> games = new ArrayList<>(nGames);
+        for (int i = 0; i < nGames; i++) {
+            int nPoints = in.readCount();
+            List<PointData> points = new ArrayList<>(nPoints);
+            for (int j = 0; j < nPoints; j++) {
+                int decision = in.readVarInt();
+                if (decision >= nDecisions) throw new IOException("Bad referee decision " + decision);
+                points.add(readPoint(in, decisions[decision], isSummary));
+            }
+            if (points.isEmpty()) throw new IOException("Game without points");
+            games.add(new GameData(points));
+        }
+        return games;
+    }
+
+    private static void writePoint(Output out, PointData point, boolean isSummary) {
+        out.writeSide(point.getWinner());
+        out.writeVarInt(point.getScore(Side.LEFT));
+        out.writeVarInt(point.getScore(Side.RIGHT));
+        out.writeSide(point.getLastBallSide());
+        out.writeSide(point.getLastStriker());
+        out.writeSide(point.getServer());
+        out.writeZigZag(point.getDuration());
+        if (isSummary || point.isSummary()) {
+            if (!isSummary) out.writeVarInt(0);
+            for (Side side : PLAYER_SIDES) {
+                out.writeVarInt(point.getStrikes().get(side));
+                out.writeInt(Float.floatToIntBits(point.getFastestStrikes().get(side)));
+            }
+            return;
+        }
+        out.writeVarInt(point.getTracks().size() + 1);
+        for (TrackData track : point.getTracks()) {
+            out.writeSide(track.getStriker());
+            out.writeInt(Float.floatToIntBits(track.getAverageVelocity()));
+            List<DetectionData> detections = track.getDetections();
+            out.writeVarInt(detections.size());
+            int x = 0;
+            int y = 0;
+            long z = 0;
+            long velocity = 0;
+            for (DetectionData detection : detections) {
+                out.writeByte((detection.wasBounce() ? FLAG_BOUNCE : 0) |
+                        (Integer.signum(detection.getDirectionX()) + 1) << DIRECTION_SHIFT);
+                long qz = Math.round(detection.getZ() * Z_SCALE);
+                long qVelocity = Math.round(detection.getVelocity() * VELOCITY_SCALE);
+                out.writeZigZag(detection.getX() - x);
+                out.writeZigZag(detection.getY() - y);
+                out.writeZigZag(qz - z);
+                out.writeZigZag(qVelocity - velocity);
+                x = detection.getX();
+                y = detection.getY();
+                z = qz;
+                velocity = qVelocity;
+            }
+        }
+    }
+
+    private static PointData readPoint(Input in, String decision, boolean isSummary) throws IOException {
+        Side winner = in.readSide();
+        int scoreLeft = in.readVarInt();
+        int scoreRight = in.readVarInt();
+        Side lastBallSide = in.readSide();
+        Side lastStriker = in.readSide();
+        Side server = in.readSide();
+        int duration = (int) in.readZigZag();
+        // -1 for a point in summary form
+        int nTracks = isSummary ? -1 : in.checkCount(in.readVarInt() - 1);
+        if (nTracks < 0) {
+            Map<Side, Integer> strikes = new HashMap<>();
+            Map<Side, Float> fastestStrikes = new HashMap<>();
+            for (Side side : PLAYER_SIDES) {
+                strikes.put(side, in.readVarInt());
+                fastestStrikes.put(side, Float.intBitsToFloat(in.readInt()));
+            }
+            return PointData.ofSummary(decision, winner, scoreLeft, scoreRight, lastBallSide, lastStriker, server,
+                    duration, strikes, fastestStrikes);
+        }
+        List<TrackData> tracks = new ArrayList<>(nTracks);
+        for (int i = 0; i < nTracks; i++) {
+            Side striker = in.readSide();
+            float averageVelocity = Float.intBitsToFloat(in.readInt());
+            int nDetections = in.readCount();
+            List<DetectionData> detections = new ArrayList<>(nDetections);
+            int x = 0;
+            int y = 0;
+            long z = 0;
+            long velocity = 0;
+            for (int j = 0; j < nDetections; j++) {
+                int flags = in.readByte();
+                x += (int) in.readZigZag();
+                y += (int) in.readZigZag();
+                z += in.readZigZag();
+                velocity += in.readZigZag();
+                detections.add(new DetectionData(x, y, z / Z_SCALE, (float) (velocity / VELOCITY_SCALE),
+                        (flags & FLAG_BOUNCE) != 0, (flags >> DIRECTION_SHIFT & 3) - 1));
+            }
+            tracks.add(new TrackData(detections, averageVelocity, striker));
+        }
+        return PointData.ofStrikes(decision, tracks, winner, scoreLeft, scoreRight, lastBallSide, lastStriker,
+                server, duration);
+    }
+
+    /**
+     * Growing byte array written to directly, the streams of java.io cost more per byte than the
+     * encoding itself.
+     */
+    private static final class Output {
+        private byte[] bytes = new byte[4096];
+        private int length = 0;
+
+        void writeByte(int value) {
+            if (length == bytes.length) bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            bytes[length++] = (byte) value;
+        }
+
+        void writeInt(int value) {
+            writeByte(value >>> 24);
+            writeByte(value >>> 16);
+            writeByte(value >>> 8);
+            writeByte(value);
+        }
+
+        void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte(value);
+        }
+
+        void writeZigZag(long value) {
+            long zigZag = (value << 1) ^ (value >> 63);
+            while ((zigZag & ~0x7FL) != 0) {
+                writeByte((int) ((zigZag & 0x7F) | 0x80));
+                zigZag >>>= 7;
+            }
+            writeByte((int) zigZag);
+        }
+
+        void writeSide(Side side) {
+            writeByte(side == null ? 0 : side.ordinal() + 1);
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarInt(0);
+                return;
+            }
+            byte[] utf8 = value.getBytes(UTF_8);
+            writeVarInt(utf8.length + 1);
+            for (byte b : utf8) writeByte(b);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, length);
+        }
+    }
+
+    private static final class Input {
+        private final byte[] bytes;
+        private int position = 0;
+
+        Input(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        int readByte() throws EOFException {
+            if (position == bytes.length) throw new EOFException("Match statistics cut short");
+            return bytes[position++];
+        }
+
+        int readInt() throws EOFException {
+            return (readByte() & 0xFF) << 24 | (readByte() & 0xFF) << 16 | (readByte() & 0xFF) << 8 |
+                    (readByte() & 0xFF);
+        }
+
+        int readVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    if (value < 0) throw new IOException("Negative count in match statistics");
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint in match statistics");
+        }
+
+        /**
+         * Reads the number of the elements following, each takes a byte at least. Checked before
+         * anything gets allocated for them, so broken data can not allocate more than its size.
+         */
+        int readCount() throws IOException {
+            return checkCount(readVarInt());
+        }
+
+        int checkCount(int count) throws IOException {
+            if (count > bytes.length - position) throw new IOException("Bad count " + count + " in match statistics");
+            return count;
+        }
+
+        long readZigZag() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return (value >>> 1) ^ -(value & 1);
+            }
+            throw new IOException("Malformed varint in match statistics");
+        }
+
+        Side readSide() throws IOException {
+            int code = readByte();
+            if (code < 0 || code > SIDES.length) throw new IOException("Bad side " + code);
+            return code == 0 ? null : SIDES[code - 1];
+        }
+
+        String readString() throws IOException {
+            int length = readVarInt() - 1;
+            if (length < 0) return null;
+            if (length > bytes.length - position) throw new EOFException("Match statistics cut short");
+            String value = new String(bytes, position, length, UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package ch.m3ts.display.statistic.data;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -20,8 +21,18 @@ public class PointData implements Serializable {
     private final int duration;
     private final boolean isCorrection;
     private Map<Side, Float> fastestStrikes;
+    private boolean isSummary = false;
 
     public PointData(String refereeDecision, List<TrackData> tracks, Side winner, int scoreLeft, int scoreRight, Side lastBallSide, Side lastStriker, Side server, int duration) {
+        this(refereeDecision, tracks, winner, scoreLeft, scoreRight, lastBallSide, lastStriker, server, duration, true);
+    }
+
+    private PointData(String refereeDecision, List<TrackData> tracks, Side winner, int scoreLeft, int scoreRight, Side lastBallSide, Side lastStriker, Side server, int duration, boolean putTogetherStrikes) {
+        this(refereeDecision, tracks, winner, scoreLeft, scoreRight, lastBallSide, lastStriker, server, duration, countStrikes(tracks, putTogetherStrikes), null);
+        setFastestStrikes();
+    }
+
+    private PointData(String refereeDecision, List<TrackData> tracks, Side winner, int scoreLeft, int scoreRight, Side lastBallSide, Side lastStriker, Side server, int duration, Map<Side, Integer> strikes, Map<Side, Float> fastestStrikes) {
         this.refereeDecision = refereeDecision;
         this.tracks = tracks;
         this.winner = winner;
@@ -33,9 +44,30 @@ public class PointData implements Serializable {
         this.server = server;
         this.duration = duration;
         this.isCorrection = refereeDecision.contains("deduction");
-        StatsProcessing.putTogetherTracksOfSameStrikes(tracks);
-        this.strikes = StatsProcessing.countAmountOfStrikesOfBothSides(this.tracks);
-        setFastestStrikes();
+        this.strikes = strikes;
+        this.fastestStrikes = fastestStrikes;
+    }
+
+    private static Map<Side, Integer> countStrikes(List<TrackData> tracks, boolean putTogetherStrikes) {
+        if (putTogetherStrikes) StatsProcessing.putTogetherTracksOfSameStrikes(tracks);
+        return StatsProcessing.countAmountOfStrikesOfBothSides(tracks);
+    }
+
+    /**
+     * Creates a point of tracks which have been put together to strikes already, e.g. when decoded.
+     */
+    static PointData ofStrikes(String refereeDecision, List<TrackData> strikes, Side winner, int scoreLeft, int scoreRight, Side lastBallSide, Side lastStriker, Side server, int duration) {
+        return new PointData(refereeDecision, strikes, winner, scoreLeft, scoreRight, lastBallSide, lastStriker, server, duration, false);
+    }
+
+    /**
+     * Creates a point without its tracks, keeping only the strikes counted and the fastest
+     * strikes found in them (see MatchDataCodec.encodeSummary).
+     */
+    static PointData ofSummary(String refereeDecision, Side winner, int scoreLeft, int scoreRight, Side lastBallSide, Side lastStriker, Side server, int duration, Map<Side, Integer> strikes, Map<Side, Float> fastestStrikes) {
+        PointData point = new PointData(refereeDecision, new ArrayList<TrackData>(), winner, scoreLeft, scoreRight, lastBallSide, lastStriker, server, duration, strikes, fastestStrikes);
+        point.isSummary = true;
+        return point;
     }
 
     public void setFastestStrikes() {
@@ -82,6 +114,13 @@ public class PointData implements Serializable {
         return isCorrection;
     }
 
+    /**
+     * @return true if the tracks of the point have been left out, see MatchDataCodec.encodeSummary
+     */
+    public boolean isSummary() {
+        return isSummary;
+    }
+
     public float getFastestStrike() {
         return fastestStrikes.get(Side.LEFT) > fastestStrikes.get(Side.RIGHT) ? fastestStrikes.get(Side.LEFT) : fastestStrikes.get(Side.RIGHT);
     }
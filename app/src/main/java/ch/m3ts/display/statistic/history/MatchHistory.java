@@ -0,0 +1,298 @@
+package ch.m3ts.display.statistic.history;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import ch.m3ts.display.statistic.data.MatchData;
+import ch.m3ts.display.statistic.data.MatchDataCodec;
+import ch.m3ts.util.Log;
+import ch.m3ts.util.Side;
+
+/**
+ * Matches played on this device, stored in two append-only files (see MatchHistoryFormat): the
+ * matches themselves and an index with a MatchSummary per match. Opening reads only the index and
+ * keeps the summaries by player, date and referee decision, together with the stats of every
+ * player and the decisions per month. So questions like the fastest strike of a player this month
+ * or the trend of the error rate are answered without decoding any match, load() decodes a single
+ * match when its points are needed.
+ * <p>
+ * Months are counted as year * 12 + month, see getMonth().
+ */
+public class MatchHistory implements Closeable {
+    public static final String DIRECTORY = "history";
+    static final String DATA_FILE = "matches.dat";
+    static final String INDEX_FILE = "matches.idx";
+    private final RandomAccessFile data;
+    private final RandomAccessFile index;
+    private long dataLength;
+    private long indexLength;
+    private final List<MatchSummary> matches = new ArrayList<>();
+    private final Map<String, MatchSummary> matchesByKey = new HashMap<>();
+    private final Map<String, List<MatchSummary>> matchesByPlayer = new HashMap<>();
+    private final TreeMap<Long, List<MatchSummary>> matchesByDate = new TreeMap<>();
+    private final Map<String, List<MatchSummary>> matchesByDecision = new HashMap<>();
+    private final Map<String, TreeMap<Integer, PlayerStats>> statsByPlayer = new HashMap<>();
+    private final TreeMap<Integer, Map<String, Integer>> decisionsByMonth = new TreeMap<>();
+
+    private MatchHistory(RandomAccessFile data, RandomAccessFile index) {
+        this.data = data;
+        this.index = index;
+    }
+
+    /**
+     * Opens the history in the given directory, creating it if there is none yet. Entries of
+     * matches which were not written completely are dropped.
+     */
+    public static MatchHistory open(File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Could not create " + dir);
+        RandomAccessFile data = new RandomAccessFile(new File(dir, DATA_FILE), "rw");
+        RandomAccessFile index = null;
+        try {
+            index = new RandomAccessFile(new File(dir, INDEX_FILE), "rw");
+            MatchHistory history = new MatchHistory(data, index);
+            history.dataLength = readHeader(data, MatchHistoryFormat.DATA_MAGIC);
+            history.indexLength = readHeader(index, MatchHistoryFormat.INDEX_MAGIC);
+            history.readIndex();
+            return history;
+        } catch (IOException e) {
+            data.close();
+            if (index != null) index.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return length of the header, which is written if the file is empty
+     */
+    private static long readHeader(RandomAccessFile file, int magic) throws IOException {
+        if (file.length() < MatchHistoryFormat.HEADER_LENGTH) {
+            file.setLength(0);
+            file.writeInt(magic);
+            file.writeInt(MatchHistoryFormat.VERSION);
+        } else {
+            file.seek(0);
+            if (file.readInt() != magic) throw new IOException("Not a match history file");
+            int version = file.readInt();
+            if (version != MatchHistoryFormat.VERSION) {
+                throw new IOException("Unsupported match history version " + version);
+            }
+        }
+        return MatchHistoryFormat.HEADER_LENGTH;
+    }
+
+    private void readIndex() throws IOException {
+        byte[] bytes = new byte[(int) (index.length() - indexLength)];
+        index.seek(indexLength);
+        index.readFully(bytes);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        long dataFileLength = data.length();
+        int position = 0;
+        while (position < bytes.length) {
+            try {
+                int length = MatchHistoryFormat.readVarInt(in);
+                int start = bytes.length - in.available();
+                if (length > in.available()) break;
+                MatchSummary match = MatchHistoryFormat.readSummary(in);
+                if (bytes.length - in.available() != start + length) break;
+                if (match.getDataOffset() != dataLength || dataLength + match.getDataLength() > dataFileLength) break;
+                position = start + length;
+                dataLength += match.getDataLength();
+                addToIndexes(match);
+            } catch (IOException e) {
+                break;
+            }
+        }
+        if (position < bytes.length) Log.w("Dropping the match history after entry " + matches.size());
+        indexLength += position;
+        index.setLength(indexLength);
+        data.setLength(dataLength);
+    }
+
+    /**
+     * Stores the match, unless it has been stored before.
+     *
+     * @param dateMs date the match was played, to look it up by date and month
+     * @return its summary, the one stored before if the match is stored already
+     */
+    public synchronized MatchSummary add(MatchData match, long dateMs) throws IOException {
+        String key = MatchSummary.getKey(match);
+        MatchSummary stored = matchesByKey.get(key);
+        if (stored != null) return stored;
+        byte[] encoded = MatchDataCodec.encode(match);
+        MatchSummary summary = MatchSummary.of(match, dateMs, dataLength, encoded.length);
+        ByteArrayOutputStream entry = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(entry);
+        MatchHistoryFormat.writeSummary(out, summary);
+        ByteArrayOutputStream record = new ByteArrayOutputStream(entry.size() + 5);
+        MatchHistoryFormat.writeVarInt(new DataOutputStream(record), entry.size());
+        entry.writeTo(record);
+        data.seek(dataLength);
+        data.write(encoded);
+        data.getFD().sync();
+        index.seek(indexLength);
+        index.write(record.toByteArray());
+        index.getFD().sync();
+        dataLength += encoded.length;
+        indexLength += record.size();
+        addToIndexes(summary);
+        return summary;
+    }
+
+    private void addToIndexes(MatchSummary match) {
+        matches.add(match);
+        matchesByKey.put(match.getKey(), match);
+        addTo(matchesByDate, match.getDateMs(), match);
+        int month = getMonth(match.getDateMs());
+        for (Side side : new Side[]{Side.LEFT, Side.RIGHT}) {
+            String player = match.getPlayerName(side);
+            if (player == null || match.getSide(player) != side) continue;
+            addTo(matchesByPlayer, player, match);
+            TreeMap<Integer, PlayerStats> months = statsByPlayer.get(player);
+            if (months == null) {
+                months = new TreeMap<>();
+                statsByPlayer.put(player, months);
+            }
+            PlayerStats stats = months.get(month);
+            if (stats == null) {
+                stats = new PlayerStats();
+                months.put(month, stats);
+            }
+            stats.add(match, side);
+        }
+        Map<String, Integer> decisions = decisionsByMonth.get(month);
+        if (decisions == null) {
+            decisions = new HashMap<>();
+            decisionsByMonth.put(month, decisions);
+        }
+        for (Map.Entry<String, Integer> decision : match.getDecisions().entrySet()) {
+            addTo(matchesByDecision, decision.getKey(), match);
+            Integer count = decisions.get(decision.getKey());
+            decisions.put(decision.getKey(), (count == null ? 0 : count) + decision.getValue());
+        }
+    }
+
+    private static <K> void addTo(Map<K, List<MatchSummary>> map, K key, MatchSummary match) {
+        List<MatchSummary> list = map.get(key);
+        if (list == null) {
+            list = new ArrayList<>();
+            map.put(key, list);
+        }
+        list.add(match);
+    }
+
+    /**
+     * @return month of the date, as year * 12 + month (0 - 11)
+     */
+    public static int getMonth(long dateMs) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(dateMs);
+        return calendar.get(Calendar.YEAR) * 12 + calendar.get(Calendar.MONTH);
+    }
+
+    /**
+     * Decodes the points of a stored match.
+     */
+    public synchronized MatchData load(MatchSummary match) throws IOException {
+        byte[] bytes = new byte[match.getDataLength()];
+        data.seek(match.getDataOffset());
+        data.readFully(bytes);
+        return MatchDataCodec.decode(bytes);
+    }
+
+    /**
+     * @return all matches, in the order they were stored
+     */
+    public synchronized List<MatchSummary> getMatches() {
+        return new ArrayList<>(matches);
+    }
+
+    public synchronized List<MatchSummary> getMatchesOfPlayer(String player) {
+        List<MatchSummary> list = matchesByPlayer.get(player);
+        return list == null ? Collections.<MatchSummary>emptyList() : new ArrayList<>(list);
+    }
+
+    /**
+     * @return matches played from fromMs (inclusive) to toMs (exclusive), ordered by date
+     */
+    public synchronized List<MatchSummary> getMatchesBetween(long fromMs, long toMs) {
+        List<MatchSummary> list = new ArrayList<>();
+        if (fromMs >= toMs) return list;
+        for (List<MatchSummary> sameDate : matchesByDate.subMap(fromMs, toMs).values()) {
+            list.addAll(sameDate);
+        }
+        return list;
+    }
+
+    /**
+     * @return matches with at least one point ended by the given referee decision
+     */
+    public synchronized List<MatchSummary> getMatchesWithDecision(String decision) {
+        List<MatchSummary> list = matchesByDecision.get(decision);
+        return list == null ? Collections.<MatchSummary>emptyList() : new ArrayList<>(list);
+    }
+
+    /**
+     * @return stats of the player over the months fromMonth to toMonth, both inclusive
+     */
+    public synchronized PlayerStats getPlayerStats(String player, int fromMonth, int toMonth) {
+        PlayerStats sum = new PlayerStats();
+        TreeMap<Integer, PlayerStats> months = statsByPlayer.get(player);
+        if (months == null || fromMonth > toMonth) return sum;
+        for (PlayerStats stats : months.subMap(fromMonth, true, toMonth, true).values()) {
+            sum.add(stats);
+        }
+        return sum;
+    }
+
+    /**
+     * @return stats of the player per month played, e.g. for the trend of the error rate
+     */
+    public synchronized SortedMap<Integer, PlayerStats> getMonthlyStats(String player) {
+        SortedMap<Integer, PlayerStats> copy = new TreeMap<>();
+        TreeMap<Integer, PlayerStats> months = statsByPlayer.get(player);
+        if (months == null) return copy;
+        for (Map.Entry<Integer, PlayerStats> month : months.entrySet()) {
+            copy.put(month.getKey(), month.getValue().copy());
+        }
+        return copy;
+    }
+
+    /**
+     * @return number of points per referee decision over the months fromMonth to toMonth, both
+     * inclusive
+     */
+    public synchronized Map<String, Integer> getDecisionCounts(int fromMonth, int toMonth) {
+        Map<String, Integer> sum = new HashMap<>();
+        if (fromMonth > toMonth) return sum;
+        for (Map<String, Integer> decisions : decisionsByMonth.subMap(fromMonth, true, toMonth, true).values()) {
+            for (Map.Entry<String, Integer> decision : decisions.entrySet()) {
+                Integer count = sum.get(decision.getKey());
+                sum.put(decision.getKey(), (count == null ? 0 : count) + decision.getValue());
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            data.close();
+        } finally {
+            index.close();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package ch.m3ts.display.statistic.history;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import ch.m3ts.util.Side;
+
+/**
+ * Binary format of the match history files.
+ * <p>
+ * The data file starts with DATA_MAGIC and VERSION, followed by the matches as written by
+ * MatchDataCodec, one after the other.
+ * <p>
+ * The index file starts with INDEX_MAGIC and VERSION, followed by one entry per match: its length
+ * (varint) and the entry itself, the date (long), offset (long) and length (varint) of the match
+ * in the data file, its key and the player names (nullable UTF), the wins, points, strikes of left
+ * and right (varint) and their fastest strikes (float), the number of points, corrections and the
+ * duration (varint) and the number of decisions (varint), each as decision (nullable UTF) and
+ * count (varint). Both files are only appended to, an entry is written after its match, so an
+ * entry without its match or an entry cut off by a crash is found when opening.
+ */
+final class MatchHistoryFormat {
+    static final int DATA_MAGIC = 0x4d33484d; // "M3HM"
+    static final int INDEX_MAGIC = 0x4d334849; // "M3HI"
+    static final int VERSION = 1;
+    static final int HEADER_LENGTH = 8;
+
+    private MatchHistoryFormat() {
+    }
+
+    static void writeSummary(DataOutput out, MatchSummary match) throws IOException {
+        out.writeLong(match.getDateMs());
+        out.writeLong(match.getDataOffset());
+        writeVarInt(out, match.getDataLength());
+        writeString(out, match.getKey());
+        for (Side side : new Side[]{Side.LEFT, Side.RIGHT}) {
+            writeString(out, match.getPlayerName(side));
+            writeVarInt(out, match.getWins(side));
+            writeVarInt(out, match.getPoints(side));
+            writeVarInt(out, match.getStrikes(side));
+            out.writeFloat(match.getFastestStrike(side));
+        }
+        writeVarInt(out, match.getAmountOfPoints());
+        writeVarInt(out, match.getAmountOfCorrections());
+        writeVarInt(out, match.getDuration());
+        writeVarInt(out, match.getDecisions().size());
+        for (Map.Entry<String, Integer> decision : match.getDecisions().entrySet()) {
+            writeString(out, decision.getKey());
+            writeVarInt(out, decision.getValue());
+        }
+    }
+
+    static MatchSummary readSummary(DataInput in) throws IOException {
+        long dateMs = in.readLong();
+        long dataOffset = in.readLong();
+        int dataLength = readVarInt(in);
+        String key = readString(in);
+        String[] playerNames = new String[2];
+        int[] wins = new int[2];
+        int[] points = new int[2];
+        int[] strikes = new int[2];
+        float[] fastestStrikes = new float[2];
+        for (int i = 0; i < 2; i++) {
+            playerNames[i] = readString(in);
+            wins[i] = readVarInt(in);
+            points[i] = readVarInt(in);
+            strikes[i] = readVarInt(in);
+            fastestStrikes[i] = in.readFloat();
+        }
+        int amountOfPoints = readVarInt(in);
+        int amountOfCorrections = readVarInt(in);
+        int duration = readVarInt(in);
+        int nDecisions = readVarInt(in);
+        Map<String, Integer> decisions = new HashMap<>();
+        for (int i = 0; i < nDecisions; i++) {
+            String decision = readString(in);
+            decisions.put(decision, readVarInt(in));
+        }
+        return new MatchSummary(dateMs, key, playerNames, wins, points, strikes, fastestStrikes,
+                amountOfPoints, amountOfCorrections, duration, decisions, dataOffset, dataLength);
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint in match history");
+    }
+}
@@ -0,0 +1,149 @@
+package ch.m3ts.display.statistic.history;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import ch.m3ts.display.statistic.data.GameData;
+import ch.m3ts.display.statistic.data.MatchData;
+import ch.m3ts.display.statistic.data.PointData;
+import ch.m3ts.util.Side;
+
+/**
+ * Entry of a match in the MatchHistory index: what the queries over many matches need, without
+ * the points of the match. The match itself is loaded with MatchHistory.load().
+ */
+public class MatchSummary {
+    private final long dateMs;
+    private final String key;
+    private final String[] playerNames;
+    private final int[] wins;
+    private final int[] points;
+    private final int[] strikes;
+    private final float[] fastestStrikes;
+    private final int amountOfPoints;
+    private final int amountOfCorrections;
+    private final int duration;
+    private final Map<String, Integer> decisions;
+    private final long dataOffset;
+    private final int dataLength;
+
+    MatchSummary(long dateMs, String key, String[] playerNames, int[] wins, int[] points, int[] strikes,
+                 float[] fastestStrikes, int amountOfPoints, int amountOfCorrections, int duration,
+                 Map<String, Integer> decisions, long dataOffset, int dataLength) {
+        this.dateMs = dateMs;
+        this.key = key;
+        this.playerNames = playerNames;
+        this.wins = wins;
+        this.points = points;
+        this.strikes = strikes;
+        this.fastestStrikes = fastestStrikes;
+        this.amountOfPoints = amountOfPoints;
+        this.amountOfCorrections = amountOfCorrections;
+        this.duration = duration;
+        this.decisions = Collections.unmodifiableMap(decisions);
+        this.dataOffset = dataOffset;
+        this.dataLength = dataLength;
+    }
+
+    static MatchSummary of(MatchData match, long dateMs, long dataOffset, int dataLength) {
+        int[] points = new int[2];
+        Map<String, Integer> decisions = new HashMap<>();
+        for (GameData game : match.getGameStats()) {
+            points[0] += game.getPlayerStats(Side.LEFT).getPoints();
+            points[1] += game.getPlayerStats(Side.RIGHT).getPoints();
+            for (PointData point : game.getPoints()) {
+                Integer count = decisions.get(point.getRefereeDecision());
+                decisions.put(point.getRefereeDecision(), count == null ? 1 : count + 1);
+            }
+        }
+        return new MatchSummary(dateMs, getKey(match),
+                new String[]{match.getPlayerName(Side.LEFT), match.getPlayerName(Side.RIGHT)},
+                new int[]{match.getWins(Side.LEFT), match.getWins(Side.RIGHT)}, points,
+                new int[]{match.getStrikes().get(Side.LEFT), match.getStrikes().get(Side.RIGHT)},
+                new float[]{match.getFastestStrike(Side.LEFT), match.getFastestStrike(Side.RIGHT)},
+                match.getAmountOfPoints(), match.getAmountOfCorrections(), match.getDuration(), decisions,
+                dataOffset, dataLength);
+    }
+
+    /**
+     * @return key to recognize a match received again, its start and players
+     */
+    static String getKey(MatchData match) {
+        return match.getFormattedTimestamp() + "|" + match.getPlayerName(Side.LEFT) + "|" +
+                match.getPlayerName(Side.RIGHT);
+    }
+
+    private static int index(Side side) {
+        return side == Side.LEFT ? 0 : 1;
+    }
+
+    /**
+     * @return side the player played on, null if the player was not part of the match
+     */
+    public Side getSide(String player) {
+        if (player == null) return null;
+        if (player.equals(playerNames[0])) return Side.LEFT;
+        if (player.equals(playerNames[1])) return Side.RIGHT;
+        return null;
+    }
+
+    public long getDateMs() {
+        return dateMs;
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    public String getPlayerName(Side side) {
+        return playerNames[index(side)];
+    }
+
+    public int getWins(Side side) {
+        return wins[index(side)];
+    }
+
+    public Side getWinner() {
+        return wins[0] > wins[1] ? Side.LEFT : Side.RIGHT;
+    }
+
+    public int getPoints(Side side) {
+        return points[index(side)];
+    }
+
+    public int getStrikes(Side side) {
+        return strikes[index(side)];
+    }
+
+    public float getFastestStrike(Side side) {
+        return fastestStrikes[index(side)];
+    }
+
+    public int getAmountOfPoints() {
+        return amountOfPoints;
+    }
+
+    public int getAmountOfCorrections() {
+        return amountOfCorrections;
+    }
+
+    public int getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return number of points per referee decision
+     */
+    public Map<String, Integer> getDecisions() {
+        return decisions;
+    }
+
+    long getDataOffset() {
+        return dataOffset;
+    }
+
+    int getDataLength() {
+        return dataLength;
+    }
+}
@@ -0,0 +1,88 @@
+package ch.m3ts.display.statistic.history;
+
+import ch.m3ts.util.Side;
+
+/**
+ * Sums of the matches of a player, e.g. over a month. Kept up to date by the MatchHistory for
+ * every player and month, queries over longer periods add the months up.
+ */
+public class PlayerStats {
+    private int matches;
+    private int matchesWon;
+    private int points;
+    private int pointsWon;
+    private int corrections;
+    private int strikes;
+    private int duration;
+    private float fastestStrike;
+
+    void add(MatchSummary match, Side side) {
+        matches++;
+        if (match.getWinner() == side) matchesWon++;
+        points += match.getAmountOfPoints();
+        pointsWon += match.getPoints(side);
+        corrections += match.getAmountOfCorrections();
+        strikes += match.getStrikes(side);
+        duration += match.getDuration();
+        fastestStrike = Math.max(fastestStrike, match.getFastestStrike(side));
+    }
+
+    void add(PlayerStats other) {
+        matches += other.matches;
+        matchesWon += other.matchesWon;
+        points += other.points;
+        pointsWon += other.pointsWon;
+        corrections += other.corrections;
+        strikes += other.strikes;
+        duration += other.duration;
+        fastestStrike = Math.max(fastestStrike, other.fastestStrike);
+    }
+
+    PlayerStats copy() {
+        PlayerStats copy = new PlayerStats();
+        copy.add(this);
+        return copy;
+    }
+
+    public int getMatches() {
+        return matches;
+    }
+
+    public int getMatchesWon() {
+        return matchesWon;
+    }
+
+    /**
+     * @return points played in the matches, by both players
+     */
+    public int getPoints() {
+        return points;
+    }
+
+    public int getPointsWon() {
+        return pointsWon;
+    }
+
+    public int getStrikes() {
+        return strikes;
+    }
+
+    /**
+     * @return duration of the matches in seconds
+     */
+    public int getDuration() {
+        return duration;
+    }
+
+    public float getFastestStrike() {
+        return fastestStrike;
+    }
+
+    /**
+     * @return corrections of the referee per point played in the matches, like MatchData
+     */
+    public float getErrorRatePercentage() {
+        if (points == 0) return 0;
+        return (float) corrections / points * 100;
+    }
+}
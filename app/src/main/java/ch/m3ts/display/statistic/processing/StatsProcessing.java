@@ -1,10 +1,9 @@
 package ch.m3ts.display.statistic.processing;
 
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumMap;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
@@ -15,7 +14,6 @@ import ch.m3ts.util.Side;
 import edu.princeton.cs.algs4.LinearRegression;
 
 public class StatsProcessing {
-    private static final double FRAME_RATE = 30.0;
     public static final double OUTLIER_IGNORE_THRESHOLD = 0.99;
 
     private StatsProcessing() {
@@ -26,22 +24,24 @@ public class StatsProcessing {
      *
      * @param trackDataList all tracks of which will have the velocity recalculated
      * @param calc          initialized ZPositionCalc
+     * @param frameRate     frame rate the detections were made at, in frames per second
      */
-    public static void recalculateVelocity(List<TrackData> trackDataList, ZPositionCalc calc) {
+    public static void recalculateVelocity(List<TrackData> trackDataList, ZPositionCalc calc, float frameRate) {
         for (TrackData trackData : trackDataList) {
-            if (trackData.getDetections().isEmpty()) continue;
-            DetectionData lastDetection = trackData.getDetections().get(0);
-            DetectionData firstDetection = trackData.getDetections().get(trackData.getDetections().size() - 1);
-            if (lastDetection == firstDetection || trackData.getDetections().size() == 1 || calc == null) {
+            List<DetectionData> detections = trackData.getDetections();
+            if (detections.isEmpty()) continue;
+            if (detections.size() == 1 || calc == null) {
                 trackData.setAverageVelocity(0);
             } else {
-                double dx = Math.abs(lastDetection.getX() - firstDetection.getX());
-                double dy = Math.abs(lastDetection.getY() - firstDetection.getY());
-                double dz = Math.abs(lastDetection.getZ() - firstDetection.getZ()) * (ZPositionCalc.TABLE_TENNIS_TABLE_WIDTH_MM
+                DetectionData lastDetection = detections.get(0);
+                DetectionData firstDetection = detections.get(detections.size() - 1);
+                double dx = lastDetection.getX() - firstDetection.getX();
+                double dy = lastDetection.getY() - firstDetection.getY();
+                double dz = (lastDetection.getZ() - firstDetection.getZ()) * (ZPositionCalc.TABLE_TENNIS_TABLE_WIDTH_MM
                         + 2 * ZPositionCalc.MAX_OFFSET_MM);
-                double distanceInMm = Math.sqrt(Math.pow(dx, 2) + Math.pow(dy, 2) + Math.pow(dz, 2));
+                double distanceInMm = Math.sqrt(dx * dx + dy * dy + dz * dz);
                 double distanceInM = distanceInMm / 1000.0;
-                double dTimeInS = (1 / FRAME_RATE) * (trackData.getDetections().size() - 1);
+                double dTimeInS = (1.0 / frameRate) * (detections.size() - 1);
                 float velocityMPerS = (float) (distanceInM / dTimeInS);
                 float velocityKmPerH = velocityMPerS * 3.6f;
                 trackData.setAverageVelocity(velocityKmPerH);
@@ -53,38 +53,69 @@ public class StatsProcessing {
      * "Glues" together multiple tracks of the same strike.
      * Basically, if 2 tracks share the same xDirection (f.e. both going to the left),
      * they're most likely from the same strike.
+     * <p>
+     * Runs of tracks of the same strike are found in one pass, the detections of each run are then
+     * copied once into the first track of it.
      *
      * @param tracks list of all tracks (f.e. of a point)
      */
     public static void putTogetherTracksOfSameStrikes(List<TrackData> tracks) {
-        Iterator<TrackData> trackDataIterator = tracks.iterator();
-        TrackData lastTrackData = null;
-        while (trackDataIterator.hasNext()) {
-            TrackData nextTrackData = trackDataIterator.next();
-            if (lastTrackData != null) {
-                List<DetectionData> detections = nextTrackData.getDetections();
-                int dir = Integer.compare(detections.get(detections.size() - 1).getX(), detections.get(0).getX());
-                List<DetectionData> prevDetections = lastTrackData.getDetections();
-                int dirPrev = Integer.compare(prevDetections.get(prevDetections.size() - 1).getX(), prevDetections.get(0).getX());
-                if (dir == dirPrev) {
-                    // likely same track, append detections and remove
-                    Collections.reverse(lastTrackData.getDetections());
-                    Collections.reverse(nextTrackData.getDetections());
-                    lastTrackData.getDetections().addAll(nextTrackData.getDetections());
-                    Collections.reverse(lastTrackData.getDetections());
-
-                    // re-average the velocity
-                    int totalNDetections = lastTrackData.getDetections().size() + nextTrackData.getDetections().size();
-                    float weightedVelocityLast = lastTrackData.getAverageVelocity() * ((float) lastTrackData.getDetections().size() / totalNDetections);
-                    float weightedVelocityNext = nextTrackData.getAverageVelocity() * ((float) nextTrackData.getDetections().size() / totalNDetections);
-                    nextTrackData.setAverageVelocity(weightedVelocityLast + weightedVelocityNext);
-
-                    trackDataIterator.remove();
-                    nextTrackData = lastTrackData;
+        if (tracks.size() < 2) return;
+        TrackData[] trackArray = tracks.toArray(new TrackData[tracks.size()]);
+        List<TrackData> strikes = new ArrayList<>(trackArray.length);
+        int runStart = 0;
+        int earliestX = getEarliestX(trackArray[0]);
+        int latestX = getLatestX(trackArray[0]);
+        for (int i = 1; i <= trackArray.length; i++) {
+            if (i < trackArray.length) {
+                TrackData next = trackArray[i];
+                int dir = Integer.compare(getEarliestX(next), getLatestX(next));
+                if (dir == Integer.compare(earliestX, latestX)) {
+                    // likely same strike, the direction of the strike so far is kept from its earliest detection
+                    latestX = getLatestX(next);
+                    continue;
                 }
             }
-            lastTrackData = nextTrackData;
+            strikes.add(mergeTracks(trackArray, runStart, i));
+            if (i < trackArray.length) {
+                runStart = i;
+                earliestX = getEarliestX(trackArray[i]);
+                latestX = getLatestX(trackArray[i]);
+            }
         }
+        if (strikes.size() == trackArray.length) return;
+        tracks.clear();
+        tracks.addAll(strikes);
+    }
+
+    private static int getEarliestX(TrackData track) {
+        List<DetectionData> detections = track.getDetections();
+        return detections.get(detections.size() - 1).getX();
+    }
+
+    private static int getLatestX(TrackData track) {
+        return track.getDetections().get(0).getX();
+    }
+
+    /**
+     * @return the first track of the run, with the detections of all of them (latest first) and
+     * their velocity averaged by the number of detections
+     */
+    private static TrackData mergeTracks(TrackData[] tracks, int from, int to) {
+        TrackData first = tracks[from];
+        if (to - from == 1) return first;
+        int nDetections = 0;
+        double weightedVelocity = 0;
+        for (int i = from; i < to; i++) {
+            int n = tracks[i].getDetections().size();
+            nDetections += n;
+            weightedVelocity += (double) tracks[i].getAverageVelocity() * n;
+        }
+        List<DetectionData> detections = new ArrayList<>(nDetections);
+        for (int i = to - 1; i >= from; i--) detections.addAll(tracks[i].getDetections());
+        first.setDetections(detections);
+        first.setAverageVelocity((float) (weightedVelocity / nDetections));
+        return first;
     }
 
     /**
@@ -122,73 +153,62 @@ public class StatsProcessing {
     }
 
     public static void calculatePositionsInMm(List<TrackData> trackDataList, ZPositionCalc calc) {
+        if (calc == null) return;
+        double videoWidthPx = calc.getVideoWidthPx();
         for (TrackData trackData : trackDataList) {
-            List<Double> xPositions = new LinkedList();
-            List<Double> zPositions = new LinkedList();
-            List<DetectionData> detectionDataList = new LinkedList<>();
-            if (calc != null) {
-                double videoWidthPx = calc.getVideoWidthPx();
-                for (int i = 0; i < trackData.getDetections().size(); i++) {
-                    DetectionData d = trackData.getDetections().get(i);
-                    ZPositionCalc.ZPosMmToProportion p = calc.findProportionOfZPos(d.getZ());
-                    double wmm = videoWidthPx * p.getProportion();
-                    double xmm = d.getX() * p.getProportion();
-                    double ymm = d.getY() * p.getProportion();
-                    double edgeLocLeft = wmm / 2 - ZPositionCalc.TABLE_TENNIS_TABLE_LENGTH_MM / 2.0;
-                    xmm = xmm - edgeLocLeft;
-                    if (xmm > 0 && xmm <= ZPositionCalc.TABLE_TENNIS_TABLE_LENGTH_MM) {
-                        xPositions.add(xmm);
-                        zPositions.add(calc.zPosRelToMm(d.getZ()));
-                        d.setX((int) xmm);
-                        d.setY((int) ymm);
-                        detectionDataList.add(d);
-                    }
-                }
-                smoothXAndZPositions(xPositions, zPositions);
-                for (int i = 0; i < detectionDataList.size(); i++) {
-                    DetectionData d = detectionDataList.get(i);
-                    if (d.getX() == xPositions.get(i)) {
-                        d.setZ(zPositions.get(i));
-                    }
+            List<DetectionData> detections = trackData.getDetections();
+            double[] xPositions = new double[detections.size()];
+            double[] zPositions = new double[detections.size()];
+            List<DetectionData> detectionDataList = new ArrayList<>(detections.size());
+            for (DetectionData d : detections) {
+                ZPositionCalc.ZPosMmToProportion p = calc.findProportionOfZPos(d.getZ());
+                double wmm = videoWidthPx * p.getProportion();
+                double xmm = d.getX() * p.getProportion();
+                double ymm = d.getY() * p.getProportion();
+                double edgeLocLeft = wmm / 2 - ZPositionCalc.TABLE_TENNIS_TABLE_LENGTH_MM / 2.0;
+                xmm = xmm - edgeLocLeft;
+                if (xmm > 0 && xmm <= ZPositionCalc.TABLE_TENNIS_TABLE_LENGTH_MM) {
+                    xPositions[detectionDataList.size()] = xmm;
+                    zPositions[detectionDataList.size()] = calc.zPosRelToMm(d.getZ());
+                    d.setX((int) xmm);
+                    d.setY((int) ymm);
+                    detectionDataList.add(d);
                 }
-                trackData.setDetections(detectionDataList);
             }
-        }
-    }
-
-    private static void smoothXAndZPositions(List<Double> xPositions, List<Double> zPositions) {
-        if (!xPositions.isEmpty() && !zPositions.isEmpty()) {
-            LinearRegression linearRegression = calcLinRegFromLists(xPositions, zPositions);
-            if (linearRegression != null) {
-                for (int i = 0; i < xPositions.size(); i++) {
-                    zPositions.set(i, Math.min(linearRegression.predict(xPositions.get(i)), ZPositionCalc.TABLE_TENNIS_TABLE_WIDTH_MM + 2 * ZPositionCalc.MAX_OFFSET_MM));
+            int n = detectionDataList.size();
+            smoothXAndZPositions(xPositions, zPositions, n);
+            for (int i = 0; i < n; i++) {
+                DetectionData d = detectionDataList.get(i);
+                if (d.getX() == xPositions[i]) {
+                    d.setZ(zPositions[i]);
                 }
             }
+            trackData.setDetections(detectionDataList);
         }
     }
 
-    private static LinearRegression calcLinRegFromLists(List<Double> xPositions, List<Double> zPositions) {
-        List<Double> xCopy = new LinkedList<>();
-        List<Double> zCopy = new LinkedList<>();
-
-        for (int i = 0; i < xPositions.size(); i++) {
-            if (zPositions.get(i) < OUTLIER_IGNORE_THRESHOLD * 1725) {
-                xCopy.add(xPositions.get(i));
-                zCopy.add(zPositions.get(i));
+    /**
+     * Replaces the first n z positions by the linear regression of them over x, leaving out outliers.
+     */
+    private static void smoothXAndZPositions(double[] xPositions, double[] zPositions, int n) {
+        double[] x = new double[n];
+        double[] z = new double[n];
+        int nFit = 0;
+        for (int i = 0; i < n; i++) {
+            if (zPositions[i] < OUTLIER_IGNORE_THRESHOLD * 1725) {
+                x[nFit] = xPositions[i];
+                z[nFit] = zPositions[i];
+                nFit++;
             }
         }
-
-        double[] x = new double[xCopy.size()];
-        double[] z = new double[zCopy.size()];
-
-        for (int i = 0; i < xCopy.size(); i++) {
-            x[i] = xCopy.get(i);
-            z[i] = zCopy.get(i);
+        if (nFit == 0) return;
+        if (nFit < n) {
+            x = Arrays.copyOf(x, nFit);
+            z = Arrays.copyOf(z, nFit);
         }
-        if (xCopy.isEmpty()) {
-            return null;
-        } else {
-            return new LinearRegression(x, z);
+        LinearRegression linearRegression = new LinearRegression(x, z);
+        for (int i = 0; i < n; i++) {
+            zPositions[i] = Math.min(linearRegression.predict(xPositions[i]), ZPositionCalc.TABLE_TENNIS_TABLE_WIDTH_MM + 2 * ZPositionCalc.MAX_OFFSET_MM);
         }
     }
 }
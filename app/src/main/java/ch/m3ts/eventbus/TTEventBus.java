@@ -10,7 +10,10 @@ public class TTEventBus implements EventBus {
     private final Set<Subscribable> subscribables;
     private static TTEventBus instance;
 
-    private TTEventBus() {
+    /**
+     * Creates a bus of its own, separate from the shared instance (e.g. for a benchmark run).
+     */
+    public TTEventBus() {
         subscribables = new HashSet<>();
     }
 
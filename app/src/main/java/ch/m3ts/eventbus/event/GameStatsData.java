@@ -0,0 +1,24 @@
+package ch.m3ts.eventbus.event;
+
+import ch.m3ts.display.statistic.data.GameData;
+
+public class GameStatsData {
+    private final int game;
+    private final GameData stats;
+
+    public GameStatsData(int game, GameData stats) {
+        this.game = game;
+        this.stats = stats;
+    }
+
+    /**
+     * @return index of the game in the match
+     */
+    public int getGame() {
+        return game;
+    }
+
+    public GameData getStats() {
+        return stats;
+    }
+}
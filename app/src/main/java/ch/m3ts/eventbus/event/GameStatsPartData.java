@@ -0,0 +1,17 @@
+package ch.m3ts.eventbus.event;
+
+/**
+ * A part of a game of the statistics arrived, the game itself follows in GameStatsData once all
+ * of its parts are there.
+ */
+public class GameStatsPartData {
+    private final int game;
+
+    public GameStatsPartData(int game) {
+        this.game = game;
+    }
+
+    public int getGame() {
+        return game;
+    }
+}
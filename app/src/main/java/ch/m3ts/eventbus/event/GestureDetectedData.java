@@ -0,0 +1,20 @@
+package ch.m3ts.eventbus.event;
+
+import ch.m3ts.detection.gesture.ReadyToServeCallback;
+import ch.m3ts.util.Side;
+
+public class GestureDetectedData {
+    private final Side server;
+
+    public GestureDetectedData(Side server) {
+        this.server = server;
+    }
+
+    public Side getServer() {
+        return server;
+    }
+
+    public void call(ReadyToServeCallback callback) {
+        callback.onGestureDetected();
+    }
+}
@@ -0,0 +1,17 @@
+package ch.m3ts.eventbus.event;
+
+/**
+ * Asks the tracker for a game of the statistics with the tracks of its points, which the summary
+ * in StatsData leaves out.
+ */
+public class RequestGameStatsData {
+    private final int game;
+
+    public RequestGameStatsData(int game) {
+        this.game = game;
+    }
+
+    public int getGame() {
+        return game;
+    }
+}
@@ -13,6 +13,10 @@ public class BallBounceData implements EventDetectorEventData {
         this.tableSide = tableSide;
     }
 
+    public Side getTableSide() {
+        return tableSide;
+    }
+
     @Override
     public void call(EventDetectionListener eventDetectionListener) {
         eventDetectionListener.onBounce(detection, tableSide);
@@ -21,6 +21,14 @@ public class ScoreData implements ToDisplayData {
         displayUpdateListener.onScore(scorer, score, nextServer, lastServer);
     }
 
+    public Side getScorer() {
+        return scorer;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
     public Side getLastServer() {
         return lastServer;
     }
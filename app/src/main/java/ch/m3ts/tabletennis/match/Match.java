@@ -1,21 +1,32 @@
 package ch.m3ts.tabletennis.match;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
 
 import ch.m3ts.display.statistic.StatsCreator;
 import ch.m3ts.eventbus.Event;
+import ch.m3ts.eventbus.EventBus;
 import ch.m3ts.eventbus.Subscribable;
 import ch.m3ts.eventbus.TTEvent;
 import ch.m3ts.eventbus.TTEventBus;
 import ch.m3ts.eventbus.event.StatusUpdateData;
 import ch.m3ts.eventbus.event.game.GameEventData;
+import ch.m3ts.eventbus.event.scoremanipulation.PauseMatch;
 import ch.m3ts.eventbus.event.scoremanipulation.PointDeduction;
+import ch.m3ts.eventbus.event.scoremanipulation.ResumeMatch;
 import ch.m3ts.eventbus.event.todisplay.MatchEndedData;
 import ch.m3ts.eventbus.event.todisplay.ToDisplayGameWinData;
 import ch.m3ts.tabletennis.match.game.Game;
 import ch.m3ts.tabletennis.match.game.GameType;
+import ch.m3ts.tabletennis.match.game.ScoreManager;
+import ch.m3ts.tabletennis.match.log.MatchLog;
+import ch.m3ts.tabletennis.match.log.MatchLogEntry;
+import ch.m3ts.tabletennis.match.log.MatchSnapshot;
 import ch.m3ts.tabletennis.match.referee.Referee;
+import ch.m3ts.util.MatchScheduler;
 import ch.m3ts.util.Side;
 
 
@@ -33,8 +44,24 @@ public class Match implements GameListener, MatchStatusCallback, Subscribable {
     private final Side startingServer;
     private final ServeRules serveRules;
     private final GameType gameType;
+    private final EventBus eventBus;
+    private final StatsCreator statsCreator;
+    private final MatchScheduler scheduler;
+    private MatchLog log;
+    private boolean isPaused = false;
 
     public Match(MatchType type, GameType gameType, ServeRules serveRules, Player playerLeft, Player playerRight, Side startingServer) {
+        this(type, gameType, serveRules, playerLeft, playerRight, startingServer, TTEventBus.getInstance(), StatsCreator.getInstance());
+    }
+
+    /**
+     * Creates a match which uses its own event bus and stats, e.g. to run several matches in
+     * parallel.
+     */
+    public Match(MatchType type, GameType gameType, ServeRules serveRules, Player playerLeft, Player playerRight, Side startingServer,
+                 EventBus eventBus, StatsCreator statsCreator) {
+        this.eventBus = eventBus;
+        this.statsCreator = statsCreator;
         this.type = type;
         this.gameType = gameType;
         this.startingServer = startingServer;
@@ -43,8 +70,9 @@ public class Match implements GameListener, MatchStatusCallback, Subscribable {
         this.players.put(Side.LEFT, playerLeft);
         this.players.put(Side.RIGHT, playerRight);
         this.serveRules = serveRules;
-        this.referee = new Referee(startingServer);
-        TTEventBus.getInstance().register(referee);
+        this.scheduler = new MatchScheduler("matchScheduler");
+        this.referee = new Referee(startingServer, eventBus, statsCreator, scheduler);
+        eventBus.register(referee);
         startNewGame(true);
     }
 
@@ -53,56 +81,191 @@ public class Match implements GameListener, MatchStatusCallback, Subscribable {
                 settings.getPlayerLeft(), settings.getPlayerRight(), settings.getStartingServer());
     }
 
+    public Match(MatchSettings settings, EventBus eventBus, StatsCreator statsCreator) {
+        this(settings.getMatchType(), settings.getGameType(), settings.getServeRules(),
+                settings.getPlayerLeft(), settings.getPlayerRight(), settings.getStartingServer(),
+                eventBus, statsCreator);
+    }
+
     void startNewGame(boolean firstInit) {
         if (!firstInit) switchServers();
-        Game game = new Game(gameType, serveRules, this.serverSide);
-        this.games[this.wins.get(Side.RIGHT) + this.wins.get(Side.LEFT)] = game;
+        Game game = new Game(gameType, serveRules, this.serverSide, eventBus, statsCreator);
+        game.setLog(log);
+        this.games[getGamesPlayed()] = game;
         this.referee.setGame(game, firstInit);
     }
 
     public void end(Side winner) {
-        TTEventBus.getInstance().dispatch(new TTEvent<>(new MatchEndedData(this.players.get(winner).getName())));
+        appendToLog(MatchLogEntry.Type.MATCH_END, winner);
+        eventBus.dispatch(new TTEvent<>(new MatchEndedData(this.players.get(winner).getName())));
     }
 
     @Override
     public void onGameWin(Side side) {
-        int win = wins.get(side) + 1;
-        if (win > type.gamesNeededToWin) win = type.gamesNeededToWin;
-        wins.put(side, win);
-        if (isMatchOver(win)) {
+        if (addGameWin(side)) {
+            appendToLog(MatchLogEntry.Type.GAME_WIN, side);
             end(side);
         } else {
-            TTEventBus.getInstance().dispatch(new TTEvent<>(new ToDisplayGameWinData(side, win)));
+            eventBus.dispatch(new TTEvent<>(new ToDisplayGameWinData(side, wins.get(side))));
             startNewGame(false);
+            appendToLog(MatchLogEntry.Type.GAME_WIN, side);
         }
     }
 
     @Override
     public void onGameWinReset() {
-        StatsCreator.getInstance().resetGame();
-        int gamesPlayed = this.wins.get(Side.LEFT) + this.wins.get(Side.RIGHT);
-        if (gamesPlayed <= 0) return;
-        Game lastGame = this.games[gamesPlayed - 1];
-        Side lastWinner = lastGame.getScore(Side.LEFT) > lastGame.getScore(Side.RIGHT) ? Side.LEFT : Side.RIGHT;
-        if (gamesPlayed == 1) {
-            this.wins.put(Side.LEFT, 0);
-            this.wins.put(Side.RIGHT, 0);
-        } else {
-            this.wins.put(lastWinner, this.wins.get(lastWinner) - 1);
-        }
-        this.referee.setGame(lastGame, gamesPlayed == 1);
-        TTEventBus.getInstance().dispatch(new TTEvent<>(new PointDeduction(lastWinner)));
-        TTEventBus.getInstance().dispatch(new TTEvent<>(new StatusUpdateData(onRequestMatchStatus())));
+        statsCreator.resetGame();
+        int gamesPlayed = getGamesPlayed();
+        Side lastWinner = revertGameWin();
+        if (lastWinner == null) return;
+        this.referee.setGame(this.games[gamesPlayed - 1], gamesPlayed == 1);
+        appendToLog(MatchLogEntry.Type.GAME_WIN_RESET, lastWinner);
+        eventBus.dispatch(new TTEvent<>(new PointDeduction(lastWinner)));
+        eventBus.dispatch(new TTEvent<>(new StatusUpdateData(onRequestMatchStatus())));
     }
 
     public Referee getReferee() {
         return referee;
     }
 
+    /**
+     * @return scheduler for the timeouts and periodic tasks of this match, ends with release()
+     */
+    public MatchScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Stops all tasks of the match and ends their thread, call once the match is not used anymore.
+     */
+    public void release() {
+        eventBus.unregister(this);
+        eventBus.unregister(referee);
+        scheduler.shutdown();
+    }
+
     public void restartMatch() {
         init();
+        this.isPaused = false;
         startNewGame(true);
         this.referee.initState();
+        appendToLog(MatchLogEntry.Type.RESTART, null);
+    }
+
+    /**
+     * Records the scoring relevant events of this match to the given log from now on, starting
+     * with a snapshot of the current state.
+     *
+     * @param log log to record to, null to stop recording
+     */
+    public void setLog(MatchLog log) throws IOException {
+        this.log = log;
+        for (Game game : games) {
+            if (game != null) game.setLog(log);
+        }
+        if (log != null) {
+            log.setSnapshotSource(new MatchLog.SnapshotSource() {
+                @Override
+                public MatchSnapshot takeSnapshot() {
+                    return Match.this.takeSnapshot();
+                }
+            });
+            log.writeSnapshot();
+        }
+    }
+
+    public MatchSnapshot takeSnapshot() {
+        List<MatchSnapshot.GameSnapshot> gameSnapshots = new ArrayList<>();
+        for (int i = 0; i <= getGamesPlayed() && i < games.length && games[i] != null; i++) {
+            ScoreManager scoreManager = games[i].getScoreManager();
+            gameSnapshots.add(new MatchSnapshot.GameSnapshot(scoreManager.getStartServingSide(), games[i].getServer(),
+                    scoreManager.getScore(Side.LEFT), scoreManager.getScore(Side.RIGHT), scoreManager.getMaxScore(),
+                    scoreManager.getServers()));
+        }
+        return new MatchSnapshot(serverSide, wins.get(Side.LEFT), wins.get(Side.RIGHT), isPaused, gameSnapshots);
+    }
+
+    /**
+     * Restores the state of the match from its log, e.g. after the app got killed: the state of
+     * the snapshot followed by the entries after it. The replayed events are not dispatched, the
+     * displays get a status update once the match is restored.
+     *
+     * @param snapshot last snapshot of the log, null to replay the entries from the start of the match
+     * @param tail     entries of the log after the snapshot
+     */
+    public void restore(MatchSnapshot snapshot, List<MatchLogEntry> tail) {
+        EventBus replayBus = new TTEventBus();
+        StatsCreator replayStats = new StatsCreator();
+        init();
+        this.isPaused = false;
+        if (snapshot == null) {
+            this.games[0] = new Game(gameType, serveRules, serverSide, replayBus, replayStats);
+        } else {
+            this.serverSide = snapshot.getServerSide();
+            this.wins.put(Side.LEFT, snapshot.getWinsLeft());
+            this.wins.put(Side.RIGHT, snapshot.getWinsRight());
+            this.isPaused = snapshot.isPaused();
+            List<MatchSnapshot.GameSnapshot> gameSnapshots = snapshot.getGames();
+            for (int i = 0; i < gameSnapshots.size(); i++) {
+                MatchSnapshot.GameSnapshot game = gameSnapshots.get(i);
+                ScoreManager scoreManager = new ScoreManager(game.getStartServer(), gameType, game.getScoreLeft(),
+                        game.getScoreRight(), game.getServers(), game.getMaxScore());
+                this.games[i] = new Game(gameType, serveRules, game.getServer(), scoreManager, replayBus, replayStats);
+            }
+        }
+        for (MatchLogEntry entry : tail) {
+            replay(entry, replayBus, replayStats);
+        }
+        replayStats.shutdown();
+        for (int i = 0; i < games.length; i++) {
+            if (games[i] == null) continue;
+            games[i] = new Game(gameType, serveRules, games[i].getServer(), games[i].getScoreManager(), eventBus, statsCreator);
+            games[i].setLog(log);
+        }
+        this.referee.setGame(getCurrentGame(), true);
+        if (isPaused) {
+            this.referee.onPause();
+        } else {
+            this.referee.initState();
+        }
+        eventBus.dispatch(new TTEvent<>(new StatusUpdateData(onRequestMatchStatus())));
+    }
+
+    private void replay(MatchLogEntry entry, EventBus replayBus, StatsCreator replayStats) {
+        switch (entry.getType()) {
+            case POINT:
+                getCurrentGame().onPoint(entry.getSide());
+                break;
+            case POINT_DEDUCTION:
+                getCurrentGame().onPointDeduction(entry.getSide());
+                break;
+            case GAME_WIN:
+                if (!addGameWin(entry.getSide())) {
+                    switchServers();
+                    this.games[getGamesPlayed()] = new Game(gameType, serveRules, serverSide, replayBus, replayStats);
+                }
+                break;
+            case GAME_WIN_RESET:
+                revertGameWin();
+                break;
+            case PAUSE:
+                this.isPaused = true;
+                break;
+            case RESUME:
+                this.isPaused = false;
+                break;
+            case RESTART:
+                init();
+                this.isPaused = false;
+                this.games[0] = new Game(gameType, serveRules, serverSide, replayBus, replayStats);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void appendToLog(MatchLogEntry.Type type, Side side) {
+        if (log != null) log.append(type, side);
     }
 
     private void init() {
@@ -113,6 +276,39 @@ public class Match implements GameListener, MatchStatusCallback, Subscribable {
         this.serverSide = startingServer;
     }
 
+    private int getGamesPlayed() {
+        return this.wins.get(Side.LEFT) + this.wins.get(Side.RIGHT);
+    }
+
+    /**
+     * @return true if the match is over with this win
+     */
+    private boolean addGameWin(Side side) {
+        int win = wins.get(side) + 1;
+        if (win > type.gamesNeededToWin) win = type.gamesNeededToWin;
+        wins.put(side, win);
+        return isMatchOver(win);
+    }
+
+    /**
+     * Takes back the win of the last game, which goes on again.
+     *
+     * @return winner of the last game, null if no game has been played yet
+     */
+    private Side revertGameWin() {
+        int gamesPlayed = getGamesPlayed();
+        if (gamesPlayed <= 0) return null;
+        Game lastGame = this.games[gamesPlayed - 1];
+        Side lastWinner = lastGame.getScore(Side.LEFT) > lastGame.getScore(Side.RIGHT) ? Side.LEFT : Side.RIGHT;
+        if (gamesPlayed == 1) {
+            this.wins.put(Side.LEFT, 0);
+            this.wins.put(Side.RIGHT, 0);
+        } else {
+            this.wins.put(lastWinner, this.wins.get(lastWinner) - 1);
+        }
+        return lastWinner;
+    }
+
     private boolean isMatchOver(int wins) {
         return (wins >= this.type.gamesNeededToWin);
     }
@@ -126,10 +322,10 @@ public class Match implements GameListener, MatchStatusCallback, Subscribable {
     }
 
     private Game getCurrentGame() {
-        if (this.wins.get(Side.RIGHT) + this.wins.get(Side.LEFT) >= this.games.length) {
+        if (getGamesPlayed() >= this.games.length) {
             return this.games[this.games.length - 1];
         }
-        return this.games[this.wins.get(Side.RIGHT) + this.wins.get(Side.LEFT)];
+        return this.games[getGamesPlayed()];
     }
 
     @Override
@@ -144,6 +340,12 @@ public class Match implements GameListener, MatchStatusCallback, Subscribable {
         if (data instanceof GameEventData) {
             GameEventData gameEventData = (GameEventData) data;
             gameEventData.call(this);
+        } else if (data instanceof PauseMatch) {
+            this.isPaused = true;
+            appendToLog(MatchLogEntry.Type.PAUSE, null);
+        } else if (data instanceof ResumeMatch) {
+            this.isPaused = false;
+            appendToLog(MatchLogEntry.Type.RESUME, null);
         }
     }
 }
@@ -8,6 +8,8 @@ import ch.m3ts.eventbus.event.game.GameWinData;
 import ch.m3ts.eventbus.event.game.GameWinResetData;
 import ch.m3ts.eventbus.event.todisplay.ScoreData;
 import ch.m3ts.tabletennis.match.ServeRules;
+import ch.m3ts.tabletennis.match.log.MatchLog;
+import ch.m3ts.tabletennis.match.log.MatchLogEntry;
 import ch.m3ts.util.Side;
 
 /**
@@ -23,13 +25,29 @@ public class Game implements GameCallback {
     private final GameType type;
     private final ServeRules serveRules;
     private final EventBus eventBus;
+    private final StatsCreator statsCreator;
+    private MatchLog log;
 
     public Game(GameType type, ServeRules serveRules, Side server) {
-        scoreManager = new ScoreManager(server, type);
+        this(type, serveRules, server, TTEventBus.getInstance(), StatsCreator.getInstance());
+    }
+
+    public Game(GameType type, ServeRules serveRules, Side server, EventBus eventBus, StatsCreator statsCreator) {
+        this(type, serveRules, server, new ScoreManager(server, type), eventBus, statsCreator);
+    }
+
+    /**
+     * Creates a game going on from the score of the given ScoreManager, e.g. after a recovery.
+     *
+     * @param server side serving next
+     */
+    public Game(GameType type, ServeRules serveRules, Side server, ScoreManager scoreManager, EventBus eventBus, StatsCreator statsCreator) {
+        this.scoreManager = scoreManager;
         this.server = server;
         this.type = type;
         this.serveRules = serveRules;
-        this.eventBus = TTEventBus.getInstance();
+        this.eventBus = eventBus;
+        this.statsCreator = statsCreator;
     }
 
     @Override
@@ -38,9 +56,11 @@ public class Game implements GameCallback {
         int score = scoreManager.getScore(side);
         Side lastServer = server;
         changeServer();
+        boolean hasWonGame = this.scoreManager.hasReachedMax(score);
+        if (log != null) log.append(MatchLogEntry.Type.POINT, side);
         this.eventBus.dispatch(new TTEvent<>(new ScoreData(side, score, this.server, lastServer)));
-        if (this.scoreManager.hasReachedMax(score)) {
-            StatsCreator.getInstance().addGame();
+        if (hasWonGame) {
+            statsCreator.addGame();
             this.eventBus.dispatch(new TTEvent<>(new GameWinData(side)));
         }
     }
@@ -52,8 +72,10 @@ public class Game implements GameCallback {
             Side lastServer = scoreManager.revertLastScore(side);
             score = scoreManager.getScore(side);
             this.server = lastServer;
+            boolean hasOpponentWonGame = this.scoreManager.hasReachedMax(scoreManager.getScore(Side.getOpposite(side)));
+            if (log != null) log.append(MatchLogEntry.Type.POINT_DEDUCTION, side);
             this.eventBus.dispatch(new TTEvent<>(new ScoreData(side, score, this.server, lastServer)));
-            if (this.scoreManager.hasReachedMax(scoreManager.getScore(Side.getOpposite(side)))) {
+            if (hasOpponentWonGame) {
                 this.eventBus.dispatch(new TTEvent<>(new GameWinData(Side.getOpposite(side))));
             }
         } else if (getSumOfScores() == 0) {
@@ -61,6 +83,17 @@ public class Game implements GameCallback {
         }
     }
 
+    /**
+     * @param log log to record the points and deductions to, null to stop recording
+     */
+    public void setLog(MatchLog log) {
+        this.log = log;
+    }
+
+    public ScoreManager getScoreManager() {
+        return scoreManager;
+    }
+
     public Side getServer() {
         return this.server;
     }
@@ -1,8 +1,10 @@
 package ch.m3ts.tabletennis.match.game;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
 import java.util.EnumMap;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 
 import ch.m3ts.util.Side;
@@ -23,11 +25,24 @@ public class ScoreManager {
         this.pointsMap = new EnumMap<>(Side.class);
         pointsMap.put(Side.LEFT, 0);
         pointsMap.put(Side.RIGHT, 0);
-        this.servers = new LinkedList<>();
+        this.servers = new ArrayDeque<>();
         this.type = type;
         this.maxScore = type.amountOfPoints;
     }
 
+    /**
+     * Restores the state of a game, e.g. from a MatchSnapshot.
+     *
+     * @param servers server of each point scored so far, in order
+     */
+    public ScoreManager(Side startServingSide, GameType type, int scoreLeft, int scoreRight, List<Side> servers, int maxScore) {
+        this(startServingSide, type);
+        this.pointsMap.put(Side.LEFT, scoreLeft);
+        this.pointsMap.put(Side.RIGHT, scoreRight);
+        this.servers.addAll(servers);
+        this.maxScore = maxScore;
+    }
+
     public void score(Side winner, Side server) {
         updatePoints(winner, true);
         this.servers.addLast(server);
@@ -64,6 +79,21 @@ public class ScoreManager {
         return server;
     }
 
+    public Side getStartServingSide() {
+        return startServingSide;
+    }
+
+    /**
+     * @return server of each point scored so far, in order
+     */
+    public List<Side> getServers() {
+        return new ArrayList<>(servers);
+    }
+
+    public int getMaxScore() {
+        return maxScore;
+    }
+
     public void increaseMaxScore() {
         this.maxScore++;
     }
@@ -0,0 +1,232 @@
+package ch.m3ts.tabletennis.match.log;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import ch.m3ts.tabletennis.match.MatchSettings;
+import ch.m3ts.util.Log;
+import ch.m3ts.util.Side;
+
+/**
+ * Append-only log of the scoring relevant events of a match (see MatchLogFormat), with a snapshot
+ * of the match written every SNAPSHOT_INTERVAL entries. After a crash, MatchLogReader loads the
+ * snapshot and only the entries after it need to be replayed (see Match.restore).
+ * <p>
+ * Entries are flushed one by one. A failing write stops the log, the match goes on without it.
+ * The snapshots are taken on the thread appending the entries, but written and synced on a thread
+ * of the log, so scoring never waits for the disk. A snapshot replaces the previous one atomically,
+ * a failing snapshot only leaves more entries to replay.
+ */
+public class MatchLog implements Closeable {
+    public static final String LOG_EXTENSION = ".mlog";
+    public static final String SNAPSHOT_EXTENSION = ".msnap";
+    static final int SNAPSHOT_INTERVAL = 32;
+    private static final long CLOSE_TIMEOUT_MS = 5000;
+    private final File snapshotFile;
+    private final long logId;
+    private final DataOutputStream out;
+    private long logLength;
+    private int entriesSinceSnapshot = 0;
+    private SnapshotSource snapshotSource;
+    private boolean isClosed = false;
+    // writes the snapshots one after the other, in the order they were taken
+    private final ExecutorService snapshotWriter = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "matchLogSnapshot");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private MatchLog(File logFile, File snapshotFile, long logId, boolean doAppend) throws IOException {
+        this.snapshotFile = snapshotFile;
+        this.logId = logId;
+        this.logLength = doAppend ? logFile.length() : 0;
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(logFile, doAppend)));
+    }
+
+    /**
+     * Starts a new log for the match, replacing the log and snapshot in the given files.
+     *
+     * @param matchId id the match is known by to the display, null if it has none
+     */
+    public static MatchLog create(File logFile, File snapshotFile, String matchId, MatchSettings settings)
+            throws IOException {
+        if (snapshotFile.exists() && !snapshotFile.delete()) {
+            throw new IOException("Could not delete " + snapshotFile);
+        }
+        MatchLog log = new MatchLog(logFile, snapshotFile, new Random().nextLong(), false);
+        try {
+            log.writeHeader(matchId, settings);
+        } catch (IOException e) {
+            log.close();
+            throw e;
+        }
+        return log;
+    }
+
+    /**
+     * Goes on with a log read by MatchLogReader, after its match has been restored.
+     */
+    public static MatchLog resume(MatchLogReader.Recovery recovery) throws IOException {
+        return new MatchLog(recovery.getLogFile(), recovery.getSnapshotFile(), recovery.getLogId(), true);
+    }
+
+    private void writeHeader(String matchId, MatchSettings settings) throws IOException {
+        out.writeInt(MatchLogFormat.LOG_MAGIC);
+        out.writeInt(MatchLogFormat.VERSION);
+        out.writeLong(logId);
+        out.writeBoolean(matchId != null);
+        if (matchId != null) out.writeUTF(matchId);
+        out.writeByte(settings.getMatchType().ordinal());
+        out.writeByte(settings.getGameType().ordinal());
+        out.writeByte(settings.getServeRules().ordinal());
+        out.writeByte(settings.getStartingServer().ordinal());
+        out.writeUTF(settings.getPlayerLeft().getName());
+        out.writeUTF(settings.getPlayerRight().getName());
+        out.flush();
+        logLength = out.size();
+    }
+
+    /**
+     * @param snapshotSource source of the snapshots, called on the thread appending the entries
+     */
+    public synchronized void setSnapshotSource(SnapshotSource snapshotSource) {
+        this.snapshotSource = snapshotSource;
+    }
+
+    /**
+     * Appends the entry, to be called once the event has changed the state of the match.
+     *
+     * @param side side which scored, lost a point or won a game, null for the other types
+     */
+    public synchronized void append(MatchLogEntry.Type type, Side side) {
+        if (isClosed) return;
+        try {
+            out.writeByte(MatchLogFormat.encodeEntry(type, side));
+            out.flush();
+            logLength++;
+        } catch (IOException e) {
+            Log.e("Could not write the match log, stopping it", e);
+            closeQuietly();
+            return;
+        }
+        if (++entriesSinceSnapshot >= SNAPSHOT_INTERVAL && snapshotSource != null) {
+            final SnapshotWrite write = takeSnapshot();
+            snapshotWriter.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        write.call();
+                    } catch (IOException e) {
+                        Log.e("Could not write the match log snapshot, keeping the previous one", e);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Writes a snapshot of the current state of the match, covering all entries so far, and waits
+     * until it is on the disk.
+     */
+    public synchronized void writeSnapshot() throws IOException {
+        if (isClosed || snapshotSource == null) return;
+        Future<Void> written = snapshotWriter.submit(takeSnapshot());
+        try {
+            written.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing " + snapshotFile.getName());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new IOException("Could not write " + snapshotFile, e.getCause());
+        }
+    }
+
+    private SnapshotWrite takeSnapshot() {
+        entriesSinceSnapshot = 0;
+        return new SnapshotWrite(snapshotSource.takeSnapshot(), logLength);
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException e) {
+            Log.e("Could not close the match log", e);
+        }
+    }
+
+    /**
+     * Closes the log, after the snapshot being written is on the disk.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (isClosed) return;
+        isClosed = true;
+        snapshotWriter.shutdown();
+        try {
+            out.close();
+        } finally {
+            awaitSnapshotWriter();
+        }
+    }
+
+    private void awaitSnapshotWriter() throws IOException {
+        try {
+            if (!snapshotWriter.awaitTermination(CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                Log.w("Closed the match log before its snapshot was written");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while closing " + snapshotFile.getName());
+        }
+    }
+
+    public interface SnapshotSource {
+        MatchSnapshot takeSnapshot();
+    }
+
+    /**
+     * Writes a snapshot to a temporary file and renames it to the snapshot file once synced.
+     */
+    private class SnapshotWrite implements Callable<Void> {
+        private final MatchSnapshot snapshot;
+        private final long logLength;
+
+        private SnapshotWrite(MatchSnapshot snapshot, long logLength) {
+            this.snapshot = snapshot;
+            this.logLength = logLength;
+        }
+
+        @Override
+        public Void call() throws IOException {
+            File tmpFile = new File(snapshotFile.getPath() + ".tmp");
+            FileOutputStream fileOut = new FileOutputStream(tmpFile);
+            try {
+                DataOutputStream snapshotOut = new DataOutputStream(new BufferedOutputStream(fileOut));
+                MatchLogFormat.writeSnapshot(snapshotOut, logId, logLength, snapshot);
+                snapshotOut.flush();
+                fileOut.getFD().sync();
+            } finally {
+                fileOut.close();
+            }
+            if (!tmpFile.renameTo(snapshotFile)) throw new IOException("Could not replace " + snapshotFile);
+            return null;
+        }
+    }
+}
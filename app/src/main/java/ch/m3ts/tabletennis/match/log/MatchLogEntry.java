@@ -0,0 +1,38 @@
+package ch.m3ts.tabletennis.match.log;
+
+import ch.m3ts.util.Side;
+
+/**
+ * A scoring relevant event of a match, as recorded in the MatchLog.
+ */
+public class MatchLogEntry {
+    private final Type type;
+    private final Side side;
+
+    public MatchLogEntry(Type type, Side side) {
+        this.type = type;
+        this.side = side;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return side which scored, lost a point or won a game, null for the other types
+     */
+    public Side getSide() {
+        return side;
+    }
+
+    public enum Type {
+        POINT,
+        POINT_DEDUCTION,
+        GAME_WIN,
+        GAME_WIN_RESET,
+        PAUSE,
+        RESUME,
+        RESTART,
+        MATCH_END
+    }
+}
@@ -0,0 +1,132 @@
+package ch.m3ts.tabletennis.match.log;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import ch.m3ts.util.Side;
+
+/**
+ * Binary format of a match log and its snapshot.
+ * <p>
+ * The log starts with LOG_MAGIC and VERSION, followed by its id (long), the id of the match
+ * (boolean whether there is one, then UTF), the match settings (match type, game type, serve rules
+ * and starting server as byte ordinals, the player names as UTF) and one byte per entry: the
+ * ordinal of the type in the upper six bits and the side in the lower two (0 none, 1 left, 2
+ * right). The log is only appended to, so a crash loses no more than the entry being written.
+ * <p>
+ * The snapshot starts with SNAPSHOT_MAGIC and VERSION, the id of its log and the length of the
+ * log it covers (long), followed by the server side, the wins of left and right (byte), whether the
+ * match is paused (boolean), the number of games (varint) and per game: start server and server
+ * (byte), left and right score and max score (varint), the number of points (varint) and the
+ * server of each point as one bit (set for right), packed into bytes. The snapshot is replaced as
+ * a whole, so it is either the old or the new one after a crash.
+ */
+final class MatchLogFormat {
+    static final int LOG_MAGIC = 0x4d334d4c; // "M3ML"
+    static final int SNAPSHOT_MAGIC = 0x4d334d53; // "M3MS"
+    static final int VERSION = 2;
+    private static final int SIDE_BITS = 2;
+    private static final int SIDE_MASK = (1 << SIDE_BITS) - 1;
+
+    private MatchLogFormat() {
+    }
+
+    static byte encodeEntry(MatchLogEntry.Type type, Side side) {
+        int sideCode = side == Side.LEFT ? 1 : (side == Side.RIGHT ? 2 : 0);
+        return (byte) (type.ordinal() << SIDE_BITS | sideCode);
+    }
+
+    static MatchLogEntry decodeEntry(byte entry) throws IOException {
+        int typeOrdinal = (entry & 0xFF) >>> SIDE_BITS;
+        MatchLogEntry.Type[] types = MatchLogEntry.Type.values();
+        if (typeOrdinal >= types.length) throw new IOException("Bad match log entry " + entry);
+        int sideCode = entry & SIDE_MASK;
+        Side side = sideCode == 1 ? Side.LEFT : (sideCode == 2 ? Side.RIGHT : null);
+        return new MatchLogEntry(types[typeOrdinal], side);
+    }
+
+    static void writeSnapshot(DataOutput out, long logId, long logLength, MatchSnapshot snapshot) throws IOException {
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(logId);
+        out.writeLong(logLength);
+        out.writeByte(snapshot.getServerSide().ordinal());
+        out.writeByte(snapshot.getWinsLeft());
+        out.writeByte(snapshot.getWinsRight());
+        out.writeBoolean(snapshot.isPaused());
+        writeVarInt(out, snapshot.getGames().size());
+        for (MatchSnapshot.GameSnapshot game : snapshot.getGames()) {
+            out.writeByte(game.getStartServer().ordinal());
+            out.writeByte(game.getServer().ordinal());
+            writeVarInt(out, game.getScoreLeft());
+            writeVarInt(out, game.getScoreRight());
+            writeVarInt(out, game.getMaxScore());
+            List<Side> servers = game.getServers();
+            writeVarInt(out, servers.size());
+            int bits = 0;
+            for (int i = 0; i < servers.size(); i++) {
+                if (servers.get(i) == Side.RIGHT) bits |= 1 << (i % 8);
+                if (i % 8 == 7 || i == servers.size() - 1) {
+                    out.writeByte(bits);
+                    bits = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the snapshot after its magic, version and log id, which the caller has checked.
+     */
+    static MatchSnapshot readSnapshotState(DataInput in) throws IOException {
+        Side serverSide = readSide(in);
+        int winsLeft = in.readByte();
+        int winsRight = in.readByte();
+        boolean isPaused = in.readBoolean();
+        int nGames = readVarInt(in);
+        List<MatchSnapshot.GameSnapshot> games = new ArrayList<>(nGames);
+        for (int i = 0; i < nGames; i++) {
+            Side startServer = readSide(in);
+            Side server = readSide(in);
+            int scoreLeft = readVarInt(in);
+            int scoreRight = readVarInt(in);
+            int maxScore = readVarInt(in);
+            int nServers = readVarInt(in);
+            List<Side> servers = new ArrayList<>(nServers);
+            int bits = 0;
+            for (int j = 0; j < nServers; j++) {
+                if (j % 8 == 0) bits = in.readByte();
+                servers.add((bits & 1 << (j % 8)) != 0 ? Side.RIGHT : Side.LEFT);
+            }
+            games.add(new MatchSnapshot.GameSnapshot(startServer, server, scoreLeft, scoreRight, maxScore, servers));
+        }
+        return new MatchSnapshot(serverSide, winsLeft, winsRight, isPaused, games);
+    }
+
+    static Side readSide(DataInput in) throws IOException {
+        int ordinal = in.readByte();
+        Side[] sides = Side.values();
+        if (ordinal < 0 || ordinal >= sides.length) throw new IOException("Bad side " + ordinal);
+        return sides[ordinal];
+    }
+
+    static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint in match log");
+    }
+}
@@ -0,0 +1,192 @@
+package ch.m3ts.tabletennis.match.log;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import ch.m3ts.tabletennis.match.MatchSettings;
+import ch.m3ts.tabletennis.match.MatchType;
+import ch.m3ts.tabletennis.match.Player;
+import ch.m3ts.tabletennis.match.ServeRules;
+import ch.m3ts.tabletennis.match.game.GameType;
+import ch.m3ts.util.Log;
+import ch.m3ts.util.Side;
+
+/**
+ * Reads a log written by MatchLog, to restore its match after a crash.
+ */
+public final class MatchLogReader {
+    private MatchLogReader() {
+    }
+
+    /**
+     * Reads the settings of the match, its last snapshot and the entries after the snapshot. A
+     * snapshot which does not belong to the log is ignored, all entries get replayed then.
+     */
+    public static Recovery read(File logFile, File snapshotFile) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(logFile, "r");
+        try {
+            if (in.readInt() != MatchLogFormat.LOG_MAGIC) throw new IOException("Not a match log");
+            int version = in.readInt();
+            if (version != MatchLogFormat.VERSION) throw new IOException("Unsupported match log version " + version);
+            long logId = in.readLong();
+            String matchId = in.readBoolean() ? in.readUTF() : null;
+            MatchSettings settings = readSettings(in);
+            long headerLength = in.getFilePointer();
+            long logLength = in.length();
+            MatchSnapshot snapshot = null;
+            long snapshotLength = headerLength;
+            CoveringSnapshot covering = snapshotFile.exists() ? readSnapshot(snapshotFile, logId) : null;
+            if (covering != null && covering.logLength >= headerLength && covering.logLength <= logLength) {
+                snapshot = covering.snapshot;
+                snapshotLength = covering.logLength;
+            }
+            in.seek(snapshotLength);
+            byte[] tailBytes = new byte[(int) (logLength - snapshotLength)];
+            in.readFully(tailBytes);
+            List<MatchLogEntry> tail = new ArrayList<>(tailBytes.length);
+            for (byte entry : tailBytes) tail.add(MatchLogFormat.decodeEntry(entry));
+            boolean isMatchOver = false;
+            if (logLength > headerLength) {
+                in.seek(logLength - 1);
+                isMatchOver = MatchLogFormat.decodeEntry(in.readByte()).getType() == MatchLogEntry.Type.MATCH_END;
+            }
+            return new Recovery(logFile, snapshotFile, logId, matchId, settings, snapshot, tail, isMatchOver);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static MatchSettings readSettings(RandomAccessFile in) throws IOException {
+        MatchType matchType = MatchType.values()[readOrdinal(in, MatchType.values().length)];
+        GameType gameType = GameType.values()[readOrdinal(in, GameType.values().length)];
+        ServeRules serveRules = ServeRules.values()[readOrdinal(in, ServeRules.values().length)];
+        Side startingServer = MatchLogFormat.readSide(in);
+        Player playerLeft = new Player(in.readUTF());
+        Player playerRight = new Player(in.readUTF());
+        return new MatchSettings(matchType, gameType, serveRules, playerLeft, playerRight, startingServer);
+    }
+
+    private static int readOrdinal(RandomAccessFile in, int nValues) throws IOException {
+        int ordinal = in.readByte();
+        if (ordinal < 0 || ordinal >= nValues) throw new IOException("Bad ordinal " + ordinal);
+        return ordinal;
+    }
+
+    /**
+     * @return the snapshot, null if it is unreadable or of another log
+     */
+    private static CoveringSnapshot readSnapshot(File snapshotFile, long logId) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)))) {
+            if (in.readInt() != MatchLogFormat.SNAPSHOT_MAGIC || in.readInt() != MatchLogFormat.VERSION ||
+                    in.readLong() != logId) {
+                return null;
+            }
+            long logLength = in.readLong();
+            return new CoveringSnapshot(MatchLogFormat.readSnapshotState(in), logLength);
+        } catch (IOException e) {
+            Log.e("Could not read the match snapshot, replaying the whole log", e);
+            return null;
+        }
+    }
+
+    private static class CoveringSnapshot {
+        private final MatchSnapshot snapshot;
+        private final long logLength;
+
+        private CoveringSnapshot(MatchSnapshot snapshot, long logLength) {
+            this.snapshot = snapshot;
+            this.logLength = logLength;
+        }
+    }
+
+    public static class Recovery {
+        private final File logFile;
+        private final File snapshotFile;
+        private final long logId;
+        private final String matchId;
+        private final MatchSettings settings;
+        private final MatchSnapshot snapshot;
+        private final List<MatchLogEntry> tail;
+        private final boolean isMatchOver;
+
+        private Recovery(File logFile, File snapshotFile, long logId, String matchId, MatchSettings settings,
+                         MatchSnapshot snapshot, List<MatchLogEntry> tail, boolean isMatchOver) {
+            this.logFile = logFile;
+            this.snapshotFile = snapshotFile;
+            this.logId = logId;
+            this.matchId = matchId;
+            this.settings = settings;
+            this.snapshot = snapshot;
+            this.tail = tail;
+            this.isMatchOver = isMatchOver;
+        }
+
+        File getLogFile() {
+            return logFile;
+        }
+
+        File getSnapshotFile() {
+            return snapshotFile;
+        }
+
+        long getLogId() {
+            return logId;
+        }
+
+        /**
+         * @return id of the match given when the log was created, null if it had none
+         */
+        public String getMatchId() {
+            return matchId;
+        }
+
+        /**
+         * @return time the log was last written to, in ms since the epoch
+         */
+        public long getLastModified() {
+            return logFile.lastModified();
+        }
+
+        public MatchSettings getSettings() {
+            return settings;
+        }
+
+        /**
+         * @return last snapshot of the match, null to replay the match from its start
+         */
+        public MatchSnapshot getSnapshot() {
+            return snapshot;
+        }
+
+        /**
+         * @return entries to replay after the snapshot
+         */
+        public List<MatchLogEntry> getTail() {
+            return Collections.unmodifiableList(tail);
+        }
+
+        public boolean isMatchOver() {
+            return isMatchOver;
+        }
+
+        /**
+         * @return true if the log is of the match with the given id and settings
+         */
+        public boolean isOf(String otherMatchId, MatchSettings other) {
+            boolean isSameMatch = matchId == null ? otherMatchId == null : matchId.equals(otherMatchId);
+            return isSameMatch && settings.getMatchType() == other.getMatchType() &&
+                    settings.getGameType() == other.getGameType() &&
+                    settings.getServeRules() == other.getServeRules() &&
+                    settings.getStartingServer() == other.getStartingServer() &&
+                    settings.getPlayerLeft().getName().equals(other.getPlayerLeft().getName()) &&
+                    settings.getPlayerRight().getName().equals(other.getPlayerRight().getName());
+        }
+    }
+}
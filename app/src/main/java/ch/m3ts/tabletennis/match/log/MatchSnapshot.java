@@ -0,0 +1,95 @@
+package ch.m3ts.tabletennis.match.log;
+
+import java.util.List;
+
+import ch.m3ts.util.Side;
+
+/**
+ * State of a match at one point of its MatchLog: games won, the score of each game played so far
+ * (including the servers needed to revert points) and whether the match is paused.
+ */
+public class MatchSnapshot {
+    private final Side serverSide;
+    private final int winsLeft;
+    private final int winsRight;
+    private final boolean isPaused;
+    private final List<GameSnapshot> games;
+
+    /**
+     * @param serverSide side serving first in the current game
+     * @param games      games played so far, the last one being the current game
+     */
+    public MatchSnapshot(Side serverSide, int winsLeft, int winsRight, boolean isPaused, List<GameSnapshot> games) {
+        this.serverSide = serverSide;
+        this.winsLeft = winsLeft;
+        this.winsRight = winsRight;
+        this.isPaused = isPaused;
+        this.games = games;
+    }
+
+    public Side getServerSide() {
+        return serverSide;
+    }
+
+    public int getWinsLeft() {
+        return winsLeft;
+    }
+
+    public int getWinsRight() {
+        return winsRight;
+    }
+
+    public boolean isPaused() {
+        return isPaused;
+    }
+
+    public List<GameSnapshot> getGames() {
+        return games;
+    }
+
+    public static class GameSnapshot {
+        private final Side startServer;
+        private final Side server;
+        private final int scoreLeft;
+        private final int scoreRight;
+        private final int maxScore;
+        private final List<Side> servers;
+
+        /**
+         * @param server  side serving next
+         * @param servers server of each point scored so far, in order
+         */
+        public GameSnapshot(Side startServer, Side server, int scoreLeft, int scoreRight, int maxScore, List<Side> servers) {
+            this.startServer = startServer;
+            this.server = server;
+            this.scoreLeft = scoreLeft;
+            this.scoreRight = scoreRight;
+            this.maxScore = maxScore;
+            this.servers = servers;
+        }
+
+        public Side getStartServer() {
+            return startServer;
+        }
+
+        public Side getServer() {
+            return server;
+        }
+
+        public int getScoreLeft() {
+            return scoreLeft;
+        }
+
+        public int getScoreRight() {
+            return scoreRight;
+        }
+
+        public int getMaxScore() {
+            return maxScore;
+        }
+
+        public List<Side> getServers() {
+            return servers;
+        }
+    }
+}
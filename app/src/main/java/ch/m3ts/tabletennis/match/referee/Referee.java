@@ -10,17 +10,18 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
-import java.util.Timer;
 import java.util.TimerTask;
 
 import ch.m3ts.detection.EventDetectionListener;
 import ch.m3ts.detection.gesture.ReadyToServeCallback;
 import ch.m3ts.display.statistic.StatsCreator;
 import ch.m3ts.eventbus.Event;
+import ch.m3ts.eventbus.EventBus;
 import ch.m3ts.eventbus.Subscribable;
 import ch.m3ts.eventbus.TTEvent;
 import ch.m3ts.eventbus.TTEventBus;
 import ch.m3ts.eventbus.event.GestureData;
+import ch.m3ts.eventbus.event.GestureDetectedData;
 import ch.m3ts.eventbus.event.ball.EventDetectorEventData;
 import ch.m3ts.eventbus.event.scoremanipulation.ScoreManipulationData;
 import ch.m3ts.eventbus.event.todisplay.InvalidServeData;
@@ -31,9 +32,11 @@ import ch.m3ts.tabletennis.match.game.GameCallback;
 import ch.m3ts.tabletennis.match.game.ScoreManipulationListener;
 import ch.m3ts.tabletennis.timeouts.OutOfFrameTimerTask;
 import ch.m3ts.util.CSVStringBuilder;
+import ch.m3ts.util.FrameClock;
 import ch.m3ts.util.DirectionX;
 import ch.m3ts.util.Duration;
 import ch.m3ts.util.Log;
+import ch.m3ts.util.MatchScheduler;
 import ch.m3ts.util.Side;
 import cz.fmo.Lib;
 import cz.fmo.data.Track;
@@ -52,14 +55,21 @@ import cz.fmo.util.FileManager;
  * - PAUSE -> a player just scored
  * - OUT_OF_FRAME -> the ball is not inside the frame anymore, the referee needs to wait and see
  * if a player can shoot the ball back onto the table.
+ * <p>
+ * The decisions are made by a transition table (see RefereeRules and makeDefaultRules), each
+ * applied rule is recorded in a RefereeTrace.
  */
 public class Referee implements EventDetectionListener, ScoreManipulationListener, ReadyToServeCallback, Subscribable {
     private static final String FILENAME = "recording_%s.csv";
     private static final String DATE_FORMAT = "yyyy-MM-dd_hh_mm_ss";
     private static final int OUT_OF_FRAME_MAX_DELAY = 1500;
+    private static final RefereeRules DEFAULT_RULES = makeDefaultRules();
     private final String currentFileName;
-    private Timer outOfFrameTimer;
-    private Timer timeOutNextServeTimer;
+    private final MatchScheduler scheduler;
+    private final boolean isOwningScheduler;
+    private MatchScheduler.Handle outOfFrameTimer;
+    private FrameClock.Timeout outOfFrameTimeout;
+    private FrameClock frameClock;
     private GameCallback gameCallback;
     private Game currentGame;
     private Side currentStriker;
@@ -76,8 +86,35 @@ public class Referee implements EventDetectionListener, ScoreManipulationListene
     private String lastDecision = "";
     private Side lastPointWinner;
     private boolean isBallMovingIntoNet;
+    private final EventBus eventBus;
+    private final StatsCreator statsCreator;
+    private final RefereeTrace trace = new RefereeTrace(RefereeTrace.DEFAULT_CAPACITY);
+    private RefereeRules rules = DEFAULT_RULES;
 
     public Referee(Side servingSide) {
+        this(servingSide, TTEventBus.getInstance(), StatsCreator.getInstance());
+    }
+
+    /**
+     * Creates a referee with a scheduler of its own, which ends with release().
+     */
+    public Referee(Side servingSide, EventBus eventBus, StatsCreator statsCreator) {
+        this(servingSide, eventBus, statsCreator, new MatchScheduler("refereeScheduler"), true);
+    }
+
+    /**
+     * Creates a referee which runs its timeouts on the given scheduler of the match.
+     */
+    public Referee(Side servingSide, EventBus eventBus, StatsCreator statsCreator, MatchScheduler scheduler) {
+        this(servingSide, eventBus, statsCreator, scheduler, false);
+    }
+
+    private Referee(Side servingSide, EventBus eventBus, StatsCreator statsCreator, MatchScheduler scheduler,
+                    boolean isOwningScheduler) {
+        this.eventBus = eventBus;
+        this.scheduler = scheduler;
+        this.isOwningScheduler = isOwningScheduler;
+        this.statsCreator = statsCreator;
         this.currentStriker = servingSide;
         this.currentBallSide = servingSide;
         this.bounces = 0;
@@ -91,6 +128,14 @@ public class Referee implements EventDetectionListener, ScoreManipulationListene
         this.duration = new Duration();
     }
 
+    /**
+     * Ends the scheduler the referee created for itself, the scheduler of a match ends with
+     * Match.release().
+     */
+    public void release() {
+        if (isOwningScheduler) scheduler.shutdown();
+    }
+
     public void debugToFile(Context context) {
         this.fm = new FileManager(context);
         Config config = new Config(context);
@@ -101,7 +146,7 @@ public class Referee implements EventDetectionListener, ScoreManipulationListene
                 .add(config.getPlayer1Name())
                 .add(config.getPlayer2Name())
                 .toString();
-        StatsCreator.getInstance().addMetaData(start, config.getPlayer1Name(), config.getPlayer2Name());
+        statsCreator.addMetaData(start, config.getPlayer1Name(), config.getPlayer2Name());
         Log.d(metaData, csvFile);
         String csvFormatString = CSVStringBuilder.builder()
                 .add("msg")
@@ -133,7 +178,7 @@ public class Referee implements EventDetectionListener, ScoreManipulationListene
         }
         int scoreLeft = this.currentGame.getScore(Side.LEFT);
         int scoreRight = this.currentGame.getScore(Side.RIGHT);
-        StatsCreator.getInstance().addPoint(lastDecision, lastPointWinner, scoreLeft, scoreRight,
+        statsCreator.addPoint(lastDecision, lastPointWinner, scoreLeft, scoreRight,
                 this.currentBallSide, this.currentStriker, lastServer, this.duration.getSeconds(), this.strikeLogs);
         this.strikeLogs = new ArrayList<>();
     }
@@ -161,7 +206,7 @@ public class Referee implements EventDetectionListener, ScoreManipulationListene
     public void initState() {
         if (isUsingReadyToServeGesture) {
             this.state = State.PAUSE;
-            TTEventBus.getInstance().dispatch(new TTEvent<>(new GestureData(getServer())));
+            eventBus.dispatch(new TTEvent<>(new GestureData(getServer())));
         } else {
             this.state = State.WAIT_FOR_SERVE;
         }
@@ -175,118 +220,66 @@ public class Referee implements EventDetectionListener, ScoreManipulationListene
         return currentGame.getServer();
     }
 
+    /**
+     * @return reason for the last point, in the form it is logged to the statistics
+     */
+    public String getLastDecision() {
+        return lastDecision;
+    }
+
     public Side getCurrentStriker() {
         return currentStriker;
     }
 
+    /**
+     * @return the rules the referee decides with, unless set otherwise with setRules
+     */
+    public static RefereeRules getDefaultRules() {
+        return DEFAULT_RULES;
+    }
+
+    /**
+     * Replaces the rules of the referee, e.g. with a variant of getDefaultRules().
+     */
+    public void setRules(RefereeRules rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * @return the last transitions of the referee
+     */
+    public RefereeTrace getTrace() {
+        return trace;
+    }
+
     @Override
     public void onBounce(Lib.Detection detection, Side ballBouncedOnSide) {
-        switch (this.state) {
-            case SERVING:
-                if (ballBouncedOnSide == currentBallSide) {
-                    bounces++;
-                    applyRuleSetServing();
-                }
-                break;
-            case PLAY:
-                if (ballBouncedOnSide == currentBallSide) {
-                    bounces++;
-                    applyRuleSet();
-                }
-                break;
-            default:
-                break;
-        }
+        fire(RefereeEvent.BOUNCE, ballBouncedOnSide, null);
     }
 
     @Override
     public void onAudioBounce(Side ballBouncedOnSide) {
-        switch (this.state) {
-            case SERVING:
-            case PLAY:
-                if (ballBouncedOnSide == currentBallSide) {
-                    Log.d("Referee: Audio bounce detected in PLAY state");
-                    audioBounces++;
-                }
-                break;
-            default:
-                break;
-        }
+        fire(RefereeEvent.AUDIO_BOUNCE, ballBouncedOnSide, null);
     }
 
     @Override
     public void onBallMovingIntoNet() {
-        switch (this.state) {
-            case PLAY:
-            case SERVING:
-                this.isBallMovingIntoNet = true;
-                break;
-            default:
-                break;
-        }
+        fire(RefereeEvent.BALL_MOVING_INTO_NET, null, null);
     }
 
     @Override
     public void onSideChange(Side side) {
-        switch (this.state) {
-            case PLAY:
-                // do not change striker if the ball was sent back by net
-                if (currentBallSide == side) {
-                    bounces = 0;
-                    audioBounces = 0;
-                    currentStriker = side;
-                    strikes++;
-                }
-                break;
-            case SERVING:
-                if (side != getServer()) {
-                    bounces = 0;
-                    audioBounces = 0;
-                }
-                if (currentBallSide == side) {
-                    currentStriker = side;
-                }
-                break;
-            case PAUSE:
-                if (side == getServer()) {
-                    TTEventBus.getInstance().dispatch(new TTEvent<>(new InvalidServeData()));
-                }
-                currentStriker = side;
-                break;
-            default:
-                currentStriker = side;
-                break;
-        }
+        fire(RefereeEvent.SIDE_CHANGE, side, null);
     }
 
     @Override
     public void onNearlyOutOfFrame(Lib.Detection detection, Side side) {
-        if (this.state == State.PLAY && side != Side.TOP)
-            handleOutOfFrame();
+        fire(RefereeEvent.NEARLY_OUT_OF_FRAME, side, null);
     }
 
     @Override
     public void onStrikeFound(Track track) {
-        switch (this.state) {
-            case WAIT_FOR_SERVE:
-                Lib.Detection latestDetection = track.getLatest();
-                if (((getServer() == Side.LEFT && currentBallSide == Side.LEFT && latestDetection.directionX == DirectionX.RIGHT) ||
-                        (getServer() == Side.RIGHT && currentBallSide == Side.RIGHT && latestDetection.directionX == DirectionX.LEFT)) &&
-                        (latestDetection.predecessor != null)) {
-                    this.state = State.SERVING;
-                    currentBallSide = getServer();
-                    this.currentStriker = getServer();
-                }
-                break;
-            case OUT_OF_FRAME:
-                // if ball was out of frame for too long, a point would have been scored.
-                this.outOfFrameTimer.cancel();
-                this.outOfFrameTimer = null;
-                this.state = State.PLAY;
-                break;
-            default:
-                break;
-        }
+        fire(RefereeEvent.STRIKE_FOUND, null, track);
         if (this.state != State.PAUSE) {
             track.setStriker(this.currentStriker);
             if (!this.strikeLogs.contains(track)) this.strikeLogs.add(track);
@@ -299,73 +292,37 @@ public class Referee implements EventDetectionListener, ScoreManipulationListene
         this.currentStriker = Side.getOpposite(side);
         this.currentBallSide = side;
         this.isBallMovingIntoNet = false;
-        switch (this.state) {
-            case SERVING:
-                if (this.getServer() != side) {
-                    Log.d("Table Side Change:Changing to PLAY");
-                    this.state = State.PLAY;
-                }
-                this.bounces = 0;
-                this.audioBounces = 0;
-                break;
-            case PLAY:
-                this.bounces = 0;
-                this.audioBounces = 0;
-                break;
-            default:
-                break;
-        }
+        fire(RefereeEvent.TABLE_SIDE_CHANGE, side, null);
     }
 
     @Override
     public void onBallDroppedSideWays() {
-        if (this.state == State.PLAY) {
-            if (bounces == 0) {
-                lastDecision = "Fault by Striker: Ball has fallen off side ways and had no bounce";
-                lastPointWinner = Side.getOpposite(currentStriker);
-                faultBySide(currentStriker);
-            } else if (bounces == 1) {
-                lastDecision = "Point by Striker: Ball has fallen off side ways and had a bounce";
-                lastPointWinner = currentStriker;
-                pointBySide(currentStriker);
-            }
-        }
+        fire(RefereeEvent.BALL_DROPPED_SIDEWAYS, null, null);
     }
 
     @Override
     public void onTimeout() {
-        if (this.state == State.PLAY ||
-                (this.state == State.SERVING && (this.audioBounces > 0 || this.bounces > 0 || this.isBallMovingIntoNet))) {
-            handleOutOfFrame();
-        }
+        fire(RefereeEvent.TIMEOUT, null, null);
     }
 
     @Override
     public void onPointDeduction(Side side) {
-        this.duration.reset();
-        lastDecision = "On point deduction";
-        lastPointWinner = side;
-        gameCallback.onPointDeduction(side);
-        initPoint();
+        fire(RefereeEvent.POINT_DEDUCTION, side, null);
     }
 
     @Override
     public void onPointAddition(Side side) {
-        this.duration.reset();
-        lastDecision = "On point addition";
-        lastPointWinner = side;
-        gameCallback.onPoint(side);
-        initPoint();
+        fire(RefereeEvent.POINT_ADDITION, side, null);
     }
 
     @Override
     public void onPause() {
-        this.pause();
+        fire(RefereeEvent.PAUSE, null, null);
     }
 
     @Override
     public void onResume() {
-        this.resume();
+        fire(RefereeEvent.RESUME, null, null);
     }
 
     public Side getCurrentBallSide() {
@@ -373,30 +330,9 @@ public class Referee implements EventDetectionListener, ScoreManipulationListene
     }
 
     public void onOutOfFrameForTooLong() {
-        if (this.state == State.OUT_OF_FRAME) {
-            if (currentBallSide == currentStriker) {
-                lastDecision = "Out of Frame for too long - Striker most likely shot the ball into the net";
-                lastPointWinner = Side.getOpposite(currentStriker);
-                faultBySide(currentStriker);
-            } else if (this.bounces >= 1 || this.audioBounces >= 1) {
-                String msg;
-                if (this.audioBounces >= 1 && this.bounces == 0) {
-                    msg = "Out of Frame for too long (AUDIO_BOUNCE ONLY) - Strike received no return";
-                } else if (this.bounces >= 1 && this.audioBounces == 0) {
-                    msg = "Out of Frame for too long (VIDEO_BOUNCE ONLY) - Strike received no return";
-                } else {
-                    msg = "Out of Frame for too long (AUDIO AND VIDEO_BOUNCE DETECTED) - Strike received no return";
-                }
-                lastDecision = msg;
-                lastPointWinner = currentStriker;
-                pointBySide(currentStriker);
-            } else {
-                lastDecision = "Out of Frame for too long - Strike did not bounce";
-                lastPointWinner = Side.getOpposite(currentStriker);
-                faultBySide(currentStriker);
-            }
-        } else {
+        if (!fire(RefereeEvent.OUT_OF_FRAME_FOR_TOO_LONG, null, null)) {
             this.outOfFrameTimer = null;
+            this.outOfFrameTimeout = null;
         }
     }
 
@@ -411,85 +347,374 @@ public class Referee implements EventDetectionListener, ScoreManipulationListene
         this.isUsingReadyToServeGesture = false;
     }
 
-    private void pause() {
-        this.state = State.PAUSE;
-        cancelTimers();
+    /**
+     * Times the out of frame timeout with the given clock instead of in real time, used when
+     * replaying faster than real time.
+     *
+     * @param frameClock clock of the replayed video, null to use real time
+     */
+    public void setFrameClock(FrameClock frameClock) {
+        this.frameClock = frameClock;
+    }
+
+    /**
+     * Applies the first rule for the current state and the event whose guard holds and records
+     * the transition.
+     *
+     * @return false if no rule applies
+     */
+    private boolean fire(RefereeEvent event, Side side, Track track) {
+        long timeNs = frameClock != null ? frameClock.nanoTime() : System.nanoTime();
+        State from = this.state;
+        RefereeRule rule = rules.find(from, event, this, side, track);
+        if (rule == null) return false;
+        rule.action(this, side, track);
+        if (rule.getNext() != null) this.state = rule.getNext();
+        trace.record(timeNs, event, side, from, this.state, rule);
+        return true;
     }
 
     private void cancelTimers() {
+        cancelOutOfFrameTimer();
+    }
+
+    private void cancelOutOfFrameTimer() {
         if (this.outOfFrameTimer != null) {
             this.outOfFrameTimer.cancel();
             this.outOfFrameTimer = null;
         }
-        if (this.timeOutNextServeTimer != null) {
-            this.timeOutNextServeTimer.cancel();
-            this.timeOutNextServeTimer = null;
+        if (this.outOfFrameTimeout != null) {
+            this.outOfFrameTimeout.cancel();
+            this.outOfFrameTimeout = null;
         }
     }
 
     private void handleOutOfFrame() {
-        if (this.outOfFrameTimer != null) {
-            this.outOfFrameTimer.cancel();
-            this.outOfFrameTimer = null;
-        }
+        cancelOutOfFrameTimer();
         // schedule out of frame timer
         TimerTask outOfFrameTask = new OutOfFrameTimerTask(this);
-        outOfFrameTimer = new Timer("outOfFrameTimer");
-        outOfFrameTimer.schedule(outOfFrameTask, OUT_OF_FRAME_MAX_DELAY);
-        this.state = State.OUT_OF_FRAME;
+        if (frameClock != null) {
+            outOfFrameTimeout = frameClock.schedule(outOfFrameTask, OUT_OF_FRAME_MAX_DELAY);
+        } else {
+            outOfFrameTimer = scheduler.schedule(outOfFrameTask, OUT_OF_FRAME_MAX_DELAY);
+        }
     }
 
-    private void pointBySide(Side side) {
+    private void resetBounces() {
+        this.bounces = 0;
+        this.audioBounces = 0;
+    }
+
+    private void point(String decision, Side side) {
+        lastDecision = decision;
+        lastPointWinner = side;
         gameCallback.onPoint(side);
         initPoint();
     }
 
-    private void faultBySide(Side side) {
-        gameCallback.onPoint(Side.getOpposite(side));
-        initPoint();
+    private void fault(String decision, Side side) {
+        point(decision, Side.getOpposite(side));
     }
 
     private void initPoint() {
-        this.bounces = 0;
-        this.audioBounces = 0;
+        resetBounces();
         this.cancelTimers();
         this.duration.stop();
         if (isUsingReadyToServeGesture) {
             this.state = State.PAUSE;
-            TTEventBus.getInstance().dispatch(new TTEvent<>(new GestureData(getServer())));
+            eventBus.dispatch(new TTEvent<>(new GestureData(getServer())));
         } else {
             this.state = State.WAIT_FOR_SERVE;
         }
     }
 
-    private void applyRuleSet() {
-        if (bounces == 1) {
-            if (this.currentStriker == this.currentBallSide) {
-                lastDecision = "Bounce on strikers' Side";
-                lastPointWinner = Side.getOpposite(this.currentStriker);
-                faultBySide(this.currentStriker);
-            }
-        } else if (bounces >= 2 && this.currentStriker != this.currentBallSide) {
-            lastDecision = "Bounced multiple times on strikers' opponent Side";
-            lastPointWinner = this.currentStriker;
-            pointBySide(this.currentStriker);
-        }
-    }
-
-    private void applyRuleSetServing() {
-        if (bounces > 1 && currentBallSide == getServer()) {
-            lastDecision = "Server Fault: Multiple Bounces on servers' Side";
-            lastPointWinner = Side.getOpposite(getServer());
-            faultBySide(getServer());
-        }
+    private boolean isServe(Track track) {
+        Lib.Detection latestDetection = track.getLatest();
+        return ((getServer() == Side.LEFT && currentBallSide == Side.LEFT && latestDetection.directionX == DirectionX.RIGHT) ||
+                (getServer() == Side.RIGHT && currentBallSide == Side.RIGHT && latestDetection.directionX == DirectionX.LEFT)) &&
+                (latestDetection.predecessor != null);
     }
 
     @Override
     public void onGestureDetected() {
-        resume();
-        if (this.isUsingReadyToServeGesture) {
-            TTEventBus.getInstance().dispatch(new TTEvent<>(new ReadyToServeData(getServer())));
-        }
+        fire(RefereeEvent.READY_TO_SERVE, null, null);
+    }
+
+    /**
+     * The rules of the referee, grouped by event.
+     */
+    private static RefereeRules makeDefaultRules() {
+        List<RefereeRule> rules = new ArrayList<>();
+        rules.add(new RefereeRule("serverBouncedTwice", RefereeEvent.BOUNCE, State.SERVING) {
+            @Override
+            boolean guard(Referee referee, Side side, Track track) {
+                return side == referee.currentBallSide && referee.bounces >= 1 &&
+                        referee.currentBallSide == referee.getServer();
+            }
+
+            @Override
+            void action(Referee referee, Side side, Track track) {
+                referee.fault("Server Fault: Multiple Bounces on servers' Side", referee.getServer());
+            }
+        }.endsPoint());
+        rules.add(new RefereeRule("bounceOnStrikersSide", RefereeEvent.BOUNCE, State.PLAY) {
+            @Override
+            boolean guard(Referee referee, Side side, Track track) {
+                return side == referee.currentBallSide && referee.bounces == 0 &&
+                        referee.currentStriker == referee.currentBallSide;
+            }
+
+            @Override
+            void action(Referee referee, Side side, Track track) {
+                referee.fault("Bounce on strikers' Side", referee.currentStriker);
+            }
+        }.endsPoint());
+        rules.add(new RefereeRule("multipleBouncesOnOpponentsSide", RefereeEvent.BOUNCE, State.PLAY) {
+            @Override
+            boolean guard(Referee referee, Side side, Track track) {
+                return side == referee.currentBallSide && referee.bounces >= 1 &&
+                        referee.currentStriker != referee.currentBallSide;
+            }
+
+            @Override
+            void action(Referee referee, Side side, Track track) {
+                referee.point("Bounced multiple times on strikers' opponent Side", referee.currentStriker);
+            }
+        }.endsPoint());
+        rules.add(new RefereeRule("bounce", RefereeEvent.BOUNCE, State.SERVING, State.PLAY) {
+            @Override
+            boolean guard(Referee referee, Side side, Track track) {
+                return side == referee.currentBallSide;
+            }
+
+            @Override
+            void action(Referee referee, Side side, Track track) {
+                referee.bounces++;
+            }
+        });
+        rules.add(new RefereeRule("audioBounce", RefereeEvent.AUDIO_BOUNCE, State.SERVING, State.PLAY) {
+            @Override
+            boolean guard(Referee referee, Side side, Track track) {
+                return side == referee.currentBallSide;
+            }
+
+            @Override
+            void action(Referee referee, Side side, Track track) {
+                Log.d("Referee: Audio bounce detected in PLAY state");
+                referee.audioBounces++;
+            }
+        });
+        rules.add(new RefereeRule("ballMovingIntoNet", RefereeEvent.BALL_MOVING_INTO_NET, State.SERVING, State.PLAY) {
+            @Override
+            void action(Referee referee, Side side, Track track) {
+                referee.isBallMovingIntoNet = true;
+            }
+        });
+        rules.add(new RefereeRule("return", RefereeEvent.SIDE_CHANGE, State.PLAY) {
+            @Override
+            boolean guard(Referee referee, Side side, Track track) {
+                // do not change striker if the ball was sent back by net
+                return side == referee.currentBallSide;
+            }
+
+            @Override
+            void action(Referee referee, Side side, Track track) {
+                referee.resetBounces();
+                referee.currentStriker = side;
+                referee.strikes++;
+            }
+        });
+        rules.add(new RefereeRule("serveSideChange", RefereeEvent.SIDE_CHANGE, State.SERVING) {
+            @Override
+            void action(Referee referee, Side side, Track track) {
+                if (side != referee.getServer()) referee.resetBounces();
+                if (side == referee.currentBallSide) referee.currentStriker = side;
+            }
+        });
+        rules.add(new RefereeRule("invalidServe", RefereeEvent.SIDE_CHANGE, State.PAUSE) {
+            @Override
+            boolean guard(Referee referee, Side side, Track track) {
+                return side == referee.getServer();
+            }
+
+            @Override
+            void action(Referee referee, Side side, Track track) {
+                referee.eventBus.dispatch(new TTEvent<>(new InvalidServeData()));
+                referee.currentStriker = side;
+            }
+        });
+        rules.add(new RefereeRule("sideChange", RefereeEvent.SIDE_CHANGE, State.PAUSE, State.WAIT_FOR_SERVE,
+                State.OUT_OF_FRAME) {
+            @Override
+            void action(Referee referee, Side side, Track track) {
+                referee.currentStriker = side;
+            }
+        });
+        rules.add(new RefereeRule("nearlyOutOfFrame", RefereeEvent.NEARLY_OUT_OF_FRAME, State.PLAY) {
+            @Override
+            boolean guard(Referee referee, Side side, Track track) {
+                return side != Side.TOP;
+            }
+
+            @Override
+            void action(Referee referee, Side side, Track track) {
+                referee.handleOutOfFrame();
+            }
+        }.to(State.OUT_OF_FRAME));
+        rules.add(new RefereeRule("serve", RefereeEvent.STRIKE_FOUND, State.WAIT_FOR_SERVE) {
+            @Override
+            boolean guard(Referee referee, Side side, Track track) {
+                return referee.isServe(track);
+            }
+
+            @Override
+            void action(Referee referee, Side side, Track track) {
+                referee.currentBallSide = referee.getServer();
+                referee.currentStriker = referee.getServer();
+            }
+        }.to(State.SERVING));
+        rules.add(new RefereeRule("strikeBackInFrame", RefereeEvent.STRIKE_FOUND, State.OUT_OF_FRAME) {
+            @Override
+            void action(Referee referee, Side side, Track track) {
+                // if ball was out of frame for too long, a point would have been scored.
+                referee.cancelOutOfFrameTimer();
+            }
+        }.to(State.PLAY));
+        rules.add(new RefereeRule("serveOverNet", RefereeEvent.TABLE_SIDE_CHANGE, State.SERVING) {
+            @Override
+            boolean guard(Referee referee, Side side, Track track) {
+                return side != referee.getServer();
+            }
+
+            @Override
+            void action(Referee referee, Side side, Track track) {
+                Log.d("Table Side Change:Changing to PLAY");
+                referee.resetBounces();
+            }
+        }.to(State.PLAY));
+        rules.add(new RefereeRule("tableSideChange", RefereeEvent.TABLE_SIDE_CHANGE, State.SERVING, State.PLAY) {
+            @Override
+            void action(Referee referee, Side side, Track track) {
+                referee.resetBounces();
+            }
+        });
+        rules.add(new RefereeRule("droppedSideWaysWithoutBounce", RefereeEvent.BALL_DROPPED_SIDEWAYS, State.PLAY) {
+            @Override
+            boolean guard(Referee referee, Side side, Track track) {
+                return referee.bounces == 0;
+            }
+
+            @Override
+            void action(Referee referee, Side side, Track track) {
+                referee.fault("Fault by Striker: Ball has fallen off side ways and had no bounce",
+                        referee.currentStriker);
+            }
+        }.endsPoint());
+        rules.add(new RefereeRule("droppedSideWaysAfterBounce", RefereeEvent.BALL_DROPPED_SIDEWAYS, State.PLAY) {
+            @Override
+            boolean guard(Referee referee, Side side, Track track) {
+                return referee.bounces == 1;
+            }
+
+            @Override
+            void action(Referee referee, Side side, Track track) {
+                referee.point("Point by Striker: Ball has fallen off side ways and had a bounce",
+                        referee.currentStriker);
+            }
+        }.endsPoint());
+        rules.add(new RefereeRule("timeout", RefereeEvent.TIMEOUT, State.PLAY) {
+            @Override
+            void action(Referee referee, Side side, Track track) {
+                referee.handleOutOfFrame();
+            }
+        }.to(State.OUT_OF_FRAME));
+        rules.add(new RefereeRule("serveTimeout", RefereeEvent.TIMEOUT, State.SERVING) {
+            @Override
+            boolean guard(Referee referee, Side side, Track track) {
+                return referee.audioBounces > 0 || referee.bounces > 0 || referee.isBallMovingIntoNet;
+            }
+
+            @Override
+            void action(Referee referee, Side side, Track track) {
+                referee.handleOutOfFrame();
+            }
+        }.to(State.OUT_OF_FRAME));
+        rules.add(new RefereeRule("strikeIntoNet", RefereeEvent.OUT_OF_FRAME_FOR_TOO_LONG, State.OUT_OF_FRAME) {
+            @Override
+            boolean guard(Referee referee, Side side, Track track) {
+                return referee.currentBallSide == referee.currentStriker;
+            }
+
+            @Override
+            void action(Referee referee, Side side, Track track) {
+                referee.fault("Out of Frame for too long - Striker most likely shot the ball into the net",
+                        referee.currentStriker);
+            }
+        }.endsPoint());
+        rules.add(new RefereeRule("noReturn", RefereeEvent.OUT_OF_FRAME_FOR_TOO_LONG, State.OUT_OF_FRAME) {
+            @Override
+            boolean guard(Referee referee, Side side, Track track) {
+                return referee.bounces >= 1 || referee.audioBounces >= 1;
+            }
+
+            @Override
+            void action(Referee referee, Side side, Track track) {
+                String msg;
+                if (referee.audioBounces >= 1 && referee.bounces == 0) {
+                    msg = "Out of Frame for too long (AUDIO_BOUNCE ONLY) - Strike received no return";
+                } else if (referee.bounces >= 1 && referee.audioBounces == 0) {
+                    msg = "Out of Frame for too long (VIDEO_BOUNCE ONLY) - Strike received no return";
+                } else {
+                    msg = "Out of Frame for too long (AUDIO AND VIDEO_BOUNCE DETECTED) - Strike received no return";
+                }
+                referee.point(msg, referee.currentStriker);
+            }
+        }.endsPoint());
+        rules.add(new RefereeRule("noBounce", RefereeEvent.OUT_OF_FRAME_FOR_TOO_LONG, State.OUT_OF_FRAME) {
+            @Override
+            void action(Referee referee, Side side, Track track) {
+                referee.fault("Out of Frame for too long - Strike did not bounce", referee.currentStriker);
+            }
+        }.endsPoint());
+        rules.add(new RefereeRule("pointDeduction", RefereeEvent.POINT_DEDUCTION) {
+            @Override
+            void action(Referee referee, Side side, Track track) {
+                referee.duration.reset();
+                referee.lastDecision = "On point deduction";
+                referee.lastPointWinner = side;
+                referee.gameCallback.onPointDeduction(side);
+                referee.initPoint();
+            }
+        }.endsPoint());
+        rules.add(new RefereeRule("pointAddition", RefereeEvent.POINT_ADDITION) {
+            @Override
+            void action(Referee referee, Side side, Track track) {
+                referee.duration.reset();
+                referee.point("On point addition", side);
+            }
+        }.endsPoint());
+        rules.add(new RefereeRule("pause", RefereeEvent.PAUSE) {
+            @Override
+            void action(Referee referee, Side side, Track track) {
+                referee.cancelTimers();
+            }
+        }.to(State.PAUSE));
+        rules.add(new RefereeRule("resume", RefereeEvent.RESUME) {
+            @Override
+            void action(Referee referee, Side side, Track track) {
+                referee.resume();
+            }
+        }.to(State.WAIT_FOR_SERVE));
+        rules.add(new RefereeRule("readyToServe", RefereeEvent.READY_TO_SERVE) {
+            @Override
+            void action(Referee referee, Side side, Track track) {
+                referee.resume();
+                if (referee.isUsingReadyToServeGesture) {
+                    referee.eventBus.dispatch(new TTEvent<>(new ReadyToServeData(referee.getServer())));
+                }
+            }
+        }.to(State.WAIT_FOR_SERVE));
+        return new RefereeRules(rules);
     }
 
     @Override
@@ -504,6 +729,9 @@ public class Referee implements EventDetectionListener, ScoreManipulationListene
         } else if (data instanceof ScoreData) {
             ScoreData scoreData = (ScoreData) data;
             logScoring(scoreData.getLastServer());
+        } else if (data instanceof GestureDetectedData) {
+            GestureDetectedData gestureDetectedData = (GestureDetectedData) data;
+            gestureDetectedData.call(this);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,44 @@
+package ch.m3ts.tabletennis.match.referee;
+
+/**
+ * Events the Referee decides on, see RefereeRules.
+ */
+public enum RefereeEvent {
+    BOUNCE(Source.DETECTION),
+    AUDIO_BOUNCE(Source.DETECTION),
+    BALL_MOVING_INTO_NET(Source.DETECTION),
+    SIDE_CHANGE(Source.DETECTION),
+    NEARLY_OUT_OF_FRAME(Source.DETECTION),
+    STRIKE_FOUND(Source.DETECTION),
+    TABLE_SIDE_CHANGE(Source.DETECTION),
+    BALL_DROPPED_SIDEWAYS(Source.DETECTION),
+    TIMEOUT(Source.TIMER),
+    OUT_OF_FRAME_FOR_TOO_LONG(Source.TIMER),
+    POINT_ADDITION(Source.MANUAL),
+    POINT_DEDUCTION(Source.MANUAL),
+    PAUSE(Source.MANUAL),
+    RESUME(Source.MANUAL),
+    READY_TO_SERVE(Source.MANUAL);
+
+    private final Source source;
+
+    RefereeEvent(Source source) {
+        this.source = source;
+    }
+
+    public Source getSource() {
+        return source;
+    }
+
+    /**
+     * Where an event comes from:
+     * - DETECTION -> the EventDetector saw the ball do something
+     * - TIMER -> the ball has not been seen for some time
+     * - MANUAL -> a player or the display changed the score or paused the match
+     */
+    public enum Source {
+        DETECTION,
+        TIMER,
+        MANUAL
+    }
+}
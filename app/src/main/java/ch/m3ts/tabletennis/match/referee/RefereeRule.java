@@ -0,0 +1,79 @@
+package ch.m3ts.tabletennis.match.referee;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+import ch.m3ts.util.Side;
+import cz.fmo.data.Track;
+
+/**
+ * A row of the transition table of the Referee: in one of the states, on the event and if the
+ * guard holds, the action runs and the referee goes to the next state.
+ */
+abstract class RefereeRule {
+    private final String name;
+    private final RefereeEvent event;
+    private final Set<State> states;
+    private State next;
+    private boolean isEndingPoint;
+
+    /**
+     * @param states states the rule applies in, all states if none are given
+     */
+    RefereeRule(String name, RefereeEvent event, State... states) {
+        this.name = name;
+        this.event = event;
+        this.states = Collections.unmodifiableSet(states.length == 0 ? EnumSet.allOf(State.class) :
+                EnumSet.copyOf(Arrays.asList(states)));
+    }
+
+    /**
+     * Sets the state after the action, without it the referee stays in its state.
+     */
+    RefereeRule to(State next) {
+        this.next = next;
+        return this;
+    }
+
+    /**
+     * Marks the rule as one which gives a point, the referee then waits for the next serve.
+     */
+    RefereeRule endsPoint() {
+        this.isEndingPoint = true;
+        return this;
+    }
+
+    boolean guard(Referee referee, Side side, Track track) {
+        return true;
+    }
+
+    abstract void action(Referee referee, Side side, Track track);
+
+    String getName() {
+        return name;
+    }
+
+    RefereeEvent getEvent() {
+        return event;
+    }
+
+    Set<State> getStates() {
+        return states;
+    }
+
+    /**
+     * @return next state, null if the action sets it
+     */
+    State getNext() {
+        return next;
+    }
+
+    /**
+     * @return true if the referee decides a point on its own with the rule
+     */
+    boolean isDecision() {
+        return isEndingPoint && event.getSource() != RefereeEvent.Source.MANUAL;
+    }
+}
@@ -0,0 +1,68 @@
+package ch.m3ts.tabletennis.match.referee;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import ch.m3ts.util.Side;
+import cz.fmo.data.Track;
+
+/**
+ * Transition table of the Referee. For a state and an event, the rules are tried in the order
+ * they were given and the first one whose guard holds is applied.
+ * <p>
+ * Tables are immutable, variants of the rules (e.g. to compare them in the benchmark) are made
+ * with without().
+ */
+public final class RefereeRules {
+    private static final RefereeRule[] NO_RULES = new RefereeRule[0];
+    private final List<RefereeRule> rules;
+    private final RefereeRule[][][] table;
+
+    RefereeRules(List<RefereeRule> rules) {
+        this.rules = Collections.unmodifiableList(new ArrayList<>(rules));
+        this.table = new RefereeRule[State.values().length][RefereeEvent.values().length][];
+        for (State state : State.values()) {
+            for (RefereeEvent event : RefereeEvent.values()) {
+                List<RefereeRule> candidates = new ArrayList<>();
+                for (RefereeRule rule : rules) {
+                    if (rule.getEvent() == event && rule.getStates().contains(state)) candidates.add(rule);
+                }
+                table[state.ordinal()][event.ordinal()] = candidates.isEmpty() ? NO_RULES :
+                        candidates.toArray(new RefereeRule[candidates.size()]);
+            }
+        }
+    }
+
+    /**
+     * @return the rule to apply, null if the event does not change anything in the state
+     */
+    RefereeRule find(State state, RefereeEvent event, Referee referee, Side side, Track track) {
+        for (RefereeRule rule : table[state.ordinal()][event.ordinal()]) {
+            if (rule.guard(referee, side, track)) return rule;
+        }
+        return null;
+    }
+
+    /**
+     * @return names of the rules, in the order they are tried
+     */
+    public List<String> getNames() {
+        List<String> names = new ArrayList<>(rules.size());
+        for (RefereeRule rule : rules) names.add(rule.getName());
+        return names;
+    }
+
+    /**
+     * @return a copy of the table without the rules with the given names
+     */
+    public RefereeRules without(String... names) {
+        List<String> removed = Arrays.asList(names);
+        List<RefereeRule> kept = new ArrayList<>(rules.size());
+        for (RefereeRule rule : rules) {
+            if (!removed.contains(rule.getName())) kept.add(rule);
+        }
+        return new RefereeRules(kept);
+    }
+}
@@ -0,0 +1,147 @@
+package ch.m3ts.tabletennis.match.referee;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ch.m3ts.util.Side;
+
+/**
+ * Ring buffer of the last transitions of a Referee, with the time each triggering event arrived.
+ * Recording only stores references, so it can stay on while the referee runs.
+ */
+public class RefereeTrace {
+    public static final int DEFAULT_CAPACITY = 256;
+    private final long[] timesNs;
+    private final RefereeEvent[] events;
+    private final Side[] sides;
+    private final State[] froms;
+    private final State[] tos;
+    private final RefereeRule[] rules;
+    private long count = 0;
+
+    public RefereeTrace(int capacity) {
+        this.timesNs = new long[capacity];
+        this.events = new RefereeEvent[capacity];
+        this.sides = new Side[capacity];
+        this.froms = new State[capacity];
+        this.tos = new State[capacity];
+        this.rules = new RefereeRule[capacity];
+    }
+
+    synchronized void record(long timeNs, RefereeEvent event, Side side, State from, State to, RefereeRule rule) {
+        int i = (int) (count % timesNs.length);
+        timesNs[i] = timeNs;
+        events[i] = event;
+        sides[i] = side;
+        froms[i] = from;
+        tos[i] = to;
+        rules[i] = rule;
+        count++;
+    }
+
+    /**
+     * @return number of transitions recorded so far, including the ones overwritten
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * @param since count at the start of the transitions to get
+     * @return the transitions since then, without the ones already overwritten
+     */
+    public synchronized List<Transition> getTransitionsSince(long since) {
+        long start = Math.max(since, count - timesNs.length);
+        List<Transition> transitions = new ArrayList<>((int) Math.max(0, count - start));
+        for (long n = start; n < count; n++) {
+            int i = (int) (n % timesNs.length);
+            transitions.add(new Transition(timesNs[i], events[i], sides[i], froms[i], tos[i],
+                    rules[i].getName(), rules[i].isDecision()));
+        }
+        return transitions;
+    }
+
+    /**
+     * Time from the last detection which changed the state of the referee, to the point the
+     * referee decided on it, e.g. the out of frame delay.
+     *
+     * @return latency of the first decision in the transitions, -1 if there is none
+     */
+    public static long getDecisionLatencyNs(List<Transition> transitions) {
+        Transition trigger = null;
+        for (Transition transition : transitions) {
+            if (transition.isDecision()) {
+                return trigger == null ? -1 : transition.getTimeNs() - trigger.getTimeNs();
+            }
+            if (transition.getEvent().getSource() == RefereeEvent.Source.DETECTION) trigger = transition;
+        }
+        return -1;
+    }
+
+    public static class Transition {
+        private final long timeNs;
+        private final RefereeEvent event;
+        private final Side side;
+        private final State from;
+        private final State to;
+        private final String rule;
+        private final boolean isDecision;
+
+        Transition(long timeNs, RefereeEvent event, Side side, State from, State to, String rule,
+                   boolean isDecision) {
+            this.timeNs = timeNs;
+            this.event = event;
+            this.side = side;
+            this.from = from;
+            this.to = to;
+            this.rule = rule;
+            this.isDecision = isDecision;
+        }
+
+        /**
+         * @return time the event arrived, in frame time when the referee runs on a FrameClock
+         */
+        public long getTimeNs() {
+            return timeNs;
+        }
+
+        public RefereeEvent getEvent() {
+            return event;
+        }
+
+        /**
+         * @return side of the event, null if it has none
+         */
+        public Side getSide() {
+            return side;
+        }
+
+        public State getFrom() {
+            return from;
+        }
+
+        public State getTo() {
+            return to;
+        }
+
+        /**
+         * @return name of the rule which was applied
+         */
+        public String getRule() {
+            return rule;
+        }
+
+        /**
+         * @return true if the referee gave a point with the transition
+         */
+        public boolean isDecision() {
+            return isDecision;
+        }
+
+        @Override
+        public String toString() {
+            return timeNs + " " + event + (side != null ? "(" + side + ")" : "") + ": " + from + " -> " + to +
+                    " [" + rule + "]";
+        }
+    }
+}
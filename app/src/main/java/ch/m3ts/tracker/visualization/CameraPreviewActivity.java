@@ -61,7 +61,7 @@ public abstract class CameraPreviewActivity extends Activity implements SurfaceH
         Assets.getInstance().load(this);
 
         // create a dedicated camera input thread
-        mCamera = new CameraThread(this.cameraCallback, mConfig);
+        mCamera = new CameraThread(this.cameraCallback, mConfig, this);
         this.cameraHorizontalAngle = mCamera.getCameraHorizontalViewAngle();
 
         // add preview as camera target
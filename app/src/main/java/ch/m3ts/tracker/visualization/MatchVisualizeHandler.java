@@ -16,16 +16,21 @@ import com.google.audio.core.Recorder;
 
 import org.opencv.android.OpenCVLoader;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.ref.WeakReference;
+import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
-import java.util.Timer;
 
 import ch.m3ts.detection.EventDetectionListener;
 import ch.m3ts.detection.EventDetector;
 import ch.m3ts.detection.ZPositionCalc;
 import ch.m3ts.detection.audio.AudioBounceDetection;
+import ch.m3ts.detection.gesture.ReadyToServeCallback;
 import ch.m3ts.detection.gesture.ReadyToServeDetector;
+import ch.m3ts.detection.trace.DetectionTraceHeader;
+import ch.m3ts.detection.trace.DetectionTraceWriter;
 import ch.m3ts.display.OnSwipeListener;
 import ch.m3ts.display.statistic.StatsCreator;
 import ch.m3ts.eventbus.Event;
@@ -34,6 +39,7 @@ import ch.m3ts.eventbus.Subscribable;
 import ch.m3ts.eventbus.TTEvent;
 import ch.m3ts.eventbus.TTEventBus;
 import ch.m3ts.eventbus.event.GestureData;
+import ch.m3ts.eventbus.event.GestureDetectedData;
 import ch.m3ts.eventbus.event.ball.EventDetectorEventData;
 import ch.m3ts.eventbus.event.scoremanipulation.PointAddition;
 import ch.m3ts.eventbus.event.scoremanipulation.PointDeduction;
@@ -45,6 +51,9 @@ import ch.m3ts.tabletennis.match.MatchType;
 import ch.m3ts.tabletennis.match.Player;
 import ch.m3ts.tabletennis.match.ServeRules;
 import ch.m3ts.tabletennis.match.game.GameType;
+import ch.m3ts.tabletennis.match.referee.Referee;
+import ch.m3ts.util.FrameClock;
+import ch.m3ts.util.AsyncLogWriter;
 import ch.m3ts.util.Log;
 import ch.m3ts.util.Side;
 import ch.m3ts.util.Table;
@@ -53,6 +62,7 @@ import cz.fmo.R;
 import cz.fmo.data.Track;
 import cz.fmo.data.TrackSet;
 import cz.fmo.util.Config;
+import cz.fmo.util.FileManager;
 
 /**
  * Renders the images received by any video source onto the screen and also passes them to FMO.
@@ -63,6 +73,7 @@ import cz.fmo.util.Config;
  **/
 public class MatchVisualizeHandler extends android.os.Handler implements EventDetectionListener, DisplayUpdateListener, Subscribable {
     protected static final int MAX_REFRESHING_TIME_MS = 500;
+    private static final String TRACE_FILENAME = "trace_%s" + DetectionTraceWriter.EXTENSION;
     protected final WeakReference<MatchVisualizeActivity> mActivity;
     private final boolean useBlackSide;
     private final boolean useAudio;
@@ -82,10 +93,13 @@ public class MatchVisualizeHandler extends android.os.Handler implements EventDe
     private Lib.Detection latestNearlyOutOfFrame;
     private Lib.Detection latestBounce;
     private int newBounceCount;
-    private boolean waitingForGesture = false;
+    private volatile boolean waitingForGesture = false;
     private Recorder audioRecorder;
     private ZPosVisualizer zPosVisualizer;
     private boolean hasEnded = false;
+    private FrameClock frameClock;
+    private DetectionTraceWriter traceWriter;
+    private DetectionTraceHeader traceHeader;
 
     public MatchVisualizeHandler(@NonNull MatchVisualizeActivity activity) {
         this.mActivity = new WeakReference<>(activity);
@@ -106,17 +120,32 @@ public class MatchVisualizeHandler extends android.os.Handler implements EventDe
     public void initMatch(Side servingSide, MatchType matchType, Player playerLeft, Player playerRight) {
         this.matchSettings = new MatchSettings(matchType, GameType.G11, ServeRules.S2, playerLeft, playerRight, servingSide);
         EventBus eventBus = TTEventBus.getInstance();
-        if (this.match != null) {
-            eventBus.unregister(match);
-            eventBus.unregister(match.getReferee());
-        }
+        if (this.match != null) match.release();
         match = new Match(matchSettings);
+        match.getReferee().setFrameClock(frameClock);
         eventBus.register(match);
         startMatch();
         setTextInTextView(R.id.txtDebugPlayerNameLeft, playerLeft.getName());
         setTextInTextView(R.id.txtDebugPlayerNameRight, playerRight.getName());
-        Timer refreshTimer = new Timer();
-        refreshTimer.scheduleAtFixedRate(new DebugHandlerRefreshTimerTask(this), new Date(), MAX_REFRESHING_TIME_MS);
+        match.getScheduler().scheduleAtFixedRate(new DebugHandlerRefreshTimerTask(this), 0, MAX_REFRESHING_TIME_MS);
+    }
+
+    public Referee getReferee() {
+        return this.match.getReferee();
+    }
+
+    /**
+     * Times detections and timeouts with the given clock instead of in real time, for videos which
+     * are decoded faster than real time. Applies to matches and detections initialized afterwards.
+     *
+     * @param frameClock clock of the video, null to use real time
+     */
+    public void setFrameClock(FrameClock frameClock) {
+        this.frameClock = frameClock;
+    }
+
+    protected FrameClock getFrameClock() {
+        return frameClock;
     }
 
     public void deactivateReadyToServeGesture() {
@@ -135,6 +164,8 @@ public class MatchVisualizeHandler extends android.os.Handler implements EventDe
         } else if (data instanceof GestureData) {
             GestureData gestureData = (GestureData) data;
             this.setWaitForGesture(gestureData.getServer());
+        } else if (data instanceof GestureDetectedData) {
+            this.setWaitingForGesture(false);
         }
     }
 
@@ -292,7 +323,11 @@ public class MatchVisualizeHandler extends android.os.Handler implements EventDe
         this.config = config;
         ZPositionCalc calc = new ZPositionCalc(viewingAngle, table.getWidth(), srcWidth);
         StatsCreator.getInstance().setZCalc(calc);
+        StatsCreator.getInstance().setFrameRate(config.getFrameRate());
         this.eventDetector = new EventDetector(config, srcWidth, srcHeight, tracks, this.table, calc);
+        this.eventDetector.setFrameClock(frameClock);
+        this.traceHeader = new DetectionTraceHeader(srcWidth, srcHeight, viewingAngle, config.getFrameRate(), table);
+        if (config.doRecordTraces()) startTrace();
         if (useAudio)
             this.audioRecorder = new Recorder(new AudioBounceDetection(this.eventDetector));
         this.match.getReferee().initState();
@@ -324,6 +359,19 @@ public class MatchVisualizeHandler extends android.os.Handler implements EventDe
 
     }
 
+    /**
+     * Ends the match and its tasks once the parent activity is destroyed, and writes the logs
+     * still queued.
+     */
+    public void onDestroyActivity() {
+        if (this.match != null) match.release();
+        try {
+            AsyncLogWriter.shutdownInstance();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     public void startDetections() {
         Lib.detectionStart(this.videoScaling.getVideoWidth(), this.videoScaling.getVideoHeight(), this.config.getProcRes(), this.config.isGray(), eventDetector);
         if (this.audioRecorder != null) this.audioRecorder.start();
@@ -332,6 +380,41 @@ public class MatchVisualizeHandler extends android.os.Handler implements EventDe
     public void stopDetections() {
         Lib.detectionStop();
         if (this.audioRecorder != null) this.audioRecorder.stop();
+        stopTrace();
+    }
+
+    /**
+     * Starts tracing the detections to a new file, called on init if traces are recorded.
+     */
+    protected void startTrace() {
+        MatchVisualizeActivity activity = mActivity.get();
+        if (activity == null) return;
+        String date = new SimpleDateFormat("yyyy-MM-dd_HH_mm_ss", Locale.US).format(new Date());
+        startTrace(new FileManager(activity).open(String.format(Locale.US, TRACE_FILENAME, date)));
+    }
+
+    /**
+     * Starts tracing the detections to the given file, finishing the current trace.
+     */
+    protected void startTrace(File file) {
+        stopTrace();
+        try {
+            traceWriter = new DetectionTraceWriter(file, traceHeader);
+            eventDetector.setTraceWriter(traceWriter);
+        } catch (IOException e) {
+            Log.e("Unable to create detection trace " + file.getName(), e);
+        }
+    }
+
+    private void stopTrace() {
+        if (traceWriter == null) return;
+        if (eventDetector != null) eventDetector.setTraceWriter(null);
+        try {
+            traceWriter.close();
+        } catch (IOException e) {
+            Log.e("Unable to close detection trace", e);
+        }
+        traceWriter = null;
     }
 
     public void clearCanvas(SurfaceHolder surfaceHolder) {
@@ -377,9 +460,16 @@ public class MatchVisualizeHandler extends android.os.Handler implements EventDe
         surfaceHolderTable.unlockCanvasAndPost(canvas);
     }
 
-    private void setWaitForGesture(Side server) {
+    private void setWaitForGesture(final Side server) {
         if (this.match != null) {
-            serveDetector = new ReadyToServeDetector(table, server, this.match.getReferee(), this.useBlackSide);
+            if (serveDetector != null) serveDetector.release();
+            // the detector might run on the GestureDetectionThread, report back via the event bus
+            serveDetector = new ReadyToServeDetector(table, server, new ReadyToServeCallback() {
+                @Override
+                public void onGestureDetected() {
+                    TTEventBus.getInstance().dispatch(new TTEvent<>(new GestureDetectedData(server)));
+                }
+            }, this.useBlackSide);
             this.waitingForGesture = true;
         }
     }
@@ -427,7 +517,8 @@ public class MatchVisualizeHandler extends android.os.Handler implements EventDe
 
     private void drawTrack(Canvas canvas, Track t) {
         // only draw the tracks which get processed by EventDetector
-        t.updateColor();
+        FrameClock clock = this.frameClock;
+        t.updateColor(clock != null ? clock.nanoTime() : System.nanoTime());
         Lib.Detection pre = t.getLatest();
         cz.fmo.util.Color.RGBA r = t.getColor();
         int c = Color.argb(255, Math.round(r.rgba[0] * 255), Math.round(r.rgba[1] * 255), Math.round(r.rgba[2] * 255));
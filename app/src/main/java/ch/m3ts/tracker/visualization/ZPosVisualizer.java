@@ -1,7 +1,9 @@
 package ch.m3ts.tracker.visualization;
 
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Paint;
+import android.graphics.RectF;
 
 import ch.m3ts.detection.ZPositionCalc;
 import ch.m3ts.display.statistic.data.DetectionData;
@@ -75,4 +77,12 @@ public class ZPosVisualizer {
         float y = Math.round(originY + heightFullPx - (float) detectionData.getZ() * heightFullPx);
         canvas.drawCircle(x, y, 20, detectionPaint);
     }
+
+    /**
+     * Scales the bitmap onto the bird view, its top row on the far side of the table (z = 1).
+     */
+    public void drawDensity(Canvas canvas, Bitmap density) {
+        RectF bounds = new RectF(originX, originY, originX + widthPx, originY + heightFullPx);
+        canvas.drawBitmap(density, null, bounds, detectionPaint);
+    }
 }
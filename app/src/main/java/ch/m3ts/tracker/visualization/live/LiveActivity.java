@@ -81,7 +81,7 @@ public final class LiveActivity extends MatchVisualizeActivity {
         Assets.getInstance().load(this);
 
         // create a dedicated camera input thread
-        mCamera = new CameraThread(this.cameraCallback, mConfig);
+        mCamera = new CameraThread(this.cameraCallback, mConfig, this);
         this.cameraHorizontalAngle = mCamera.getCameraHorizontalViewAngle();
 
         // add preview as camera target
@@ -90,14 +90,23 @@ public final class LiveActivity extends MatchVisualizeActivity {
                 cameraView.getWidth(), cameraView.getHeight());
         mCamera.addTarget(mPreviewTarget);
 
+        mCamera.setDebugOverlay(mConfig.isUseDebug());
         if (mConfig.isSlowPreview()) {
             mPreviewTarget.setSlowdown(PREVIEW_SLOWDOWN_FRAMES);
+        } else if (!mConfig.isUseDebug()) {
+            // the table is already located and nobody watches the tracker during a match
+            mPreviewTarget.setDebugOnly();
         }
 
         // refresh GUI
         mStatus = CameraStatus.RUNNING;
 
-        if (mConfig.doRecordMatches()) {
+        Table table = trySettingTableLocationFromIntent();
+        if (mConfig.doRecordRallies()) {
+            if (liveRecording != null) liveRecording.tearDown();
+            liveRecording = LiveRecording.getInstance(this, mCamera, LiveRecording.RALLY_BUFFER_SECONDS);
+            liveRecording.startRallyRecording(this, mHandler.getReferee(), table);
+        } else if (mConfig.doRecordMatches()) {
             if (liveRecording != null) liveRecording.tearDown();
             liveRecording = LiveRecording.getInstance(this, mCamera);
             liveRecording.startRecording();
@@ -105,8 +114,8 @@ public final class LiveActivity extends MatchVisualizeActivity {
 
         // start thread
         mCamera.start();
-        Table table = trySettingTableLocationFromIntent();
-        mHandler.init(mConfig, this.getCameraWidth(), this.getCameraHeight(), table, this.getCameraHorizontalViewAngle());
+        mHandler.init(mConfig.withFrameRate(mCamera.getFrameRate()), this.getCameraWidth(), this.getCameraHeight(),
+                table, this.getCameraHorizontalViewAngle());
         mHandler.startDetections();
     }
 
@@ -134,6 +143,12 @@ public final class LiveActivity extends MatchVisualizeActivity {
         if (liveRecording != null) liveRecording.tearDown();
     }
 
+    @Override
+    protected void onDestroy() {
+        this.mHandler.onDestroyActivity();
+        super.onDestroy();
+    }
+
     @Override
     public void onBackPressed() {
         alertDialog.show();
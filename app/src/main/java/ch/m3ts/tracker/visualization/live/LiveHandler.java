@@ -6,9 +6,9 @@ import android.widget.TextView;
 
 import com.google.android.gms.nearby.connection.PayloadCallback;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.ref.WeakReference;
-import java.util.Date;
-import java.util.Timer;
 
 import ch.m3ts.connection.ConnectionCallback;
 import ch.m3ts.connection.ConnectionHelper;
@@ -16,26 +16,30 @@ import ch.m3ts.connection.ImplTrackerConnection;
 import ch.m3ts.connection.NearbyTrackerConnection;
 import ch.m3ts.connection.TrackerConnection;
 import ch.m3ts.connection.pubnub.PubNubFactory;
+import ch.m3ts.detection.gesture.GestureDetectionThread;
 import ch.m3ts.eventbus.Event;
 import ch.m3ts.eventbus.TTEventBus;
 import ch.m3ts.eventbus.event.RestartMatchData;
 import ch.m3ts.tabletennis.match.Match;
 import ch.m3ts.tabletennis.match.MatchSettings;
+import ch.m3ts.tabletennis.match.MatchStatus;
 import ch.m3ts.tabletennis.match.MatchType;
 import ch.m3ts.tabletennis.match.Player;
 import ch.m3ts.tabletennis.match.ServeRules;
 import ch.m3ts.tabletennis.match.game.GameType;
+import ch.m3ts.tabletennis.match.log.MatchLog;
+import ch.m3ts.tabletennis.match.log.MatchLogReader;
 import ch.m3ts.tracker.visualization.DebugHandlerRefreshTimerTask;
 import ch.m3ts.tracker.visualization.MatchVisualizeActivity;
 import ch.m3ts.tracker.visualization.MatchVisualizeHandler;
 import ch.m3ts.util.Log;
-import ch.m3ts.util.OpenCVHelper;
 import ch.m3ts.util.Side;
 import cz.fmo.Lib;
 import cz.fmo.R;
 import cz.fmo.camera.CameraThread;
 import cz.fmo.data.Track;
 import cz.fmo.util.Config;
+import cz.fmo.util.FileManager;
 
 /**
  * Renders the images received by the camera API onto the screen and also passes them to FMO.
@@ -45,14 +49,21 @@ import cz.fmo.util.Config;
  **/
 public class LiveHandler extends MatchVisualizeHandler implements CameraThread.Callback, ConnectionCallback {
     private static final int CAMERA_ERROR = 2;
+    private static final String MATCH_LOG_NAME = "match";
+    // a match without id is only resumed from a log written to shortly before
+    private static final long MATCH_LOG_MAX_AGE_MS = 30 * 60 * 1000L;
     private final boolean doDrawDebugInfo;
     private final WeakReference<LiveActivity> mLiveActivity;
+    private final String matchID;
     private TrackerConnection connection;
+    private volatile GestureDetectionThread gestureThread;
+    private MatchLog matchLog;
 
     public LiveHandler(@NonNull MatchVisualizeActivity activity, String matchID) {
         super(activity);
         this.doDrawDebugInfo = new Config(activity).isUseDebug();
         this.mLiveActivity = new WeakReference<>((LiveActivity) activity);
+        this.matchID = matchID;
         TextView displayConnectedText = (TextView) activity.findViewById(R.id.display_connected_status);
         try {
             if (new Config(mLiveActivity.get()).isUsingPubnub()) {
@@ -77,12 +88,29 @@ public class LiveHandler extends MatchVisualizeHandler implements CameraThread.C
     public void onResumeActivity() {
         TTEventBus.getInstance().register((ImplTrackerConnection) this.connection);
         super.onResumeActivity();
+        gestureThread = new GestureDetectionThread();
+        gestureThread.start();
     }
 
     @Override
     public void onPauseActivity() {
         TTEventBus.getInstance().unregister((ImplTrackerConnection) this.connection);
         super.onPauseActivity();
+        GestureDetectionThread thread = gestureThread;
+        gestureThread = null;
+        if (thread != null) thread.quit();
+    }
+
+    @Override
+    public void onDestroyActivity() {
+        super.onDestroyActivity();
+        if (this.matchLog != null) {
+            try {
+                this.matchLog.close();
+            } catch (IOException ex) {
+                Log.e("Could not close the match log", ex);
+            }
+        }
     }
 
     @Override
@@ -96,8 +124,9 @@ public class LiveHandler extends MatchVisualizeHandler implements CameraThread.C
     @Override
     public void onCameraFrame(byte[] dataYUV420SP) {
         Lib.detectionFrame(dataYUV420SP);
-        if(isWaitingForGesture()) {
-            setWaitingForGesture(!getServeDetector().isReadyToServe(OpenCVHelper.convertYUVBytesToBGRMat(dataYUV420SP, getVideoWidth(), getVideoHeight())));
+        GestureDetectionThread thread = gestureThread;
+        if(isWaitingForGesture() && thread != null) {
+            thread.submitFrame(dataYUV420SP, getVideoWidth(), getVideoHeight(), getServeDetector());
         }
     }
 
@@ -110,17 +139,55 @@ public class LiveHandler extends MatchVisualizeHandler implements CameraThread.C
     @Override
     public void initMatch(Side servingSide, MatchType matchType, Player playerLeft, Player playerRight) {
         this.matchSettings = new MatchSettings(matchType, GameType.G11, ServeRules.S2, playerLeft, playerRight, servingSide);
+        if (this.match != null) this.match.release();
         this.match = new Match(matchSettings);
         if (mLiveActivity.get() != null)
             this.match.getReferee().debugToFile(mLiveActivity.get().getApplicationContext());
         this.connection.setTrackerPubNubCallback(match);
-        this.connection.sendStatusUpdate(playerLeft.getName(), playerRight.getName(), 0,0,0,0,servingSide, matchType.gamesNeededToWin);
+        startMatchLog();
+        MatchStatus status = this.match.onRequestMatchStatus();
+        this.connection.sendStatusUpdate(playerLeft.getName(), playerRight.getName(), status.getScoreLeft(), status.getScoreRight(),
+                status.getWinsLeft(), status.getWinsRight(), status.getNextServer(), matchType.gamesNeededToWin);
         startMatch();
         if(doDrawDebugInfo) {
             setTextInTextView(R.id.txtDebugPlayerNameLeft, playerLeft.getName());
             setTextInTextView(R.id.txtDebugPlayerNameRight, playerRight.getName());
-            Timer refreshTimer = new Timer();
-            refreshTimer.scheduleAtFixedRate(new DebugHandlerRefreshTimerTask(this), new Date(), MAX_REFRESHING_TIME_MS);
+            this.match.getScheduler().scheduleAtFixedRate(new DebugHandlerRefreshTimerTask(this), 0, MAX_REFRESHING_TIME_MS);
+        }
+    }
+
+    /**
+     * Records the match to the match log, after restoring it from the log if the app got killed
+     * during this match. The match is recognized by its id, a match without id (no PubNub room) by
+     * its settings and a log written to within MATCH_LOG_MAX_AGE_MS.
+     */
+    private void startMatchLog() {
+        LiveActivity activity = mLiveActivity.get();
+        if (activity == null) return;
+        FileManager fileManager = new FileManager(activity);
+        File logFile = fileManager.privateOpen(MATCH_LOG_NAME + MatchLog.LOG_EXTENSION);
+        File snapshotFile = fileManager.privateOpen(MATCH_LOG_NAME + MatchLog.SNAPSHOT_EXTENSION);
+        try {
+            if (this.matchLog != null) this.matchLog.close();
+            MatchLogReader.Recovery recovery = null;
+            if (logFile.exists()) {
+                try {
+                    recovery = MatchLogReader.read(logFile, snapshotFile);
+                } catch (IOException ex) {
+                    Log.e("Could not read the match log, starting a new one", ex);
+                }
+            }
+            if (recovery != null && !recovery.isMatchOver() && recovery.isOf(matchID, matchSettings) &&
+                    (matchID != null || System.currentTimeMillis() - recovery.getLastModified() < MATCH_LOG_MAX_AGE_MS)) {
+                this.match.restore(recovery.getSnapshot(), recovery.getTail());
+                this.matchLog = MatchLog.resume(recovery);
+                Log.d("Restored the match from its log");
+            } else {
+                this.matchLog = MatchLog.create(logFile, snapshotFile, matchID, matchSettings);
+            }
+            this.match.setLog(matchLog);
+        } catch (IOException ex) {
+            Log.e("Could not open the match log, the match will not be recoverable", ex);
         }
     }
 
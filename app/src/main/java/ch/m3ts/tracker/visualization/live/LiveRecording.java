@@ -3,47 +3,80 @@ package ch.m3ts.tracker.visualization.live;
 import android.content.Context;
 
 import java.io.File;
+import java.io.IOException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
 
+import ch.m3ts.eventbus.Subscribable;
+import ch.m3ts.eventbus.TTEventBus;
+import ch.m3ts.tabletennis.match.referee.Referee;
 import ch.m3ts.util.Log;
+import ch.m3ts.util.Table;
 import cz.fmo.camera.CameraThread;
 import cz.fmo.camera.RecordingCameraTarget;
 import cz.fmo.recording.CyclicBuffer;
 import cz.fmo.recording.EncodeThread;
-import cz.fmo.recording.ManualRecordingTask;
 import cz.fmo.recording.SaveThread;
+import cz.fmo.recording.SegmentIndex;
+import cz.fmo.recording.SegmentedRecordingTask;
+import cz.fmo.util.Config;
 import cz.fmo.util.FileManager;
 
 public class LiveRecording implements SaveThread.Callback {
     private static final float BUFFER_SECONDS = 8;
-    private static final String FILENAME = "recording_%s.mp4";
+    /**
+     * Length of the buffer needed by startRallyRecording(), longer rallies (including the wait for
+     * the serve) get cut at the start.
+     */
+    public static final float RALLY_BUFFER_SECONDS = 30;
+    private static final String DIRNAME = "recording_%s";
+    private static final String BUFFER_FILENAME = "recording_buffer.bin";
     private static LiveRecording instance;
     private FileManager mFileMan;
     private EncodeThread mEncode;
     private SaveThread mSaveMovie;
     private SaveThread.Task mSaveTask;
     private RecordingCameraTarget mEncodeTarget;
+    private CyclicBuffer mBuffer;
+    private RallyClipRecorder mRallyClipRecorder;
+    private Subscribable mPointMarker;
     private boolean isRecording = false;
 
     private LiveRecording() {
     }
 
     public static LiveRecording getInstance(Context ctx, CameraThread mCamera) {
+        return getInstance(ctx, mCamera, BUFFER_SECONDS);
+    }
+
+    /**
+     * @param bufferSeconds length of the video kept in the buffer, limits how far back a saved
+     *                      video may start
+     */
+    public static LiveRecording getInstance(Context ctx, CameraThread mCamera, float bufferSeconds) {
         if (instance == null) {
             instance = new LiveRecording();
         }
-        instance.setup(ctx, mCamera);
+        instance.setup(ctx, mCamera, bufferSeconds);
         return instance;
     }
 
     @Override
     public void saveCompleted(File file, boolean success) {
+        if (mRallyClipRecorder != null) {
+            mRallyClipRecorder.saveCompleted(file, success);
+            return;
+        }
+
         stopSaving();
 
-        if (success) {
+        if (success && file.isDirectory()) {
+            for (int segment = 0; SegmentIndex.getSegmentFile(file, segment).exists(); segment++) {
+                mFileMan.newMedia(SegmentIndex.getSegmentFile(file, segment));
+            }
+        } else if (success) {
             mFileMan.newMedia(file);
         }
 
@@ -51,7 +84,12 @@ public class LiveRecording implements SaveThread.Callback {
     }
 
     public void tearDown() {
+        if (mPointMarker != null) {
+            TTEventBus.getInstance().unregister(mPointMarker);
+            mPointMarker = null;
+        }
         stopSaving();
+        stopRallyRecording();
 
         if (mSaveMovie != null) {
             mSaveMovie.getHandler().sendKill();
@@ -74,36 +112,74 @@ public class LiveRecording implements SaveThread.Callback {
             }
             mEncode = null;
         }
+
+        if (mBuffer != null) {
+            mBuffer.release();
+            mBuffer = null;
+        }
     }
 
     public EncodeThread getmEncode() {
         return mEncode;
     }
 
+    /**
+     * Records the whole match into segments, along with an index of the points (see
+     * SegmentedRecordingTask).
+     */
     public void startRecording() {
         isRecording = true;
         setEncodingEnabled(true);
         Date date = Calendar.getInstance().getTime();
         DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd_hh_mm_ss");
         String strDate = dateFormat.format(date);
-        File outFile = mFileMan.open(String.format(FILENAME, strDate));
-        mSaveTask = new ManualRecordingTask(outFile, mSaveMovie);
+        File outDir = mFileMan.open(String.format(DIRNAME, strDate));
+        SegmentedRecordingTask task = new SegmentedRecordingTask(outDir, mSaveMovie);
+        mSaveTask = task;
+        mPointMarker = new PointMarker(task);
+        TTEventBus.getInstance().register(mPointMarker);
+    }
+
+    /**
+     * Saves every rally as a separate clip, see RallyClipRecorder. Can't be combined with
+     * startRecording(), as the buffer only supports one video being saved at a time.
+     *
+     * @param ctx     context used to access the storage
+     * @param referee referee of the match, queried for the reason of each point
+     * @param table   location of the table in the camera frames, stored with the clips
+     */
+    public void startRallyRecording(Context ctx, Referee referee, Table table) {
+        isRecording = true;
+        setEncodingEnabled(true);
+        mRallyClipRecorder = new RallyClipRecorder(ctx, mSaveMovie, referee, table);
+        TTEventBus.getInstance().register(mRallyClipRecorder);
     }
 
     public boolean isRecording() {
         return isRecording;
     }
 
-    private void setup(Context ctx, CameraThread mCamera) {
+    private void setup(Context ctx, CameraThread mCamera, float bufferSeconds) {
         this.mFileMan = new FileManager(ctx);
         // if recording is enabled...
-        // make a suitably-sized cyclic buffer
-        CyclicBuffer buffer = new CyclicBuffer(mCamera.getBitRate(), mCamera.getFrameRate(),
-                BUFFER_SECONDS);
+        // make a suitably-sized cyclic buffer, backed by a file if set to keep it off the Java heap
+        if (mBuffer != null) mBuffer.release();
+        mBuffer = null;
+        if (new Config(ctx).doBufferInFile()) {
+            try {
+                mBuffer = CyclicBuffer.mapFile(mCamera.getBitRate(), mCamera.getFrameRate(),
+                        bufferSeconds, new File(ctx.getCacheDir(), BUFFER_FILENAME));
+            } catch (IOException e) {
+                Log.e("Unable to map the recording buffer, using the Java heap instead", e);
+            }
+        }
+        if (mBuffer == null) {
+            mBuffer = new CyclicBuffer(mCamera.getBitRate(), mCamera.getFrameRate(), bufferSeconds);
+        }
 
         // create dedicated encoding and video saving threads
-        mEncode = new EncodeThread(mCamera.getMediaFormat(), buffer);
-        mSaveMovie = new SaveThread(buffer, this);
+        mEncode = new EncodeThread(mCamera.getMediaFormat(), mBuffer);
+        mSaveMovie = new SaveThread(mBuffer, this);
 
         // add encoder as camera target
         mEncodeTarget = new RecordingCameraTarget(mEncode.getInputSurface(),
@@ -132,6 +208,14 @@ public class LiveRecording implements SaveThread.Callback {
         }
     }
 
+    private void stopRallyRecording() {
+        if (mRallyClipRecorder != null) {
+            TTEventBus.getInstance().unregister(mRallyClipRecorder);
+            mRallyClipRecorder.stop();
+            mRallyClipRecorder = null;
+        }
+    }
+
     /**
      * Ceases any saving operation, scheduled or in progress.
      */
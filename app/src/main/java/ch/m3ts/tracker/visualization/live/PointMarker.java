@@ -0,0 +1,71 @@
+package ch.m3ts.tracker.visualization.live;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import ch.m3ts.eventbus.Event;
+import ch.m3ts.eventbus.Subscribable;
+import ch.m3ts.eventbus.event.RestartMatchData;
+import ch.m3ts.eventbus.event.todisplay.ScoreData;
+import ch.m3ts.eventbus.event.todisplay.ToDisplayGameWinData;
+import ch.m3ts.util.Side;
+import cz.fmo.recording.SegmentedRecordingTask;
+
+/**
+ * Marks the points of the match in the index of a SegmentedRecordingTask, numbered by the score:
+ * a point is numbered by the points played in the match before it. Points deducted by the referee
+ * are not marked, the point scored instead is marked with the same number and replaces the one
+ * which got deducted.
+ */
+class PointMarker implements Subscribable {
+    private final SegmentedRecordingTask task;
+    private final List<Map<Side, Integer>> gameScores = new ArrayList<>();
+
+    PointMarker(SegmentedRecordingTask task) {
+        this.task = task;
+        startGame();
+    }
+
+    @Override
+    public synchronized void handle(Event<?> event) {
+        Object data = event.getData();
+        if (data instanceof ScoreData) {
+            onScore((ScoreData) data);
+        } else if (data instanceof ToDisplayGameWinData) {
+            startGame();
+        } else if (data instanceof RestartMatchData) {
+            gameScores.clear();
+            startGame();
+        }
+    }
+
+    private void onScore(ScoreData scoreData) {
+        Map<Side, Integer> scores = gameScores.get(gameScores.size() - 1);
+        int lastScore = scores.get(scoreData.getScorer());
+        if (scoreData.getScore() > lastScore + 1 && gameScores.size() > 1) {
+            // the win of the previous game got reverted, its last point is being corrected
+            gameScores.remove(gameScores.size() - 1);
+            scores = gameScores.get(gameScores.size() - 1);
+            lastScore = scores.get(scoreData.getScorer());
+        }
+        scores.put(scoreData.getScorer(), scoreData.getScore());
+        if (scoreData.getScore() > lastScore) task.markPoint(getPointsPlayed() - 1);
+    }
+
+    private int getPointsPlayed() {
+        int points = 0;
+        for (Map<Side, Integer> scores : gameScores) {
+            points += scores.get(Side.LEFT) + scores.get(Side.RIGHT);
+        }
+        return points;
+    }
+
+    private void startGame() {
+        Map<Side, Integer> scores = new EnumMap<>(Side.class);
+        scores.put(Side.LEFT, 0);
+        scores.put(Side.RIGHT, 0);
+        gameScores.add(scores);
+    }
+}
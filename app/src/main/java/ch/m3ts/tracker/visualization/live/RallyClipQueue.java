@@ -0,0 +1,147 @@
+package ch.m3ts.tracker.visualization.live;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import cz.fmo.recording.SaveThread;
+
+/**
+ * Clips of rallies waiting to be saved. The buffer has only one pin (see CyclicBuffer), so the
+ * clips are saved one after the other: a rally ending while the clip of the previous one is still
+ * being saved waits for it, instead of cutting its margin short. The start margin of a waiting clip
+ * overlaps the end of the clip being saved, whose pin moves past it, so the Saver is asked to keep
+ * the frames of the earliest waiting clip until it gets started.
+ */
+class RallyClipQueue {
+    private final Saver saver;
+    private final LinkedList<Clip> pending = new LinkedList<>();
+    private Clip current;
+    private SaveThread.Task task;
+
+    interface Saver {
+        /**
+         * Starts to save the clip, SaveThread.Callback is to report its completion to
+         * onCompleted().
+         */
+        SaveThread.Task save(Clip clip);
+
+        /**
+         * Keeps the frames of the clip (including its margin) in the buffer until the next call,
+         * null to stop keeping frames.
+         */
+        void keep(Clip clip);
+    }
+
+    static class Clip {
+        private final File file;
+        private final long startUs;
+        private final long endUs;
+        private boolean isDiscarded = false;
+
+        /**
+         * @param startUs presentation time the rally started at
+         * @param endUs   presentation time the rally ended at
+         */
+        Clip(File file, long startUs, long endUs) {
+            this.file = file;
+            this.startUs = startUs;
+            this.endUs = endUs;
+        }
+
+        File getFile() {
+            return file;
+        }
+
+        long getStartUs() {
+            return startUs;
+        }
+
+        long getEndUs() {
+            return endUs;
+        }
+
+        boolean isDiscarded() {
+            return isDiscarded;
+        }
+
+        void discard() {
+            isDiscarded = true;
+        }
+    }
+
+    RallyClipQueue(Saver saver) {
+        this.saver = saver;
+    }
+
+    /**
+     * Saves the clip once the clips added before are saved.
+     */
+    void add(Clip clip) {
+        pending.add(clip);
+        startNext();
+    }
+
+    /**
+     * Call once a clip is saved, starts the next one.
+     */
+    void onCompleted(File file) {
+        if (current == null || !current.getFile().equals(file)) return;
+        current = null;
+        task = null;
+        startNext();
+    }
+
+    /**
+     * @return true if the clip being saved is the given one and got dropped by removeLast(), it is
+     * to be deleted once completed instead of being published
+     */
+    boolean isDiscarded(File file) {
+        return current != null && current.getFile().equals(file) && current.isDiscarded();
+    }
+
+    /**
+     * Drops the clip added last, e.g. as its point got corrected. If it is being saved already, it
+     * is marked as discarded (see isDiscarded()) and finished early.
+     */
+    void removeLast() {
+        if (!pending.isEmpty()) {
+            pending.removeLast();
+            saver.keep(pending.peekFirst());
+        } else if (task != null) {
+            // terminating may complete the clip right away
+            current.discard();
+            task.terminate();
+        }
+    }
+
+    /**
+     * Finishes the clip being saved and drops the ones waiting.
+     *
+     * @return clips which were dropped without being saved
+     */
+    List<Clip> clear() {
+        List<Clip> dropped = new ArrayList<>(pending);
+        pending.clear();
+        saver.keep(null);
+        if (task != null) task.terminate();
+        return dropped;
+    }
+
+    int getPendingCount() {
+        return pending.size();
+    }
+
+    private void startNext() {
+        while (current == null && !pending.isEmpty()) {
+            Clip clip = pending.removeFirst();
+            current = clip;
+            SaveThread.Task started = saver.save(clip);
+            // a clip which could not be started is completed already
+            if (current == clip) task = started;
+        }
+        // the clip being saved is pinned by now
+        saver.keep(pending.peekFirst());
+    }
+}
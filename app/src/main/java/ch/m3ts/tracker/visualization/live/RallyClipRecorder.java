@@ -0,0 +1,239 @@
+package ch.m3ts.tracker.visualization.live;
+
+import android.content.Context;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import ch.m3ts.eventbus.Event;
+import ch.m3ts.eventbus.Subscribable;
+import ch.m3ts.eventbus.event.RestartMatchData;
+import ch.m3ts.eventbus.event.todisplay.ReadyToServeData;
+import ch.m3ts.eventbus.event.todisplay.ScoreData;
+import ch.m3ts.eventbus.event.todisplay.ToDisplayGameWinData;
+import ch.m3ts.tabletennis.match.referee.Referee;
+import ch.m3ts.tracker.visualization.replay.benchmark.BenchmarkClipManager;
+import ch.m3ts.util.AsyncLogWriter;
+import ch.m3ts.util.CSVStringBuilder;
+import ch.m3ts.util.Log;
+import ch.m3ts.util.Side;
+import ch.m3ts.util.Table;
+import ch.m3ts.util.XMLLoader;
+import cz.fmo.recording.AutomaticRecordingTask;
+import cz.fmo.recording.SaveThread;
+import cz.fmo.util.FileManager;
+import cz.fmo.util.Time;
+
+/**
+ * Cuts the live recording into one clip per rally, named after the score like the clips of the
+ * benchmark (see BenchmarkClipManager). Every game of the match ends up in its own test set, with
+ * the table location and the serving side in a !test_ xml file next to the clips, so that the
+ * BenchmarkActivity picks it up like the test sets of the assets.
+ * <p>
+ * A rally starts with the previous point (or with the ready to serve gesture, if it is used) and
+ * ends with the next ScoreData. Next to every clip, a CSV sidecar holds the decision of the referee.
+ * The clips are saved one after the other, see RallyClipQueue.
+ */
+public class RallyClipRecorder implements Subscribable {
+    private static final float MARGIN_SEC = 1.f;
+    private static final String CLIP_FILENAME = "%d_%d.mp4";
+    private static final String SIDECAR_EXTENSION = ".csv";
+    private static final String TEST_SET_NAME = "match_%s_game_%d";
+    private final Context context;
+    private final SaveThread saveThread;
+    private final Referee referee;
+    private final Table table;
+    private final String matchName;
+    private final List<Map<Side, Integer>> gameScores;
+    private final RallyClipQueue clips;
+    private FileManager fileManager;
+    private String testSet;
+    private long rallyStartUs = 0;
+    private boolean isStopped = false;
+
+    /**
+     * @param table location of the table in the recorded frames
+     */
+    RallyClipRecorder(Context context, SaveThread saveThread, Referee referee, Table table) {
+        this.context = context;
+        this.saveThread = saveThread;
+        this.referee = referee;
+        this.table = table;
+        DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd_HH_mm_ss", Locale.US);
+        this.matchName = dateFormat.format(Calendar.getInstance().getTime());
+        this.gameScores = new ArrayList<>();
+        this.clips = new RallyClipQueue(new RallyClipQueue.Saver() {
+            @Override
+            public SaveThread.Task save(RallyClipQueue.Clip clip) {
+                return new AutomaticRecordingTask(clip.getStartUs(), clip.getEndUs(), MARGIN_SEC, clip.getFile(),
+                        saveThread);
+            }
+
+            @Override
+            public void keep(RallyClipQueue.Clip clip) {
+                if (clip == null) {
+                    saveThread.releaseFrames();
+                } else {
+                    saveThread.keepFrames(clip.getStartUs() - Time.toUs(MARGIN_SEC));
+                }
+            }
+        });
+        startGame();
+    }
+
+    @Override
+    public synchronized void handle(Event<?> event) {
+        Object data = event.getData();
+        if (data instanceof ScoreData) {
+            onScore((ScoreData) data);
+        } else if (data instanceof ReadyToServeData) {
+            rallyStartUs = saveThread.getLatestTimeUs();
+        } else if (data instanceof ToDisplayGameWinData) {
+            startGame();
+        } else if (data instanceof RestartMatchData) {
+            gameScores.clear();
+            startGame();
+            rallyStartUs = saveThread.getLatestTimeUs();
+        }
+    }
+
+    /**
+     * Handles the result of the save operation for a clip, to be called from SaveThread.Callback.
+     */
+    synchronized void saveCompleted(File file, boolean success) {
+        if (clips.isDiscarded(file)) {
+            // the point of the clip got corrected while it was being saved
+            delete(file);
+        } else if (success) {
+            fileManager.newMedia(file);
+        } else {
+            Log.w("Unable to save rally clip " + file.getName());
+            delete(file);
+        }
+        clips.onCompleted(file);
+    }
+
+    /**
+     * Finishes the clip currently being saved and drops the ones waiting, no new clips will be
+     * started afterwards.
+     */
+    synchronized void stop() {
+        isStopped = true;
+        for (RallyClipQueue.Clip clip : clips.clear()) delete(clip.getFile());
+    }
+
+    private void onScore(ScoreData scoreData) {
+        Map<Side, Integer> scores = gameScores.get(gameScores.size() - 1);
+        int lastScore = scores.get(scoreData.getScorer());
+        long nowUs = saveThread.getLatestTimeUs();
+
+        if (scoreData.getScore() > lastScore + 1 && gameScores.size() > 1) {
+            // the win of the previous game got reverted, its last point is being corrected
+            revertGame();
+            scores = gameScores.get(gameScores.size() - 1);
+            lastScore = scores.get(scoreData.getScorer());
+        }
+
+        if (scoreData.getScore() > lastScore) {
+            scores.put(scoreData.getScorer(), scoreData.getScore());
+            saveRally(scores, scoreData, nowUs);
+        } else if (scoreData.getScore() < lastScore) {
+            // the last point got corrected, its clip is labelled wrong
+            clips.removeLast();
+            delete(fileManager.open(makeClipName(scores)));
+            scores.put(scoreData.getScorer(), scoreData.getScore());
+        }
+        rallyStartUs = nowUs;
+    }
+
+    private void saveRally(Map<Side, Integer> scores, ScoreData scoreData, long nowUs) {
+        if (isStopped || nowUs < 0) return;
+
+        File clip = fileManager.open(makeClipName(scores));
+        File sidecarFile = getSidecar(clip);
+        String sidecarHeader = CSVStringBuilder.builder()
+                .add("decision")
+                .add("point_for_side")
+                .add("server_side")
+                .add("start_us")
+                .add("end_us")
+                .toString();
+        String sidecar = CSVStringBuilder.builder()
+                .add(referee.getLastDecision())
+                .add(scoreData.getScorer())
+                .add(scoreData.getLastServer())
+                .add(String.valueOf(rallyStartUs))
+                .add(String.valueOf(nowUs))
+                .toString();
+        delete(clip);
+        writeTestSet(scoreData.getLastServer());
+        Log.d(sidecarHeader, sidecarFile);
+        Log.d(sidecar, sidecarFile);
+        clips.add(new RallyClipQueue.Clip(clip, rallyStartUs, nowUs));
+    }
+
+    private void startGame() {
+        Map<Side, Integer> scores = new EnumMap<>(Side.class);
+        scores.put(Side.LEFT, 0);
+        scores.put(Side.RIGHT, 0);
+        gameScores.add(scores);
+        openTestSet();
+    }
+
+    private void revertGame() {
+        if (gameScores.size() <= 1) return;
+        gameScores.remove(gameScores.size() - 1);
+        openTestSet();
+    }
+
+    private void openTestSet() {
+        testSet = String.format(Locale.US, TEST_SET_NAME, matchName, gameScores.size());
+        fileManager = new FileManager(context, testSet);
+    }
+
+    /**
+     * Writes the xml file of the test set along with its first clip, whose server is the one
+     * serving first in the game.
+     */
+    private void writeTestSet(Side firstServer) {
+        File testSetFile = fileManager.open(BenchmarkClipManager.BENCHMARK_PREFIX + testSet +
+                BenchmarkClipManager.TEST_SET_EXTENSION);
+        if (testSetFile.exists()) return;
+        try {
+            XMLLoader.storeTestSet(testSetFile, table, firstServer);
+        } catch (IOException ex) {
+            Log.e("Unable to write the test set of " + testSet, ex);
+        }
+    }
+
+    private static String makeClipName(Map<Side, Integer> scores) {
+        return String.format(Locale.US, CLIP_FILENAME, scores.get(Side.LEFT), scores.get(Side.RIGHT));
+    }
+
+    private static File getSidecar(File clip) {
+        String name = clip.getName();
+        return new File(clip.getParentFile(), name.substring(0, name.lastIndexOf('.')) + SIDECAR_EXTENSION);
+    }
+
+    private static void delete(File clip) {
+        File sidecar = getSidecar(clip);
+        try {
+            // lines still queued would recreate the sidecar, or go to the deleted file if open
+            AsyncLogWriter.getInstance().close(sidecar);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Log.w("Interrupted while closing " + sidecar.getName());
+        }
+        if ((clip.exists() && !clip.delete()) || (sidecar.exists() && !sidecar.delete())) {
+            Log.w("Unable to delete rally clip " + clip.getName());
+        }
+    }
+}
@@ -83,6 +83,7 @@ public class ReplayActivity extends MatchVisualizeActivity implements OnItemSele
     private boolean mShowStopLabel;
     private VideoPlayer.PlayTask mPlayTask;
     private ReplayHandler mHandler;
+    private boolean isFastMode;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -90,6 +91,8 @@ public class ReplayActivity extends MatchVisualizeActivity implements OnItemSele
         // Populate file-selection spinner.
         Spinner spinner = findViewById(R.id.playMovieFile_spinner);
         this.mHandler = new ReplayHandler(this);
+        this.isFastMode = new Config(this).isFastReplay();
+        this.mHandler.setFastMode(isFastMode);
         // Need to create one of these fancy ArrayAdapter thingies, and specify the generic layout
         // for the widget itself.
         mMovieFiles = mFileMan.listMP4();
@@ -166,6 +169,12 @@ public class ReplayActivity extends MatchVisualizeActivity implements OnItemSele
         mHandler.stopDetections();
     }
 
+    @Override
+    protected void onDestroy() {
+        this.mHandler.onDestroyActivity();
+        super.onDestroy();
+    }
+
     /**
      * Requests stoppage if a movie is currently playing.
      */
@@ -226,7 +235,8 @@ public class ReplayActivity extends MatchVisualizeActivity implements OnItemSele
             }
             this.mHandler.onResumeActivity();
             Log.d("starting movie");
-            SpeedControlCallback callback = new SpeedControlCallback();
+            // in fast mode, frames are paced by FMO instead
+            SpeedControlCallback callback = isFastMode ? null : new SpeedControlCallback();
             SurfaceHolder holder = getmSurfaceView().getHolder();
             SurfaceHolder holderTracks = getmSurfaceTrack().getHolder();
             Surface surface = holder.getSurface();
@@ -242,7 +252,7 @@ public class ReplayActivity extends MatchVisualizeActivity implements OnItemSele
                 mHandler.initMatch(servingSide);
                 player = new VideoPlayer(mFileMan.open(mMovieFiles[mSelectedMovie]), surface,
                         callback, mHandler);
-                Config mConfig = new Config(this);
+                Config mConfig = new Config(this).withFrameRate(player.getmFrameRate());
                 Table table = XMLLoader.loadTable(mMovieFiles[mSelectedMovie], getAssets());
                 if (table != null) {
                     mHandler.init(mConfig, player.getVideoWidth(), player.getVideoHeight(), table, VIEWING_ANGLE_HORIZONTAL);
@@ -1,5 +1,9 @@
 package ch.m3ts.tracker.visualization.replay;
 
 public interface ReplayDetectionCallback {
-    void onEncodedFrame(byte[] dataYUV420SP);
+    /**
+     * @param dataYUV420SP       decoded frame
+     * @param presentationTimeUs presentation time of the frame, in microseconds
+     */
+    void onEncodedFrame(byte[] dataYUV420SP, long presentationTimeUs);
 }
@@ -6,6 +6,7 @@ import ch.m3ts.tabletennis.match.MatchType;
 import ch.m3ts.tabletennis.match.Player;
 import ch.m3ts.tracker.visualization.MatchVisualizeActivity;
 import ch.m3ts.tracker.visualization.MatchVisualizeHandler;
+import ch.m3ts.util.FrameClock;
 import ch.m3ts.util.Log;
 import ch.m3ts.util.Side;
 import cz.fmo.Lib;
@@ -15,6 +16,9 @@ import cz.fmo.Lib;
  * <p>
  * FMO then finds detections and tracks and forwards them to the EventDetector, which then calls
  * for events on this Handler.
+ * <p>
+ * In fast mode, each frame is handed to FMO only after the previous one has been processed and
+ * detections and timeouts are timed by the presentation times of the frames (see FrameClock).
  **/
 public class ReplayHandler extends MatchVisualizeHandler implements ReplayDetectionCallback {
     public ReplayHandler(@NonNull MatchVisualizeActivity activity) {
@@ -26,10 +30,23 @@ public class ReplayHandler extends MatchVisualizeHandler implements ReplayDetect
         super.deactivateReadyToServeGesture();
     }
 
+    /**
+     * @param fastMode true if the video is decoded as fast as possible instead of in real time
+     */
+    public void setFastMode(boolean fastMode) {
+        setFrameClock(fastMode ? new FrameClock() : null);
+    }
+
     @Override
-    public void onEncodedFrame(byte[] dataYUV420SP) {
+    public void onEncodedFrame(byte[] dataYUV420SP, long presentationTimeUs) {
         try {
-            Lib.detectionFrame(dataYUV420SP);
+            FrameClock frameClock = getFrameClock();
+            if (frameClock != null) {
+                frameClock.advance(presentationTimeUs);
+                Lib.detectionFrameSync(dataYUV420SP);
+            } else {
+                Lib.detectionFrame(dataYUV420SP);
+            }
         } catch (Exception ex) {
             Log.e(ex.getMessage(), ex);
         }
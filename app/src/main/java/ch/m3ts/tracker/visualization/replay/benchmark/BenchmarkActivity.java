@@ -24,7 +24,11 @@ import android.view.View;
 import android.widget.Button;
 import android.widget.Toast;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import ch.m3ts.tracker.visualization.MatchVisualizeActivity;
 import ch.m3ts.tracker.visualization.replay.lib.SpeedControlCallback;
@@ -45,7 +49,6 @@ import cz.fmo.util.FileManager;
 @SuppressWarnings("squid:S110")
 public class BenchmarkActivity extends MatchVisualizeActivity implements VideoPlayer.PlayerFeedback, View.OnClickListener {
     private static final double VIEWING_ANGLE_HORIZONTAL = 66.56780242919922; // viewing angle of phone which we used for recordings
-    private static final String BENCHMARK_PREFIX = "!test_";
     private int[] nTotalJudgements;
     private int[] nCorrectJudgements;
     private boolean mShowStopLabel;
@@ -53,12 +56,15 @@ public class BenchmarkActivity extends MatchVisualizeActivity implements VideoPl
     private VideoPlayer.PlayTask mPlayTask;
     private BenchmarkHandler mHandler;
     private BenchmarkClipManager clipManager;
+    private boolean isFastMode;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         this.mHandler = new BenchmarkHandler(this);
-        String[] testSets = getResources().getStringArray(R.array.testSets);
+        this.isFastMode = new Config(this).isFastReplay();
+        this.mHandler.setFastMode(isFastMode);
+        String[] testSets = listTestSets();
         String[][] clips = new String[testSets.length][];
         this.nCorrectJudgements = new int[testSets.length];
         this.nTotalJudgements = new int[testSets.length];
@@ -76,6 +82,25 @@ public class BenchmarkActivity extends MatchVisualizeActivity implements VideoPl
         updateControls();
     }
 
+    /**
+     * @return the test sets of the assets, followed by the ones recorded on the device (see
+     * RallyClipRecorder), which carry their xml file next to their clips
+     */
+    private String[] listTestSets() {
+        List<String> testSets = new ArrayList<>(Arrays.asList(getResources().getStringArray(R.array.testSets)));
+        for (String testSet : new FileManager(this).listTestSets()) {
+            if (!testSets.contains(testSet) && getRecordedTestSetFile(testSet).exists()) {
+                testSets.add(testSet);
+            }
+        }
+        return testSets.toArray(new String[0]);
+    }
+
+    private File getRecordedTestSetFile(String testSet) {
+        return new FileManager(this, testSet).open(BenchmarkClipManager.BENCHMARK_PREFIX + testSet +
+                BenchmarkClipManager.TEST_SET_EXTENSION);
+    }
+
     /**
      * onClick handler of "start benchmark" button
      */
@@ -172,6 +197,12 @@ public class BenchmarkActivity extends MatchVisualizeActivity implements VideoPl
         mHandler.stopDetections();
     }
 
+    @Override
+    protected void onDestroy() {
+        this.mHandler.onDestroyActivity();
+        super.onDestroy();
+    }
+
     /**
      * Updates the on-screen controls to reflect the current state of the app.
      */
@@ -232,13 +263,17 @@ public class BenchmarkActivity extends MatchVisualizeActivity implements VideoPl
 
         VideoPlayer player;
         try {
-            Side servingSide = XMLLoader.loadServingSide(BENCHMARK_PREFIX + clipManager.getCurrentTestSet(), getAssets());
+            String testSet = clipManager.getCurrentTestSet();
+            File recordedTestSet = getRecordedTestSetFile(testSet);
+            Side servingSide = recordedTestSet.exists() ? XMLLoader.loadServingSide(recordedTestSet) :
+                    XMLLoader.loadServingSide(BenchmarkClipManager.BENCHMARK_PREFIX + testSet, getAssets());
             mHandler.initBenchmarkMatch(servingSide);
-            FileManager fileManager = new FileManager(getApplicationContext(), clipManager.getCurrentTestSet());
+            FileManager fileManager = new FileManager(getApplicationContext(), testSet);
             player = new VideoPlayer(fileManager.open(clipManager.getCurrentClip()), surface,
-                    new SpeedControlCallback(), mHandler);
-            Config mConfig = new Config(this);
-            Table table = XMLLoader.loadTable(BENCHMARK_PREFIX + clipManager.getCurrentTestSet(), getAssets());
+                    makeFrameCallback(), mHandler);
+            Config mConfig = new Config(this).withFrameRate(player.getmFrameRate());
+            Table table = recordedTestSet.exists() ? XMLLoader.loadTable(recordedTestSet) :
+                    XMLLoader.loadTable(BenchmarkClipManager.BENCHMARK_PREFIX + testSet, getAssets());
             if (table != null) {
                 mHandler.init(mConfig, player.getVideoWidth(), player.getVideoHeight(), table, VIEWING_ANGLE_HORIZONTAL);
                 mHandler.startDetections();
@@ -251,17 +286,25 @@ public class BenchmarkActivity extends MatchVisualizeActivity implements VideoPl
         }
     }
 
+    /**
+     * @return callback to play the clip in real time, null in fast mode (paced by FMO instead)
+     */
+    private SpeedControlCallback makeFrameCallback() {
+        return isFastMode ? null : new SpeedControlCallback();
+    }
+
     private void playCurrentClip() {
         SurfaceHolder holder = getmSurfaceView().getHolder();
         Surface surface = holder.getSurface();
         try {
             FileManager fileManager = new FileManager(getApplicationContext(), clipManager.getCurrentTestSet());
-            VideoPlayer player = new VideoPlayer(fileManager.open(clipManager.getCurrentClip()), surface,
-                    new SpeedControlCallback(), mHandler);
+            File clip = fileManager.open(clipManager.getCurrentClip());
+            VideoPlayer player = new VideoPlayer(clip, surface, makeFrameCallback(), mHandler);
             mPlayTask = new VideoPlayer.PlayTask(player, this, false);
             mShowStopLabel = true;
             updateControls();
             mHandler.setClipId(clipManager.getCurrentClip());
+            mHandler.startClipTrace(clip);
             mPlayTask.execute();
         } catch (IOException ex) {
             Log.e("Unable to play movie", ex);
@@ -6,8 +6,9 @@ import java.util.Locale;
 import ch.m3ts.util.Side;
 
 public class BenchmarkClipManager {
+    public static final String BENCHMARK_PREFIX = "!test_";
+    public static final String TEST_SET_EXTENSION = ".xml";
     private static final String SCORE_DIVIDING_SYMBOL = "_";
-    private static final String VIDEO_MEDIA_TYPE = ".mp4";
     private final String[][] clips;
     private final String[] sets;
     private int currentTestSet;
@@ -57,12 +58,7 @@ public class BenchmarkClipManager {
 
     public Side readWhichSideShouldScore() {
         Side sideToScore;
-        String currentClipName = getCurrentClip();
-        currentClipName = currentClipName.split(VIDEO_MEDIA_TYPE)[0];
-        String[] currentScoresAsString = currentClipName.split(SCORE_DIVIDING_SYMBOL);
-        int[] currentScores = {
-                Integer.parseInt(currentScoresAsString[0]), Integer.parseInt(currentScoresAsString[1])
-        };
+        int[] currentScores = readScores(getCurrentClip());
 
         if (currentClip == 0) {
             if (currentScores[0] > currentScores[1]) {
@@ -71,11 +67,7 @@ public class BenchmarkClipManager {
                 sideToScore = Side.RIGHT;
             }
         } else {
-            String lastClipName = clips[currentTestSet][currentClip - 1].split(VIDEO_MEDIA_TYPE)[0];
-            String[] lastScoresAsString = lastClipName.split(SCORE_DIVIDING_SYMBOL);
-            int[] lastScores = {
-                    Integer.parseInt(lastScoresAsString[0]), Integer.parseInt(lastScoresAsString[1])
-            };
+            int[] lastScores = readScores(clips[currentTestSet][currentClip - 1]);
             if (currentScores[0] > lastScores[0]) {
                 sideToScore = Side.LEFT;
             } else {
@@ -85,6 +77,19 @@ public class BenchmarkClipManager {
         return sideToScore;
     }
 
+    /**
+     * @param clipName name of a clip (video or detection trace), e.g. "3_2.mp4"
+     * @return scores of the left and right player after the clip
+     */
+    private static int[] readScores(String clipName) {
+        int extensionStart = clipName.lastIndexOf('.');
+        if (extensionStart >= 0) clipName = clipName.substring(0, extensionStart);
+        String[] scoresAsString = clipName.split(SCORE_DIVIDING_SYMBOL);
+        return new int[]{
+                Integer.parseInt(scoresAsString[0]), Integer.parseInt(scoresAsString[1])
+        };
+    }
+
     public static String makeStatisticsString(int[] nTotalJudgements, int[] nCorrectJudgements, BenchmarkClipManager clipManager) {
         StringBuilder stringBuilder = new StringBuilder();
         int allJudgements = 0;
@@ -2,8 +2,9 @@ package ch.m3ts.tracker.visualization.replay.benchmark;
 
 import android.support.annotation.NonNull;
 
-import java.util.Locale;
+import java.io.File;
 
+import ch.m3ts.detection.trace.DetectionTraceWriter;
 import ch.m3ts.eventbus.Event;
 import ch.m3ts.eventbus.EventBus;
 import ch.m3ts.eventbus.TTEventBus;
@@ -18,7 +19,6 @@ import ch.m3ts.tabletennis.match.game.GameType;
 import ch.m3ts.tracker.visualization.MatchVisualizeActivity;
 import ch.m3ts.tracker.visualization.replay.ReplayDetectionCallback;
 import ch.m3ts.tracker.visualization.replay.ReplayHandler;
-import ch.m3ts.util.Log;
 import ch.m3ts.util.Side;
 import ch.m3ts.util.Table;
 import cz.fmo.data.Track;
@@ -31,26 +31,36 @@ import cz.fmo.util.Config;
  * for events on this Handler.
  **/
 public class BenchmarkHandler extends ReplayHandler implements ReplayDetectionCallback {
-    private static final String WRONG_JUDGEMENT_LOG_TEXT = "Wrong judgement on clip %s";
-    private static final String NO_JUDGEMENT_LOG_TEXT = "No judgement on clip %s";
-    private static final String ON_SCORE_LOG_TEXT = "onScore: %d Side: %s";
-    private Side whoShouldScore;
-    private int correctJudgementCalls;
-    private int countOnScoreEventsPerClip;
-    private String clipId;
+    private BenchmarkJudge judge;
+    private boolean doTraceClips = false;
 
     public BenchmarkHandler(@NonNull MatchVisualizeActivity activity) {
         super(activity);
     }
 
     public int getCorrectJudgementCalls() {
-        int calls = correctJudgementCalls;
-        this.correctJudgementCalls = 0;
-        return calls;
+        return judge.getCorrectJudgementCalls();
     }
 
     public void setClipId(String clipId) {
-        this.clipId = clipId;
+        judge.setClipId(clipId);
+    }
+
+    @Override
+    protected void startTrace() {
+        // every clip gets a trace of its own, see startClipTrace
+        this.doTraceClips = true;
+    }
+
+    /**
+     * Starts the trace of a clip about to be played, if traces are recorded. The trace is saved
+     * next to the clip, so the test sets can be benchmarked without video (see TraceBenchmarkRunner).
+     */
+    public void startClipTrace(File clip) {
+        if (!doTraceClips) return;
+        String name = clip.getName();
+        String traceName = name.substring(0, name.lastIndexOf('.')) + DetectionTraceWriter.EXTENSION;
+        startTrace(new File(clip.getParentFile(), traceName));
     }
 
     /**
@@ -59,7 +69,7 @@ public class BenchmarkHandler extends ReplayHandler implements ReplayDetectionCa
      * @param whoShouldScore Side which should score on the next onScore event.
      */
     public void setWhoShouldScore(Side whoShouldScore) {
-        this.whoShouldScore = whoShouldScore;
+        judge.setWhoShouldScore(whoShouldScore);
     }
 
     public void initBenchmarkMatch(Side servingSide) {
@@ -81,11 +91,10 @@ public class BenchmarkHandler extends ReplayHandler implements ReplayDetectionCa
     public void initMatch(Side servingSide, MatchType matchType, Player playerLeft, Player playerRight) {
         this.matchSettings = new MatchSettings(matchType, GameType.G11, ServeRules.S2, playerLeft, playerRight, servingSide);
         EventBus eventBus = TTEventBus.getInstance();
-        if (this.match != null) {
-            eventBus.unregister(match);
-            eventBus.unregister(match.getReferee());
-        }
+        if (this.match != null) match.release();
         match = new Match(matchSettings);
+        match.getReferee().setFrameClock(getFrameClock());
+        judge = new BenchmarkJudge(match.getReferee());
         eventBus.register(match);
         startMatch();
     }
@@ -108,30 +117,12 @@ public class BenchmarkHandler extends ReplayHandler implements ReplayDetectionCa
 
 
     public void onClipEnded() {
-        if (this.countOnScoreEventsPerClip == 0) {
-            this.countOnScoreEventsPerClip = 1;
-            match.getReferee().onPointAddition(whoShouldScore);
-            Log.d(String.format(NO_JUDGEMENT_LOG_TEXT, clipId));
-        }
-        match.getReferee().onGestureDetected();
-        this.countOnScoreEventsPerClip = 0;
+        judge.onClipEnded();
     }
 
     @Override
     public void onScore(Side scorer, int score, Side nextServer, Side lastServer) {
-        Log.d(String.format(Locale.US, ON_SCORE_LOG_TEXT, score, scorer.toString()));
-        this.countOnScoreEventsPerClip++;
-        if (this.countOnScoreEventsPerClip == 1) {
-            if (scorer == whoShouldScore) {
-                this.correctJudgementCalls++;
-            } else {
-                Log.d(String.format(WRONG_JUDGEMENT_LOG_TEXT, clipId));
-                // correct the score - for some reason this will screw up the log from referee
-                // so if you want to see judgement message, comment/remove the 2 lines below
-                match.getReferee().onPointDeduction(scorer);
-                match.getReferee().onPointAddition(Side.getOpposite(scorer));
-            }
-        }
+        judge.onScore(scorer, score);
     }
 
     @Override
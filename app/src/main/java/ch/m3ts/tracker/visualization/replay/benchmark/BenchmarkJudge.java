@@ -0,0 +1,92 @@
+package ch.m3ts.tracker.visualization.replay.benchmark;
+
+import java.util.Locale;
+
+import ch.m3ts.tabletennis.match.referee.Referee;
+import ch.m3ts.util.Log;
+import ch.m3ts.util.Side;
+
+/**
+ * Judges the decisions of the Referee on the clips of a test set. The first score of a clip is
+ * correct if it goes to the side which scored in the clip. Wrong or missing scores are corrected,
+ * so the match goes on with the score of the test set.
+ */
+public class BenchmarkJudge {
+    private static final String WRONG_JUDGEMENT_LOG_TEXT = "Wrong judgement on clip %s";
+    private static final String NO_JUDGEMENT_LOG_TEXT = "No judgement on clip %s";
+    private static final String ON_SCORE_LOG_TEXT = "onScore: %d Side: %s";
+    private final Referee referee;
+    private Side whoShouldScore;
+    private int correctJudgementCalls;
+    private int countOnScoreEventsPerClip;
+    private String clipId;
+    private Side clipScorer;
+    private String clipDecision;
+
+    public BenchmarkJudge(Referee referee) {
+        this.referee = referee;
+    }
+
+    public int getCorrectJudgementCalls() {
+        int calls = correctJudgementCalls;
+        this.correctJudgementCalls = 0;
+        return calls;
+    }
+
+    public void setClipId(String clipId) {
+        this.clipId = clipId;
+    }
+
+    /**
+     * Gets called when a new clip is loaded, sets the "truth" on which side should win.
+     *
+     * @param whoShouldScore Side which should score on the next onScore event.
+     */
+    public void setWhoShouldScore(Side whoShouldScore) {
+        this.whoShouldScore = whoShouldScore;
+    }
+
+    /**
+     * @return side the Referee gave the point of the current clip to, null if not decided yet
+     */
+    public Side getClipScorer() {
+        return clipScorer;
+    }
+
+    /**
+     * @return decision of the Referee on the point of the current clip, null if not decided yet
+     */
+    public String getClipDecision() {
+        return clipDecision;
+    }
+
+    public void onClipEnded() {
+        if (this.countOnScoreEventsPerClip == 0) {
+            this.countOnScoreEventsPerClip = 1;
+            referee.onPointAddition(whoShouldScore);
+            Log.d(String.format(NO_JUDGEMENT_LOG_TEXT, clipId));
+        }
+        referee.onGestureDetected();
+        this.countOnScoreEventsPerClip = 0;
+        this.clipScorer = null;
+        this.clipDecision = null;
+    }
+
+    public void onScore(Side scorer, int score) {
+        Log.d(String.format(Locale.US, ON_SCORE_LOG_TEXT, score, scorer.toString()));
+        this.countOnScoreEventsPerClip++;
+        if (this.countOnScoreEventsPerClip == 1) {
+            this.clipScorer = scorer;
+            this.clipDecision = referee.getLastDecision();
+            if (scorer == whoShouldScore) {
+                this.correctJudgementCalls++;
+            } else {
+                Log.d(String.format(WRONG_JUDGEMENT_LOG_TEXT, clipId));
+                // correct the score - for some reason this will screw up the log from referee
+                // so if you want to see judgement message, comment/remove the 2 lines below
+                referee.onPointDeduction(scorer);
+                referee.onPointAddition(Side.getOpposite(scorer));
+            }
+        }
+    }
+}
@@ -64,7 +64,7 @@ class VideoPlayer {
      *
      * @param sourceFile    The video file to open.
      * @param outputSurface The Surface where frames will be sent.
-     * @param frameCallback Callback object, used to pace output.
+     * @param frameCallback Callback object, used to pace output, null to decode as fast as possible.
      * @throws IOException
      */
     public VideoPlayer(File sourceFile, Surface outputSurface, FrameCallback frameCallback, ReplayDetectionCallback dataCallback)
@@ -396,7 +396,7 @@ class VideoPlayer {
             ByteBuffer readOnlyCopyOfBuffer = decoder.getOutputBuffer(decoderStatus);
             if (readOnlyCopyOfBuffer.hasRemaining()) {
                 readOnlyCopyOfBuffer.get(frame);
-                mDataCallback.onEncodedFrame(frame);
+                mDataCallback.onEncodedFrame(frame, mBufferInfo.presentationTimeUs);
             }
         } catch (Exception ex) {
             Log.e(ex.getMessage(), ex);
@@ -0,0 +1,297 @@
+package ch.m3ts.util;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Appends lines and binary records to files on a background thread, so the threads handling
+ * frames and events never wait for the disk. Writes are only queued by the calling thread, each
+ * file stays open in a buffered stream and gets flushed every flushIntervalMs, on flush() and on
+ * close().
+ * <p>
+ * The memory of the queue is bounded: writes which do not fit anymore are dropped and counted.
+ */
+public class AsyncLogWriter {
+    private static final int DEFAULT_MAX_PENDING_BYTES = 4 * 1024 * 1024;
+    private static final long DEFAULT_FLUSH_INTERVAL_MS = 1000;
+    private static final int MAX_OPEN_FILES = 16;
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static volatile AsyncLogWriter instance;
+    private final Queue<Request> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private final AtomicLong droppedBytes = new AtomicLong();
+    private final int maxPendingBytes;
+    private final long flushIntervalNs;
+    private final String name;
+    // only used by the writer thread
+    private final Map<File, OutputStream> streams = new LinkedHashMap<>(MAX_OPEN_FILES, 0.75f, true);
+    private static final int NOT_STARTED = 0;
+    private static final int RUNNING = 1;
+    private static final int TERMINATED = 2;
+    private final AtomicInteger state = new AtomicInteger(NOT_STARTED);
+    private volatile Thread thread;
+    private volatile boolean isShutDown = false;
+
+    public AsyncLogWriter(String name, int maxPendingBytes, long flushIntervalMs) {
+        this.name = name;
+        this.maxPendingBytes = maxPendingBytes;
+        this.flushIntervalNs = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+    }
+
+    public static AsyncLogWriter getInstance() {
+        AsyncLogWriter writer = instance;
+        if (writer != null) return writer;
+        synchronized (AsyncLogWriter.class) {
+            if (instance == null) {
+                instance = new AsyncLogWriter("logWriter", DEFAULT_MAX_PENDING_BYTES, DEFAULT_FLUSH_INTERVAL_MS);
+            }
+            return instance;
+        }
+    }
+
+    /**
+     * Writes everything and ends the thread of the shared writer, getInstance() creates a new one
+     * afterwards. Call once the activity writing the logs is destroyed.
+     */
+    public static void shutdownInstance() throws InterruptedException {
+        AsyncLogWriter writer;
+        synchronized (AsyncLogWriter.class) {
+            writer = instance;
+            instance = null;
+        }
+        if (writer != null) writer.shutdown();
+    }
+
+    /**
+     * Appends the line and a line break to the file.
+     *
+     * @return false if the line was dropped
+     */
+    public boolean writeLine(File file, String line) {
+        return write(file, (line + "\n").getBytes(UTF_8));
+    }
+
+    /**
+     * Appends the data to the file, the array must not be changed afterwards.
+     *
+     * @return false if the data was dropped, because the queue is full or the writer shut down
+     */
+    public boolean write(File file, byte[] data) {
+        if (isShutDown) return false;
+        long pending = pendingBytes.addAndGet(data.length);
+        if (pending > maxPendingBytes) {
+            pendingBytes.addAndGet(-data.length);
+            droppedBytes.addAndGet(data.length);
+            wakeUp();
+            return false;
+        }
+        Request request = new Request(file, data, null);
+        queue.add(request);
+        startIfNeeded();
+        // a write queued after the thread ended would never be written
+        if (state.get() == TERMINATED) {
+            boolean isDropped = queue.remove(request);
+            if (isDropped) {
+                pendingBytes.addAndGet(-data.length);
+                droppedBytes.addAndGet(data.length);
+            }
+            dropQueued();
+            if (isDropped) return false;
+        }
+        if (pending > maxPendingBytes / 2) wakeUp();
+        return true;
+    }
+
+    /**
+     * Blocks until everything written so far is in the files, returns at once after shutdown().
+     */
+    public void flush() throws InterruptedException {
+        await(new Request(null, null, new CountDownLatch(1)));
+    }
+
+    /**
+     * Blocks until everything written to the file so far is in it and closes the file, writing to
+     * it again opens it again.
+     */
+    public void close(File file) throws InterruptedException {
+        await(new Request(file, null, new CountDownLatch(1)));
+    }
+
+    /**
+     * Writes and closes all files and ends the thread, writes afterwards are dropped.
+     */
+    public void shutdown() throws InterruptedException {
+        flush();
+        isShutDown = true;
+        Thread writerThread = thread;
+        // the thread is assigned right after the state changed to running
+        while (writerThread == null && state.get() != NOT_STARTED) {
+            Thread.yield();
+            writerThread = thread;
+        }
+        if (writerThread != null) {
+            LockSupport.unpark(writerThread);
+            writerThread.join();
+        }
+    }
+
+    /**
+     * @return number of bytes dropped since the start, because the queue was full or the writer
+     * had ended
+     */
+    public long getDroppedBytes() {
+        return droppedBytes.get();
+    }
+
+    private void await(Request request) throws InterruptedException {
+        if (isShutDown) return;
+        queue.add(request);
+        startIfNeeded();
+        // a request queued after the thread ended would never be done
+        if (state.get() == TERMINATED) dropQueued();
+        wakeUp();
+        request.done.await();
+    }
+
+    private void startIfNeeded() {
+        if (state.get() != NOT_STARTED || !state.compareAndSet(NOT_STARTED, RUNNING)) return;
+        Thread writerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        }, name);
+        writerThread.setDaemon(true);
+        thread = writerThread;
+        writerThread.start();
+    }
+
+    private void wakeUp() {
+        Thread writerThread = thread;
+        if (writerThread != null) LockSupport.unpark(writerThread);
+    }
+
+    private void writeLoop() {
+        long lastFlushNs = System.nanoTime();
+        boolean hasUnflushed = false;
+        while (true) {
+            Request request = queue.poll();
+            if (request != null) {
+                if (request.data != null) {
+                    pendingBytes.addAndGet(-request.data.length);
+                    hasUnflushed |= append(request.file, request.data);
+                } else {
+                    if (request.file == null) {
+                        flushAll();
+                        hasUnflushed = false;
+                    } else {
+                        closeStream(request.file);
+                    }
+                    request.done.countDown();
+                }
+                continue;
+            }
+            long sinceFlushNs = System.nanoTime() - lastFlushNs;
+            if (hasUnflushed && sinceFlushNs >= flushIntervalNs) {
+                flushAll();
+                hasUnflushed = false;
+            }
+            if (!hasUnflushed) {
+                lastFlushNs = System.nanoTime();
+                sinceFlushNs = 0;
+            }
+            if (isShutDown && queue.isEmpty()) break;
+            LockSupport.parkNanos(this, flushIntervalNs - sinceFlushNs);
+        }
+        for (File file : streams.keySet().toArray(new File[0])) {
+            closeStream(file);
+        }
+        state.set(TERMINATED);
+        dropQueued();
+    }
+
+    /**
+     * Drops the requests which came in while the loop ended, their callers must not wait for them.
+     */
+    private void dropQueued() {
+        Request request;
+        while ((request = queue.poll()) != null) {
+            if (request.data != null) {
+                pendingBytes.addAndGet(-request.data.length);
+                droppedBytes.addAndGet(request.data.length);
+            } else {
+                request.done.countDown();
+            }
+        }
+    }
+
+    private boolean append(File file, byte[] data) {
+        try {
+            OutputStream out = streams.get(file);
+            if (out == null) {
+                if (streams.size() >= MAX_OPEN_FILES) {
+                    Iterator<File> eldest = streams.keySet().iterator();
+                    closeStream(eldest.next());
+                }
+                out = new BufferedOutputStream(new FileOutputStream(file, true), BUFFER_SIZE);
+                streams.put(file, out);
+            }
+            out.write(data);
+            return true;
+        } catch (IOException ex) {
+            Log.e("Could not write to " + file, ex);
+            closeStream(file);
+            return false;
+        }
+    }
+
+    private void flushAll() {
+        for (Map.Entry<File, OutputStream> entry : streams.entrySet()) {
+            try {
+                entry.getValue().flush();
+            } catch (IOException ex) {
+                Log.e("Could not flush " + entry.getKey(), ex);
+            }
+        }
+    }
+
+    private void closeStream(File file) {
+        OutputStream out = streams.remove(file);
+        if (out == null) return;
+        try {
+            out.close();
+        } catch (IOException ex) {
+            Log.e("Could not close " + file, ex);
+        }
+    }
+
+    /**
+     * Data to append to a file, or a flush (no file) or close (no data) to report as done.
+     */
+    private static class Request {
+        private final File file;
+        private final byte[] data;
+        private final CountDownLatch done;
+
+        private Request(File file, byte[] data, CountDownLatch done) {
+            this.file = file;
+            this.data = data;
+            this.done = done;
+        }
+    }
+}
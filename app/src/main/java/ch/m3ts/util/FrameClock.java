@@ -0,0 +1,127 @@
+package ch.m3ts.util;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clock following the presentation times of the frames of a replayed video, for replays which are
+ * decoded faster than real time. Detection times and timeouts based on this clock behave as if
+ * the video was played at its original speed.
+ * <p>
+ * Scheduled tasks run on the thread advancing the clock, as soon as a frame reaches their time.
+ */
+public class FrameClock {
+    private static final long RESTART_GAP_NS = TimeUnit.MILLISECONDS.toNanos(33);
+    private final PriorityQueue<Timeout> timeouts;
+    private long nowNs = 0;
+    private long lastFrameNs = -1;
+    private long offsetNs = 0;
+    private long nextSequence = 0;
+
+    public FrameClock() {
+        this.timeouts = new PriorityQueue<>(11, new Comparator<Timeout>() {
+            @Override
+            public int compare(Timeout o1, Timeout o2) {
+                if (o1.dueNs != o2.dueNs) return o1.dueNs < o2.dueNs ? -1 : 1;
+                return Long.compare(o1.sequence, o2.sequence);
+            }
+        });
+    }
+
+    /**
+     * @return current time of the clock, a replacement for System.nanoTime()
+     */
+    public synchronized long nanoTime() {
+        return nowNs;
+    }
+
+    /**
+     * Moves the clock to the presentation time of the next frame and runs the tasks which are due.
+     * When the presentation times restart (e.g. with the next clip), the clock goes on from its
+     * current time instead of going back.
+     *
+     * @param presentationTimeUs presentation time of the frame, in microseconds
+     */
+    public void advance(long presentationTimeUs) {
+        long timeNs;
+        synchronized (this) {
+            long frameNs = TimeUnit.MICROSECONDS.toNanos(presentationTimeUs);
+            if (lastFrameNs >= 0 && frameNs < lastFrameNs) {
+                offsetNs = nowNs + RESTART_GAP_NS - frameNs;
+            }
+            lastFrameNs = frameNs;
+            timeNs = frameNs + offsetNs;
+        }
+        runTimeoutsUntil(timeNs);
+    }
+
+    /**
+     * Moves the clock forward to the given time and runs the tasks which are due. Unlike advance,
+     * a time before the current time of the clock leaves it unchanged.
+     *
+     * @param timeNs time in nanoseconds, in the time base of the clock
+     */
+    public void advanceTo(long timeNs) {
+        runTimeoutsUntil(timeNs);
+    }
+
+    /**
+     * Runs the due tasks one by one, each at its own time, so tasks scheduled by a task (e.g. the
+     * out of frame timeout of the Referee after a detection timeout) are timed from there and run
+     * as well if they are due before the given time.
+     */
+    private void runTimeoutsUntil(long timeNs) {
+        while (true) {
+            Timeout timeout;
+            synchronized (this) {
+                if (timeouts.isEmpty() || timeouts.peek().dueNs > timeNs) {
+                    if (timeNs > nowNs) nowNs = timeNs;
+                    return;
+                }
+                timeout = timeouts.poll();
+                if (timeout.dueNs > nowNs) nowNs = timeout.dueNs;
+            }
+            timeout.run();
+        }
+    }
+
+    /**
+     * Runs the task once the clock has advanced by the given delay.
+     *
+     * @return handle to cancel the task with
+     */
+    public synchronized Timeout schedule(Runnable task, long delayMs) {
+        Timeout timeout = new Timeout(task, nowNs + TimeUnit.MILLISECONDS.toNanos(delayMs), nextSequence++);
+        timeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * @return number of scheduled tasks not run yet, including cancelled ones until they are due
+     */
+    public synchronized int getPendingTimeouts() {
+        return timeouts.size();
+    }
+
+    public static class Timeout {
+        private final Runnable task;
+        private final long dueNs;
+        private final long sequence;
+        private volatile boolean isCancelled = false;
+
+        private Timeout(Runnable task, long dueNs, long sequence) {
+            this.task = task;
+            this.dueNs = dueNs;
+            this.sequence = sequence;
+        }
+
+        public void cancel() {
+            isCancelled = true;
+        }
+
+        private void run() {
+            if (!isCancelled) task.run();
+        }
+    }
+}
@@ -1,9 +1,6 @@
 package ch.m3ts.util;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
 
 @SuppressWarnings("SameParameterValue")
 public class Log {
@@ -16,12 +13,12 @@ public class Log {
         android.util.Log.d(TAG, msg);
     }
 
+    /**
+     * Appends the message as a line to the file, in the background (see AsyncLogWriter).
+     */
     public static void d(String msg, File file) {
-        try (BufferedWriter sw = new BufferedWriter(new FileWriter(file, true))) {
-            msg = msg + "\n";
-            sw.append(msg);
-        } catch (IOException ex) {
-            Log.e(ex.getMessage(), ex);
+        if (!AsyncLogWriter.getInstance().writeLine(file, msg)) {
+            android.util.Log.w(TAG, "Log writer is full, dropped a line of " + file.getName());
         }
     }
 
@@ -0,0 +1,106 @@
+package ch.m3ts.util;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the delayed and periodic tasks of a match (e.g. the out of frame timeout of the Referee or
+ * the refreshing of the debug views) on one shared thread, instead of starting a new Timer thread
+ * for each of them. The thread is only started with the first task and ends with shutdown().
+ */
+public class MatchScheduler {
+    private static final Handle NO_HANDLE = new Handle(null);
+    private final String name;
+    private ScheduledThreadPoolExecutor executor;
+    private boolean isShutDown = false;
+
+    public MatchScheduler(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Runs the task once after the given delay.
+     *
+     * @return handle to cancel the task with
+     */
+    public synchronized Handle schedule(Runnable task, long delayMs) {
+        if (isShutDown) return NO_HANDLE;
+        return new Handle(getExecutor().schedule(new GuardedTask(task), delayMs, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Runs the task after the given delay and then every periodMs until it gets cancelled.
+     *
+     * @return handle to cancel the task with
+     */
+    public synchronized Handle scheduleAtFixedRate(Runnable task, long delayMs, long periodMs) {
+        if (isShutDown) return NO_HANDLE;
+        return new Handle(getExecutor().scheduleAtFixedRate(new GuardedTask(task), delayMs, periodMs,
+                TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Cancels all tasks and ends the thread, tasks scheduled afterwards are ignored.
+     */
+    public synchronized void shutdown() {
+        isShutDown = true;
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    public synchronized boolean isShutDown() {
+        return isShutDown;
+    }
+
+    private ScheduledThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, name);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            // cancelled timeouts would otherwise stay queued until they are due
+            executor.setRemoveOnCancelPolicy(true);
+        }
+        return executor;
+    }
+
+    public static class Handle {
+        private final ScheduledFuture<?> future;
+
+        private Handle(ScheduledFuture<?> future) {
+            this.future = future;
+        }
+
+        public void cancel() {
+            if (future != null) future.cancel(false);
+        }
+    }
+
+    /**
+     * Keeps a failing task from cancelling the following runs of a periodic task silently.
+     */
+    private static class GuardedTask implements Runnable {
+        private final Runnable task;
+
+        private GuardedTask(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                Log.e("Scheduled task failed: " + e.getMessage(), e);
+            }
+        }
+    }
+}
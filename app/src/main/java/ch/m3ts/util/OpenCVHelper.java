@@ -35,6 +35,7 @@ public class OpenCVHelper {
             Mat yuv = new Mat(calculateYUVMatHeight(cameraHeight), cameraWidth, CvType.CV_8UC1);
             yuv.put(0, 0, yuvBytes);
             Imgproc.cvtColor(yuv, bgr, Imgproc.COLOR_YUV2BGR_NV21, 3);
+            yuv.release();
         }
         return bgr;
     }
@@ -45,6 +45,20 @@ public class Table {
         return new Table(corners, net);
     }
 
+    /**
+     * @return the table location in the format read by makeTableFromProperties()
+     */
+    public Properties toProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("n1_x", String.valueOf(net.x));
+        properties.setProperty("n1_y", String.valueOf(net.y));
+        for (int i = 1; i < 3; i++) {
+            properties.setProperty("c" + i + "_x", String.valueOf(corners[i - 1].x));
+            properties.setProperty("c" + i + "_y", String.valueOf(corners[i - 1].y));
+        }
+        return properties;
+    }
+
     public static Table makeTableFromIntArray(int[] cornerInts) {
         if (cornerInts.length < 4) throw new NotTwoCornersException(cornerInts.length / 2);
         Point[] points = intToPointArray(cornerInts);
@@ -2,8 +2,12 @@ package ch.m3ts.util;
 
 import android.content.res.AssetManager;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Properties;
 
 public class XMLLoader {
@@ -16,17 +20,36 @@ public class XMLLoader {
      * @param videoFileName - Full name of video file in phones Camera dir. Example: "bounce_back_1.mp4"
      */
     public static Side loadServingSide(String videoFileName, AssetManager assetManager) {
-        Side servingSide = Side.LEFT;
         String fileNameWithoutExtension = videoFileName.split("\\.")[0];
         try (InputStream is = assetManager.open(fileNameWithoutExtension + ".xml")) {
-            Properties properties = new Properties();
-            properties.loadFromXML(is);
-            if (properties.containsKey("servingSide") && properties.getProperty("servingSide").equals("RIGHT"))
-                servingSide = Side.RIGHT;
+            return readServingSide(is);
         } catch (IOException ex) {
             Log.e(ex.getMessage(), ex);
         }
-        return servingSide;
+        return Side.LEFT;
+    }
+
+    /**
+     * Tries to load the serving side from an xml file, for runs without assets (e.g. the benchmark
+     * over detection traces).
+     *
+     * @param xmlFile - xml file as in assets. Example: "!test_1.xml"
+     */
+    public static Side loadServingSide(File xmlFile) {
+        try (InputStream is = new FileInputStream(xmlFile)) {
+            return readServingSide(is);
+        } catch (IOException ex) {
+            Log.e(ex.getMessage(), ex);
+        }
+        return Side.LEFT;
+    }
+
+    private static Side readServingSide(InputStream is) throws IOException {
+        Properties properties = new Properties();
+        properties.loadFromXML(is);
+        if (properties.containsKey("servingSide") && properties.getProperty("servingSide").equals("RIGHT"))
+            return Side.RIGHT;
+        return Side.LEFT;
     }
 
     /**
@@ -45,4 +68,34 @@ public class XMLLoader {
         }
         return null;
     }
+
+    /**
+     * Tries to load the table location from an xml file, e.g. of a test set recorded on the device.
+     *
+     * @param xmlFile - xml file as in assets. Example: "!test_1.xml"
+     */
+    public static Table loadTable(File xmlFile) {
+        try (InputStream is = new FileInputStream(xmlFile)) {
+            Properties properties = new Properties();
+            properties.loadFromXML(is);
+            return Table.makeTableFromProperties(properties);
+        } catch (IOException ex) {
+            Log.e(ex.getMessage(), ex);
+        }
+        return null;
+    }
+
+    /**
+     * Writes the table location and the serving side to an xml file, in the format of the test
+     * sets in assets.
+     *
+     * @param xmlFile - file to write to. Example: "!test_1.xml"
+     */
+    public static void storeTestSet(File xmlFile, Table table, Side servingSide) throws IOException {
+        Properties properties = table.toProperties();
+        properties.setProperty("servingSide", servingSide.name());
+        try (OutputStream os = new FileOutputStream(xmlFile)) {
+            properties.storeToXML(os, "table location (2 corners) and serving side");
+        }
+    }
 }
@@ -23,6 +23,12 @@ public final class Lib {
 
     public static native void detectionFrame(byte[] dataYUV420SP);
 
+    /**
+     * Like detectionFrame, but instead of dropping the frame while the previous one is still being
+     * processed, blocks until the frame has been processed and its detections were reported.
+     */
+    public static native void detectionFrameSync(byte[] dataYUV420SP);
+
     public static native void detectionStop();
 
     public static native void benchmarkingStart(Callback cb);
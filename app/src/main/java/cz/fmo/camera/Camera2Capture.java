@@ -0,0 +1,400 @@
+package cz.fmo.camera;
+
+import android.content.Context;
+import android.graphics.ImageFormat;
+import android.graphics.SurfaceTexture;
+import android.hardware.camera2.CameraAccessException;
+import android.hardware.camera2.CameraCaptureSession;
+import android.hardware.camera2.CameraCharacteristics;
+import android.hardware.camera2.CameraDevice;
+import android.hardware.camera2.CameraManager;
+import android.hardware.camera2.CameraMetadata;
+import android.hardware.camera2.CaptureRequest;
+import android.hardware.camera2.params.StreamConfigurationMap;
+import android.media.Image;
+import android.media.ImageReader;
+import android.media.MediaCodecInfo.CodecCapabilities;
+import android.media.MediaFormat;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Range;
+import android.util.Size;
+import android.util.SizeF;
+import android.view.Surface;
+
+import java.util.Arrays;
+
+import ch.m3ts.util.Log;
+import cz.fmo.util.Config;
+
+/**
+ * A capture backend based on android.hardware.camera2, able to capture at frame rates above 30 FPS.
+ * <p>
+ * Frames are rendered into the provided SurfaceTexture and read from an ImageReader in the
+ * YUV_420_888 format. The ImageReader always hands out the latest image, older ones are dropped.
+ * Images are copied into one of the NV21 callback buffers and closed before onCameraFrame() gets
+ * called, so the camera never waits for the detection.
+ * <p>
+ * The device and session are only touched on the capture thread, stop() and release() post their
+ * work there.
+ * <p>
+ * Use open() to create an instance, it returns null if the device does not support the requested
+ * configuration; in that case the legacy CameraCapture should be used.
+ */
+class Camera2Capture implements CaptureBackend {
+    private static final String MIME_TYPE = "video/avc";
+    private static final int PREFER_BIT_RATE = 6 * 1024 * 1024; // bits per second
+    private static final int PREFER_I_FRAME_INTERVAL = 1; // seconds
+    private static final int IMAGE_FORMAT = ImageFormat.YUV_420_888;
+    private static final int MAX_IMAGES = 3;
+    private static final int CALLBACK_BUFFERS = 4;
+    private final CameraCapture.Callback mCb;
+    private final CameraManager mManager;
+    private final String mCameraId;
+    private final Size mSize;
+    private final Range<Integer> mFpsRange;
+    private final double mHorizontalViewAngle;
+    private final byte[][] mBuffers = new byte[CALLBACK_BUFFERS][];
+    private HandlerThread mThread;
+    // thread of the last run, still closing the device after stop()
+    private HandlerThread mStoppedThread;
+    private Handler mHandler;
+    private ImageReader mReader;
+    private CameraDevice mCamera;
+    private CameraCaptureSession mSession;
+    private Surface mPreviewSurface;
+    private int mNextBuffer = 0;
+    private boolean mOpening = false;
+    private volatile boolean mStopped = false;
+    private volatile boolean mReleased = false;
+
+    private Camera2Capture(@Nullable CameraCapture.Callback cb, CameraManager manager, String cameraId,
+                           Size size, Range<Integer> fpsRange, double horizontalViewAngle) {
+        mCb = cb;
+        mManager = manager;
+        mCameraId = cameraId;
+        mSize = size;
+        mFpsRange = fpsRange;
+        mHorizontalViewAngle = horizontalViewAngle;
+    }
+
+    /**
+     * Selects a camera with the preferred facing, a YUV size closest to the preferred resolution and
+     * a constant frame rate range of exactly the preferred frame rate.
+     *
+     * @return the backend, or null if no camera supports the configuration (or only on the legacy
+     * hardware level, which is just a wrapper around android.hardware.Camera)
+     */
+    @Nullable
+    static Camera2Capture open(@Nullable CameraCapture.Callback cb, Config config, Context context) {
+        CameraManager manager = (CameraManager) context.getSystemService(Context.CAMERA_SERVICE);
+        if (manager == null) return null;
+        int preferWidth = config.isHighRes() ? 1920 : 1280;
+        int preferHeight = config.isHighRes() ? 1080 : 720;
+        int preferFacing = config.isFrontFacing() ? CameraMetadata.LENS_FACING_FRONT :
+                CameraMetadata.LENS_FACING_BACK;
+        int preferFrameRate = Math.round(config.getFrameRate());
+        try {
+            for (String id : manager.getCameraIdList()) {
+                CameraCharacteristics c = manager.getCameraCharacteristics(id);
+                Integer facing = c.get(CameraCharacteristics.LENS_FACING);
+                Integer level = c.get(CameraCharacteristics.INFO_SUPPORTED_HARDWARE_LEVEL);
+                StreamConfigurationMap map = c.get(CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP);
+                if (facing == null || facing != preferFacing || map == null) continue;
+                if (level == null || level == CameraMetadata.INFO_SUPPORTED_HARDWARE_LEVEL_LEGACY) {
+                    Log.d("Camera2: camera " + id + " only supports the legacy hardware level");
+                    continue;
+                }
+                Size size = selectSize(map.getOutputSizes(IMAGE_FORMAT), preferWidth, preferHeight);
+                Range<Integer> fpsRange = selectFpsRange(c.get(CameraCharacteristics.CONTROL_AE_AVAILABLE_TARGET_FPS_RANGES), preferFrameRate);
+                if (size == null || fpsRange == null) {
+                    Log.d("Camera2: camera " + id + " does not support " + preferFrameRate + " FPS");
+                    continue;
+                }
+                return new Camera2Capture(cb, manager, id, size, fpsRange, calculateHorizontalViewAngle(c));
+            }
+        } catch (CameraAccessException e) {
+            Log.e(e.getMessage(), e);
+        }
+        return null;
+    }
+
+    private static Size selectSize(@Nullable Size[] sizes, int preferWidth, int preferHeight) {
+        if (sizes == null) return null;
+        Size bestSize = null;
+        int bestScore = Integer.MAX_VALUE;
+        for (Size size : sizes) {
+            int score = Math.abs(size.getWidth() - preferWidth) + Math.abs(size.getHeight() - preferHeight);
+            if (score < bestScore) {
+                bestScore = score;
+                bestSize = size;
+            }
+        }
+        return bestSize;
+    }
+
+    /**
+     * Only accepts fixed ranges, as the tracking calculates velocities based on the frame rate.
+     * ImageReader surfaces can't be part of a constrained high speed session, so the range has to
+     * be available for regular sessions.
+     */
+    private static Range<Integer> selectFpsRange(@Nullable Range<Integer>[] ranges, int preferFrameRate) {
+        if (ranges == null) return null;
+        for (Range<Integer> range : ranges) {
+            if (range.getLower() == preferFrameRate && range.getUpper() == preferFrameRate) {
+                return range;
+            }
+        }
+        return null;
+    }
+
+    private static double calculateHorizontalViewAngle(CameraCharacteristics c) {
+        SizeF sensorSize = c.get(CameraCharacteristics.SENSOR_INFO_PHYSICAL_SIZE);
+        float[] focalLengths = c.get(CameraCharacteristics.LENS_INFO_AVAILABLE_FOCAL_LENGTHS);
+        if (sensorSize == null || focalLengths == null || focalLengths.length == 0) return 0;
+        return Math.toDegrees(2 * Math.atan(sensorSize.getWidth() / (2 * focalLengths[0])));
+    }
+
+    @Override
+    public void start(@NonNull SurfaceTexture outputTexture) {
+        if (mReleased || mThread != null) return;
+        joinStoppedThread();
+        mStopped = false;
+        mThread = new HandlerThread("Camera2Capture");
+        mThread.start();
+        mHandler = new Handler(mThread.getLooper());
+        outputTexture.setDefaultBufferSize(mSize.getWidth(), mSize.getHeight());
+        mPreviewSurface = new Surface(outputTexture);
+        if (mCb != null) {
+            for (int i = 0; i < CALLBACK_BUFFERS; i++) {
+                mBuffers[i] = new byte[Nv21Packer.getFrameSize(mSize.getWidth(), mSize.getHeight())];
+            }
+            mReader = ImageReader.newInstance(mSize.getWidth(), mSize.getHeight(), IMAGE_FORMAT, MAX_IMAGES);
+            mReader.setOnImageAvailableListener(new ImageReader.OnImageAvailableListener() {
+                @Override
+                public void onImageAvailable(ImageReader reader) {
+                    onImage(reader);
+                }
+            }, mHandler);
+        }
+        mOpening = true;
+        try {
+            mManager.openCamera(mCameraId, new CameraDevice.StateCallback() {
+                @Override
+                public void onOpened(@NonNull CameraDevice camera) {
+                    mOpening = false;
+                    if (mStopped) {
+                        // stop() came first, the device is of no use anymore
+                        camera.close();
+                        quitIfStopped();
+                        return;
+                    }
+                    mCamera = camera;
+                    createSession();
+                }
+
+                @Override
+                public void onDisconnected(@NonNull CameraDevice camera) {
+                    mOpening = false;
+                    camera.close();
+                    mCamera = null;
+                    quitIfStopped();
+                }
+
+                @Override
+                public void onError(@NonNull CameraDevice camera, int error) {
+                    Log.d("Camera2: device error " + error);
+                    mOpening = false;
+                    camera.close();
+                    mCamera = null;
+                    quitIfStopped();
+                    if (mCb != null && !mStopped) mCb.onCameraError();
+                }
+            }, mHandler);
+        } catch (CameraAccessException | SecurityException e) {
+            mOpening = false;
+            Log.e(e.getMessage(), e);
+            if (mCb != null) mCb.onCameraError();
+        }
+    }
+
+    private void createSession() {
+        final Surface[] targets = mReader == null ? new Surface[]{mPreviewSurface} :
+                new Surface[]{mPreviewSurface, mReader.getSurface()};
+        try {
+            mCamera.createCaptureSession(Arrays.asList(targets), new CameraCaptureSession.StateCallback() {
+                @Override
+                public void onConfigured(@NonNull CameraCaptureSession session) {
+                    if (mStopped || mCamera == null) {
+                        session.close();
+                        return;
+                    }
+                    mSession = session;
+                    startRepeatingRequest(targets);
+                }
+
+                @Override
+                public void onConfigureFailed(@NonNull CameraCaptureSession session) {
+                    Log.d("Camera2: session configuration failed");
+                    if (mCb != null) mCb.onCameraError();
+                }
+            }, mHandler);
+        } catch (CameraAccessException e) {
+            Log.e(e.getMessage(), e);
+            if (mCb != null) mCb.onCameraError();
+        }
+    }
+
+    private void startRepeatingRequest(Surface[] targets) {
+        try {
+            CaptureRequest.Builder builder = mCamera.createCaptureRequest(CameraDevice.TEMPLATE_RECORD);
+            for (Surface target : targets) {
+                builder.addTarget(target);
+            }
+            builder.set(CaptureRequest.CONTROL_AE_TARGET_FPS_RANGE, mFpsRange);
+            builder.set(CaptureRequest.CONTROL_AF_MODE, CaptureRequest.CONTROL_AF_MODE_CONTINUOUS_VIDEO);
+            mSession.setRepeatingRequest(builder.build(), null, mHandler);
+        } catch (CameraAccessException e) {
+            Log.e(e.getMessage(), e);
+            if (mCb != null) mCb.onCameraError();
+        }
+    }
+
+    /**
+     * Receives frames from the ImageReader, runs on the capture thread.
+     */
+    private void onImage(ImageReader reader) {
+        Image image = reader.acquireLatestImage();
+        if (image == null) return;
+        byte[] buffer = mBuffers[mNextBuffer];
+        mNextBuffer = (mNextBuffer + 1) % CALLBACK_BUFFERS;
+        try {
+            Image.Plane[] planes = image.getPlanes();
+            Nv21Packer.pack(planes[0].getBuffer(), planes[0].getRowStride(), planes[1].getBuffer(),
+                    planes[2].getBuffer(), planes[1].getRowStride(), planes[1].getPixelStride(),
+                    image.getWidth(), image.getHeight(), buffer);
+        } finally {
+            image.close();
+        }
+        mCb.onCameraFrame(buffer);
+    }
+
+    /**
+     * The ImageReader hands out the latest image anyway, there is no buffer pool to monitor.
+     */
+    @Override
+    public void onOutputFrame() {
+        // nothing to count
+    }
+
+    /**
+     * Closes the session, the device and the surfaces on the capture thread, where they are opened,
+     * and ends the thread. If the device is still being opened, onOpened() closes it as soon as it
+     * arrives and ends the thread then. start() may be called again afterwards.
+     */
+    @Override
+    public void stop() {
+        mStopped = true;
+        if (mHandler == null) return;
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                closeCamera();
+                if (mReader != null) {
+                    mReader.close();
+                    mReader = null;
+                }
+                if (mPreviewSurface != null) {
+                    mPreviewSurface.release();
+                    mPreviewSurface = null;
+                }
+                quitIfStopped();
+            }
+        });
+        mStoppedThread = mThread;
+        mThread = null;
+        mHandler = null;
+    }
+
+    @Override
+    public void release() {
+        if (mReleased) return;
+        mReleased = true;
+        stop();
+    }
+
+    /**
+     * Waits for the thread of the last run to end, so it is done with the device and the surfaces
+     * before they are opened again.
+     */
+    private void joinStoppedThread() {
+        if (mStoppedThread == null) return;
+        try {
+            mStoppedThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        mStoppedThread = null;
+    }
+
+    /**
+     * Runs on the capture thread.
+     */
+    private void closeCamera() {
+        if (mSession != null) {
+            mSession.close();
+            mSession = null;
+        }
+        if (mCamera != null) {
+            mCamera.close();
+            mCamera = null;
+        }
+    }
+
+    /**
+     * Runs on the capture thread.
+     */
+    private void quitIfStopped() {
+        if (mStopped && !mOpening) {
+            Looper.myLooper().quitSafely();
+        }
+    }
+
+    @Override
+    public MediaFormat getMediaFormat() {
+        MediaFormat f = MediaFormat.createVideoFormat(MIME_TYPE, mSize.getWidth(), mSize.getHeight());
+        f.setInteger(MediaFormat.KEY_BIT_RATE, PREFER_BIT_RATE);
+        f.setInteger(MediaFormat.KEY_COLOR_FORMAT, CodecCapabilities.COLOR_FormatSurface);
+        f.setFloat(MediaFormat.KEY_FRAME_RATE, getFrameRate());
+        f.setInteger(MediaFormat.KEY_I_FRAME_INTERVAL, PREFER_I_FRAME_INTERVAL);
+        return f;
+    }
+
+    @Override
+    public int getWidth() {
+        return mSize.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return mSize.getHeight();
+    }
+
+    @Override
+    public int getBitRate() {
+        return PREFER_BIT_RATE;
+    }
+
+    @Override
+    public float getFrameRate() {
+        return mFpsRange.getUpper();
+    }
+
+    @Override
+    public double getCameraHorizontalViewAngle() {
+        return mHorizontalViewAngle;
+    }
+}
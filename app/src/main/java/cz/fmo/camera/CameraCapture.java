@@ -21,22 +21,26 @@ import cz.fmo.util.Config;
  * To stop receiving frames, call the release() method.
  */
 @SuppressWarnings("deprecation")
-class CameraCapture implements Camera.PreviewCallback {
+class CameraCapture implements Camera.PreviewCallback, CaptureBackend {
     private static final String MIME_TYPE = "video/avc";
-    private static final float PREFER_FRAME_RATE = 30.f; // frames per second
     private static final int PREFER_BIT_RATE = 6 * 1024 * 1024; // bits per second
     private static final int PREFER_I_FRAME_INTERVAL = 1; // seconds
     private static final int IMAGE_FORMAT = ImageFormat.NV21;
     private static final int BITS_PER_PIXEL = ImageFormat.getBitsPerPixel(IMAGE_FORMAT);
+    private static final int INITIAL_CALLBACK_BUFFERS = 4;
+    private static final long CALLBACK_BUFFER_MEMORY_BUDGET = 32 * 1024 * 1024; // bytes
     private final Callback mCb;
     private final int mPreferWidth;
     private final int mPreferHeight;
     private final boolean mPreferFrontFacing;
+    private final float mPreferFrameRate; // frames per second
     private Camera mCamera;
     private Camera.Size mSize = null;
     private float mFrameRate = 0;
     private boolean mStarted = false;
     private boolean mReleased = false;
+    private PreviewBufferMonitor mBufferMonitor;
+    private PreviewBufferMonitor.Window mLoggedWindow;
 
     /**
      * Selects a suitable camera and opens it. The provided callback is used to report errors and
@@ -47,6 +51,7 @@ class CameraCapture implements Camera.PreviewCallback {
         mPreferWidth = config.isHighRes() ? 1920 : 1280;
         mPreferHeight = config.isHighRes() ? 1080 : 720;
         mPreferFrontFacing = config.isFrontFacing();
+        mPreferFrameRate = config.getFrameRate();
         int bestCam = selectCamera();
 
         if (bestCam < 0) {
@@ -65,7 +70,8 @@ class CameraCapture implements Camera.PreviewCallback {
         configureCamera();
     }
 
-    double getCameraHorizontalViewAngle() {
+    @Override
+    public double getCameraHorizontalViewAngle() {
         Camera.Parameters p = mCamera.getParameters();
         return p.getHorizontalViewAngle();
     }
@@ -110,12 +116,12 @@ class CameraCapture implements Camera.PreviewCallback {
 
     /**
      * Modifies camera minimum and maximum frames per second parameters. Lists all supported frame
-     * rate ranges and chooses the one closest to PREFER_FRAME_RATE.
+     * rate ranges and chooses the one closest to the frame rate of the config.
      */
     private void configureFrameRate(Camera.Parameters params) {
         int[] bestRange = null;
         int bestScore = Integer.MAX_VALUE;
-        int preferFp1000s = Math.round(PREFER_FRAME_RATE * 1000.f);
+        int preferFp1000s = Math.round(mPreferFrameRate * 1000.f);
 
         for (int[] range : params.getSupportedPreviewFpsRange()) {
             int dLow = Math.abs(range[0] - preferFp1000s);
@@ -132,6 +138,9 @@ class CameraCapture implements Camera.PreviewCallback {
         if (bestRange != null) {
             params.setPreviewFpsRange(bestRange[0], bestRange[1]);
             mFrameRate = (float) (bestRange[0] + bestRange[1]) / (2 * 1000.f);
+            if (mFrameRate != mPreferFrameRate) {
+                Log.w("Camera runs at " + mFrameRate + " FPS instead of " + mPreferFrameRate + " FPS");
+            }
         }
     }
 
@@ -151,17 +160,17 @@ class CameraCapture implements Camera.PreviewCallback {
         }
     }
 
-    /**
-     * Starts writing frames into the provided target texture and sending raw data via the callback.
-     */
+    @Override
     public void start(@NonNull SurfaceTexture outputTexture) {
         if (mCamera == null) return;
         try {
             mCamera.setPreviewTexture(outputTexture);
             if (mCb != null) {
-                for (int i = 0; i < 4; i++) {
-                    byte[] buffer = new byte[(mSize.width * mSize.height * BITS_PER_PIXEL) / 8];
-                    mCamera.addCallbackBuffer(buffer);
+                int bufferSize = (mSize.width * mSize.height * BITS_PER_PIXEL) / 8;
+                mBufferMonitor = new PreviewBufferMonitor(bufferSize, INITIAL_CALLBACK_BUFFERS,
+                        CALLBACK_BUFFER_MEMORY_BUDGET);
+                for (int i = 0; i < INITIAL_CALLBACK_BUFFERS; i++) {
+                    mCamera.addCallbackBuffer(new byte[bufferSize]);
                 }
                 mCamera.setPreviewCallbackWithBuffer(this);
             }
@@ -175,17 +184,41 @@ class CameraCapture implements Camera.PreviewCallback {
     }
 
     /**
-     * Receives frame from the camera as raw, YUV 4:2:0 single plane data.
+     * Receives frame from the camera as raw, YUV 4:2:0 single plane data. The buffer pool grows by
+     * one buffer if the PreviewBufferMonitor detects that the camera ran out of buffers, and
+     * shrinks again by keeping the buffer of a frame once no frames are lost anymore.
      */
     @Override
     public void onPreviewFrame(byte[] dataYUV420SP, Camera camera) {
+        long receivedNs = System.nanoTime();
         mCb.onCameraFrame(dataYUV420SP);
-        mCamera.addCallbackBuffer(dataYUV420SP);
+        PreviewBufferMonitor.Resize resize = mBufferMonitor.onFrame(receivedNs, System.nanoTime());
+        if (resize != PreviewBufferMonitor.Resize.TRIM) mCamera.addCallbackBuffer(dataYUV420SP);
+        if (resize == PreviewBufferMonitor.Resize.GROW) {
+            mCamera.addCallbackBuffer(new byte[dataYUV420SP.length]);
+        }
+        logBufferMonitorWindow();
     }
 
     /**
-     * Stops writing frames.
+     * Counts the frames arriving in the preview texture, which the camera renders even when there
+     * is no callback buffer left for them.
      */
+    @Override
+    public void onOutputFrame() {
+        if (mBufferMonitor != null) mBufferMonitor.onSensorFrame();
+    }
+
+    private void logBufferMonitorWindow() {
+        PreviewBufferMonitor.Window window = mBufferMonitor.getLastWindow();
+        if (window == null || window == mLoggedWindow) return;
+        mLoggedWindow = window;
+        if (!window.isLosingFrames()) return;
+        String cause = window.isDetectionBound() ? "detection" : "camera pipeline";
+        Log.d("Preview buffers: " + window + ", lost " + window.getLostFrames() + " frames (" + cause + ")");
+    }
+
+    @Override
     public void stop() {
         if (mCamera == null) return;
         mCamera.setPreviewCallback(null);
@@ -193,9 +226,7 @@ class CameraCapture implements Camera.PreviewCallback {
         mStarted = false;
     }
 
-    /**
-     * Stops writing frames into the output texture and releases all resources.
-     */
+    @Override
     public void release() {
         if (mReleased) return;
         mReleased = true;
@@ -232,10 +263,8 @@ class CameraCapture implements Camera.PreviewCallback {
         return 0;
     }
 
-    /**
-     * @return a MediaFormat object describing a video format compatible with the camera output
-     */
-    MediaFormat getMediaFormat() {
+    @Override
+    public MediaFormat getMediaFormat() {
         MediaFormat f = MediaFormat.createVideoFormat(MIME_TYPE, mSize.width, mSize.height);
         f.setInteger(MediaFormat.KEY_BIT_RATE, PREFER_BIT_RATE);
         f.setInteger(MediaFormat.KEY_COLOR_FORMAT, CodecCapabilities.COLOR_FormatSurface);
@@ -244,19 +273,23 @@ class CameraCapture implements Camera.PreviewCallback {
         return f;
     }
 
-    int getWidth() {
+    @Override
+    public int getWidth() {
         return mSize.width;
     }
 
-    int getHeight() {
+    @Override
+    public int getHeight() {
         return mSize.height;
     }
 
-    int getBitRate() {
+    @Override
+    public int getBitRate() {
         return PREFER_BIT_RATE;
     }
 
-    float getFrameRate() {
+    @Override
+    public float getFrameRate() {
         return mFrameRate;
     }
 
@@ -1,11 +1,12 @@
 package cz.fmo.camera;
 
-import android.hardware.Camera;
+import android.content.Context;
 import android.media.MediaFormat;
 import android.opengl.GLES20;
 import android.support.annotation.Nullable;
 import android.view.Surface;
 
+import ch.m3ts.util.Log;
 import cz.fmo.graphics.CameraFrameRenderer;
 import cz.fmo.graphics.EGL;
 import cz.fmo.graphics.FontRenderer;
@@ -20,13 +21,17 @@ import cz.fmo.util.GenericThread;
  * receive the captured frames as a byte array.
  */
 public class CameraThread extends GenericThread<CameraThreadHandler> {
+    private static final int RENDER_STATS_FRAMES = 300;
     private final Callback mCb;
     private final java.util.ArrayList<Target> mTargets = new java.util.ArrayList<>();
     private EGL mEGL;
     private CameraFrameRenderer mCameraFrameRenderer;
     private TriangleStripRenderer mTriangleStripRenderer;
     private FontRenderer mFontRenderer;
-    private CameraCapture mCapture;
+    private CaptureBackend mCapture;
+    private volatile boolean mDebugOverlay = false;
+    private long mFrameIndex = 0;
+    private long mRenderTimeSumNs = 0;
 
     /**
      * The constructor selects and opens a suitable camera. All methods can be called afterwards.
@@ -34,9 +39,23 @@ public class CameraThread extends GenericThread<CameraThreadHandler> {
      * fail.
      */
     public CameraThread(@Nullable Callback cb, Config config) {
+        this(cb, config, null);
+    }
+
+    /**
+     * Same as above, but uses the camera2 backend if it is enabled in the config and the device
+     * supports the configured frame rate. Falls back to android.hardware.Camera otherwise.
+     */
+    public CameraThread(@Nullable Callback cb, Config config, @Nullable Context context) {
         super("CameraThread");
         mCb = cb;
-        mCapture = new CameraCapture(mCb, config);
+        if (context != null && config.isUseCamera2()) {
+            mCapture = Camera2Capture.open(mCb, config, context);
+        }
+        if (mCapture == null) {
+            if (config.isUseCamera2()) Log.d("Camera2 not available, falling back to android.hardware.Camera");
+            mCapture = new CameraCapture(mCb, config);
+        }
     }
 
     /**
@@ -56,7 +75,9 @@ public class CameraThread extends GenericThread<CameraThreadHandler> {
     protected void setup(CameraThreadHandler handler) {
         mEGL = new EGL();
 
-        mTargets.add(new DummyCameraTarget());
+        DummyCameraTarget dummyTarget = new DummyCameraTarget();
+        dummyTarget.setRenderPolicy(RenderPolicy.OFF);
+        mTargets.add(dummyTarget);
 
         for (Target target : mTargets) {
             target.initEGL(mEGL);
@@ -109,16 +130,35 @@ public class CameraThread extends GenericThread<CameraThreadHandler> {
         }
     }
 
+    /**
+     * Shows or hides the debug overlay, targets with RenderPolicy.DEBUG_ONLY are only rendered
+     * while it is shown.
+     */
+    public void setDebugOverlay(boolean debugOverlay) {
+        mDebugOverlay = debugOverlay;
+    }
+
     /**
      * This method is triggered by the SurfaceTexture.onFrameAvailable() event. It is called every
-     * frame, as soon as the next image is ready to draw. Each registered surface is drawn on using
-     * OpenGL.
+     * frame, as soon as the next image is ready to draw. The frame is latched once and drawn onto
+     * each registered surface whose RenderPolicy asks for this frame.
      */
     void frameAvailable() {
         if (mCb != null) mCb.onCameraRender();
+        mCapture.onOutputFrame();
 
+        long startNs = System.nanoTime();
+        mCameraFrameRenderer.latchCameraFrame();
         for (Target target : mTargets) {
-            target.render(this);
+            if (target.getRenderPolicy().shouldRender(mFrameIndex, mDebugOverlay)) {
+                target.render(this);
+            }
+        }
+        mRenderTimeSumNs += System.nanoTime() - startNs;
+
+        if (++mFrameIndex % RENDER_STATS_FRAMES == 0) {
+            if (mDebugOverlay) Log.d("Camera render time: " + mRenderTimeSumNs / RENDER_STATS_FRAMES / 1000 + "us per frame");
+            mRenderTimeSumNs = 0;
         }
     }
 
@@ -175,6 +215,7 @@ public class CameraThread extends GenericThread<CameraThreadHandler> {
         protected final int mHeight;
         private Surface mSurface;
         private EGL.Surface mEglSurface;
+        private RenderPolicy mRenderPolicy = RenderPolicy.EVERY_FRAME;
 
         public Target(Surface surface, int width, int height) {
             mSurface = surface;
@@ -189,6 +230,18 @@ public class CameraThread extends GenericThread<CameraThreadHandler> {
             mSurface = surface;
         }
 
+        public RenderPolicy getRenderPolicy() {
+            return mRenderPolicy;
+        }
+
+        /**
+         * Sets on which frames this target gets rendered, default is every frame. Left to the
+         * targets themselves, as some of them (e.g. RecordingCameraTarget) need every frame.
+         */
+        protected void setRenderPolicy(RenderPolicy renderPolicy) {
+            mRenderPolicy = renderPolicy;
+        }
+
         /**
          * Create the associated EGL.Surface. For that, the EGL context must be already established
          * on this thread.
@@ -0,0 +1,46 @@
+package cz.fmo.camera;
+
+import android.graphics.SurfaceTexture;
+import android.media.MediaFormat;
+import android.support.annotation.NonNull;
+
+/**
+ * Camera API used by the CameraThread to capture frames. Frames are rendered into the provided
+ * SurfaceTexture and additionally delivered as NV21 bytes to the CameraCapture.Callback.
+ */
+interface CaptureBackend {
+    /**
+     * Starts writing frames into the provided target texture and sending raw data via the callback.
+     */
+    void start(@NonNull SurfaceTexture outputTexture);
+
+    /**
+     * Called by the CameraThread for every frame that arrived in the output texture.
+     */
+    void onOutputFrame();
+
+    /**
+     * Stops writing frames.
+     */
+    void stop();
+
+    /**
+     * Stops writing frames into the output texture and releases all resources.
+     */
+    void release();
+
+    /**
+     * @return a MediaFormat object describing a video format compatible with the camera output
+     */
+    MediaFormat getMediaFormat();
+
+    int getWidth();
+
+    int getHeight();
+
+    int getBitRate();
+
+    float getFrameRate();
+
+    double getCameraHorizontalViewAngle();
+}
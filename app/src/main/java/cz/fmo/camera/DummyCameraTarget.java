@@ -6,8 +6,9 @@ import android.opengl.GLES20;
 import android.view.Surface;
 
 /**
- * An extra target whose point is just to consume the camera frames. Without it, the camera stream
- * would freeze whenever no target is listening.
+ * An extra target which makes sure there is always a surface for the EGL context, even if no other
+ * target was added. The CameraThread latches every camera frame itself, so this target does not
+ * need to be rendered.
  */
 class DummyCameraTarget extends CameraThread.Target {
     private int mTexId;
@@ -0,0 +1,95 @@
+package cz.fmo.camera;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Copies the planes of a YUV_420_888 image into a NV21 byte array, which is the format expected by
+ * the FMO library.
+ * <p>
+ * Most devices deliver semi-planar images (chroma pixel stride 2, no row padding) with the chroma
+ * samples stored in VU order. In that case the V plane already is the interleaved VU data of NV21
+ * and is copied in bulk. Other layouts are copied pixel by pixel.
+ */
+final class Nv21Packer {
+    private static final int INTERLEAVED_SAMPLES = 16;
+
+    private Nv21Packer() {
+    }
+
+    /**
+     * @return size in bytes of a NV21 frame with the given dimensions
+     */
+    static int getFrameSize(int width, int height) {
+        return width * height + width * height / 2;
+    }
+
+    /**
+     * @param y             luminance plane
+     * @param yRowStride    row stride of the luminance plane
+     * @param u             U (Cb) plane
+     * @param v             V (Cr) plane
+     * @param uvRowStride   row stride of both chroma planes
+     * @param uvPixelStride pixel stride of both chroma planes
+     * @param out           destination, at least getFrameSize(width, height) bytes long
+     */
+    static void pack(ByteBuffer y, int yRowStride, ByteBuffer u, ByteBuffer v, int uvRowStride,
+                     int uvPixelStride, int width, int height, byte[] out) {
+        int offset = packLuminance(y, yRowStride, width, height, out);
+        int chromaWidth = width / 2;
+        int chromaHeight = height / 2;
+
+        if (uvPixelStride == 2 && uvRowStride == width && isInterleavedVu(u, v, chromaWidth * chromaHeight * 2)) {
+            // the V plane is a view into the interleaved VU data, only its last U byte is missing
+            ByteBuffer vu = v.duplicate();
+            vu.position(0);
+            int length = Math.min(vu.remaining(), chromaWidth * chromaHeight * 2 - 1);
+            vu.get(out, offset, length);
+            out[offset + chromaWidth * chromaHeight * 2 - 1] = u.get(u.limit() - 1);
+            return;
+        }
+
+        for (int row = 0; row < chromaHeight; row++) {
+            for (int col = 0; col < chromaWidth; col++) {
+                int index = row * uvRowStride + col * uvPixelStride;
+                out[offset++] = v.get(index);
+                out[offset++] = u.get(index);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the U plane starts one byte after the V plane in the same memory, without
+     * writing to the planes of the camera. Buffers backed by an array are compared by their
+     * positions in it. The address of a direct buffer is not known, so the planes of a camera image
+     * are taken as interleaved if they are of the length of the interleaved data and the U samples
+     * read through the V plane match the U plane at a few places.
+     */
+    private static boolean isInterleavedVu(ByteBuffer u, ByteBuffer v, int length) {
+        if (u.hasArray() && v.hasArray()) {
+            return u.array() == v.array() && u.arrayOffset() == v.arrayOffset() + 1;
+        }
+        if (u.limit() != length - 1 || v.limit() != length - 1) return false;
+        int pairs = length / 2;
+        for (int i = 0; i < INTERLEAVED_SAMPLES; i++) {
+            int index = 2 * (int) ((long) (pairs - 1) * i / (INTERLEAVED_SAMPLES - 1));
+            if (index + 1 < v.limit() && v.get(index + 1) != u.get(index)) return false;
+        }
+        return true;
+    }
+
+    private static int packLuminance(ByteBuffer y, int yRowStride, int width, int height, byte[] out) {
+        ByteBuffer src = y.duplicate();
+        if (yRowStride == width) {
+            src.position(0);
+            src.get(out, 0, width * height);
+            return width * height;
+        }
+        int offset = 0;
+        for (int row = 0; row < height; row++) {
+            src.position(row * yRowStride);
+            src.get(out, offset, width);
+            offset += width;
+        }
+        return offset;
+    }
+}
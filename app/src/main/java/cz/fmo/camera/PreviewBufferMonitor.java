@@ -0,0 +1,196 @@
+package cz.fmo.camera;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps track of the health of the preview callback buffer pool of CameraCapture.
+ * <p>
+ * For every window of WINDOW_NS, the number of delivered frames is compared to the number of frames
+ * the sensor produced. android.hardware.Camera doesn't report skipped callbacks, but every frame
+ * still arrives in the preview SurfaceTexture, so the CameraThread reports those via
+ * onSensorFrame(). The time a buffer is held by the callback tells whether lost frames are caused
+ * by the detection (mean hold time longer than a frame) or by the camera pipeline running out of
+ * buffers (mean hold time shorter than a frame). Only in the latter case an additional buffer
+ * helps, as long as the pool stays within the memory budget. Once TRIM_AFTER_WINDOWS windows in a
+ * row lost no frames, the pool gives back one of the additional buffers.
+ * <p>
+ * The two counts come from different threads, so a frame at the window boundary may be counted in
+ * the neighbouring window. Up to FRAME_COUNT_TOLERANCE lost frames per window are therefore not
+ * acted upon.
+ */
+class PreviewBufferMonitor {
+    static final long WINDOW_NS = 5_000_000_000L;
+    static final int TRIM_AFTER_WINDOWS = 3;
+    static final int FRAME_COUNT_TOLERANCE = 1;
+    private final AtomicInteger sensorFrames = new AtomicInteger();
+    private final int minBuffers;
+    private final int maxBuffers;
+    private int bufferCount;
+    private int cleanWindows = 0;
+    private long windowStartNs = -1;
+    private int deliveredFrames = 0;
+    private long holdTimeSumNs = 0;
+    private long maxHoldTimeNs = 0;
+    private Window lastWindow;
+
+    /**
+     * Change of the buffer pool, see onFrame().
+     */
+    enum Resize {
+        NONE,
+        /**
+         * Register an additional buffer.
+         */
+        GROW,
+        /**
+         * Don't give the buffer of this frame back to the camera.
+         */
+        TRIM
+    }
+
+    /**
+     * @param bufferSize     size of one callback buffer in bytes
+     * @param initialBuffers number of buffers registered when starting the camera
+     * @param memoryBudget   maximum amount of bytes all callback buffers together may use
+     */
+    PreviewBufferMonitor(int bufferSize, int initialBuffers, long memoryBudget) {
+        this.bufferCount = initialBuffers;
+        this.minBuffers = initialBuffers;
+        this.maxBuffers = Math.max(initialBuffers, (int) (memoryBudget / bufferSize));
+    }
+
+    /**
+     * Call for every frame the camera produced, delivered to the callback or not. May be called
+     * from any thread.
+     */
+    void onSensorFrame() {
+        sensorFrames.incrementAndGet();
+    }
+
+    /**
+     * Call for every frame as soon as the callback is done with its buffer.
+     *
+     * @param receivedNs time (System.nanoTime()) the frame was received
+     * @param returnedNs time (System.nanoTime()) the callback was done with the buffer
+     * @return how the pool should change
+     */
+    Resize onFrame(long receivedNs, long returnedNs) {
+        if (windowStartNs < 0) {
+            windowStartNs = receivedNs;
+            // frames produced before the first delivered one don't belong to any window
+            sensorFrames.set(1);
+        }
+        long holdTimeNs = returnedNs - receivedNs;
+        deliveredFrames++;
+        holdTimeSumNs += holdTimeNs;
+        maxHoldTimeNs = Math.max(maxHoldTimeNs, holdTimeNs);
+        long windowDurationNs = returnedNs - windowStartNs;
+        if (windowDurationNs < WINDOW_NS) return Resize.NONE;
+
+        int windowSensorFrames = sensorFrames.getAndSet(0);
+        long frameIntervalNs = windowDurationNs / Math.max(1, Math.max(windowSensorFrames, deliveredFrames));
+        lastWindow = new Window(windowSensorFrames, deliveredFrames, holdTimeSumNs / deliveredFrames,
+                maxHoldTimeNs, frameIntervalNs, bufferCount);
+        windowStartNs = returnedNs;
+        deliveredFrames = 0;
+        holdTimeSumNs = 0;
+        maxHoldTimeNs = 0;
+
+        if (lastWindow.isLosingFrames()) {
+            cleanWindows = 0;
+            if (lastWindow.isDetectionBound() || bufferCount >= maxBuffers) return Resize.NONE;
+            bufferCount++;
+            return Resize.GROW;
+        }
+        cleanWindows++;
+        if (cleanWindows < TRIM_AFTER_WINDOWS || bufferCount <= minBuffers) return Resize.NONE;
+        cleanWindows = 0;
+        bufferCount--;
+        return Resize.TRIM;
+    }
+
+    int getBufferCount() {
+        return bufferCount;
+    }
+
+    int getMaxBuffers() {
+        return maxBuffers;
+    }
+
+    /**
+     * @return statistics of the last completed window, null if no window completed yet
+     */
+    Window getLastWindow() {
+        return lastWindow;
+    }
+
+    /**
+     * Statistics of one monitoring window.
+     */
+    static class Window {
+        private final int sensorFrames;
+        private final int deliveredFrames;
+        private final long meanHoldTimeNs;
+        private final long maxHoldTimeNs;
+        private final long frameIntervalNs;
+        private final int bufferCount;
+
+        Window(int sensorFrames, int deliveredFrames, long meanHoldTimeNs, long maxHoldTimeNs,
+               long frameIntervalNs, int bufferCount) {
+            this.sensorFrames = sensorFrames;
+            this.deliveredFrames = deliveredFrames;
+            this.meanHoldTimeNs = meanHoldTimeNs;
+            this.maxHoldTimeNs = maxHoldTimeNs;
+            this.frameIntervalNs = frameIntervalNs;
+            this.bufferCount = bufferCount;
+        }
+
+        int getSensorFrames() {
+            return sensorFrames;
+        }
+
+        int getDeliveredFrames() {
+            return deliveredFrames;
+        }
+
+        int getLostFrames() {
+            return Math.max(0, sensorFrames - deliveredFrames);
+        }
+
+        /**
+         * @return true if more frames got lost than can be explained by the window boundary
+         */
+        boolean isLosingFrames() {
+            return getLostFrames() > FRAME_COUNT_TOLERANCE;
+        }
+
+        long getMeanHoldTimeNs() {
+            return meanHoldTimeNs;
+        }
+
+        long getMaxHoldTimeNs() {
+            return maxHoldTimeNs;
+        }
+
+        /**
+         * @return mean time between two sensor frames within the window
+         */
+        long getFrameIntervalNs() {
+            return frameIntervalNs;
+        }
+
+        /**
+         * @return true if the callback holds the buffers for longer than a frame on average
+         */
+        boolean isDetectionBound() {
+            return meanHoldTimeNs > frameIntervalNs;
+        }
+
+        @Override
+        public String toString() {
+            return "delivered " + deliveredFrames + "/" + sensorFrames + " frames, hold time mean "
+                    + meanHoldTimeNs / 1000 + "us max " + maxHoldTimeNs / 1000 + "us, "
+                    + bufferCount + " buffers";
+        }
+    }
+}
@@ -11,8 +11,6 @@ import cz.fmo.graphics.TriangleStripRenderer;
  * the camera frame, but also highlights detected FMO tracks.
  */
 public class PreviewCameraTarget extends CameraThread.Target {
-    private int mSlowdown = 0;
-    private int mCounter = 0;
 
     public PreviewCameraTarget(Surface surface, int width, int height) {
         super(surface, width, height);
@@ -24,15 +22,14 @@ public class PreviewCameraTarget extends CameraThread.Target {
      * @param n every n-th frame will be rendered
      */
     public void setSlowdown(int n) {
-        mSlowdown = n;
-        mCounter = n;
+        setRenderPolicy(RenderPolicy.everyNthFrame(n));
     }
 
-    @Override
-    public void render(CameraThread thread) {
-        if (++mCounter < mSlowdown) return;
-        mCounter = 0;
-        super.render(thread);
+    /**
+     * Set up the target to render only while the debug overlay of the CameraThread is shown.
+     */
+    public void setDebugOnly() {
+        setRenderPolicy(RenderPolicy.DEBUG_ONLY);
     }
 
     @Override
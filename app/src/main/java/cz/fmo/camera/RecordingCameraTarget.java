@@ -4,7 +4,7 @@ import android.view.Surface;
 
 /**
  * A simple camera target that can be disabled at any time. Draws only the frame provided by the
- * camera.
+ * camera. Always renders every frame, as the encoder needs the full frame rate.
  */
 public class RecordingCameraTarget extends CameraThread.Target {
     private boolean mEnabled = true;
@@ -0,0 +1,50 @@
+package cz.fmo.camera;
+
+/**
+ * Decides on which camera frames a CameraThread.Target gets rendered. Skipping frames on targets
+ * nobody looks at saves GPU and compositor work, which otherwise competes with the detection for
+ * the thermal budget of the device.
+ */
+public final class RenderPolicy {
+    /**
+     * Render every frame.
+     */
+    public static final RenderPolicy EVERY_FRAME = new RenderPolicy(1, false);
+
+    /**
+     * Render every frame, but only while the debug overlay is shown.
+     */
+    public static final RenderPolicy DEBUG_ONLY = new RenderPolicy(1, true);
+
+    /**
+     * Never render.
+     */
+    public static final RenderPolicy OFF = new RenderPolicy(0, false);
+
+    private final int mInterval;
+    private final boolean mDebugOnly;
+
+    private RenderPolicy(int interval, boolean debugOnly) {
+        mInterval = interval;
+        mDebugOnly = debugOnly;
+    }
+
+    /**
+     * @param n every n-th frame will be rendered, values below 2 render every frame
+     */
+    public static RenderPolicy everyNthFrame(int n) {
+        if (n <= 1) return EVERY_FRAME;
+        return new RenderPolicy(n, false);
+    }
+
+    /**
+     * @param frameIndex     index of the camera frame, starting at 0
+     * @param isDebugOverlay true if the debug overlay is currently shown
+     * @return true if the target should be rendered for this frame
+     */
+    boolean shouldRender(long frameIndex, boolean isDebugOverlay) {
+        if (mInterval == 0) return false;
+        if (mDebugOnly && !isDebugOverlay) return false;
+        return frameIndex % mInterval == 0;
+    }
+}
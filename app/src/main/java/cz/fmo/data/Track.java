@@ -119,9 +119,12 @@ public class Track {
         return mMaxVelocity;
     }
 
-    public void updateColor() {
+    /**
+     * @param now time on the clock the detections are timed with, see getLastDetectionTime()
+     */
+    public void updateColor(long now) {
         if (mLatestDx == 0 && mLatestDy == 0) return;
-        float sinceDetectionSec = ((float) (System.nanoTime() - mLastDetectionTime)) / 1e9f;
+        float sinceDetectionSec = ((float) (now - mLastDetectionTime)) / 1e9f;
         mColorHSV.hsv[0] = (mLatestDx > 0) ? 100.f : 200.f;
         mColorHSV.hsv[1] = Math.min(1.0f, .2f + 0.4f * sinceDetectionSec);
         mColorHSV.hsv[2] = Math.max((mLatestDx > 0) ? 0.6f : 0.8f, 1.f - 0.3f * sinceDetectionSec);
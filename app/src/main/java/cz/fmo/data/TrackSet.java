@@ -20,7 +20,10 @@ public class TrackSet {
     private SparseArray<Track> mCurrentTrackMap = new SparseArray<>();
     private SparseArray<Track> mPreviousTrackMap = new SparseArray<>();
 
-    private TrackSet() {}
+    /**
+     * Creates a track set of its own, separate from the shared instance (e.g. for a benchmark run).
+     */
+    public TrackSet() {}
 
     public static TrackSet getInstance() {
         return SingletonHolder.instance;
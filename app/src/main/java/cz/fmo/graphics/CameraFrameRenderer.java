@@ -15,6 +15,7 @@ import android.opengl.GLES20;
  * </ul>
  * When a new frame is available in the surface texture:
  * <ul>
+ * <li>call the latchCameraFrame() method once, with the EGL context current</li>
  * <li>make some surface current for writing, e.g. using EGL.Surface.makeCurrent()</li>
  * <li>call the drawCameraFrame() method to draw the surface texture onto the current surface</li>
  * </ul>
@@ -114,12 +115,21 @@ public class CameraFrameRenderer {
     }
 
     /**
-     * Draw the whole input surface texture onto the current output surface.
+     * Update the input surface texture to the newest camera frame. Must be called for every frame,
+     * otherwise the camera stream freezes.
      */
-    public void drawCameraFrame() {
-        if (mReleased) throw new RuntimeException("Draw after release");
+    public void latchCameraFrame() {
+        if (mReleased) throw new RuntimeException("Latch after release");
         mInputTex.updateTexImage();
         mInputTex.getTransformMatrix(mTemp);
+    }
+
+    /**
+     * Draw the whole input surface texture (as of the last latchCameraFrame() call) onto the current
+     * output surface.
+     */
+    public void drawCameraFrame() {
+        if (mReleased) throw new RuntimeException("Draw after release");
         GLES20.glUseProgram(mProgramId);
         GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
         GLES20.glBindTexture(TEXTURE_TYPE, mTextureId);
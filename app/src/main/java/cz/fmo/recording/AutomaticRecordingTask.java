@@ -11,6 +11,7 @@ import cz.fmo.util.Time;
  */
 public class AutomaticRecordingTask implements SaveThread.Task {
     private static final float CHUNK_SEC = 1.f;
+    private static final long NOW = Long.MIN_VALUE;
     private final Object mLock = new Object();
     private final File mFile;
     private final long mMarginUs;
@@ -35,6 +36,34 @@ public class AutomaticRecordingTask implements SaveThread.Task {
      * @param thread    thread to use for saving
      */
     public AutomaticRecordingTask(float marginSec, File file, SaveThread thread) {
+        this(NOW, marginSec, file, thread);
+    }
+
+    /**
+     * Saves a video that starts at an earlier point in time, e.g. at the beginning of a rally that
+     * just ended. The frames between startUs and the latest frame must still be in the buffer;
+     * otherwise the video starts with the oldest frame available.
+     *
+     * @param startUs   presentation time of the first event, as in SaveThread.getLatestTimeUs()
+     * @param marginSec number of seconds to include before the first event and after the last one
+     * @param file      file to save to, should be writable and have a .mp4 extension
+     * @param thread    thread to use for saving
+     */
+    public AutomaticRecordingTask(long startUs, float marginSec, File file, SaveThread thread) {
+        this(startUs, NOW, marginSec, file, thread);
+    }
+
+    /**
+     * Saves a video of events which are over already, e.g. a rally whose clip had to wait for the
+     * one before. The frames from startUs on must still be in the buffer.
+     *
+     * @param startUs   presentation time of the first event, as in SaveThread.getLatestTimeUs()
+     * @param endUs     presentation time of the last event
+     * @param marginSec number of seconds to include before the first event and after the last one
+     * @param file      file to save to, should be writable and have a .mp4 extension
+     * @param thread    thread to use for saving
+     */
+    public AutomaticRecordingTask(long startUs, long endUs, float marginSec, File file, SaveThread thread) {
         mFile = file;
         mMarginUs = Time.toUs(marginSec);
         mThread = thread;
@@ -46,7 +75,7 @@ public class AutomaticRecordingTask implements SaveThread.Task {
             return;
         }
 
-        if (!init()) {
+        if (!init(startUs, endUs)) {
             error();
             return;
         }
@@ -63,15 +92,17 @@ public class AutomaticRecordingTask implements SaveThread.Task {
         return b.getTimeUs(b.prev(b.end()));
     }
 
-    private boolean init() {
+    private boolean init(long startUs, long endUs) {
         synchronized (mBuf) {
             if (mBuf.empty()) return false;
             long nowUs = latestUs(mBuf);
-            long startUs = nowUs - mMarginUs;
-            mEndUs = nowUs + mMarginUs;
-            mFirst = mBuf.findByTime(mBuf.begin(), mBuf.end(), startUs);
+            if (endUs == NOW || endUs > nowUs) endUs = nowUs;
+            if (startUs == NOW || startUs > endUs) startUs = endUs;
+            mEndUs = endUs + mMarginUs;
+            mFirst = mBuf.findByTime(mBuf.begin(), mBuf.end(), startUs - mMarginUs);
             mFirst = mBuf.findIFrame(mFirst);
             if (!mBuf.isIFrame(mFirst)) return false;
+            mBuf.pin(mFirst);
         }
 
         try {
@@ -89,6 +120,8 @@ public class AutomaticRecordingTask implements SaveThread.Task {
         boolean finish = false;
         int last;
         synchronized (mBuf) {
+            // the buffer got cleared, end the video with the frames written so far
+            if (!mBuf.isPinned(mFirst)) return true;
             last = mBuf.end();
 
             // detect end of video
@@ -101,10 +134,10 @@ public class AutomaticRecordingTask implements SaveThread.Task {
         }
 
         int numFrames = mBuf.getNumFrames(mFirst, last);
-        mThread.writeFrames(mFirst, last, mMuxer, mTrack);
-        mFramesWritten += numFrames;
+        int written = mThread.writeFrames(mFirst, last, mMuxer, mTrack);
+        mFramesWritten += written;
         mFirst = last;
-        return finish;
+        return finish || written < numFrames;
     }
 
     @Override
@@ -135,6 +168,7 @@ public class AutomaticRecordingTask implements SaveThread.Task {
     }
 
     private void cleanUp() {
+        unpin();
         if (mMuxer != null) {
             mMuxer.stop();
             mMuxer.release();
@@ -144,6 +178,12 @@ public class AutomaticRecordingTask implements SaveThread.Task {
         mHandler.cancelTask(this);
     }
 
+    private void unpin() {
+        synchronized (mBuf) {
+            if (mBuf.isPinned(mFirst)) mBuf.unpin();
+        }
+    }
+
     @Override
     public boolean extend() {
         synchronized (mLock) {
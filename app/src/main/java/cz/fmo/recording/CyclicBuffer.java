@@ -3,7 +3,11 @@ package cz.fmo.recording;
 import android.media.MediaCodec.BufferInfo;
 import android.media.MediaFormat;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 /**
  * Holds encoded video data in a circular buffer.
@@ -11,10 +15,30 @@ import java.nio.ByteBuffer;
  * There are separate buffers for the data itself and metadata entries. New frames are added to the
  * back. If there is not enough space for a new frame, one or more frames are removed from the
  * front.
+ * <p>
+ * The data buffer is either a Java array or a memory mapped file (see mapFile()). The latter keeps
+ * the Java heap usage independent of the buffer length and lets MediaMuxer read the frames without
+ * copying them first.
+ * <p>
+ * A consumer can pin a frame (see pin()), which protects it and all following frames from being
+ * removed. The frames can then be read without holding the lock of the buffer, while the producer
+ * keeps adding frames. If a new frame doesn't fit without removing a pinned one, it is dropped
+ * together with all following frames up to the next I-frame, so the buffer stays decodable.
+ * <p>
+ * The pin moves along with the frames being read. Frames which are to be read later, once the
+ * current reader is done, can be protected the same way with a hold (see hold()).
  */
 public class CyclicBuffer {
-    private final byte[] mData;
+    private static final int NO_PIN = -1;
+    private final ByteBuffer mData;
+    private final ByteBuffer mWriteView;
     private final BufferInfo[] mMeta;
+    private final RandomAccessFile mBackingFile;
+    private final File mBackingFilePath;
+    private int mPin = NO_PIN;
+    private int mHold = NO_PIN;
+    private boolean mWaitForIFrame = false;
+    private int mDroppedFrames = 0;
     private int mHead = 0;
     private int mTail = 0;
     private MediaFormat mFormat = null;
@@ -25,15 +49,15 @@ public class CyclicBuffer {
      * @param seconds approximate buffer length
      */
     public CyclicBuffer(int bps, float fps, @SuppressWarnings("SameParameterValue") float seconds) {
-        // approximate the required buffer sizes
-        float nFrames = fps * seconds;
-        float nBytes = (bps * seconds) * (1 / 8.f);
-        float factor = ((nFrames + 2.f) / nFrames); // add extra space for a few frames
-        int dataSize = (int) Math.ceil(factor * nBytes);
-        int metaSize = (int) Math.ceil(2.f * nFrames);
+        this(ByteBuffer.wrap(new byte[getDataSize(bps, fps, seconds)]), getMetaSize(fps, seconds),
+                null, null);
+    }
 
-        // allocate buffers
-        mData = new byte[dataSize];
+    private CyclicBuffer(ByteBuffer data, int metaSize, RandomAccessFile backingFile, File backingFilePath) {
+        mData = data;
+        mWriteView = data.duplicate();
+        mBackingFile = backingFile;
+        mBackingFilePath = backingFilePath;
         mMeta = new BufferInfo[metaSize];
         for (int i = 0; i < metaSize; ++i) {
             mMeta[i] = new BufferInfo();
@@ -41,6 +65,58 @@ public class CyclicBuffer {
         }
     }
 
+    /**
+     * Creates a buffer whose data lives in the given file, which is mapped into memory. Only the
+     * metadata stays on the Java heap, so the buffer can hold minutes of video. The file is
+     * overwritten and gets deleted by release().
+     *
+     * @param bps     expected bits per second
+     * @param fps     expected frames per second
+     * @param seconds approximate buffer length
+     * @param file    backing file, should be located on internal storage (e.g. the cache dir)
+     * @throws IOException if the file can't be created or mapped
+     */
+    public static CyclicBuffer mapFile(int bps, float fps, float seconds, File file) throws IOException {
+        int dataSize = getDataSize(bps, fps, seconds);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(dataSize);
+            ByteBuffer data = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, dataSize);
+            return new CyclicBuffer(data, getMetaSize(fps, seconds), raf, file);
+        } catch (IOException e) {
+            raf.close();
+            if (!file.delete()) file.deleteOnExit();
+            throw e;
+        }
+    }
+
+    private static int getDataSize(int bps, float fps, float seconds) {
+        // approximate the required buffer size
+        float nFrames = fps * seconds;
+        float nBytes = (bps * seconds) * (1 / 8.f);
+        float factor = ((nFrames + 2.f) / nFrames); // add extra space for a few frames
+        return (int) Math.ceil(factor * nBytes);
+    }
+
+    private static int getMetaSize(float fps, float seconds) {
+        return (int) Math.ceil(2.f * fps * seconds);
+    }
+
+    /**
+     * Closes and deletes the backing file, if there is one. The buffer must not be used afterwards.
+     * The memory of a mapped file is returned to the system once the buffer is garbage collected.
+     */
+    public void release() {
+        clear();
+        if (mBackingFile == null) return;
+        try {
+            mBackingFile.close();
+        } catch (IOException e) {
+            // nothing left to do, the file gets deleted anyway
+        }
+        if (!mBackingFilePath.delete()) mBackingFilePath.deleteOnExit();
+    }
+
     boolean empty() {
         return mHead == mTail;
     }
@@ -65,9 +141,68 @@ public class CyclicBuffer {
         return mTail;
     }
 
+    /**
+     * Removes all frames and releases the pin and the hold, if any.
+     */
     public void clear() {
         mHead = 0;
         mTail = 0;
+        mPin = NO_PIN;
+        mHold = NO_PIN;
+        mWaitForIFrame = false;
+    }
+
+    /**
+     * Protects the frame at the given index, and all frames that follow, from being removed. The
+     * index may also be end(), to protect the next frame to be added. Only one frame can be pinned
+     * at a time, a previous pin is replaced.
+     *
+     * @param index index of the frame to pin
+     */
+    void pin(int index) {
+        if (index != mTail && outOfRange(mHead, mTail, index)) throw new RuntimeException("Bad index");
+        mPin = index;
+    }
+
+    /**
+     * Releases the pin, allowing all frames to be removed.
+     */
+    void unpin() {
+        mPin = NO_PIN;
+    }
+
+    /**
+     * @return true if the frame at index is pinned; false if another frame is pinned or the pin was
+     * released (e.g. by clear())
+     */
+    boolean isPinned(int index) {
+        return mPin != NO_PIN && mPin == index;
+    }
+
+    /**
+     * Protects the frame at the given index, and all frames that follow, from being removed, like
+     * pin() does. The hold stays in place while the pin moves, so it keeps the frames of a reader
+     * which has to wait for the current one. A previous hold is replaced.
+     *
+     * @param index index of the frame to hold
+     */
+    void hold(int index) {
+        if (outOfRange(mHead, mTail, index)) throw new RuntimeException("Bad index");
+        mHold = index;
+    }
+
+    /**
+     * Releases the hold, the frames are only protected by the pin anymore.
+     */
+    void releaseHold() {
+        mHold = NO_PIN;
+    }
+
+    /**
+     * @return number of frames that were not added because they would have replaced a pinned frame
+     */
+    int getDroppedFrames() {
+        return mDroppedFrames;
     }
 
     /**
@@ -171,22 +306,22 @@ public class CyclicBuffer {
     }
 
     /**
-     * Provides a location of the first byte in mData that immediately follows data belonging to
+     * Provides a location of the first byte in the data buffer that immediately follows data belonging to
      * the last frame. If data of the specified size wouldn't fit in the data buffer, location 0
      * is returned (i.e., index of the first byte of the buffer). It is not tested whether the block
      * overlaps other blocks. The method cannot fail.
      *
      * @param size size of a new block to be placed
-     * @return index into mData that immediately follows data belonging to the last frame, or 0
+     * @return index into the data buffer that immediately follows data belonging to the last frame, or 0
      */
     private int placeBlock(int size) {
-        if (size > mData.length) {
+        if (size > mData.capacity()) {
             throw new RuntimeException("frame with " + size + " bytes is too big for the buffer");
         }
         if (empty()) return 0;
         BufferInfo backMeta = mMeta[prev(mTail)];
         int backEnd = backMeta.offset + backMeta.size;
-        if (backEnd + size <= mData.length) return backEnd;
+        if (backEnd + size <= mData.capacity()) return backEnd;
         return 0;
     }
 
@@ -216,22 +351,41 @@ public class CyclicBuffer {
 
     /**
      * Adds a single frame to the back. If there is not enough space for the new frame, one or
-     * more frames will be removed from the front.
+     * more frames will be removed from the front. If that would remove a pinned frame, the new
+     * frame is dropped instead, as are all following frames up to the next I-frame.
      *
      * @param source array that contains frame data, its position and limit will be reset
      * @param info   frame metadata, including location (offset) and length (size) of the data in
      *               source
+     * @return true if the frame was added, false if it was dropped
      */
-    void pushBack(ByteBuffer source, BufferInfo info) {
+    boolean pushBack(ByteBuffer source, BufferInfo info) {
+        //noinspection deprecation
+        boolean isIFrame = (info.flags & android.media.MediaCodec.BUFFER_FLAG_SYNC_FRAME) != 0;
+        if (mWaitForIFrame && !isIFrame) {
+            mDroppedFrames++;
+            return false;
+        }
+
         // allocate the new block, pop from front if necessary
         int offset = placeBlock(info.size);
-        while (blockOverlapsFront(offset, info.size) || full()) popFront();
+        while (blockOverlapsFront(offset, info.size) || full()) {
+            if (mHead == mPin || mHead == mHold) {
+                mWaitForIFrame = true;
+                mDroppedFrames++;
+                return false;
+            }
+            popFront();
+        }
+        mWaitForIFrame = false;
 
         // copy data
         source.clear();
         source.position(info.offset);
         source.limit(info.offset + info.size);
-        source.get(mData, offset, info.size);
+        mWriteView.clear();
+        mWriteView.position(offset);
+        mWriteView.put(source);
         source.clear();
 
         // the index of the new value is the old value of mTail (mTail is always one ahead)
@@ -244,6 +398,7 @@ public class CyclicBuffer {
         meta.size = info.size;
         meta.flags = info.flags;
         meta.presentationTimeUs = info.presentationTimeUs;
+        return true;
     }
 
     /**
@@ -254,7 +409,7 @@ public class CyclicBuffer {
      * @return cache to be used with the get() method
      */
     ByteBuffer getCache() {
-        return ByteBuffer.wrap(mData);
+        return mData.duplicate();
     }
 
     /**
@@ -266,7 +421,9 @@ public class CyclicBuffer {
      */
     void get(int index, ByteBuffer cache, BufferInfo info) {
         if (outOfRange(mHead, mTail, index)) throw new RuntimeException("Bad index");
-        if (cache.array() != mData) throw new RuntimeException("Bad buffer");
+        if (cache.capacity() != mData.capacity() || cache.isDirect() != mData.isDirect()) {
+            throw new RuntimeException("Bad buffer");
+        }
         BufferInfo meta = mMeta[index];
         cache.clear();
         cache.position(meta.offset);
@@ -7,10 +7,14 @@ import android.view.Surface;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 
+import ch.m3ts.util.Log;
 import cz.fmo.util.GenericThread;
 
 /**
  * A separate thread to manage an encoder and save its output into a buffer.
+ * <p>
+ * The time spent waiting for the lock of the buffer is measured as stall time. Saving threads only
+ * hold the lock for short metadata accesses (see SaveThread.writeFrames()), so it should stay low.
  */
 public class EncodeThread extends GenericThread<EncodeThreadHandler> {
     private final CyclicBuffer mBuf;
@@ -18,6 +22,9 @@ public class EncodeThread extends GenericThread<EncodeThreadHandler> {
     private final MediaCodec mCodec;
     private final Surface mInputSurface;
     private boolean mReleased = false;
+    private volatile long mStallTimeNs = 0;
+    private volatile long mMaxStallTimeNs = 0;
+    private int mFramesPushed = 0;
 
     public EncodeThread(MediaFormat format, CyclicBuffer buf) {
         super("EncodeThread");
@@ -64,9 +71,14 @@ public class EncodeThread extends GenericThread<EncodeThreadHandler> {
             if (status < 0) continue;
             ByteBuffer buffer = buffers[status];
             if (mInfo.size != 0 && (mInfo.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) == 0) {
+                long waitStartNs = System.nanoTime();
                 synchronized (mBuf) {
+                    long stallNs = System.nanoTime() - waitStartNs;
+                    mStallTimeNs += stallNs;
+                    if (stallNs > mMaxStallTimeNs) mMaxStallTimeNs = stallNs;
                     mBuf.pushBack(buffer, mInfo);
                 }
+                mFramesPushed++;
             }
             mCodec.releaseOutputBuffer(status, false);
             if ((mInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) break;
@@ -81,6 +93,26 @@ public class EncodeThread extends GenericThread<EncodeThreadHandler> {
     @Override
     protected void teardown() {
         release();
+        int dropped;
+        synchronized (mBuf) {
+            dropped = mBuf.getDroppedFrames();
+        }
+        Log.d("Encoder stalled " + mStallTimeNs / 1000 + "us in total (max " + mMaxStallTimeNs / 1000
+                + "us) over " + mFramesPushed + " frames, " + dropped + " frames dropped due to pinned frames");
+    }
+
+    /**
+     * @return total time in nanoseconds the encoder waited for the lock of the buffer
+     */
+    public long getStallTimeNs() {
+        return mStallTimeNs;
+    }
+
+    /**
+     * @return longest time in nanoseconds the encoder waited for the lock of the buffer at once
+     */
+    public long getMaxStallTimeNs() {
+        return mMaxStallTimeNs;
     }
 
     public Surface getInputSurface() {
@@ -34,6 +34,43 @@ public class SaveThread extends GenericThread<SaveThreadHandler> {
         return mBuf;
     }
 
+    /**
+     * @return presentation time of the most recent frame in the buffer, -1 if the buffer is empty
+     */
+    public long getLatestTimeUs() {
+        synchronized (mBuf) {
+            if (mBuf.empty()) return -1;
+            return mBuf.getTimeUs(mBuf.prev(mBuf.end()));
+        }
+    }
+
+    /**
+     * Keeps the frames from the I-frame at or before the given time on in the buffer, until
+     * releaseFrames() is called. Meant for a video which can only be saved once the current one is
+     * finished, as the pin of the current one moves along with the frames it writes.
+     *
+     * @param timeUs presentation time of the first frame to keep
+     */
+    public void keepFrames(long timeUs) {
+        synchronized (mBuf) {
+            if (mBuf.empty()) return;
+            int index = mBuf.findByTime(mBuf.begin(), mBuf.end(), timeUs);
+            while (index != mBuf.begin() && !mBuf.isIFrame(index)) {
+                index = mBuf.prev(index);
+            }
+            mBuf.hold(index);
+        }
+    }
+
+    /**
+     * Stops keeping the frames of keepFrames().
+     */
+    public void releaseFrames() {
+        synchronized (mBuf) {
+            mBuf.releaseHold();
+        }
+    }
+
     void sendCallback(File file, boolean success) {
         if (mCb != null) {
             mCb.saveCompleted(file, success);
@@ -45,13 +82,34 @@ public class SaveThread extends GenericThread<SaveThreadHandler> {
         return new SaveThreadHandler(this);
     }
 
-    void writeFrames(int first, int last, MediaMuxer muxer, int track) {
+    /**
+     * Writes the frames in range to the muxer. The first frame must have been pinned by the caller
+     * (see CyclicBuffer.pin()), the pin moves along with the written frames, so after the call the
+     * frame at last is pinned. The lock of the buffer is only held to read the metadata of a frame,
+     * never while writing to the muxer, so the encoder can keep adding frames.
+     *
+     * @param first start of range, index of the first frame
+     * @param last  end of range, index of the frame after the last frame (past-the-end index)
+     * @return the number of frames written; fewer than in range if the pin was lost because the
+     * buffer got cleared in the meantime
+     */
+    int writeFrames(int first, int last, MediaMuxer muxer, int track) {
+        int written = 0;
         synchronized (mBufCache) {
             for (int index = first; index != last; index = mBuf.next(index)) {
-                mBuf.get(index, mBufCache, mInfoCache);
+                synchronized (mBuf) {
+                    if (!mBuf.isPinned(index)) break;
+                    mBuf.get(index, mBufCache, mInfoCache);
+                }
                 muxer.writeSampleData(track, mBufCache, mInfoCache);
+                written++;
+                synchronized (mBuf) {
+                    if (!mBuf.isPinned(index)) break;
+                    mBuf.pin(mBuf.next(index));
+                }
             }
         }
+        return written;
     }
 
     public interface Task {
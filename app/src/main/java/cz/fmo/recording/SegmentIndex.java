@@ -0,0 +1,185 @@
+package cz.fmo.recording;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Index of a match recorded by SegmentedRecordingTask. Maps the time since the start of the match
+ * and the number of a point to a segment file and the offset within that segment, so replays can
+ * seek without decoding the segments before.
+ * <p>
+ * The file is a sequence of records appended while recording, after a header of MAGIC and
+ * VERSION. A record starts with its type: RECORD_SEGMENT is followed by the segment number (int)
+ * and its start time (long, us), RECORD_POINT by the point number (int), its time (long, us), the
+ * segment number (int) and the offset within the segment (long, us). A later record of the same
+ * point replaces the earlier one. A record cut short by a crash is ignored.
+ */
+public final class SegmentIndex {
+    static final int MAGIC = 0x4d335449; // "M3TI"
+    static final int VERSION = 1;
+    static final byte RECORD_SEGMENT = 1;
+    static final byte RECORD_POINT = 2;
+    static final String INDEX_FILENAME = "index.bin";
+    private static final String SEGMENT_FILENAME = "segment_%04d.mp4";
+    private final long[] segmentStartsUs;
+    private final Position[] points;
+
+    private SegmentIndex(long[] segmentStartsUs, Position[] points) {
+        this.segmentStartsUs = segmentStartsUs;
+        this.points = points;
+    }
+
+    /**
+     * @param dir directory the match has been recorded to
+     */
+    public static SegmentIndex read(File dir) throws IOException {
+        List<Long> segments = new ArrayList<>();
+        List<Position> points = new ArrayList<>();
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(getIndexFile(dir))))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not a segment index");
+            int version = in.readInt();
+            if (version != VERSION) throw new IOException("Unsupported segment index version " + version);
+            readRecords(in, segments, points);
+        }
+
+        long[] segmentStartsUs = new long[segments.size()];
+        for (int i = 0; i < segmentStartsUs.length; i++) {
+            segmentStartsUs[i] = segments.get(i);
+        }
+        return new SegmentIndex(segmentStartsUs, points.toArray(new Position[0]));
+    }
+
+    private static void readRecords(DataInputStream in, List<Long> segments, List<Position> points)
+            throws IOException {
+        try {
+            while (true) {
+                byte type = in.readByte();
+                if (type == RECORD_SEGMENT) {
+                    int segment = in.readInt();
+                    long startUs = in.readLong();
+                    if (segment != segments.size()) throw new IOException("Segment " + segment + " out of order");
+                    segments.add(startUs);
+                } else if (type == RECORD_POINT) {
+                    int point = in.readInt();
+                    long timeUs = in.readLong();
+                    int segment = in.readInt();
+                    long offsetUs = in.readLong();
+                    while (points.size() <= point) points.add(null);
+                    points.set(point, new Position(segment, offsetUs, timeUs));
+                } else {
+                    throw new IOException("Bad record type " + type);
+                }
+            }
+        } catch (EOFException e) {
+            // end of the index, possibly with an incomplete last record
+        }
+    }
+
+    static File getIndexFile(File dir) {
+        return new File(dir, INDEX_FILENAME);
+    }
+
+    /**
+     * @return file of the segment with the given number, within the directory of the match
+     */
+    public static File getSegmentFile(File dir, int segment) {
+        return new File(dir, String.format(Locale.US, SEGMENT_FILENAME, segment));
+    }
+
+    public int getSegmentCount() {
+        return segmentStartsUs.length;
+    }
+
+    /**
+     * @return time of the first frame of the segment, relative to the start of the match
+     */
+    public long getSegmentStartUs(int segment) {
+        return segmentStartsUs[segment];
+    }
+
+    /**
+     * Finds the segment containing the given time. Segments have roughly the same duration, so the
+     * search starts at the estimated segment and only needs to move a few steps.
+     *
+     * @param timeUs time relative to the start of the match
+     * @return position of the time, null if the index is empty
+     */
+    public Position findByTime(long timeUs) {
+        int count = segmentStartsUs.length;
+        if (count == 0) return null;
+        if (timeUs < 0) timeUs = 0;
+
+        int segment = 0;
+        long lastStartUs = segmentStartsUs[count - 1];
+        if (lastStartUs > 0) {
+            segment = (int) Math.min(count - 1, timeUs * (count - 1) / lastStartUs);
+        }
+        while (segment > 0 && segmentStartsUs[segment] > timeUs) segment--;
+        while (segment < count - 1 && segmentStartsUs[segment + 1] <= timeUs) segment++;
+        return new Position(segment, timeUs - segmentStartsUs[segment], timeUs);
+    }
+
+    /**
+     * @param point number of the point, starting at 0 with the first point of the match
+     * @return position where the point was scored, null if the point isn't in the index
+     */
+    public Position findPoint(int point) {
+        if (point < 0 || point >= points.length) return null;
+        return points[point];
+    }
+
+    /**
+     * @return number of points in the index, including points missing due to a crash
+     */
+    public int getPointCount() {
+        return points.length;
+    }
+
+    @Override
+    public String toString() {
+        return "SegmentIndex(segments=" + Arrays.toString(segmentStartsUs) + ", points=" + points.length + ")";
+    }
+
+    /**
+     * A position within a segmented recording.
+     */
+    public static final class Position {
+        private final int segment;
+        private final long offsetUs;
+        private final long timeUs;
+
+        Position(int segment, long offsetUs, long timeUs) {
+            this.segment = segment;
+            this.offsetUs = offsetUs;
+            this.timeUs = timeUs;
+        }
+
+        public int getSegment() {
+            return segment;
+        }
+
+        /**
+         * @return time since the start of the segment
+         */
+        public long getOffsetUs() {
+            return offsetUs;
+        }
+
+        /**
+         * @return time since the start of the match
+         */
+        public long getTimeUs() {
+            return timeUs;
+        }
+    }
+}
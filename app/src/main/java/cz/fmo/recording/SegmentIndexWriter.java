@@ -0,0 +1,51 @@
+package cz.fmo.recording;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Appends records to the index of a segmented recording, see SegmentIndex for the format. Every
+ * record is flushed right away, so the index stays usable if the app gets killed.
+ */
+class SegmentIndexWriter {
+    private final DataOutputStream mOut;
+
+    /**
+     * @param dir directory of the recording, an existing index is overwritten
+     */
+    SegmentIndexWriter(File dir) throws IOException {
+        mOut = new DataOutputStream(new FileOutputStream(SegmentIndex.getIndexFile(dir)));
+        mOut.writeInt(SegmentIndex.MAGIC);
+        mOut.writeInt(SegmentIndex.VERSION);
+        mOut.flush();
+    }
+
+    /**
+     * @param startUs time of the first frame of the segment, relative to the start of the match
+     */
+    void writeSegment(int segment, long startUs) throws IOException {
+        mOut.writeByte(SegmentIndex.RECORD_SEGMENT);
+        mOut.writeInt(segment);
+        mOut.writeLong(startUs);
+        mOut.flush();
+    }
+
+    /**
+     * @param timeUs   time the point was scored, relative to the start of the match
+     * @param offsetUs time the point was scored, relative to the start of the segment
+     */
+    void writePoint(int point, long timeUs, int segment, long offsetUs) throws IOException {
+        mOut.writeByte(SegmentIndex.RECORD_POINT);
+        mOut.writeInt(point);
+        mOut.writeLong(timeUs);
+        mOut.writeInt(segment);
+        mOut.writeLong(offsetUs);
+        mOut.flush();
+    }
+
+    void close() throws IOException {
+        mOut.close();
+    }
+}
@@ -0,0 +1,293 @@
+package cz.fmo.recording;
+
+import android.media.MediaMuxer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import ch.m3ts.util.Log;
+import cz.fmo.util.Time;
+
+/**
+ * For recording whole matches. Instead of one ever-growing movie, the video is split into segments
+ * of about SEGMENT_SEC, each of which starts with an I-frame and is finalized as soon as the next
+ * one starts, so a crash loses the current segment at most. Along with the segments, an index is
+ * written that maps the time since the start of the match and the points to the segments, see
+ * SegmentIndex.
+ */
+public class SegmentedRecordingTask implements SaveThread.Task {
+    private static final int NO_FIRST = -1;
+    private static final float CHUNK_SEC = 1.f;
+    private static final float SEGMENT_SEC = 30.f;
+    private final Object mLock = new Object();
+    private final File mDir;
+    private final SaveThread mThread;
+    private final CyclicBuffer mBuf;
+    private final SaveThreadHandler mHandler;
+    private final List<Long> mSegmentStartsUs = new ArrayList<>(); // presentation times
+    private final List<long[]> mPendingPoints = new ArrayList<>();
+    private SegmentIndexWriter mIndex;
+    private int mFirst = NO_FIRST;
+    private MediaMuxer mMuxer;
+    private int mTrack;
+    private int mSegment = -1;
+    private long mMatchStartUs = -1;
+    private int mFramesWritten = 0;
+    private boolean mFinished = false;
+
+    /**
+     * Saves the contents of the buffer to segments in the specified directory, until terminate()
+     * is called. The constructor does all scheduling on its own, therefore there's no need to send
+     * the task object to an event queue.
+     *
+     * @param dir    directory to save to, gets created if it doesn't exist
+     * @param thread thread to use for saving
+     */
+    public SegmentedRecordingTask(File dir, SaveThread thread) {
+        mDir = dir;
+        mThread = thread;
+        mBuf = thread.getBuffer();
+        mHandler = thread.getHandler();
+
+        if (mHandler == null || !initIndex()) {
+            error();
+            return;
+        }
+
+        // postpone opening the first segment, because mBuf may be still empty at this point
+
+        mHandler.sendTask(this, Time.toMs(CHUNK_SEC));
+    }
+
+    private void error() {
+        mThread.sendCallback(mDir, false);
+        mFinished = true;
+    }
+
+    private boolean initIndex() {
+        if (!mDir.isDirectory() && !mDir.mkdirs()) return false;
+        try {
+            mIndex = new SegmentIndexWriter(mDir);
+        } catch (IOException e) {
+            Log.e("Unable to create the index of the recording", e);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Marks that a point has just been scored, at the time of the latest frame in the buffer. A
+     * point marked again (e.g. scored anew after the referee corrected it) replaces the earlier
+     * mark in the index.
+     *
+     * @param point number of the point, starting at 0 with the first point of the match
+     */
+    public void markPoint(int point) {
+        long nowUs = mThread.getLatestTimeUs();
+        if (nowUs < 0) return;
+        synchronized (mPendingPoints) {
+            mPendingPoints.add(new long[]{point, nowUs});
+        }
+    }
+
+    /**
+     * Pins the first I-frame of the buffer, to start a segment with.
+     *
+     * @return false if the buffer doesn't contain an I-frame yet
+     */
+    private boolean pinFirstIFrame() {
+        synchronized (mBuf) {
+            if (mBuf.empty()) return false;
+            int first = mBuf.findIFrame(mBuf.begin());
+            if (!mBuf.isIFrame(first)) return false;
+            mFirst = first;
+            mBuf.pin(mFirst);
+        }
+        return true;
+    }
+
+    /**
+     * Starts a new segment with the frame at mFirst, which must be a pinned I-frame.
+     */
+    private boolean startSegment() {
+        long startUs;
+        synchronized (mBuf) {
+            startUs = mBuf.getTimeUs(mFirst);
+        }
+        if (mMatchStartUs < 0) mMatchStartUs = startUs;
+
+        mSegment++;
+        File file = SegmentIndex.getSegmentFile(mDir, mSegment);
+        try {
+            mMuxer = new MediaMuxer(file.getPath(), SaveThread.OUTPUT_FORMAT);
+        } catch (IOException e) {
+            Log.e("Unable to create segment " + file.getName(), e);
+            return false;
+        }
+        mTrack = mMuxer.addTrack(mBuf.getFormat());
+        mMuxer.start();
+        mSegmentStartsUs.add(startUs);
+
+        if (mIndex != null) {
+            try {
+                mIndex.writeSegment(mSegment, startUs - mMatchStartUs);
+            } catch (IOException e) {
+                Log.e("Unable to write the index of the recording, continuing without", e);
+                closeIndex();
+            }
+        }
+        return true;
+    }
+
+    private void finishSegment() {
+        if (mMuxer == null) return;
+        mMuxer.stop();
+        mMuxer.release();
+        mMuxer = null;
+    }
+
+    /**
+     * Finds the first I-frame in range which is at least SEGMENT_SEC after the start of the
+     * current segment.
+     *
+     * @return index of the frame to start the next segment with, last if there is none in range
+     */
+    private int findSegmentEnd(int first, int last) {
+        long endUs = mSegmentStartsUs.get(mSegmentStartsUs.size() - 1) + Time.toUs(SEGMENT_SEC);
+        synchronized (mBuf) {
+            for (int index = first; index != last; index = mBuf.next(index)) {
+                if (mBuf.isIFrame(index) && mBuf.getTimeUs(index) >= endUs) return index;
+            }
+        }
+        return last;
+    }
+
+    /**
+     * @return false if the recording can't be continued
+     */
+    private boolean writeFrames() {
+        if (mMuxer == null) {
+            // nothing to save yet, try again with the next chunk
+            if (!pinFirstIFrame()) return true;
+            if (!startSegment()) return false;
+        }
+
+        int last;
+        synchronized (mBuf) {
+            last = mBuf.end();
+        }
+
+        while (mFirst != last) {
+            int segmentEnd = findSegmentEnd(mFirst, last);
+            int numFrames = mBuf.getNumFrames(mFirst, segmentEnd);
+            int written = mThread.writeFrames(mFirst, segmentEnd, mMuxer, mTrack);
+            mFramesWritten += written;
+            if (written < numFrames) {
+                // the buffer got cleared, finish the segment and continue with a new one later
+                Log.w("Recording buffer got cleared, finishing segment " + mSegment);
+                finishSegment();
+                resolvePoints(false);
+                return true;
+            }
+            mFirst = segmentEnd;
+            if (segmentEnd != last) {
+                finishSegment();
+                if (!startSegment()) return false;
+            }
+        }
+        resolvePoints(false);
+        return true;
+    }
+
+    /**
+     * Writes the points of which the segment is known to the index.
+     *
+     * @param isFinal true if no more segments will follow
+     */
+    private void resolvePoints(boolean isFinal) {
+        if (mSegmentStartsUs.isEmpty()) return;
+        long currentStartUs = mSegmentStartsUs.get(mSegmentStartsUs.size() - 1);
+        boolean isSegmentOpen = mMuxer != null;
+
+        synchronized (mPendingPoints) {
+            Iterator<long[]> it = mPendingPoints.iterator();
+            while (it.hasNext()) {
+                long[] point = it.next();
+                long timeUs = point[1];
+                // a later segment can only start at or after the end of the current one
+                boolean isKnown = isFinal || (isSegmentOpen && timeUs < currentStartUs + Time.toUs(SEGMENT_SEC));
+                if (!isKnown) continue;
+
+                int segment = mSegmentStartsUs.size() - 1;
+                while (segment > 0 && mSegmentStartsUs.get(segment) > timeUs) segment--;
+                long offsetUs = Math.max(0, timeUs - mSegmentStartsUs.get(segment));
+                writePoint((int) point[0], timeUs - mMatchStartUs, segment, offsetUs);
+                it.remove();
+            }
+        }
+    }
+
+    private void writePoint(int point, long timeUs, int segment, long offsetUs) {
+        if (mIndex == null) return;
+        try {
+            mIndex.writePoint(point, timeUs, segment, offsetUs);
+        } catch (IOException e) {
+            Log.e("Unable to write the index of the recording, continuing without", e);
+            closeIndex();
+        }
+    }
+
+    private void closeIndex() {
+        if (mIndex == null) return;
+        try {
+            mIndex.close();
+        } catch (IOException e) {
+            Log.e("Unable to close the index of the recording", e);
+        }
+        mIndex = null;
+    }
+
+    @Override
+    public void perform() {
+        synchronized (mLock) {
+            if (mFinished) return;
+            if (!writeFrames()) {
+                terminate();
+                return;
+            }
+        }
+        mHandler.sendTask(this, Time.toMs(CHUNK_SEC));
+    }
+
+    @Override
+    public void terminate() {
+        synchronized (mLock) {
+            if (mFinished) return;
+            mFinished = true;
+
+            if (mMuxer != null) writeFrames();
+            unpin();
+            finishSegment();
+            resolvePoints(true);
+            closeIndex();
+
+            mHandler.cancelTask(this);
+        }
+        Log.d("Recorded " + mFramesWritten + " frames in " + (mSegment + 1) + " segments to " + mDir.getName());
+        mThread.sendCallback(mDir, mFramesWritten > 0);
+    }
+
+    private void unpin() {
+        synchronized (mBuf) {
+            if (mBuf.isPinned(mFirst)) mBuf.unpin();
+        }
+    }
+
+    @Override
+    public boolean extend() {
+        return false;
+    }
+}
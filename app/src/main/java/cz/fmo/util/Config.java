@@ -15,14 +15,19 @@ public class Config {
     private static final VelocityEstimationMode VELOCITY_ESTIMATION_MODE = VelocityEstimationMode.KM_H;
     private static final int PROC_RES = 600;    // high processing res (detects small objects)
     private static final float OBJECT_RADIUS = 0.040f; //radius ping pong ball
-    private static final float FRAME_RATE = 30f;
     private final String player1Name;
     private final String player2Name;
     private final boolean useDebug;
     private final boolean doRecordMatches;
+    private final boolean doRecordRallies;
+    private final boolean doBufferInFile;
+    private final boolean isFastReplay;
+    private final boolean doRecordTraces;
     private final boolean usePubnub;
     private final boolean useBlackSide;
     private final boolean useAudio;
+    private final boolean useCamera2;
+    private final float frameRate;
 
     public Config(Context ctx) {
         SharedPreferences p = PreferenceManager.getDefaultSharedPreferences(ctx);
@@ -30,9 +35,61 @@ public class Config {
         player2Name = getPlayer2Name(p, ctx);
         useDebug = getDebug(p, ctx);
         doRecordMatches = getRecordMatches(p, ctx);
+        doRecordRallies = getRecordRallies(p, ctx);
+        doBufferInFile = getBufferInFile(p, ctx);
+        isFastReplay = getFastReplay(p, ctx);
+        doRecordTraces = getRecordTraces(p, ctx);
         usePubnub = getUsePubnub(p, ctx);
         useBlackSide = getUseBlackSide(p, ctx);
         useAudio = getUseAudio(p, ctx);
+        useCamera2 = getUseCamera2(p, ctx);
+        frameRate = getFrameRate(p, ctx);
+    }
+
+    /**
+     * Creates a config with the default settings and the given frame rate, for runs without an
+     * Android context (e.g. the benchmark over detection traces).
+     */
+    public Config(float frameRate) {
+        player1Name = "Hans";
+        player2Name = "Peter";
+        useDebug = false;
+        doRecordMatches = false;
+        doRecordRallies = false;
+        doBufferInFile = false;
+        isFastReplay = true;
+        doRecordTraces = false;
+        usePubnub = false;
+        useBlackSide = false;
+        useAudio = false;
+        useCamera2 = false;
+        this.frameRate = frameRate;
+    }
+
+    private Config(Config config, float frameRate) {
+        player1Name = config.player1Name;
+        player2Name = config.player2Name;
+        useDebug = config.useDebug;
+        doRecordMatches = config.doRecordMatches;
+        doRecordRallies = config.doRecordRallies;
+        doBufferInFile = config.doBufferInFile;
+        isFastReplay = config.isFastReplay;
+        doRecordTraces = config.doRecordTraces;
+        usePubnub = config.usePubnub;
+        useBlackSide = config.useBlackSide;
+        useAudio = config.useAudio;
+        useCamera2 = config.useCamera2;
+        this.frameRate = frameRate;
+    }
+
+    /**
+     * The frame rate of the settings is only the one asked for, the camera may run at another one
+     * and a replayed video has its own.
+     *
+     * @return a copy of this config with the frame rate the frames really come at
+     */
+    public Config withFrameRate(float frameRate) {
+        return new Config(this, frameRate);
     }
 
     private boolean getUseBlackSide(SharedPreferences p, Context ctx) {
@@ -43,6 +100,14 @@ public class Config {
         return p.getBoolean(ctx.getString(R.string.prefUseAudioKey), true);
     }
 
+    private boolean getUseCamera2(SharedPreferences p, Context ctx) {
+        return p.getBoolean(ctx.getString(R.string.prefUseCamera2Key), false);
+    }
+
+    private float getFrameRate(SharedPreferences p, Context ctx) {
+        return Float.parseFloat(p.getString(ctx.getString(R.string.prefCameraFrameRateKey), ctx.getString(R.string.prefCameraFrameRateDefault)));
+    }
+
     private boolean getUsePubnub(SharedPreferences p, Context ctx) {
         return p.getBoolean(ctx.getString(R.string.prefPubnubKey), false);
     }
@@ -63,8 +128,24 @@ public class Config {
         return p.getBoolean(ctx.getString(R.string.prefRecordKey), false);
     }
 
+    private boolean getRecordRallies(SharedPreferences p, Context ctx) {
+        return p.getBoolean(ctx.getString(R.string.prefRecordRalliesKey), false);
+    }
+
+    private boolean getBufferInFile(SharedPreferences p, Context ctx) {
+        return p.getBoolean(ctx.getString(R.string.prefBufferInFileKey), true);
+    }
+
+    private boolean getFastReplay(SharedPreferences p, Context ctx) {
+        return p.getBoolean(ctx.getString(R.string.prefFastReplayKey), false);
+    }
+
+    private boolean getRecordTraces(SharedPreferences p, Context ctx) {
+        return p.getBoolean(ctx.getString(R.string.prefRecordTracesKey), false);
+    }
+
     public float getFrameRate() {
-        return FRAME_RATE;
+        return frameRate;
     }
 
     public VelocityEstimationMode getVelocityEstimationMode() {
@@ -115,6 +196,26 @@ public class Config {
         return doRecordMatches;
     }
 
+    public boolean doRecordRallies() {
+        return doRecordRallies;
+    }
+
+    public boolean doRecordTraces() {
+        return doRecordTraces;
+    }
+
+    /**
+     * @return true if the video buffer of the recording is to be a memory mapped file (see
+     * CyclicBuffer.mapFile()), false to keep it on the Java heap
+     */
+    public boolean doBufferInFile() {
+        return doBufferInFile;
+    }
+
+    public boolean isFastReplay() {
+        return isFastReplay;
+    }
+
     public boolean isUsingPubnub() {
         return usePubnub;
     }
@@ -127,6 +228,10 @@ public class Config {
         return useAudio;
     }
 
+    public boolean isUseCamera2() {
+        return useCamera2;
+    }
+
     public enum VelocityEstimationMode {
         PX_FR,
         M_S,
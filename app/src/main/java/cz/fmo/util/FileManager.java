@@ -77,6 +77,24 @@ public final class FileManager {
         MediaScannerConnection.scanFile(mContext, new String[]{file.getAbsolutePath()}, null, null);
     }
 
+    /**
+     * @return names of the test sets in the public benchmark directory, sorted
+     */
+    public String[] listTestSets() {
+        File benchmarkDir = new File(new FileManager(mContext).publicDir(), BENCHMARK_DIR);
+        String[] out = benchmarkDir.list(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return new File(dir, name).isDirectory();
+            }
+        });
+        if (out == null) {
+            out = new String[0];
+        }
+        Arrays.sort(out);
+        return out;
+    }
+
     public String[] listMP4() {
         final Pattern p = Pattern.compile(".*\\.mp4");
         String[] out = publicDir().list(new FilenameFilter() {
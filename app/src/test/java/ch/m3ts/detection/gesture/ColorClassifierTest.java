@@ -0,0 +1,77 @@
+package ch.m3ts.detection.gesture;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ColorClassifierTest {
+
+    @Test
+    public void roundsHueLikeCvtColor() {
+        assertEquals(0, ColorClassifier.hue(255, 0, 0));
+        assertEquals(150, ColorClassifier.hue(255, 0, 255));
+        // 10.47 and 10.59, truncating would give 10 for both
+        assertEquals(10, ColorClassifier.hue(255, 89, 0));
+        assertEquals(11, ColorClassifier.hue(255, 90, 0));
+        // -9.97 and -10.59 wrap around to the top of the range
+        assertEquals(170, ColorClassifier.hue(255, 0, 89));
+        assertEquals(169, ColorClassifier.hue(255, 0, 90));
+        assertEquals(0, ColorClassifier.hue(128, 128, 128));
+    }
+
+    @Test
+    public void redHueBandEdges() {
+        assertTrue(ColorClassifier.isRed(255, 0, 0));
+        assertTrue(ColorClassifier.isRed(255, 89, 0));
+        assertFalse(ColorClassifier.isRed(255, 90, 0));
+        // reds below 180 are only found by the inverted criterion
+        assertTrue(ColorClassifier.isRed(255, 0, 89));
+        assertFalse(ColorClassifier.isRed(255, 0, 90));
+        assertFalse(ColorClassifier.isRed(255, 0, 255));
+    }
+
+    @Test
+    public void upperHueBandNeedsInvertedSaturation() {
+        assertTrue(ColorClassifier.isRed(100, 55, 50));
+        // hue 177, saturated enough for the normal criterion but its inverted pixel is not
+        assertFalse(ColorClassifier.isRed(100, 50, 55));
+    }
+
+    @Test
+    public void redSaturationAndValueThresholds() {
+        // saturation 119.85 rounds up to 120
+        assertTrue(ColorClassifier.isRed(100, 53, 53));
+        assertFalse(ColorClassifier.isRed(100, 54, 54));
+        assertTrue(ColorClassifier.isRed(50, 0, 0));
+        assertFalse(ColorClassifier.isRed(49, 0, 0));
+    }
+
+    @Test
+    public void invertedRedThresholds() {
+        // inverted saturation 70.46 and 68
+        assertTrue(ColorClassifier.isRed(200, 179, 179));
+        assertFalse(ColorClassifier.isRed(200, 180, 180));
+        // inverted value 50 and 49
+        assertTrue(ColorClassifier.isRed(255, 205, 205));
+        assertFalse(ColorClassifier.isRed(255, 206, 206));
+    }
+
+    @Test
+    public void grayIsNeverRed() {
+        assertFalse(ColorClassifier.isRed(0, 0, 0));
+        assertFalse(ColorClassifier.isRed(128, 128, 128));
+        assertFalse(ColorClassifier.isRed(255, 255, 255));
+    }
+
+    @Test
+    public void blackValueThreshold() {
+        assertTrue(ColorClassifier.isBlack(0, 0, 0));
+        assertTrue(ColorClassifier.isBlack(70, 70, 70));
+        assertTrue(ColorClassifier.isBlack(0, 0, 70));
+        assertTrue(ColorClassifier.isBlack(49, 0, 0));
+        assertFalse(ColorClassifier.isBlack(71, 0, 0));
+        assertFalse(ColorClassifier.isBlack(0, 71, 71));
+    }
+}
@@ -0,0 +1,116 @@
+package ch.m3ts.detection.trace;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import cz.fmo.Lib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DetectionTraceTest {
+    private static final long START_NS = 123_456_789_000L;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("trace", ".bin");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void readWhatWasWritten() throws IOException {
+        DetectionTraceWriter writer = new DetectionTraceWriter(file, makeHeader());
+        writer.writeDetections(START_NS, new Lib.Detection[]{makeDetection(7, 3), makeDetection(8, -1)});
+        writer.writeAudioBounce(START_NS - 2_000_000L);
+        writer.writeDetections(START_NS + 33_333_333L, new Lib.Detection[0]);
+        writer.close();
+        writer.writeAudioBounce(START_NS + 50_000_000L);
+
+        DetectionTraceReader reader = new DetectionTraceReader(file);
+        DetectionTraceHeader header = reader.getHeader();
+        assertEquals(1280, header.getSrcWidth());
+        assertEquals(720, header.getSrcHeight());
+        assertEquals(55.0, header.getViewingAngle(), 0);
+        assertEquals(30.f, header.getFrameRate(), 0);
+        assertEquals(1100, header.makeTable().getCornerDownRight().x);
+        assertEquals(650, header.makeTable().getNetBottom().x);
+
+        DetectionTraceRecord record = reader.next();
+        assertEquals(START_NS, record.getTimeNs());
+        assertEquals(2, record.getDetections().length);
+        Lib.Detection detection = record.getDetections()[0];
+        assertEquals(7, detection.id);
+        assertEquals(3, detection.predecessorId);
+        assertEquals(107, detection.centerX);
+        assertEquals(-1.f, detection.directionX, 0);
+        assertEquals(5.5f, detection.radius, 0);
+        assertEquals(-1, record.getDetections()[1].predecessorId);
+
+        record = reader.next();
+        assertTrue(record.isAudioBounce());
+        assertEquals(START_NS - 2_000_000L, record.getTimeNs());
+
+        record = reader.next();
+        assertEquals(START_NS + 33_333_333L, record.getTimeNs());
+        assertEquals(0, record.getDetections().length);
+
+        assertNull(reader.next());
+        reader.close();
+    }
+
+    @Test
+    public void ignoreIncompleteRecord() throws IOException {
+        DetectionTraceWriter writer = new DetectionTraceWriter(file, makeHeader());
+        writer.writeDetections(START_NS, new Lib.Detection[]{makeDetection(1, -1)});
+        writer.writeDetections(START_NS + 1, new Lib.Detection[]{makeDetection(2, 1)});
+        writer.close();
+
+        // simulate a crash while writing the last record
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 5);
+        }
+
+        DetectionTraceReader reader = new DetectionTraceReader(file);
+        assertEquals(1, reader.next().getDetections()[0].id);
+        assertNull(reader.next());
+        reader.close();
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectOtherFiles() throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.writeLong(42);
+        }
+        new DetectionTraceReader(file);
+    }
+
+    private static DetectionTraceHeader makeHeader() {
+        return new DetectionTraceHeader(1280, 720, 55.0, 30.f,
+                new int[]{200, 500, 1100, 500}, new int[]{650, 500});
+    }
+
+    private static Lib.Detection makeDetection(int id, int predecessorId) {
+        Lib.Detection detection = new Lib.Detection();
+        detection.id = id;
+        detection.predecessorId = predecessorId;
+        detection.centerX = 100 + id;
+        detection.centerY = 300;
+        detection.directionX = -1.f;
+        detection.directionY = 0.5f;
+        detection.length = 20.f;
+        detection.radius = 5.5f;
+        detection.velocity = 12.f;
+        return detection;
+    }
+}
@@ -0,0 +1,90 @@
+package ch.m3ts.display.statistic;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ch.m3ts.display.statistic.data.DetectionData;
+import ch.m3ts.display.statistic.data.PointData;
+import ch.m3ts.display.statistic.data.TrackData;
+import ch.m3ts.util.Side;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BounceGridTest {
+    private BounceGrid grid;
+
+    @Before
+    public void setUp() {
+        grid = new BounceGrid();
+    }
+
+    @Test
+    public void countBouncesPerCell() {
+        // near the left end of the table, on the far side
+        grid.addBounce(0, Side.RIGHT, bounce(10, 0.99));
+        grid.addBounce(0, Side.RIGHT, bounce(20, 0.98));
+        // near the right end, on the close side
+        grid.addBounce(0, Side.LEFT, bounce(2730, 0.01));
+        // off the table
+        grid.addBounce(0, Side.LEFT, bounce(2800, 0.5));
+        grid.addBounce(0, Side.LEFT, bounce(1000, -0.1));
+        int[] density = grid.getDensity(BounceGrid.ALL_GAMES, null);
+        assertEquals(2, density[0]);
+        assertEquals(1, density[density.length - 1]);
+        assertEquals(3, sum(density));
+    }
+
+    @Test
+    public void filterByGameAndPlayer() {
+        grid.addPoint(0, makePoint(Side.LEFT, 3));
+        grid.addPoint(0, makePoint(Side.RIGHT, 2));
+        grid.addPoint(2, makePoint(Side.RIGHT, 4));
+        assertEquals(3, grid.getGames());
+        assertEquals(9, sum(grid.getDensity(BounceGrid.ALL_GAMES, null)));
+        assertEquals(5, sum(grid.getDensity(0, null)));
+        assertEquals(0, sum(grid.getDensity(1, null)));
+        assertEquals(6, sum(grid.getDensity(BounceGrid.ALL_GAMES, Side.RIGHT)));
+        assertEquals(4, sum(grid.getDensity(2, Side.RIGHT)));
+        assertEquals(0, sum(grid.getDensity(2, Side.LEFT)));
+        assertEquals(0, sum(grid.getDensity(5, null)));
+    }
+
+    @Test
+    public void colourCellsByDensity() {
+        int[] density = new int[4];
+        density[1] = 1;
+        density[2] = 100;
+        int[] colors = HeatMapPalette.toColors(density);
+        assertEquals(0, colors[0]);
+        assertEquals(0, colors[3]);
+        // the fullest cell is the most opaque and red
+        assertTrue((colors[2] >>> 24) > (colors[1] >>> 24));
+        assertTrue((colors[2] >>> 16 & 0xFF) > (colors[2] & 0xFF));
+        assertTrue((colors[1] >>> 24) > 0);
+    }
+
+    private static PointData makePoint(Side striker, int bounces) {
+        List<TrackData> tracks = new ArrayList<>();
+        List<DetectionData> detections = new ArrayList<>();
+        for (int i = 0; i < bounces; i++) {
+            detections.add(bounce(500 + i * 300, 0.5));
+            detections.add(new DetectionData(600 + i * 300, 0, 0.5, 30f, false, 1));
+        }
+        tracks.add(new TrackData(detections, 30f, striker));
+        return new PointData("Out of Frame for too long", tracks, striker, 1, 0, Side.RIGHT, striker, Side.LEFT, 4);
+    }
+
+    private static DetectionData bounce(int xMm, double z) {
+        return new DetectionData(xMm, 0, z, 30f, true, 1);
+    }
+
+    private static int sum(int[] density) {
+        int sum = 0;
+        for (int count : density) sum += count;
+        return sum;
+    }
+}
@@ -0,0 +1,131 @@
+package ch.m3ts.display.statistic;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import ch.m3ts.display.statistic.data.DetectionData;
+import ch.m3ts.display.statistic.data.GameData;
+import ch.m3ts.display.statistic.data.MatchData;
+import ch.m3ts.display.statistic.data.MatchDataCodec;
+import ch.m3ts.display.statistic.data.PointData;
+import ch.m3ts.display.statistic.data.TrackData;
+import ch.m3ts.eventbus.Event;
+import ch.m3ts.eventbus.Subscribable;
+import ch.m3ts.eventbus.TTEvent;
+import ch.m3ts.eventbus.TTEventBus;
+import ch.m3ts.eventbus.event.GameStatsData;
+import ch.m3ts.eventbus.event.GameStatsPartData;
+import ch.m3ts.eventbus.event.RequestGameStatsData;
+import ch.m3ts.util.Side;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GameStatsLoaderTest {
+    // also added to by the retries on the thread of the loader
+    private final List<Integer> requestedGames = Collections.synchronizedList(new ArrayList<Integer>());
+    private final List<Integer> loadedGames = new ArrayList<>();
+    private TTEventBus eventBus;
+    private GameStatsLoader loader;
+    private GameStatsLoader.Listener listener;
+    private MatchData match;
+
+    @Before
+    public void setUp() {
+        eventBus = new TTEventBus();
+        eventBus.register(new Subscribable() {
+            @Override
+            public void handle(Event<?> event) {
+                if (event.getData() instanceof RequestGameStatsData) {
+                    requestedGames.add(((RequestGameStatsData) event.getData()).getGame());
+                }
+            }
+        });
+        listener = new GameStatsLoader.Listener() {
+            @Override
+            public void onGameLoaded(int game, GameData stats) {
+                loadedGames.add(game);
+            }
+        };
+        loader = new GameStatsLoader(eventBus, listener);
+        eventBus.register(loader);
+        List<GameData> games = new ArrayList<>();
+        for (int g = 0; g < 3; g++) games.add(makeGame());
+        match = new MatchData(games, "Hans", "Peter", "01.06.2020 10:00", new HashMap<Side, Integer>());
+    }
+
+    @After
+    public void tearDown() {
+        loader.close();
+    }
+
+    @Test
+    public void fetchGamesOneAtATimeOpenedOnesFirst() throws IOException {
+        loader.load(MatchDataCodec.decode(MatchDataCodec.encodeSummary(match)));
+        assertEquals(Arrays.asList(0), requestedGames);
+        loader.prioritize(2);
+        assertEquals(Arrays.asList(0), requestedGames);
+        answer(0);
+        assertEquals(Arrays.asList(0, 2), requestedGames);
+        assertTrue(loader.isLoaded(0));
+        assertFalse(loader.isLoaded(1));
+        answer(2);
+        answer(2);
+        answer(1);
+        assertEquals(Arrays.asList(0, 2, 1), requestedGames);
+        assertEquals(Arrays.asList(0, 2, 1), loadedGames);
+        assertTrue(loader.isLoaded(1));
+    }
+
+    @Test
+    public void fetchNothingOfAWholeMatch() {
+        loader.load(match);
+        assertTrue(requestedGames.isEmpty());
+        assertTrue(loader.isLoaded(0));
+    }
+
+    @Test
+    public void keepTheRequestWhilePartsArrive() throws IOException, InterruptedException {
+        eventBus.unregister(loader);
+        loader.close();
+        loader = new GameStatsLoader(eventBus, listener, 300);
+        eventBus.register(loader);
+        loader.load(MatchDataCodec.decode(MatchDataCodec.encodeSummary(match)));
+        for (int i = 0; i < 6; i++) {
+            Thread.sleep(100);
+            eventBus.dispatch(new TTEvent<>(new GameStatsPartData(0)));
+            // parts of another game do not count
+            eventBus.dispatch(new TTEvent<>(new GameStatsPartData(1)));
+        }
+        assertEquals(Arrays.asList(0), requestedGames);
+        Thread.sleep(1000);
+        assertEquals(0, (int) requestedGames.get(1));
+    }
+
+    private void answer(int game) {
+        eventBus.dispatch(new TTEvent<>(new GameStatsData(game, match.getGameStats().get(game))));
+    }
+
+    private static GameData makeGame() {
+        List<PointData> points = new ArrayList<>();
+        for (int p = 1; p <= 3; p++) {
+            List<DetectionData> detections = new ArrayList<>();
+            detections.add(new DetectionData(100, 0, 0.5, 30f, false, 1));
+            detections.add(new DetectionData(200, 0, 0.5, 30f, true, 1));
+            List<TrackData> tracks = new ArrayList<>();
+            tracks.add(new TrackData(detections, 30f, Side.LEFT));
+            points.add(new PointData("Out of Frame for too long", tracks, Side.LEFT, p, 0, Side.RIGHT, Side.LEFT,
+                    Side.LEFT, 4));
+        }
+        return new GameData(points);
+    }
+}
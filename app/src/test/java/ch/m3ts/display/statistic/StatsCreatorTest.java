@@ -0,0 +1,97 @@
+package ch.m3ts.display.statistic;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import ch.m3ts.display.statistic.data.GameData;
+import ch.m3ts.display.statistic.data.MatchData;
+import ch.m3ts.util.Side;
+import cz.fmo.data.Track;
+
+import static org.junit.Assert.assertEquals;
+
+public class StatsCreatorTest {
+    private StatsCreator statsCreator;
+
+    @Before
+    public void setUp() {
+        statsCreator = new StatsCreator();
+        statsCreator.addMetaData("2020-06-01", "Hans", "Peter");
+    }
+
+    @After
+    public void tearDown() {
+        statsCreator.shutdown();
+    }
+
+    @Test
+    public void createStatsWaitsForThePoints() {
+        playGame(Side.LEFT);
+        statsCreator.addGame();
+        playGame(Side.RIGHT);
+        statsCreator.addGame();
+        MatchData stats = statsCreator.createStats();
+        assertEquals(2, stats.getGameStats().size());
+        assertEquals(11, stats.getGameStats().get(0).getPoints().size());
+        assertEquals(Side.LEFT, stats.getGameStats().get(0).getWinner());
+        assertEquals(Side.RIGHT, stats.getGameStats().get(1).getWinner());
+        assertEquals("Peter", stats.getPlayerName(Side.RIGHT));
+    }
+
+    @Test
+    public void correctLastGame() {
+        playGame(Side.LEFT);
+        statsCreator.addGame();
+        List<GameData> gamesBefore = statsCreator.createStats().getGameStats();
+        // the game win was taken back and the game ended again
+        statsCreator.resetGame();
+        addPoint("On point deduction", Side.LEFT, 10, 0);
+        addPoint("On point addition", Side.LEFT, 11, 0);
+        statsCreator.addGame();
+        // a correction after the game ended is added to it
+        addPoint("On point deduction", Side.LEFT, 10, 0);
+        MatchData stats = statsCreator.createStats();
+        assertEquals(1, stats.getGameStats().size());
+        assertEquals(14, stats.getGameStats().get(0).getPoints().size());
+        assertEquals(2, stats.getGameStats().get(0).getAmountOfCorrections());
+        // stats created before are not changed afterwards
+        assertEquals(11, gamesBefore.get(0).getPoints().size());
+    }
+
+    @Test
+    public void leaveTheProcessingToTheWorker() {
+        statsCreator.shutdown();
+        final List<Runnable> tasks = new ArrayList<>();
+        final boolean[] isRunningTasks = {false};
+        statsCreator = new StatsCreator(new Executor() {
+            @Override
+            public void execute(Runnable task) {
+                if (isRunningTasks[0]) task.run();
+                else tasks.add(task);
+            }
+        });
+        statsCreator.addMetaData("2020-06-01", "Hans", "Peter");
+        playGame(Side.LEFT);
+        statsCreator.addGame();
+        assertEquals(13, tasks.size());
+        isRunningTasks[0] = true;
+        for (Runnable task : tasks) task.run();
+        assertEquals(11, statsCreator.createStats().getGameStats().get(0).getAmountOfPoints());
+    }
+
+    private void playGame(Side winner) {
+        for (int i = 1; i <= 11; i++) {
+            addPoint("On point addition", winner, winner == Side.LEFT ? i : 0, winner == Side.RIGHT ? i : 0);
+        }
+    }
+
+    private void addPoint(String decision, Side winner, int scoreLeft, int scoreRight) {
+        statsCreator.addPoint(decision, winner, scoreLeft, scoreRight, winner, winner, Side.LEFT, 3,
+                new ArrayList<Track>());
+    }
+}
@@ -0,0 +1,192 @@
+package ch.m3ts.display.statistic.data;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ch.m3ts.util.Side;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MatchDataCodecTest {
+    private MatchData match;
+
+    @Before
+    public void setUp() {
+        List<GameData> games = new ArrayList<>();
+        for (int g = 0; g < 3; g++) {
+            List<PointData> points = new ArrayList<>();
+            for (int p = 1; p <= 11; p++) {
+                points.add(new PointData("Out of Frame for too long", makeTracks(p), Side.LEFT, p, g, Side.RIGHT,
+                        Side.LEFT, p % 4 < 2 ? Side.LEFT : Side.RIGHT, p + 2));
+            }
+            points.add(new PointData("On point deduction", new ArrayList<TrackData>(), Side.LEFT, 10, g, null,
+                    null, Side.RIGHT, 0));
+            games.add(new GameData(points));
+        }
+        Map<Side, Integer> tableCorners = new HashMap<>();
+        tableCorners.put(Side.LEFT, 210);
+        tableCorners.put(Side.RIGHT, 1090);
+        match = new MatchData(games, "Hans", null, "01.06.2020 10:00", tableCorners);
+    }
+
+    @Test
+    public void decodeEncodedMatch() throws IOException {
+        MatchData decoded = MatchDataCodec.decode(MatchDataCodec.encode(match));
+        assertEquals("01.06.2020 10:00", decoded.getFormattedTimestamp());
+        assertEquals("Hans", decoded.getPlayerName(Side.LEFT));
+        assertNull(decoded.getPlayerName(Side.RIGHT));
+        assertEquals(match.getTableCorners(), decoded.getTableCorners());
+        assertEquals(match.getWins(), decoded.getWins());
+        assertEquals(match.getStrikes(), decoded.getStrikes());
+        assertEquals(match.getFastestStrikes(), decoded.getFastestStrikes());
+        assertEquals(match.getDuration(), decoded.getDuration());
+        assertEquals(match.getAmountOfCorrections(), decoded.getAmountOfCorrections());
+        for (int g = 0; g < match.getGameStats().size(); g++) {
+            List<PointData> points = match.getGameStats().get(g).getPoints();
+            List<PointData> decodedPoints = decoded.getGameStats().get(g).getPoints();
+            assertEquals(points.size(), decodedPoints.size());
+            for (int p = 0; p < points.size(); p++) {
+                assertPointEquals(points.get(p), decodedPoints.get(p));
+            }
+        }
+    }
+
+    @Test
+    public void beSmallerThanJavaSerialization() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(match);
+        out.flush();
+        int encodedLength = MatchDataCodec.encode(match).length;
+        assertTrue(encodedLength + " bytes", encodedLength * 4 < bytes.size());
+    }
+
+    @Test
+    public void rejectOtherVersions() throws IOException {
+        byte[] encoded = MatchDataCodec.encode(match);
+        encoded[7]++;
+        try {
+            MatchDataCodec.decode(encoded);
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("version"));
+        }
+    }
+
+    @Test
+    public void rejectCountsLargerThanTheData() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MatchDataCodec.GAME_MAGIC);
+        out.writeInt(MatchDataCodec.VERSION);
+        // no decisions, then Integer.MAX_VALUE games
+        out.write(new byte[]{0, -1, -1, -1, -1, 7});
+        try {
+            MatchDataCodec.decodeGame(bytes.toByteArray());
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("count"));
+        }
+    }
+
+    @Test
+    public void decodeSummaryWithoutTracks() throws IOException {
+        byte[] summary = MatchDataCodec.encodeSummary(match);
+        assertTrue(summary.length * 10 < MatchDataCodec.encode(match).length);
+        MatchData decoded = MatchDataCodec.decode(summary);
+        assertEquals(match.getWins(), decoded.getWins());
+        assertEquals(match.getStrikes(), decoded.getStrikes());
+        assertEquals(match.getFastestStrikes(), decoded.getFastestStrikes());
+        assertEquals(match.getDuration(), decoded.getDuration());
+        PointData point = match.getGameStats().get(1).getPoints().get(4);
+        PointData decodedPoint = decoded.getGameStats().get(1).getPoints().get(4);
+        assertEquals(point.getStrikes(), decodedPoint.getStrikes());
+        assertEquals(point.getFastestStrikes(), decodedPoint.getFastestStrikes());
+        assertTrue(decodedPoint.getTracks().isEmpty());
+        assertTrue(decodedPoint.isSummary());
+    }
+
+    @Test
+    public void keepThePointsOfGamesNotLoadedYetInSummaryForm() throws IOException {
+        MatchData summary = MatchDataCodec.decode(MatchDataCodec.encodeSummary(match));
+        List<GameData> games = new ArrayList<>(summary.getGameStats());
+        games.set(1, match.getGameStats().get(1));
+        MatchData partlyLoaded = new MatchData(games, "Hans", null, "01.06.2020 10:00", match.getTableCorners());
+        MatchData decoded = MatchDataCodec.decode(MatchDataCodec.encode(partlyLoaded));
+        assertEquals(match.getStrikes(), decoded.getStrikes());
+        assertEquals(match.getFastestStrikes(), decoded.getFastestStrikes());
+        assertTrue(decoded.getGameStats().get(0).getPoints().get(4).isSummary());
+        PointData point = match.getGameStats().get(1).getPoints().get(4);
+        PointData decodedPoint = decoded.getGameStats().get(1).getPoints().get(4);
+        assertFalse(decodedPoint.isSummary());
+        assertPointEquals(point, decodedPoint);
+    }
+
+    @Test
+    public void decodeSingleGame() throws IOException {
+        GameData game = match.getGameStats().get(2);
+        GameData decoded = MatchDataCodec.decodeGame(MatchDataCodec.encodeGame(game));
+        assertEquals(game.getPoints().size(), decoded.getPoints().size());
+        for (int p = 0; p < game.getPoints().size(); p++) {
+            assertPointEquals(game.getPoints().get(p), decoded.getPoints().get(p));
+        }
+    }
+
+    private static void assertPointEquals(PointData expected, PointData actual) {
+        assertEquals(expected.getRefereeDecision(), actual.getRefereeDecision());
+        assertEquals(expected.getWinner(), actual.getWinner());
+        assertEquals(expected.getScore(Side.LEFT), actual.getScore(Side.LEFT));
+        assertEquals(expected.getScore(Side.RIGHT), actual.getScore(Side.RIGHT));
+        assertEquals(expected.getLastBallSide(), actual.getLastBallSide());
+        assertEquals(expected.getServer(), actual.getServer());
+        assertEquals(expected.getDuration(), actual.getDuration());
+        assertEquals(expected.getStrikes(), actual.getStrikes());
+        assertEquals(expected.getTracks().size(), actual.getTracks().size());
+        for (int t = 0; t < expected.getTracks().size(); t++) {
+            TrackData track = expected.getTracks().get(t);
+            TrackData decodedTrack = actual.getTracks().get(t);
+            assertEquals(track.getStriker(), decodedTrack.getStriker());
+            assertEquals(track.getAverageVelocity(), decodedTrack.getAverageVelocity(), 0);
+            assertEquals(track.getDetections().size(), decodedTrack.getDetections().size());
+            for (int d = 0; d < track.getDetections().size(); d++) {
+                DetectionData detection = track.getDetections().get(d);
+                DetectionData decodedDetection = decodedTrack.getDetections().get(d);
+                assertEquals(detection.getX(), decodedDetection.getX());
+                assertEquals(detection.getY(), decodedDetection.getY());
+                assertEquals(detection.getZ(), decodedDetection.getZ(), 0.5 / MatchDataCodec.Z_SCALE);
+                assertEquals(detection.getVelocity(), decodedDetection.getVelocity(), 0.5 / MatchDataCodec.VELOCITY_SCALE);
+                assertEquals(detection.wasBounce(), decodedDetection.wasBounce());
+                assertEquals(detection.getDirectionX(), decodedDetection.getDirectionX());
+            }
+        }
+    }
+
+    private static List<TrackData> makeTracks(int nTracks) {
+        List<TrackData> tracks = new ArrayList<>();
+        for (int t = 0; t < nTracks; t++) {
+            // every third track goes on in the direction of the one before and is put together with it
+            boolean toRight = (t - t / 3) % 2 == 0;
+            List<DetectionData> detections = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                int step = 7 - i;
+                detections.add(new DetectionData(toRight ? 150 + step * 300 : 2600 - step * 300, 400 - step * 17,
+                        0.31 + step * 0.0173, 41.27f - step * 1.3f, step == 5, toRight ? 1 : -1));
+            }
+            tracks.add(new TrackData(detections, 30.7f + t, toRight ? Side.LEFT : Side.RIGHT));
+        }
+        return tracks;
+    }
+}
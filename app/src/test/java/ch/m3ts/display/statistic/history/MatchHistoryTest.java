@@ -0,0 +1,157 @@
+package ch.m3ts.display.statistic.history;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ch.m3ts.display.statistic.data.DetectionData;
+import ch.m3ts.display.statistic.data.GameData;
+import ch.m3ts.display.statistic.data.MatchData;
+import ch.m3ts.display.statistic.data.MatchDataCodec;
+import ch.m3ts.display.statistic.data.PointData;
+import ch.m3ts.display.statistic.data.TrackData;
+import ch.m3ts.util.Side;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MatchHistoryTest {
+    private static final String OUT_OF_FRAME = "Out of Frame for too long";
+    private static final String DEDUCTION = "On point deduction";
+    private File dir;
+    private MatchHistory history;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("history", "");
+        assertTrue(dir.delete());
+        history = MatchHistory.open(dir);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        history.close();
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) file.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void answerQueriesFromTheIndex() throws IOException {
+        long june = date(2020, Calendar.JUNE, 1);
+        long july = date(2020, Calendar.JULY, 3);
+        history.add(makeMatch("1", "Hans", "Peter", 40f), june);
+        history.add(makeMatch("2", "Hans", "Anna", 55f), july);
+        history.add(makeMatch("3", "Anna", "Peter", 70f), july);
+        int julyMonth = MatchHistory.getMonth(july);
+
+        assertEquals(2, history.getMatchesOfPlayer("Hans").size());
+        assertEquals(2, history.getMatchesBetween(july, july + 1).size());
+        assertEquals(55f, history.getPlayerStats("Hans", julyMonth, julyMonth).getFastestStrike(), 0.01);
+        assertEquals(40f, history.getPlayerStats("Hans", julyMonth - 1, julyMonth - 1).getFastestStrike(), 0.01);
+        PlayerStats anna = history.getPlayerStats("Anna", julyMonth, julyMonth);
+        assertEquals(2, anna.getMatches());
+        assertEquals(1, anna.getMatchesWon());
+        assertEquals(25f, anna.getErrorRatePercentage(), 0.01);
+        assertEquals(2, history.getMonthlyStats("Peter").size());
+        Map<String, Integer> decisions = history.getDecisionCounts(julyMonth, julyMonth);
+        assertEquals(Integer.valueOf(8), decisions.get(OUT_OF_FRAME));
+        assertEquals(Integer.valueOf(2), decisions.get(DEDUCTION));
+        assertEquals(3, history.getMatchesWithDecision(DEDUCTION).size());
+
+        MatchData loaded = history.load(history.getMatchesOfPlayer("Anna").get(1));
+        assertEquals("3", loaded.getFormattedTimestamp());
+        assertEquals(70f, loaded.getFastestStrike(Side.LEFT), 0.01);
+    }
+
+    @Test
+    public void storeAMatchOnce() throws IOException {
+        MatchData match = makeMatch("1", "Hans", "Peter", 40f);
+        MatchSummary summary = history.add(match, 0);
+        assertSame(summary, history.add(match, 0));
+        assertEquals(1, history.getMatches().size());
+    }
+
+    @Test
+    public void storeAMatchOnlyKnownAsSummary() throws IOException {
+        MatchData match = makeMatch("1", "Hans", "Peter", 40f);
+        MatchData summary = MatchDataCodec.decode(MatchDataCodec.encodeSummary(match));
+        history.add(summary, 0);
+        history.close();
+
+        history = MatchHistory.open(dir);
+        MatchSummary stored = history.getMatches().get(0);
+        assertEquals(match.getStrikes().get(Side.LEFT).intValue(), stored.getStrikes(Side.LEFT));
+        assertEquals(40f, stored.getFastestStrike(Side.LEFT), 0.01);
+        MatchData loaded = history.load(stored);
+        assertEquals(match.getStrikes(), loaded.getStrikes());
+        assertEquals(match.getFastestStrikes(), loaded.getFastestStrikes());
+        assertEquals(match.getDuration(), loaded.getDuration());
+    }
+
+    @Test
+    public void reopenAndDropAnUnfinishedEntry() throws IOException {
+        long date = date(2020, Calendar.JUNE, 1);
+        history.add(makeMatch("1", "Hans", "Peter", 40f), date);
+        history.add(makeMatch("2", "Hans", "Peter", 50f), date);
+        history.close();
+        File indexFile = new File(dir, MatchHistory.INDEX_FILE);
+        try (RandomAccessFile index = new RandomAccessFile(indexFile, "rw")) {
+            index.setLength(index.length() - 3);
+        }
+
+        history = MatchHistory.open(dir);
+        assertEquals(1, history.getMatches().size());
+        assertEquals(40f, history.getPlayerStats("Hans", 0, Integer.MAX_VALUE).getFastestStrike(), 0.01);
+        history.add(makeMatch("3", "Hans", "Peter", 60f), date);
+        history.close();
+
+        history = MatchHistory.open(dir);
+        assertEquals(2, history.getMatches().size());
+        assertEquals("3", history.load(history.getMatches().get(1)).getFormattedTimestamp());
+    }
+
+    private static long date(int year, int month, int day) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month, day, 12, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * A game of four points, the left player wins three of them with a strike of the given speed,
+     * followed by a point deducted by the referee.
+     */
+    private static MatchData makeMatch(String start, String left, String right, float velocity) {
+        List<PointData> points = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            Side winner = p < 3 ? Side.LEFT : Side.RIGHT;
+            List<DetectionData> detections = new ArrayList<>();
+            detections.add(new DetectionData(100, 0, 0.5, velocity, false, 1));
+            detections.add(new DetectionData(200, 0, 0.5, velocity, true, 2));
+            List<TrackData> tracks = new ArrayList<>();
+            tracks.add(new TrackData(detections, velocity, Side.LEFT));
+            points.add(new PointData(OUT_OF_FRAME, tracks, winner, p < 3 ? p + 1 : 3, p < 3 ? 0 : 1, Side.LEFT,
+                    Side.LEFT, winner, 5));
+        }
+        points.add(new PointData(DEDUCTION, new ArrayList<TrackData>(), Side.LEFT, 3, 1, null, null, Side.LEFT, 0));
+        List<GameData> games = new ArrayList<>();
+        games.add(new GameData(points));
+        Map<Side, Integer> tableCorners = new HashMap<>();
+        tableCorners.put(Side.LEFT, 0);
+        tableCorners.put(Side.RIGHT, 1000);
+        return new MatchData(games, left, right, start, tableCorners);
+    }
+}
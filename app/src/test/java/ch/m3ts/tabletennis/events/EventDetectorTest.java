@@ -22,7 +22,10 @@ import helper.TableGenerator;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyDouble;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -91,12 +94,19 @@ public class EventDetectorTest {
     @Test
     public void testUpdateTrackSetOnObjectsDetected() {
         EventDetector ev = new EventDetector(mockConfig, SOME_WIDTH, SOME_HEIGHT, mockTracks, table, mockCalc);
-        Lib.Detection[] someDetections = new Lib.Detection[0];
+        Lib.Detection[] someDetections = new Lib.Detection[]{new Lib.Detection()};
         long detectionTime = System.nanoTime();
         ev.onObjectsDetected(someDetections, detectionTime);
         verify(mockTracks, times(1)).addDetections(someDetections, SOME_WIDTH, SOME_HEIGHT, detectionTime);
     }
 
+    @Test
+    public void testFramesWithoutDetectionsKeepTracks() {
+        EventDetector ev = new EventDetector(mockConfig, SOME_WIDTH, SOME_HEIGHT, mockTracks, table, mockCalc);
+        ev.onObjectsDetected(new Lib.Detection[0], System.nanoTime());
+        verify(mockTracks, never()).addDetections(any(Lib.Detection[].class), anyInt(), anyInt(), anyLong());
+    }
+
     @Test
     public void testAudioBounceDetection() {
         EventDetector ev = new EventDetector(mockConfig, SOME_WIDTH, SOME_HEIGHT, TrackSet.getInstance(), table, mockCalc);
@@ -99,4 +99,15 @@ public class TableTest {
         assertEquals(986, table.getNetBottom().x);
         assertEquals(491, table.getNetBottom().y);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void toPropertiesRoundTrip() {
+        Table copy = Table.makeTableFromProperties(table.toProperties());
+        assertEquals(1, copy.getCornerDownLeft().x);
+        assertEquals(2, copy.getCornerDownLeft().y);
+        assertEquals(4, copy.getCornerDownRight().x);
+        assertEquals(5, copy.getCornerDownRight().y);
+        assertEquals(2, copy.getNetBottom().x);
+        assertEquals(3, copy.getNetBottom().y);
+    }
+}
@@ -0,0 +1,173 @@
+package ch.m3ts.tabletennis.match.log;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import ch.m3ts.display.statistic.StatsCreator;
+import ch.m3ts.eventbus.TTEvent;
+import ch.m3ts.eventbus.TTEventBus;
+import ch.m3ts.eventbus.event.scoremanipulation.PauseMatch;
+import ch.m3ts.eventbus.event.scoremanipulation.PointDeduction;
+import ch.m3ts.tabletennis.match.Match;
+import ch.m3ts.tabletennis.match.MatchSettings;
+import ch.m3ts.tabletennis.match.MatchStatus;
+import ch.m3ts.tabletennis.match.MatchType;
+import ch.m3ts.tabletennis.match.Player;
+import ch.m3ts.tabletennis.match.ServeRules;
+import ch.m3ts.tabletennis.match.game.GameType;
+import ch.m3ts.tabletennis.match.referee.State;
+import ch.m3ts.util.Side;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MatchLogTest {
+    private static final MatchSettings SETTINGS = new MatchSettings(MatchType.BO5, GameType.G11, ServeRules.S2,
+            new Player("Hans"), new Player("Peter"), Side.LEFT);
+    private static final String MATCH_ID = "room-1";
+    private File logFile;
+    private File snapshotFile;
+    private File otherLogFile;
+    private TTEventBus eventBus;
+    private StatsCreator statsCreator;
+    private Match match;
+    private MatchLog log;
+
+    @Before
+    public void setUp() throws IOException {
+        logFile = File.createTempFile("match", MatchLog.LOG_EXTENSION);
+        snapshotFile = File.createTempFile("match", MatchLog.SNAPSHOT_EXTENSION);
+        otherLogFile = File.createTempFile("other", MatchLog.LOG_EXTENSION);
+        eventBus = new TTEventBus();
+        statsCreator = new StatsCreator();
+        match = makeMatch(eventBus);
+        log = MatchLog.create(logFile, snapshotFile, MATCH_ID, SETTINGS);
+        match.setLog(log);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        log.close();
+        match.release();
+        statsCreator.shutdown();
+        logFile.delete();
+        snapshotFile.delete();
+        otherLogFile.delete();
+    }
+
+    @Test
+    public void restoresScoresWinsAndServers() throws IOException {
+        scoreGame(Side.RIGHT);
+        score(Side.LEFT, 3);
+        score(Side.RIGHT, 4);
+        eventBus.dispatch(new TTEvent<>(new PointDeduction(Side.RIGHT)));
+        eventBus.dispatch(new TTEvent<>(new PauseMatch()));
+
+        Match restored = recover();
+        assertSameStatus(match.onRequestMatchStatus(), restored.onRequestMatchStatus());
+        assertEquals(State.PAUSE, restored.getReferee().getState());
+        restored.release();
+    }
+
+    @Test
+    public void replaysOnlyTheEntriesAfterTheSnapshot() throws IOException {
+        // two games of 11 points and a game win entry each, then 10 points
+        scoreGame(Side.LEFT);
+        scoreGame(Side.RIGHT);
+        score(Side.LEFT, 5);
+        score(Side.RIGHT, 5);
+        // waits for the snapshot written in the background
+        log.close();
+
+        MatchLogReader.Recovery recovery = MatchLogReader.read(logFile, snapshotFile);
+        assertNotNull(recovery.getSnapshot());
+        assertEquals(34 - MatchLog.SNAPSHOT_INTERVAL, recovery.getTail().size());
+        assertFalse(recovery.isMatchOver());
+        assertTrue(recovery.isOf(MATCH_ID, SETTINGS));
+        // same players and settings, but another match
+        assertFalse(recovery.isOf("room-2", SETTINGS));
+        assertFalse(recovery.isOf(null, SETTINGS));
+        Match restored = recover();
+        assertSameStatus(match.onRequestMatchStatus(), restored.onRequestMatchStatus());
+        restored.release();
+    }
+
+    @Test
+    public void revertsPointsAndGameWinsAfterRecovery() throws IOException {
+        score(Side.LEFT, 3);
+        scoreGame(Side.RIGHT);
+        TTEventBus restoredBus = new TTEventBus();
+        Match restored = recover(restoredBus);
+        // takes back the game win, then the last point of the game
+        restoredBus.dispatch(new TTEvent<>(new PointDeduction(Side.LEFT)));
+        eventBus.dispatch(new TTEvent<>(new PointDeduction(Side.LEFT)));
+        MatchStatus status = restored.onRequestMatchStatus();
+        assertSameStatus(match.onRequestMatchStatus(), status);
+        assertEquals(0, status.getWinsRight());
+        assertEquals(10, status.getScoreRight());
+        assertEquals(3, status.getScoreLeft());
+        restored.release();
+    }
+
+    @Test
+    public void recognizesTheEndOfTheMatch() throws IOException {
+        for (int i = 0; i < MatchType.BO5.gamesNeededToWin; i++) {
+            scoreGame(Side.LEFT);
+        }
+        assertTrue(MatchLogReader.read(logFile, snapshotFile).isMatchOver());
+    }
+
+    @Test
+    public void ignoresTheSnapshotOfAnotherLog() throws IOException {
+        score(Side.RIGHT, 7);
+        log.close();
+        log = MatchLog.create(otherLogFile, snapshotFile, MATCH_ID, SETTINGS);
+        match.setLog(log);
+
+        MatchLogReader.Recovery recovery = MatchLogReader.read(logFile, snapshotFile);
+        assertNull(recovery.getSnapshot());
+        assertEquals(7, recovery.getTail().size());
+    }
+
+    private Match recover() throws IOException {
+        return recover(new TTEventBus());
+    }
+
+    private Match recover(TTEventBus bus) throws IOException {
+        MatchLogReader.Recovery recovery = MatchLogReader.read(logFile, snapshotFile);
+        Match restored = makeMatch(bus);
+        restored.restore(recovery.getSnapshot(), recovery.getTail());
+        return restored;
+    }
+
+    private Match makeMatch(TTEventBus bus) {
+        Match match = new Match(SETTINGS, bus, statsCreator);
+        bus.register(match);
+        return match;
+    }
+
+    private void score(Side side, int points) {
+        for (int i = 0; i < points; i++) {
+            match.getReferee().onPointAddition(side);
+        }
+    }
+
+    private void scoreGame(Side side) {
+        score(side, GameType.G11.amountOfPoints);
+    }
+
+    private static void assertSameStatus(MatchStatus expected, MatchStatus actual) {
+        assertEquals(expected.getScoreLeft(), actual.getScoreLeft());
+        assertEquals(expected.getScoreRight(), actual.getScoreRight());
+        assertEquals(expected.getWinsLeft(), actual.getWinsLeft());
+        assertEquals(expected.getWinsRight(), actual.getWinsRight());
+        assertEquals(expected.getNextServer(), actual.getNextServer());
+    }
+}
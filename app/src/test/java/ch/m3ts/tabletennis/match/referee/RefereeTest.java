@@ -5,6 +5,9 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 import ch.m3ts.eventbus.Event;
 import ch.m3ts.eventbus.Subscribable;
 import ch.m3ts.eventbus.TTEvent;
@@ -12,6 +15,7 @@ import ch.m3ts.eventbus.TTEventBus;
 import ch.m3ts.eventbus.event.todisplay.ReadyToServeData;
 import ch.m3ts.tabletennis.match.DisplayUpdateListener;
 import ch.m3ts.tabletennis.match.game.Game;
+import ch.m3ts.util.FrameClock;
 import ch.m3ts.util.Log;
 import ch.m3ts.util.Side;
 import cz.fmo.Lib;
@@ -21,6 +25,7 @@ import helper.DetectionGenerator;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -77,6 +82,9 @@ public class RefereeTest {
     @After
     public void cleanUp() {
         TTEventBus.getInstance().unregister(stubListener);
+        referee.release();
+        referee = null;
+        gameMock = null;
     }
 
     @Test
@@ -333,10 +341,38 @@ public class RefereeTest {
         TTEventBus.getInstance().unregister(subscribable);
     }
 
-    @After
-    public void tearDown() {
-        referee = null;
-        gameMock = null;
+    @Test
+    public void traceOutOfFrameDecision() {
+        FrameClock clock = new FrameClock();
+        referee.setFrameClock(clock);
+        simulateServe();
+        referee.onBounce(detection, Side.LEFT);
+        referee.onTableSideChange(Side.RIGHT);
+        referee.onBounce(detection, Side.RIGHT);
+        clock.advanceTo(TimeUnit.MILLISECONDS.toNanos(100));
+        referee.onNearlyOutOfFrame(detection, Side.RIGHT);
+        clock.advanceTo(TimeUnit.SECONDS.toNanos(2));
+        verify(gameMock, times(1)).onPoint(STARTING_SIDE);
+        List<RefereeTrace.Transition> transitions = referee.getTrace().getTransitionsSince(0);
+        RefereeTrace.Transition decision = transitions.get(transitions.size() - 1);
+        assertEquals(RefereeEvent.OUT_OF_FRAME_FOR_TOO_LONG, decision.getEvent());
+        assertEquals("noReturn", decision.getRule());
+        assertSame(State.OUT_OF_FRAME, decision.getFrom());
+        assertSame(State.PAUSE, decision.getTo());
+        assertTrue(decision.isDecision());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1500), RefereeTrace.getDecisionLatencyNs(transitions));
+    }
+
+    @Test
+    public void runWithoutRule() {
+        referee.setRules(Referee.getDefaultRules().without("multipleBouncesOnOpponentsSide"));
+        simulateServe();
+        referee.onBounce(detection, Side.LEFT);
+        referee.onTableSideChange(Side.RIGHT);
+        referee.onBounce(detection, Side.RIGHT);
+        referee.onBounce(detection, Side.RIGHT);
+        verify(gameMock, times(0)).onPoint(STARTING_SIDE);
+        assertSame(State.PLAY, referee.getState());
     }
 
     private void simulateServe() {
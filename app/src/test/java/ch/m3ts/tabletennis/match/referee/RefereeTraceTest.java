@@ -0,0 +1,68 @@
+package ch.m3ts.tabletennis.match.referee;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import ch.m3ts.util.Side;
+import cz.fmo.data.Track;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RefereeTraceTest {
+    private RefereeTrace trace;
+    private RefereeRule bounce;
+    private RefereeRule decision;
+
+    @Before
+    public void setUp() {
+        trace = new RefereeTrace(4);
+        bounce = makeRule("bounce", RefereeEvent.BOUNCE);
+        decision = makeRule("noBounce", RefereeEvent.OUT_OF_FRAME_FOR_TOO_LONG).endsPoint();
+    }
+
+    @Test
+    public void keepOnlyTheLastTransitions() {
+        for (int i = 0; i < 6; i++) {
+            trace.record(i, RefereeEvent.BOUNCE, Side.LEFT, State.PLAY, State.PLAY, bounce);
+        }
+        assertEquals(6, trace.getCount());
+        List<RefereeTrace.Transition> transitions = trace.getTransitionsSince(0);
+        assertEquals(4, transitions.size());
+        assertEquals(2, transitions.get(0).getTimeNs());
+        assertEquals(5, transitions.get(3).getTimeNs());
+        assertEquals(1, trace.getTransitionsSince(5).size());
+        assertTrue(trace.getTransitionsSince(6).isEmpty());
+    }
+
+    @Test
+    public void measureDecisionLatencyFromLastDetection() {
+        trace.record(10, RefereeEvent.BOUNCE, Side.LEFT, State.PLAY, State.PLAY, bounce);
+        trace.record(20, RefereeEvent.BOUNCE, Side.RIGHT, State.PLAY, State.PLAY, bounce);
+        assertEquals(-1, RefereeTrace.getDecisionLatencyNs(trace.getTransitionsSince(0)));
+        trace.record(50, RefereeEvent.OUT_OF_FRAME_FOR_TOO_LONG, null, State.OUT_OF_FRAME, State.PAUSE, decision);
+        List<RefereeTrace.Transition> transitions = trace.getTransitionsSince(0);
+        assertFalse(transitions.get(1).isDecision());
+        assertTrue(transitions.get(2).isDecision());
+        assertEquals(30, RefereeTrace.getDecisionLatencyNs(transitions));
+    }
+
+    @Test
+    public void manualPointsAreNoDecisions() {
+        RefereeRule pointAddition = makeRule("pointAddition", RefereeEvent.POINT_ADDITION).endsPoint();
+        trace.record(10, RefereeEvent.POINT_ADDITION, Side.LEFT, State.PLAY, State.PAUSE, pointAddition);
+        assertFalse(trace.getTransitionsSince(0).get(0).isDecision());
+    }
+
+    private static RefereeRule makeRule(String name, RefereeEvent event) {
+        return new RefereeRule(name, event) {
+            @Override
+            void action(Referee referee, Side side, Track track) {
+                // only recorded
+            }
+        };
+    }
+}
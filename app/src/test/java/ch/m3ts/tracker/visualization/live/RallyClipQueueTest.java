@@ -0,0 +1,132 @@
+package ch.m3ts.tracker.visualization.live;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import cz.fmo.recording.SaveThread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RallyClipQueueTest {
+    private final List<String> saved = new ArrayList<>();
+    private final List<String> terminated = new ArrayList<>();
+    private final List<String> discarded = new ArrayList<>();
+    private final List<String> failing = new ArrayList<>();
+    private String kept;
+    private RallyClipQueue queue;
+
+    @Before
+    public void setUp() {
+        queue = new RallyClipQueue(new RallyClipQueue.Saver() {
+            @Override
+            public SaveThread.Task save(final RallyClipQueue.Clip clip) {
+                final String name = clip.getFile().getName();
+                saved.add(name);
+                if (failing.contains(name)) {
+                    // like AutomaticRecordingTask, which reports a failure right away
+                    queue.onCompleted(clip.getFile());
+                }
+                return new SaveThread.Task() {
+                    @Override
+                    public void perform() {
+                    }
+
+                    @Override
+                    public void terminate() {
+                        terminated.add(name);
+                        if (queue.isDiscarded(clip.getFile())) discarded.add(name);
+                        queue.onCompleted(clip.getFile());
+                    }
+
+                    @Override
+                    public boolean extend() {
+                        return false;
+                    }
+                };
+            }
+
+            @Override
+            public void keep(RallyClipQueue.Clip clip) {
+                kept = clip == null ? null : clip.getFile().getName();
+            }
+        });
+    }
+
+    @Test
+    public void saveBackToBackRalliesOneAfterTheOther() {
+        queue.add(clip("1_0.mp4", 0, 3000000));
+        queue.add(clip("2_0.mp4", 3000000, 3500000));
+        queue.add(clip("2_1.mp4", 3500000, 4000000));
+        assertEquals(Arrays.asList("1_0.mp4"), saved);
+        assertEquals(2, queue.getPendingCount());
+
+        queue.onCompleted(new File("1_0.mp4"));
+        assertEquals(Arrays.asList("1_0.mp4", "2_0.mp4"), saved);
+        queue.onCompleted(new File("2_0.mp4"));
+        assertEquals(Arrays.asList("1_0.mp4", "2_0.mp4", "2_1.mp4"), saved);
+        // no clip got its margin cut short
+        assertTrue(terminated.isEmpty());
+    }
+
+    @Test
+    public void keepTheFramesOfTheNextClipWhileWaiting() {
+        queue.add(clip("1_0.mp4", 0, 3000000));
+        assertNull(kept);
+        queue.add(clip("2_0.mp4", 3000000, 3500000));
+        queue.add(clip("2_1.mp4", 3500000, 4000000));
+        assertEquals("2_0.mp4", kept);
+        queue.onCompleted(new File("1_0.mp4"));
+        assertEquals("2_1.mp4", kept);
+        queue.removeLast();
+        assertNull(kept);
+        queue.add(clip("2_1.mp4", 3500000, 4000000));
+        assertEquals("2_1.mp4", kept);
+        queue.clear();
+        assertNull(kept);
+    }
+
+    @Test
+    public void dropTheClipOfACorrectedPoint() {
+        queue.add(clip("1_0.mp4", 0, 3000000));
+        queue.add(clip("2_0.mp4", 3000000, 3500000));
+        queue.removeLast();
+        assertEquals(0, queue.getPendingCount());
+        assertTrue(terminated.isEmpty());
+        queue.removeLast();
+        assertEquals(Arrays.asList("1_0.mp4"), terminated);
+        // the clip being saved is deleted once completed, not published
+        assertEquals(Arrays.asList("1_0.mp4"), discarded);
+        assertFalse(queue.isDiscarded(new File("1_0.mp4")));
+    }
+
+    @Test
+    public void keepTheClipFinishedEarlyByClear() {
+        queue.add(clip("1_0.mp4", 0, 3000000));
+        queue.add(clip("2_0.mp4", 3000000, 3500000));
+        assertEquals(1, queue.clear().size());
+        assertEquals(Arrays.asList("1_0.mp4"), terminated);
+        assertTrue(discarded.isEmpty());
+    }
+
+    @Test
+    public void goOnAfterAClipWhichCouldNotBeStarted() {
+        failing.add("1_0.mp4");
+        queue.add(clip("1_0.mp4", 0, 3000000));
+        queue.add(clip("2_0.mp4", 3000000, 3500000));
+        assertEquals(Arrays.asList("1_0.mp4", "2_0.mp4"), saved);
+        assertTrue(queue.clear().isEmpty());
+        assertEquals(Arrays.asList("2_0.mp4"), terminated);
+    }
+
+    private static RallyClipQueue.Clip clip(String name, long startUs, long endUs) {
+        return new RallyClipQueue.Clip(new File(name), startUs, endUs);
+    }
+}
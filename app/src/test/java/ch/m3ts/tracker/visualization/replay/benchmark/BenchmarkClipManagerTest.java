@@ -44,6 +44,16 @@ public class BenchmarkClipManagerTest {
         }
     }
 
+    @Test
+    public void testWinnerSideOfTraces() {
+        clipManager = new BenchmarkClipManager(new String[][]{{"1_0.bin", "1_1.bin", "2_1.bin"}}, new String[]{"set_1"});
+        Side[] expected = {Side.LEFT, Side.RIGHT, Side.LEFT};
+        for (Side side : expected) {
+            assertEquals(side, clipManager.readWhichSideShouldScore());
+            clipManager.advanceToNextClip();
+        }
+    }
+
     @Test
     public void testAdvance() {
         for (int i = 0; i < testSets.length; i++) {
@@ -0,0 +1,197 @@
+package ch.m3ts.tracker.visualization.replay.benchmark;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import ch.m3ts.util.CSVStringBuilder;
+import ch.m3ts.util.Side;
+
+/**
+ * Per clip results of a benchmark run, saved as CSV (one clip per line, separated by ';' like the
+ * other CSV files of the app) so runs can be compared, see BenchmarkReportComparison.
+ */
+public class BenchmarkReport {
+    private static final String HEADER = CSVStringBuilder.builder()
+            .add("testSet").add("clip").add("expected").add("actual").add("decision")
+            .add("frames").add("droppedFrames")
+            .add("latencyP50Us").add("latencyP90Us").add("latencyP99Us").add("latencyMaxUs")
+            .add("events")
+            .toString();
+    private static final String SEPARATOR = ";";
+    private static final String EVENT_SEPARATOR = ",";
+    private static final String EVENT_COUNT_SEPARATOR = "=";
+    private static final String NO_SIDE = "NONE";
+    private static final int N_COLUMNS = 12;
+    private final List<Clip> clips = new ArrayList<>();
+
+    public void add(Clip clip) {
+        clips.add(clip);
+    }
+
+    public List<Clip> getClips() {
+        return Collections.unmodifiableList(clips);
+    }
+
+    public void write(File file) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            writer.write(HEADER);
+            writer.newLine();
+            for (Clip clip : clips) {
+                writer.write(clip.toCsv());
+                writer.newLine();
+            }
+        }
+    }
+
+    public static BenchmarkReport read(File file) throws IOException {
+        BenchmarkReport report = new BenchmarkReport();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line = reader.readLine();
+            if (!HEADER.equals(line)) throw new IOException("Not a benchmark report: " + file);
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) report.add(Clip.fromCsv(line));
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Result of a single clip. Latencies are the times the EventDetector (and the Referee, through
+     * the events) took per frame, in microseconds.
+     */
+    public static class Clip {
+        private final String testSet;
+        private final String clip;
+        private final Side expected;
+        private final Side actual;
+        private final String decision;
+        private final int frames;
+        private final int droppedFrames;
+        private final long[] latencyUs;
+        private final Map<String, Integer> eventCounts;
+
+        /**
+         * @param actual    side the Referee decided for, null if there was no decision
+         * @param latencyUs 50th, 90th and 99th percentile and maximum
+         */
+        public Clip(String testSet, String clip, Side expected, Side actual, String decision, int frames,
+                    int droppedFrames, long[] latencyUs, Map<String, Integer> eventCounts) {
+            this.testSet = testSet;
+            this.clip = clip;
+            this.expected = expected;
+            this.actual = actual;
+            this.decision = decision == null ? "" : decision.replace(SEPARATOR, EVENT_SEPARATOR);
+            this.frames = frames;
+            this.droppedFrames = droppedFrames;
+            this.latencyUs = latencyUs;
+            this.eventCounts = new TreeMap<>(eventCounts);
+        }
+
+        public String getTestSet() {
+            return testSet;
+        }
+
+        public String getClip() {
+            return clip;
+        }
+
+        public Side getExpected() {
+            return expected;
+        }
+
+        public Side getActual() {
+            return actual;
+        }
+
+        public boolean isCorrect() {
+            return expected == actual;
+        }
+
+        public String getDecision() {
+            return decision;
+        }
+
+        public int getFrames() {
+            return frames;
+        }
+
+        public int getDroppedFrames() {
+            return droppedFrames;
+        }
+
+        public long getLatencyP50Us() {
+            return latencyUs[0];
+        }
+
+        public long getLatencyP90Us() {
+            return latencyUs[1];
+        }
+
+        public long getLatencyP99Us() {
+            return latencyUs[2];
+        }
+
+        public long getLatencyMaxUs() {
+            return latencyUs[3];
+        }
+
+        /**
+         * @return number of events on the bus during the clip, by the type of their data
+         */
+        public Map<String, Integer> getEventCounts() {
+            return Collections.unmodifiableMap(eventCounts);
+        }
+
+        String toCsv() {
+            StringBuilder events = new StringBuilder();
+            for (Map.Entry<String, Integer> entry : eventCounts.entrySet()) {
+                if (events.length() > 0) events.append(EVENT_SEPARATOR);
+                events.append(entry.getKey()).append(EVENT_COUNT_SEPARATOR).append(entry.getValue());
+            }
+            CSVStringBuilder csv = CSVStringBuilder.builder()
+                    .add(testSet)
+                    .add(clip)
+                    .add(expected)
+                    .add(actual == null ? NO_SIDE : actual.toString())
+                    .add(decision)
+                    .add(frames)
+                    .add(droppedFrames);
+            for (long latency : latencyUs) {
+                csv.add(String.valueOf(latency));
+            }
+            return csv.add(events.toString()).toString();
+        }
+
+        static Clip fromCsv(String line) throws IOException {
+            String[] values = line.split(SEPARATOR, -1);
+            if (values.length < N_COLUMNS) throw new IOException("Bad benchmark report line: " + line);
+            try {
+                long[] latencyUs = new long[4];
+                for (int i = 0; i < latencyUs.length; i++) {
+                    latencyUs[i] = Long.parseLong(values[7 + i]);
+                }
+                Map<String, Integer> eventCounts = new TreeMap<>();
+                if (!values[11].isEmpty()) {
+                    for (String event : values[11].split(EVENT_SEPARATOR)) {
+                        String[] nameAndCount = event.split(EVENT_COUNT_SEPARATOR);
+                        eventCounts.put(nameAndCount[0], Integer.parseInt(nameAndCount[1]));
+                    }
+                }
+                Side actual = NO_SIDE.equals(values[3]) ? null : Side.valueOf(values[3]);
+                return new Clip(values[0], values[1], Side.valueOf(values[2]), actual, values[4],
+                        Integer.parseInt(values[5]), Integer.parseInt(values[6]), latencyUs, eventCounts);
+            } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+                throw new IOException("Bad benchmark report line: " + line, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package ch.m3ts.tracker.visualization.replay.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compares two benchmark reports (e.g. before and after changing a threshold of the EventDetector)
+ * and flags the regressions: test sets with fewer correct judgements, or with a latency increase
+ * above the tolerance. Per test set, the latency is the mean of the clip percentiles weighted by
+ * the frames of the clips.
+ * <p>
+ * Usage: BenchmarkReportComparison before.csv after.csv, exits with 1 on regressions.
+ */
+public class BenchmarkReportComparison {
+    private static final double LATENCY_TOLERANCE = 0.2;
+    private static final long MIN_LATENCY_INCREASE_US = 50; // below, differences are noise
+    private final Map<String, SetSummary> before;
+    private final Map<String, SetSummary> after;
+    private final List<String> changedJudgements = new ArrayList<>();
+    private final List<String> regressions = new ArrayList<>();
+
+    public BenchmarkReportComparison(BenchmarkReport before, BenchmarkReport after) {
+        this.before = summarize(before);
+        this.after = summarize(after);
+        compareSets();
+        compareClips(before, after);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkReportComparison before.csv after.csv");
+            System.exit(1);
+        }
+        BenchmarkReportComparison comparison = new BenchmarkReportComparison(
+                BenchmarkReport.read(new File(args[0])), BenchmarkReport.read(new File(args[1])));
+        System.out.print(comparison.makeComparisonString());
+        System.exit(comparison.getRegressions().isEmpty() ? 0 : 1);
+    }
+
+    public List<String> getRegressions() {
+        return regressions;
+    }
+
+    /**
+     * @return clips which are judged correctly in one report but not in the other
+     */
+    public List<String> getChangedJudgements() {
+        return changedJudgements;
+    }
+
+    private void compareSets() {
+        for (Map.Entry<String, SetSummary> entry : before.entrySet()) {
+            String set = entry.getKey();
+            SetSummary old = entry.getValue();
+            SetSummary now = after.get(set);
+            if (now == null) {
+                regressions.add(String.format(Locale.US, "set '%s' is missing", set));
+                continue;
+            }
+            if (now.getAccuracy() < old.getAccuracy()) {
+                regressions.add(String.format(Locale.US, "set '%s': accuracy %.1f%% -> %.1f%%",
+                        set, old.getAccuracy() * 100, now.getAccuracy() * 100));
+            }
+            checkLatency(set, "p50", old.getLatencyP50Us(), now.getLatencyP50Us());
+            checkLatency(set, "p99", old.getLatencyP99Us(), now.getLatencyP99Us());
+        }
+    }
+
+    private void checkLatency(String set, String percentile, double old, double now) {
+        if (now - old > MIN_LATENCY_INCREASE_US && now > old * (1 + LATENCY_TOLERANCE)) {
+            regressions.add(String.format(Locale.US, "set '%s': %s latency %.0fus -> %.0fus",
+                    set, percentile, old, now));
+        }
+    }
+
+    private void compareClips(BenchmarkReport before, BenchmarkReport after) {
+        Map<String, BenchmarkReport.Clip> oldClips = new HashMap<>();
+        for (BenchmarkReport.Clip clip : before.getClips()) {
+            oldClips.put(clip.getTestSet() + "/" + clip.getClip(), clip);
+        }
+        for (BenchmarkReport.Clip clip : after.getClips()) {
+            BenchmarkReport.Clip old = oldClips.get(clip.getTestSet() + "/" + clip.getClip());
+            if (old == null || old.isCorrect() == clip.isCorrect()) continue;
+            changedJudgements.add(String.format(Locale.US, "%s/%s (%s scored): %s '%s' -> %s '%s'",
+                    clip.getTestSet(), clip.getClip(), clip.getExpected(),
+                    old.getActual(), old.getDecision(), clip.getActual(), clip.getDecision()));
+        }
+    }
+
+    public String makeComparisonString() {
+        StringBuilder stringBuilder = new StringBuilder();
+        stringBuilder.append("----------------- BENCHMARK COMPARISON -----------------\n");
+        stringBuilder.append(String.format(Locale.US, "%-30s%12s%12s%16s%16s%12s%n",
+                "", "before", "after", "p50 (us)", "p99 (us)", "dropped"));
+        for (Map.Entry<String, SetSummary> entry : after.entrySet()) {
+            SetSummary now = entry.getValue();
+            SetSummary old = before.get(entry.getKey());
+            if (old == null) old = new SetSummary();
+            stringBuilder.append(String.format(Locale.US, "%-30s%12s%12s%16s%16s%12s%n",
+                    String.format(Locale.US, "set '%s':", entry.getKey()),
+                    old.correct + "/" + old.total, now.correct + "/" + now.total,
+                    String.format(Locale.US, "%.0f->%.0f", old.getLatencyP50Us(), now.getLatencyP50Us()),
+                    String.format(Locale.US, "%.0f->%.0f", old.getLatencyP99Us(), now.getLatencyP99Us()),
+                    old.droppedFrames + "->" + now.droppedFrames));
+        }
+        appendList(stringBuilder, "Changed judgements =>", changedJudgements);
+        appendList(stringBuilder, "Regressions =>", regressions);
+        stringBuilder.append("--------------------------------------------------------\n");
+        return stringBuilder.toString();
+    }
+
+    private static void appendList(StringBuilder stringBuilder, String title, List<String> lines) {
+        stringBuilder.append(title);
+        stringBuilder.append(lines.isEmpty() ? " none\n" : "\n");
+        for (String line : lines) {
+            stringBuilder.append("  ").append(line).append('\n');
+        }
+    }
+
+    private static Map<String, SetSummary> summarize(BenchmarkReport report) {
+        Map<String, SetSummary> summaries = new LinkedHashMap<>();
+        for (BenchmarkReport.Clip clip : report.getClips()) {
+            SetSummary summary = summaries.get(clip.getTestSet());
+            if (summary == null) {
+                summary = new SetSummary();
+                summaries.put(clip.getTestSet(), summary);
+            }
+            summary.add(clip);
+        }
+        return summaries;
+    }
+
+    private static class SetSummary {
+        private int total;
+        private int correct;
+        private int frames;
+        private int droppedFrames;
+        private double weightedP50Us;
+        private double weightedP99Us;
+
+        void add(BenchmarkReport.Clip clip) {
+            total++;
+            if (clip.isCorrect()) correct++;
+            frames += clip.getFrames();
+            droppedFrames += clip.getDroppedFrames();
+            weightedP50Us += (double) clip.getLatencyP50Us() * clip.getFrames();
+            weightedP99Us += (double) clip.getLatencyP99Us() * clip.getFrames();
+        }
+
+        double getAccuracy() {
+            return total == 0 ? 0 : (double) correct / total;
+        }
+
+        double getLatencyP50Us() {
+            return frames == 0 ? 0 : weightedP50Us / frames;
+        }
+
+        double getLatencyP99Us() {
+            return frames == 0 ? 0 : weightedP99Us / frames;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package ch.m3ts.tracker.visualization.replay.benchmark;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import ch.m3ts.util.Side;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BenchmarkReportTest {
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("report", ".csv");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void readWhatWasWritten() throws IOException {
+        BenchmarkReport report = new BenchmarkReport();
+        report.add(makeClip("set_1", "1_0.bin", Side.RIGHT, 100, 400));
+        report.add(new BenchmarkReport.Clip("set_1", "1_1.bin", Side.RIGHT, null, null, 0, 0,
+                new long[4], new HashMap<String, Integer>()));
+        report.write(file);
+
+        BenchmarkReport read = BenchmarkReport.read(file);
+        assertEquals(2, read.getClips().size());
+        BenchmarkReport.Clip clip = read.getClips().get(0);
+        assertEquals("1_0.bin", clip.getClip());
+        assertEquals(Side.LEFT, clip.getExpected());
+        assertEquals(Side.RIGHT, clip.getActual());
+        assertEquals("Bounce on strikers' Side", clip.getDecision());
+        assertEquals(90, clip.getFrames());
+        assertEquals(2, clip.getDroppedFrames());
+        assertEquals(100, clip.getLatencyP50Us());
+        assertEquals(400, clip.getLatencyP99Us());
+        assertEquals(Integer.valueOf(7), clip.getEventCounts().get("BallBounceData"));
+        assertEquals(Integer.valueOf(1), clip.getEventCounts().get("ScoreData"));
+        assertNull(read.getClips().get(1).getActual());
+        assertTrue(read.getClips().get(1).getEventCounts().isEmpty());
+    }
+
+    @Test
+    public void flagRegressions() {
+        BenchmarkReport before = new BenchmarkReport();
+        before.add(makeClip("set_1", "1_0.bin", Side.LEFT, 100, 400));
+        before.add(makeClip("set_2", "1_0.bin", Side.LEFT, 100, 400));
+        BenchmarkReport after = new BenchmarkReport();
+        after.add(makeClip("set_1", "1_0.bin", Side.RIGHT, 130, 440));
+        after.add(makeClip("set_2", "1_0.bin", Side.LEFT, 100, 900));
+
+        BenchmarkReportComparison comparison = new BenchmarkReportComparison(before, after);
+        assertEquals(1, comparison.getChangedJudgements().size());
+        assertTrue(comparison.getChangedJudgements().get(0).startsWith("set_1/1_0.bin"));
+        // the latency of set_1 only changed within the noise
+        assertEquals(2, comparison.getRegressions().size());
+        assertTrue(comparison.getRegressions().get(0).contains("set_1': accuracy"));
+        assertTrue(comparison.getRegressions().get(1).contains("set_2': p99"));
+
+        assertTrue(new BenchmarkReportComparison(before, before).getRegressions().isEmpty());
+    }
+
+    private static BenchmarkReport.Clip makeClip(String set, String clip, Side actual, long p50Us, long p99Us) {
+        Map<String, Integer> events = new HashMap<>();
+        events.put("ScoreData", 1);
+        events.put("BallBounceData", 7);
+        return new BenchmarkReport.Clip(set, clip, Side.LEFT, actual, "Bounce on strikers' Side", 90, 2,
+                new long[]{p50Us, p50Us + 10, p99Us, p99Us + 100}, events);
+    }
+}
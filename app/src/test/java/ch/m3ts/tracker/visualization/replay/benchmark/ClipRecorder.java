@@ -0,0 +1,77 @@
+package ch.m3ts.tracker.visualization.replay.benchmark;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import ch.m3ts.detection.trace.DetectionTracePlayer;
+import ch.m3ts.detection.trace.DetectionTraceRecord;
+import ch.m3ts.eventbus.Event;
+import ch.m3ts.eventbus.Subscribable;
+import ch.m3ts.util.Side;
+
+/**
+ * Records the events on the bus, the frames and the time the detector took per frame while a clip
+ * of a trace benchmark plays. The trace holds a detection batch for every frame FMO processed, so a
+ * gap of more than a frame interval between two batches means FMO dropped the frames in between
+ * while the trace was recorded.
+ */
+class ClipRecorder implements Subscribable, DetectionTracePlayer.PlaybackListener {
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99};
+    private final long frameIntervalNs;
+    private final Map<String, Integer> eventCounts = new HashMap<>();
+    private long[] latenciesNs = new long[256];
+    private int frames;
+    private int droppedFrames;
+    private long lastFrameNs;
+
+    ClipRecorder(float frameRate) {
+        this.frameIntervalNs = (long) (TimeUnit.SECONDS.toNanos(1) / frameRate);
+    }
+
+    @Override
+    public void handle(Event<?> event) {
+        String type = event.getData().getClass().getSimpleName();
+        Integer count = eventCounts.get(type);
+        eventCounts.put(type, count == null ? 1 : count + 1);
+    }
+
+    @Override
+    public void onRecordPlayed(DetectionTraceRecord record, long processingNs) {
+        if (record.isAudioBounce()) return;
+        if (frames > 0) {
+            long missing = Math.round((double) (record.getTimeNs() - lastFrameNs) / frameIntervalNs) - 1;
+            if (missing > 0) droppedFrames += missing;
+        }
+        lastFrameNs = record.getTimeNs();
+        if (frames == latenciesNs.length) latenciesNs = Arrays.copyOf(latenciesNs, frames * 2);
+        latenciesNs[frames++] = processingNs;
+    }
+
+    /**
+     * Makes the report of the clip recorded and starts recording the next one.
+     */
+    BenchmarkReport.Clip finishClip(String testSet, String clip, Side expected, Side actual, String decision) {
+        BenchmarkReport.Clip report = new BenchmarkReport.Clip(testSet, clip, expected, actual, decision,
+                frames, droppedFrames, makeLatencyPercentilesUs(), eventCounts);
+        eventCounts.clear();
+        frames = 0;
+        droppedFrames = 0;
+        return report;
+    }
+
+    private long[] makeLatencyPercentilesUs() {
+        long[] latencyUs = new long[PERCENTILES.length + 1];
+        if (frames == 0) return latencyUs;
+        long[] sorted = Arrays.copyOf(latenciesNs, frames);
+        Arrays.sort(sorted);
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            // nearest rank
+            int rank = (int) Math.ceil(PERCENTILES[i] * frames);
+            latencyUs[i] = TimeUnit.NANOSECONDS.toMicros(sorted[Math.max(rank, 1) - 1]);
+        }
+        latencyUs[PERCENTILES.length] = TimeUnit.NANOSECONDS.toMicros(sorted[frames - 1]);
+        return latencyUs;
+    }
+}
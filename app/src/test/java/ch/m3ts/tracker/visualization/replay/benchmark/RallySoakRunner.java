@@ -0,0 +1,267 @@
+package ch.m3ts.tracker.visualization.replay.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import ch.m3ts.detection.EventDetector;
+import ch.m3ts.detection.ZPositionCalc;
+import ch.m3ts.detection.trace.DetectionTraceHeader;
+import ch.m3ts.detection.trace.DetectionTracePlayer;
+import ch.m3ts.display.statistic.StatsCreator;
+import ch.m3ts.eventbus.Event;
+import ch.m3ts.eventbus.Subscribable;
+import ch.m3ts.eventbus.TTEventBus;
+import ch.m3ts.eventbus.event.ball.BallBounceData;
+import ch.m3ts.eventbus.event.todisplay.MatchEndedData;
+import ch.m3ts.eventbus.event.todisplay.ScoreData;
+import ch.m3ts.tabletennis.match.Match;
+import ch.m3ts.tabletennis.match.MatchSettings;
+import ch.m3ts.tabletennis.match.MatchType;
+import ch.m3ts.tabletennis.match.Player;
+import ch.m3ts.tabletennis.match.ServeRules;
+import ch.m3ts.tabletennis.match.game.GameType;
+import ch.m3ts.tabletennis.match.referee.Referee;
+import ch.m3ts.util.FrameClock;
+import ch.m3ts.util.Side;
+import ch.m3ts.util.Table;
+import cz.fmo.data.TrackSet;
+import cz.fmo.util.Config;
+import helper.RallySimulator;
+import helper.SimulatedRally;
+
+/**
+ * Soak test of the EventDetector and the Referee: plays simulated matches one after another until
+ * the given number of frames is reached. The decision on each rally is judged against its ground
+ * truth and the bounces found against the real ones, while heap, pending timeouts and threads are
+ * sampled to find leaks.
+ * <p>
+ * Usage: RallySoakRunner [frames [seed [distractors [dropoutRate]]]], exits with 1 on a leak.
+ */
+public class RallySoakRunner {
+    // the EventDetector reports a bounce with the frame after it
+    private static final long BOUNCE_TOLERANCE_NS = 2 * RallySimulator.FRAME_NS;
+    private static final int MATCHES_PER_HEAP_SAMPLE = 5;
+    // timeouts are cancelled but stay queued until due, anything above this is piling up
+    private static final int MAX_PENDING_TIMEOUTS = 100;
+    private static final long MAX_HEAP_GROWTH_BYTES = 32L * 1024 * 1024;
+    // longer than any timeout of the detection or the referee
+    private static final long TIMEOUTS_DUE_NS = TimeUnit.SECONDS.toNanos(60);
+    private final RallySimulator simulator;
+    private final long frames;
+
+    public RallySoakRunner(RallySimulator simulator, long frames) {
+        this.simulator = simulator;
+        this.frames = frames;
+    }
+
+    public static void main(String[] args) {
+        long frames = args.length > 0 ? Long.parseLong(args[0]) : 1000000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        int distractors = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        double dropoutRate = args.length > 3 ? Double.parseDouble(args[3]) : 0.02;
+        RallySimulator simulator = new RallySimulator(seed)
+                .setDistractors(distractors)
+                .setDropoutRate(dropoutRate)
+                .setAudioBounceRate(0.5);
+        Result result = new RallySoakRunner(simulator, frames).run();
+        System.out.println(result);
+        if (result.hasLeak()) System.exit(1);
+    }
+
+    public Result run() {
+        Result result = new Result();
+        FrameClock clock = new FrameClock();
+        DetectionTracePlayer player = new DetectionTracePlayer(clock);
+        result.threadsBefore = Thread.activeCount();
+        long start = System.nanoTime();
+        while (result.frames < frames) {
+            playMatch(clock, player, result);
+            result.matches++;
+            if (result.matches % MATCHES_PER_HEAP_SAMPLE == 1) result.sampleHeap();
+        }
+        result.playNs = System.nanoTime() - start;
+        clock.advanceTo(clock.nanoTime() + TIMEOUTS_DUE_NS);
+        result.pendingTimeouts = clock.getPendingTimeouts();
+        result.sampleHeap();
+        result.threadsAfter = Thread.activeCount();
+        return result;
+    }
+
+    private void playMatch(final FrameClock clock, DetectionTracePlayer player, final Result result) {
+        DetectionTraceHeader header = RallySimulator.makeHeader();
+        TTEventBus eventBus = new TTEventBus();
+        StatsCreator statsCreator = new StatsCreator();
+        MatchSettings settings = new MatchSettings(MatchType.BO5, GameType.G11, ServeRules.S2,
+                new Player("Hans"), new Player("Peter"), Side.LEFT);
+        Match match = new Match(settings, eventBus, statsCreator);
+        Referee referee = match.getReferee();
+        referee.setFrameClock(clock);
+        final BenchmarkJudge judge = new BenchmarkJudge(referee);
+        final boolean[] hasEnded = {false};
+        final List<Long> bounceTimes = new ArrayList<>();
+        final List<Side> bounceSides = new ArrayList<>();
+        eventBus.register(match);
+        eventBus.register(new Subscribable() {
+            @Override
+            public void handle(Event<?> event) {
+                Object data = event.getData();
+                if (data instanceof ScoreData) {
+                    ScoreData scoreData = (ScoreData) data;
+                    judge.onScore(scoreData.getScorer(), scoreData.getScore());
+                } else if (data instanceof MatchEndedData) {
+                    hasEnded[0] = true;
+                } else if (data instanceof BallBounceData) {
+                    bounceTimes.add(clock.nanoTime());
+                    bounceSides.add(((BallBounceData) data).getTableSide());
+                }
+            }
+        });
+
+        Table table = header.makeTable();
+        ZPositionCalc calc = header.makeZPositionCalc();
+        statsCreator.setZCalc(calc);
+        statsCreator.setFrameRate(header.getFrameRate());
+        EventDetector detector = new EventDetector(new Config(header.getFrameRate()), header.getSrcWidth(),
+                header.getSrcHeight(), new TrackSet(), table, calc, eventBus);
+        detector.setFrameClock(clock);
+        referee.initState();
+        statsCreator.addTableCorners(table.getCornerDownLeft().x, table.getCornerDownRight().x);
+        referee.onGestureDetected();
+
+        while (!hasEnded[0] && result.frames < frames) {
+            SimulatedRally rally = simulator.nextRally(referee.getServer());
+            judge.setClipId("rally " + result.rallies);
+            judge.setWhoShouldScore(rally.getWinner());
+            bounceTimes.clear();
+            bounceSides.clear();
+            long startNs = clock.nanoTime();
+            player.play(rally.getRecords(), detector);
+            result.onRally(rally, judge.getClipScorer(), startNs, bounceTimes, bounceSides);
+            result.maxPendingTimeouts = Math.max(result.maxPendingTimeouts, clock.getPendingTimeouts());
+            judge.onClipEnded();
+        }
+        match.release();
+        statsCreator.shutdown();
+    }
+
+    public static class Result {
+        private long frames;
+        private int matches;
+        private int rallies;
+        private int correctDecisions;
+        private int missingDecisions;
+        private int realBounces;
+        private int foundBounces;
+        private int matchedBounces;
+        private long playNs;
+        private int maxPendingTimeouts;
+        private int pendingTimeouts;
+        private int threadsBefore;
+        private int threadsAfter;
+        private final List<Long> heapSamples = new ArrayList<>();
+
+        private void onRally(SimulatedRally rally, Side scorer, long startNs, List<Long> bounceTimes,
+                             List<Side> bounceSides) {
+            frames += rally.getFrames();
+            rallies++;
+            if (scorer == null) {
+                missingDecisions++;
+            } else if (scorer == rally.getWinner()) {
+                correctDecisions++;
+            }
+            foundBounces += bounceTimes.size();
+            boolean[] isMatched = new boolean[bounceTimes.size()];
+            for (SimulatedRally.Event event : rally.getEvents()) {
+                if (event.getType() != SimulatedRally.EventType.BOUNCE) continue;
+                realBounces++;
+                long timeNs = startNs + event.getTimeNs();
+                for (int i = 0; i < isMatched.length; i++) {
+                    if (!isMatched[i] && bounceSides.get(i) == event.getSide() &&
+                            Math.abs(bounceTimes.get(i) - timeNs) <= BOUNCE_TOLERANCE_NS) {
+                        isMatched[i] = true;
+                        matchedBounces++;
+                        break;
+                    }
+                }
+            }
+        }
+
+        private void sampleHeap() {
+            Runtime runtime = Runtime.getRuntime();
+            System.gc();
+            heapSamples.add(runtime.totalMemory() - runtime.freeMemory());
+        }
+
+        public long getFrames() {
+            return frames;
+        }
+
+        public int getMatches() {
+            return matches;
+        }
+
+        public int getRallies() {
+            return rallies;
+        }
+
+        public int getCorrectDecisions() {
+            return correctDecisions;
+        }
+
+        public int getMissingDecisions() {
+            return missingDecisions;
+        }
+
+        public double getBounceRecall() {
+            return realBounces == 0 ? 0 : (double) matchedBounces / realBounces;
+        }
+
+        public double getBouncePrecision() {
+            return foundBounces == 0 ? 0 : (double) matchedBounces / foundBounces;
+        }
+
+        public int getMaxPendingTimeouts() {
+            return maxPendingTimeouts;
+        }
+
+        /**
+         * @return timeouts still pending once the timeouts of the last match are due, none are
+         * expected
+         */
+        public int getPendingTimeouts() {
+            return pendingTimeouts;
+        }
+
+        /**
+         * @return heap used after the last match minus the heap used after the first one
+         */
+        public long getHeapGrowthBytes() {
+            return heapSamples.get(heapSamples.size() - 1) - heapSamples.get(0);
+        }
+
+        public int getThreadGrowth() {
+            return threadsAfter - threadsBefore;
+        }
+
+        public boolean hasLeak() {
+            return maxPendingTimeouts > MAX_PENDING_TIMEOUTS || pendingTimeouts > 0 || getThreadGrowth() > 0 ||
+                    getHeapGrowthBytes() > MAX_HEAP_GROWTH_BYTES;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = playNs / 1e9;
+            return String.format(Locale.US, "%d frames (%.0f frames/s, %.1f min of video), %d matches%n" +
+                            "decisions: %d/%d correct, %d missing%n" +
+                            "bounces: recall %.3f, precision %.3f (%d real, %d found)%n" +
+                            "heap growth: %d KiB, max pending timeouts: %d (%d at the end), thread growth: %d%s",
+                    frames, frames / seconds, TimeUnit.NANOSECONDS.toSeconds(frames * RallySimulator.FRAME_NS) / 60.,
+                    matches, correctDecisions, rallies, missingDecisions,
+                    getBounceRecall(), getBouncePrecision(), realBounces, foundBounces,
+                    getHeapGrowthBytes() / 1024, maxPendingTimeouts, pendingTimeouts, getThreadGrowth(),
+                    hasLeak() ? String.format("%nLEAK") : "");
+        }
+    }
+}
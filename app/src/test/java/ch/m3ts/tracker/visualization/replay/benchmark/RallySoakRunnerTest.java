@@ -0,0 +1,53 @@
+package ch.m3ts.tracker.visualization.replay.benchmark;
+
+import org.junit.Test;
+
+import helper.RallySimulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Short runs only, heap and thread growth are checked by the soakTest task over long runs.
+ */
+public class RallySoakRunnerTest {
+
+    @Test
+    public void judgeEveryCleanRallyCorrectly() {
+        RallySoakRunner.Result result = new RallySoakRunner(new RallySimulator(1), 20000).run();
+        assertTrue(result.getFrames() >= 20000);
+        assertEquals(0, result.getMissingDecisions());
+        assertEquals(result.getRallies(), result.getCorrectDecisions());
+        assertEquals(1.0, result.getBounceRecall(), 0);
+        assertEquals(1.0, result.getBouncePrecision(), 0);
+        assertEquals(0, result.getPendingTimeouts());
+    }
+
+    @Test
+    public void soakWithDistractorsAndDropouts() {
+        RallySoakRunner.Result result = new RallySoakRunner(makeNoisySimulator(), 60000).run();
+        assertTrue(result.getMatches() > 1);
+        assertTrue(result.getCorrectDecisions() > 0.95 * result.getRallies());
+        assertTrue(result.getBounceRecall() > 0.9);
+        assertEquals(0, result.getPendingTimeouts());
+    }
+
+    @Test
+    public void decideTheSameWayWithTheSameSeed() {
+        RallySoakRunner.Result first = new RallySoakRunner(makeNoisySimulator(), 10000).run();
+        RallySoakRunner.Result second = new RallySoakRunner(makeNoisySimulator(), 10000).run();
+        assertEquals(first.getRallies(), second.getRallies());
+        assertEquals(first.getCorrectDecisions(), second.getCorrectDecisions());
+        assertEquals(first.getMissingDecisions(), second.getMissingDecisions());
+        assertEquals(first.getBounceRecall(), second.getBounceRecall(), 0);
+        assertEquals(first.getBouncePrecision(), second.getBouncePrecision(), 0);
+        assertEquals(first.getMaxPendingTimeouts(), second.getMaxPendingTimeouts());
+    }
+
+    private static RallySimulator makeNoisySimulator() {
+        return new RallySimulator(2)
+                .setDistractors(3)
+                .setDropoutRate(0.05)
+                .setAudioBounceRate(0.5);
+    }
+}
@@ -0,0 +1,46 @@
+package ch.m3ts.tracker.visualization.replay.benchmark;
+
+import ch.m3ts.eventbus.Event;
+import ch.m3ts.eventbus.EventBus;
+import ch.m3ts.eventbus.Subscribable;
+
+/**
+ * Event bus which measures the time its subscribers (Referee, Match, ...) spend on the events.
+ * Events dispatched while handling an event count towards the outermost dispatch. Not thread safe,
+ * meant for the single thread of a benchmark run.
+ */
+class TimedEventBus implements EventBus {
+    private final EventBus eventBus;
+    private int depth = 0;
+    private long dispatchNs = 0;
+
+    TimedEventBus(EventBus eventBus) {
+        this.eventBus = eventBus;
+    }
+
+    long getDispatchNs() {
+        return dispatchNs;
+    }
+
+    @Override
+    public void register(Subscribable subscribable) {
+        eventBus.register(subscribable);
+    }
+
+    @Override
+    public void unregister(Subscribable subscribable) {
+        eventBus.unregister(subscribable);
+    }
+
+    @Override
+    public void dispatch(Event<?> event) {
+        long start = depth == 0 ? System.nanoTime() : 0;
+        depth++;
+        try {
+            eventBus.dispatch(event);
+        } finally {
+            depth--;
+            if (depth == 0) dispatchNs += System.nanoTime() - start;
+        }
+    }
+}
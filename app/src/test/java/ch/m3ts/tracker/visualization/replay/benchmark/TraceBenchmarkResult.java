@@ -0,0 +1,81 @@
+package ch.m3ts.tracker.visualization.replay.benchmark;
+
+import java.util.List;
+
+/**
+ * Judgements and time per stage of a test set run by the TraceBenchmarkRunner.
+ */
+public class TraceBenchmarkResult {
+    private final String testSet;
+    private final int totalJudgements;
+    private final int correctJudgements;
+    private final long loadNs;
+    private final long detectNs;
+    private final long refereeNs;
+    private final long totalNs;
+    private final List<BenchmarkReport.Clip> clips;
+    private final long[] decisionLatenciesNs;
+
+    TraceBenchmarkResult(String testSet, int totalJudgements, int correctJudgements,
+                         long loadNs, long detectNs, long refereeNs, long totalNs, List<BenchmarkReport.Clip> clips,
+                         long[] decisionLatenciesNs) {
+        this.testSet = testSet;
+        this.totalJudgements = totalJudgements;
+        this.correctJudgements = correctJudgements;
+        this.loadNs = loadNs;
+        this.detectNs = detectNs;
+        this.refereeNs = refereeNs;
+        this.totalNs = totalNs;
+        this.clips = clips;
+        this.decisionLatenciesNs = decisionLatenciesNs;
+    }
+
+    public String getTestSet() {
+        return testSet;
+    }
+
+    public int getTotalJudgements() {
+        return totalJudgements;
+    }
+
+    public int getCorrectJudgements() {
+        return correctJudgements;
+    }
+
+    /**
+     * @return time spent reading the traces
+     */
+    public long getLoadNs() {
+        return loadNs;
+    }
+
+    /**
+     * @return time spent in the EventDetector (tracks, bounces, sides), without the event handling
+     */
+    public long getDetectNs() {
+        return detectNs;
+    }
+
+    /**
+     * @return time spent handling the events (Referee, Match, judge)
+     */
+    public long getRefereeNs() {
+        return refereeNs;
+    }
+
+    public long getTotalNs() {
+        return totalNs;
+    }
+
+    public List<BenchmarkReport.Clip> getClips() {
+        return clips;
+    }
+
+    /**
+     * @return per clip the Referee decided on, the frame time between the detection which led to
+     * the decision and the decision (see RefereeTrace.getDecisionLatencyNs)
+     */
+    public long[] getDecisionLatenciesNs() {
+        return decisionLatenciesNs;
+    }
+}
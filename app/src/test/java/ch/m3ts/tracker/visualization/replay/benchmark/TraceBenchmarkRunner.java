@@ -0,0 +1,226 @@
+package ch.m3ts.tracker.visualization.replay.benchmark;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import ch.m3ts.detection.trace.DetectionTraceWriter;
+import ch.m3ts.tabletennis.match.referee.Referee;
+import ch.m3ts.tabletennis.match.referee.RefereeRules;
+import ch.m3ts.util.Side;
+import ch.m3ts.util.XMLLoader;
+
+/**
+ * Runs the benchmark on the JVM, without Android, over the detection traces recorded by the
+ * BenchmarkActivity ("Record detection traces" setting). Every test set runs on its own
+ * EventDetector, Match and Referee, the test sets run in parallel.
+ * <p>
+ * Expects the traces in traceDir/testSet/leftScore_rightScore.bin and the serving side of each
+ * test set in assetsDir/!test_testSet.xml, as in the assets of the app, or next to the traces for
+ * test sets recorded on the device (see RallyClipRecorder).
+ * <p>
+ * Usage: TraceBenchmarkRunner traceDir assetsDir [threads [report.csv]]
+ * <p>
+ * The report has the results per clip, see BenchmarkReport and BenchmarkReportComparison.
+ */
+public class TraceBenchmarkRunner {
+    private final File traceDir;
+    private final File assetsDir;
+    private final int nThreads;
+    private RefereeRules rules = Referee.getDefaultRules();
+
+    public TraceBenchmarkRunner(File traceDir, File assetsDir, int nThreads) {
+        this.traceDir = traceDir;
+        this.assetsDir = assetsDir;
+        this.nThreads = nThreads;
+    }
+
+    /**
+     * Runs the referees with the given rules, to compare a variant of the rules with the default.
+     */
+    public void setRules(RefereeRules rules) {
+        this.rules = rules;
+    }
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException, IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: TraceBenchmarkRunner traceDir assetsDir [threads [report.csv]]");
+            System.exit(1);
+        }
+        int nThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        TraceBenchmarkRunner runner = new TraceBenchmarkRunner(new File(args[0]), new File(args[1]), nThreads);
+        long start = System.nanoTime();
+        List<TraceBenchmarkResult> results = runner.run();
+        System.out.print(makeStatisticsString(results));
+        System.out.printf(Locale.US, "%-45s%d ms (%d threads)%n", "Wall time:",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), nThreads);
+        if (args.length > 3) {
+            makeReport(results).write(new File(args[3]));
+            System.out.printf(Locale.US, "%-45s%s%n", "Report:", args[3]);
+        }
+    }
+
+    /**
+     * @return report with the clips of all test sets
+     */
+    public static BenchmarkReport makeReport(List<TraceBenchmarkResult> results) {
+        BenchmarkReport report = new BenchmarkReport();
+        for (TraceBenchmarkResult result : results) {
+            for (BenchmarkReport.Clip clip : result.getClips()) {
+                report.add(clip);
+            }
+        }
+        return report;
+    }
+
+    /**
+     * @return results of all test sets, in the order of their names
+     */
+    public List<TraceBenchmarkResult> run() throws InterruptedException, ExecutionException {
+        String[] sets = listTestSets();
+        ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+        try {
+            List<Future<TraceBenchmarkResult>> futures = new ArrayList<>(sets.length);
+            for (String set : sets) {
+                futures.add(executor.submit(makeTask(set)));
+            }
+            List<TraceBenchmarkResult> results = new ArrayList<>(sets.length);
+            for (Future<TraceBenchmarkResult> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private String[] listTestSets() {
+        File[] dirs = traceDir.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isDirectory();
+            }
+        });
+        if (dirs == null) throw new IllegalArgumentException("No trace directory: " + traceDir);
+        String[] sets = new String[dirs.length];
+        for (int i = 0; i < dirs.length; i++) {
+            sets[i] = dirs[i].getName();
+        }
+        Arrays.sort(sets);
+        return sets;
+    }
+
+    private TraceBenchmarkTask makeTask(String set) {
+        File setDir = new File(traceDir, set);
+        String[] clips = setDir.list();
+        if (clips == null) throw new IllegalArgumentException("Could not list the test set " + setDir);
+        List<String> traceNames = new ArrayList<>();
+        for (String clip : clips) {
+            if (clip.endsWith(DetectionTraceWriter.EXTENSION)) traceNames.add(clip);
+        }
+        // same order as the videos, see FileManager.listMP4
+        String[] sortedNames = traceNames.toArray(new String[0]);
+        Arrays.sort(sortedNames);
+
+        BenchmarkClipManager clipManager = new BenchmarkClipManager(new String[][]{sortedNames}, new String[]{set});
+        File[] traces = new File[sortedNames.length];
+        Side[] whoShouldScore = new Side[sortedNames.length];
+        for (int i = 0; i < sortedNames.length; i++) {
+            traces[i] = new File(setDir, sortedNames[i]);
+            whoShouldScore[i] = clipManager.readWhichSideShouldScore();
+            clipManager.advanceToNextClip();
+        }
+        String testSetName = BenchmarkClipManager.BENCHMARK_PREFIX + set + BenchmarkClipManager.TEST_SET_EXTENSION;
+        // test sets recorded on the device carry their xml file along
+        File testSetFile = new File(setDir, testSetName);
+        if (!testSetFile.exists()) testSetFile = new File(assetsDir, testSetName);
+        Side servingSide = XMLLoader.loadServingSide(testSetFile);
+        return new TraceBenchmarkTask(set, traces, whoShouldScore, servingSide, rules);
+    }
+
+    /**
+     * @return the statistics of BenchmarkClipManager.makeStatisticsString, followed by the time
+     * spent per stage and test set
+     */
+    public static String makeStatisticsString(List<TraceBenchmarkResult> results) {
+        String[] sets = new String[results.size()];
+        String[][] clips = new String[results.size()][0];
+        int[] nTotalJudgements = new int[results.size()];
+        int[] nCorrectJudgements = new int[results.size()];
+        for (int i = 0; i < results.size(); i++) {
+            TraceBenchmarkResult result = results.get(i);
+            sets[i] = result.getTestSet();
+            nTotalJudgements[i] = result.getTotalJudgements();
+            nCorrectJudgements[i] = result.getCorrectJudgements();
+        }
+        StringBuilder stringBuilder = new StringBuilder(BenchmarkClipManager.makeStatisticsString(
+                nTotalJudgements, nCorrectJudgements, new BenchmarkClipManager(clips, sets)));
+
+        long[] sums = new long[4];
+        stringBuilder.append("Time per stage and test set in ms =>\n");
+        stringBuilder.append(String.format(Locale.US, "%-30s%10s%10s%10s%10s%n", "", "load", "detect", "referee", "total"));
+        for (TraceBenchmarkResult result : results) {
+            long[] times = {result.getLoadNs(), result.getDetectNs(), result.getRefereeNs(), result.getTotalNs()};
+            appendTimes(stringBuilder, String.format(Locale.US, "set '%s':", result.getTestSet()), times);
+            for (int i = 0; i < sums.length; i++) {
+                sums[i] += times[i];
+            }
+        }
+        appendTimes(stringBuilder, "all sets:", sums);
+
+        stringBuilder.append("Decision latency per test set in ms =>\n");
+        stringBuilder.append(String.format(Locale.US, "%-30s%10s%10s%10s%10s%n", "", "decisions", "p50", "p90", "max"));
+        List<long[]> allLatencies = new ArrayList<>(results.size());
+        for (TraceBenchmarkResult result : results) {
+            allLatencies.add(result.getDecisionLatenciesNs());
+            appendLatencies(stringBuilder, String.format(Locale.US, "set '%s':", result.getTestSet()),
+                    result.getDecisionLatenciesNs());
+        }
+        appendLatencies(stringBuilder, "all sets:", concat(allLatencies));
+        stringBuilder.append("--------------------------------------------------------\n");
+        return stringBuilder.toString();
+    }
+
+    private static void appendLatencies(StringBuilder stringBuilder, String label, long[] latenciesNs) {
+        long[] sorted = Arrays.copyOf(latenciesNs, latenciesNs.length);
+        Arrays.sort(sorted);
+        stringBuilder.append(String.format(Locale.US, "%-30s%10d", label, sorted.length));
+        if (sorted.length > 0) {
+            // nearest rank, as in ClipRecorder
+            long p50 = sorted[Math.max((int) Math.ceil(0.5 * sorted.length), 1) - 1];
+            long p90 = sorted[Math.max((int) Math.ceil(0.9 * sorted.length), 1) - 1];
+            stringBuilder.append(String.format(Locale.US, "%10d%10d%10d", TimeUnit.NANOSECONDS.toMillis(p50),
+                    TimeUnit.NANOSECONDS.toMillis(p90), TimeUnit.NANOSECONDS.toMillis(sorted[sorted.length - 1])));
+        }
+        stringBuilder.append(String.format(Locale.US, "%n"));
+    }
+
+    private static long[] concat(List<long[]> arrays) {
+        int length = 0;
+        for (long[] array : arrays) length += array.length;
+        long[] all = new long[length];
+        int offset = 0;
+        for (long[] array : arrays) {
+            System.arraycopy(array, 0, all, offset, array.length);
+            offset += array.length;
+        }
+        return all;
+    }
+
+    private static void appendTimes(StringBuilder stringBuilder, String label, long[] times) {
+        stringBuilder.append(String.format(Locale.US, "%-30s", label));
+        for (long time : times) {
+            stringBuilder.append(String.format(Locale.US, "%10d", TimeUnit.NANOSECONDS.toMillis(time)));
+        }
+        stringBuilder.append(String.format(Locale.US, "%n"));
+    }
+}
@@ -0,0 +1,90 @@
+package ch.m3ts.tracker.visualization.replay.benchmark;
+
+import android.graphics.Point;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import ch.m3ts.detection.trace.DetectionTraceHeader;
+import ch.m3ts.detection.trace.DetectionTraceWriter;
+import ch.m3ts.util.Side;
+import ch.m3ts.util.Table;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TraceBenchmarkRunnerTest {
+    private File dir;
+    private File traceDir;
+    private File assetsDir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("benchmark", "");
+        assertTrue(dir.delete());
+        traceDir = new File(dir, "traces");
+        assetsDir = new File(dir, "assets");
+        assertTrue(new File(traceDir, "set_b").mkdirs());
+        assertTrue(new File(traceDir, "set_a").mkdirs());
+        assertTrue(assetsDir.mkdirs());
+    }
+
+    @After
+    public void tearDown() {
+        delete(dir);
+    }
+
+    @Test
+    public void runAllTestSets() throws IOException, InterruptedException, ExecutionException {
+        writeEmptyTrace("set_a", "1_0");
+        writeEmptyTrace("set_a", "1_1");
+        writeEmptyTrace("set_b", "0_1");
+        assertTrue(new File(traceDir, "set_b/notes.txt").createNewFile());
+        try (FileOutputStream out = new FileOutputStream(new File(assetsDir, "!test_set_a.xml"))) {
+            out.write(("<!DOCTYPE properties SYSTEM \"http://java.sun.com/dtd/properties.dtd\">" +
+                    "<properties><entry key=\"servingSide\">RIGHT</entry></properties>").getBytes("UTF-8"));
+        }
+
+        List<TraceBenchmarkResult> results = new TraceBenchmarkRunner(traceDir, assetsDir, 2).run();
+        assertEquals(2, results.size());
+        assertEquals("set_a", results.get(0).getTestSet());
+        assertEquals(2, results.get(0).getTotalJudgements());
+        assertEquals("set_b", results.get(1).getTestSet());
+        assertEquals(1, results.get(1).getTotalJudgements());
+        // without any detections the referee never decides, the missing points are not counted
+        assertEquals(0, results.get(0).getCorrectJudgements());
+        assertEquals(0, results.get(1).getCorrectJudgements());
+        BenchmarkReport.Clip clip = TraceBenchmarkRunner.makeReport(results).getClips().get(1);
+        assertEquals("1_1.bin", clip.getClip());
+        assertEquals(Side.RIGHT, clip.getExpected());
+        assertNull(clip.getActual());
+        assertEquals(0, clip.getFrames());
+
+        String stats = TraceBenchmarkRunner.makeStatisticsString(results);
+        assertTrue(stats.contains("set 'set_a':"));
+        assertTrue(stats.contains("0/2"));
+        assertTrue(stats.contains("referee"));
+    }
+
+    private void writeEmptyTrace(String set, String clip) throws IOException {
+        Table table = new Table(new Point[]{new Point(200, 500), new Point(1100, 500)}, new Point(650, 500));
+        DetectionTraceHeader header = new DetectionTraceHeader(1280, 720, 66.5, 30.f, table);
+        new DetectionTraceWriter(new File(traceDir, set + "/" + clip + DetectionTraceWriter.EXTENSION), header).close();
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) delete(child);
+        }
+        file.delete();
+    }
+}
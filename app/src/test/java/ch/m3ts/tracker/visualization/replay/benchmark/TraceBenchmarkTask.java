@@ -0,0 +1,141 @@
+package ch.m3ts.tracker.visualization.replay.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import ch.m3ts.detection.EventDetector;
+import ch.m3ts.detection.ZPositionCalc;
+import ch.m3ts.detection.trace.DetectionTraceHeader;
+import ch.m3ts.detection.trace.DetectionTracePlayer;
+import ch.m3ts.detection.trace.DetectionTraceReader;
+import ch.m3ts.detection.trace.DetectionTraceRecord;
+import ch.m3ts.display.statistic.StatsCreator;
+import ch.m3ts.eventbus.Event;
+import ch.m3ts.eventbus.Subscribable;
+import ch.m3ts.eventbus.TTEventBus;
+import ch.m3ts.eventbus.event.todisplay.ScoreData;
+import ch.m3ts.tabletennis.match.Match;
+import ch.m3ts.tabletennis.match.MatchSettings;
+import ch.m3ts.tabletennis.match.MatchType;
+import ch.m3ts.tabletennis.match.Player;
+import ch.m3ts.tabletennis.match.ServeRules;
+import ch.m3ts.tabletennis.match.game.GameType;
+import ch.m3ts.tabletennis.match.referee.Referee;
+import ch.m3ts.tabletennis.match.referee.RefereeRules;
+import ch.m3ts.tabletennis.match.referee.RefereeTrace;
+import ch.m3ts.util.FrameClock;
+import ch.m3ts.util.Side;
+import ch.m3ts.util.Table;
+import cz.fmo.data.TrackSet;
+import cz.fmo.util.Config;
+
+/**
+ * Runs the traced clips of a test set through an EventDetector and a Match of their own, the way
+ * the BenchmarkActivity runs the videos of a test set. Instances share no state, so the test sets
+ * can run in parallel.
+ */
+class TraceBenchmarkTask implements Callable<TraceBenchmarkResult> {
+    private final String testSet;
+    private final File[] traces;
+    private final Side[] whoShouldScore;
+    private final Side servingSide;
+    private final RefereeRules rules;
+
+    /**
+     * @param traces         traces of the clips, in the order of the test set
+     * @param whoShouldScore side which scored in each clip
+     * @param rules          rules of the Referee
+     */
+    TraceBenchmarkTask(String testSet, File[] traces, Side[] whoShouldScore, Side servingSide, RefereeRules rules) {
+        this.testSet = testSet;
+        this.traces = traces;
+        this.whoShouldScore = whoShouldScore;
+        this.servingSide = servingSide;
+        this.rules = rules;
+    }
+
+    @Override
+    public TraceBenchmarkResult call() throws IOException {
+        long start = System.nanoTime();
+        DetectionTraceHeader header = null;
+        List<List<DetectionTraceRecord>> clips = new ArrayList<>(traces.length);
+        for (File trace : traces) {
+            try (DetectionTraceReader reader = new DetectionTraceReader(trace)) {
+                if (header == null) header = reader.getHeader();
+                clips.add(reader.readAll());
+            }
+        }
+        long loadNs = System.nanoTime() - start;
+        if (header == null) {
+            return new TraceBenchmarkResult(testSet, 0, 0, loadNs, 0, 0, System.nanoTime() - start,
+                    new ArrayList<BenchmarkReport.Clip>(), new long[0]);
+        }
+
+        TimedEventBus eventBus = new TimedEventBus(new TTEventBus());
+        StatsCreator statsCreator = new StatsCreator();
+        FrameClock clock = new FrameClock();
+        MatchSettings settings = new MatchSettings(MatchType.BO5, GameType.G11, ServeRules.S2,
+                new Player("Hans"), new Player("Peter"), servingSide);
+        Match match = new Match(settings, eventBus, statsCreator);
+        Referee referee = match.getReferee();
+        referee.setRules(rules);
+        referee.setFrameClock(clock);
+        final BenchmarkJudge judge = new BenchmarkJudge(referee);
+        ClipRecorder recorder = new ClipRecorder(header.getFrameRate());
+        eventBus.register(match);
+        eventBus.register(new Subscribable() {
+            @Override
+            public void handle(Event<?> event) {
+                Object data = event.getData();
+                if (data instanceof ScoreData) {
+                    ScoreData scoreData = (ScoreData) data;
+                    judge.onScore(scoreData.getScorer(), scoreData.getScore());
+                }
+            }
+        });
+
+        Table table = header.makeTable();
+        ZPositionCalc calc = header.makeZPositionCalc();
+        statsCreator.setZCalc(calc);
+        statsCreator.setFrameRate(header.getFrameRate());
+        EventDetector detector = new EventDetector(new Config(header.getFrameRate()), header.getSrcWidth(),
+                header.getSrcHeight(), new TrackSet(), table, calc, eventBus);
+        detector.setFrameClock(clock);
+        referee.initState();
+        statsCreator.addTableCorners(table.getCornerDownLeft().x, table.getCornerDownRight().x);
+        referee.onGestureDetected();
+
+        eventBus.register(recorder);
+        DetectionTracePlayer player = new DetectionTracePlayer(clock);
+        long setupDispatchNs = eventBus.getDispatchNs();
+        long playStart = System.nanoTime();
+        List<BenchmarkReport.Clip> clipReports = new ArrayList<>(clips.size());
+        long[] decisionLatenciesNs = new long[clips.size()];
+        int nDecisions = 0;
+        RefereeTrace trace = referee.getTrace();
+        for (int i = 0; i < clips.size(); i++) {
+            String clip = traces[i].getName();
+            judge.setClipId(clip);
+            judge.setWhoShouldScore(whoShouldScore[i]);
+            long clipStart = trace.getCount();
+            player.play(clips.get(i), detector, recorder);
+            long decisionLatencyNs = RefereeTrace.getDecisionLatencyNs(trace.getTransitionsSince(clipStart));
+            if (decisionLatencyNs >= 0) decisionLatenciesNs[nDecisions++] = decisionLatencyNs;
+            Side scorer = judge.getClipScorer();
+            String decision = judge.getClipDecision();
+            judge.onClipEnded();
+            clipReports.add(recorder.finishClip(testSet, clip, whoShouldScore[i], scorer, decision));
+        }
+        long playNs = System.nanoTime() - playStart;
+        match.release();
+        statsCreator.shutdown();
+        long refereeNs = eventBus.getDispatchNs() - setupDispatchNs;
+        return new TraceBenchmarkResult(testSet, traces.length, judge.getCorrectJudgementCalls(),
+                loadNs, playNs - refereeNs, refereeNs, System.nanoTime() - start, clipReports,
+                Arrays.copyOf(decisionLatenciesNs, nDecisions));
+    }
+}
@@ -0,0 +1,104 @@
+package ch.m3ts.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncLogWriterTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private AsyncLogWriter writer;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        writer = new AsyncLogWriter("testLogWriter", 1024, 60000);
+        file = File.createTempFile("asyncLog", ".csv");
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        writer.shutdown();
+        file.delete();
+    }
+
+    @Test
+    public void writesLinesInOrder() throws InterruptedException, IOException {
+        for (int i = 0; i < 100; i++) {
+            assertTrue(writer.writeLine(file, String.valueOf(i)));
+        }
+        writer.flush();
+        List<String> lines = Files.readAllLines(file.toPath(), UTF_8);
+        assertEquals(100, lines.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(String.valueOf(i), lines.get(i));
+        }
+    }
+
+    @Test
+    public void dropsWritesWhichDoNotFit() throws InterruptedException {
+        byte[] data = new byte[1025];
+        assertFalse(writer.write(file, data));
+        assertEquals(1025, writer.getDroppedBytes());
+        writer.flush();
+        assertEquals(0, file.length());
+    }
+
+    @Test
+    public void reopensClosedFiles() throws InterruptedException, IOException {
+        writer.write(file, new byte[]{1, 2});
+        writer.close(file);
+        assertArrayEquals(new byte[]{1, 2}, Files.readAllBytes(file.toPath()));
+        writer.write(file, new byte[]{3});
+        writer.close(file);
+        assertArrayEquals(new byte[]{1, 2, 3}, Files.readAllBytes(file.toPath()));
+    }
+
+    @Test
+    public void writesToAFileDeletedAfterClosingIt() throws InterruptedException, IOException {
+        writer.writeLine(file, "old");
+        writer.flush();
+        writer.writeLine(file, "queued");
+        writer.close(file);
+        assertTrue(file.delete());
+        writer.writeLine(file, "new");
+        writer.close(file);
+        assertEquals(Arrays.asList("new"), Files.readAllLines(file.toPath(), UTF_8));
+    }
+
+    @Test
+    public void writesEverythingOnShutdown() throws InterruptedException, IOException {
+        byte[] data = new byte[300];
+        Arrays.fill(data, (byte) 7);
+        for (int i = 0; i < 10; i++) {
+            // waits for the writer from time to time, the queue only holds 1024 bytes
+            if (!writer.write(file, data)) {
+                writer.flush();
+                assertTrue(writer.write(file, data));
+            }
+        }
+        writer.shutdown();
+        assertEquals(3000, file.length());
+        assertFalse(writer.writeLine(file, "too late"));
+    }
+
+    @Test(timeout = 10000)
+    public void doesNotWaitAfterShutdown() throws InterruptedException {
+        writer.writeLine(file, "line");
+        writer.shutdown();
+        writer.flush();
+        writer.close(file);
+        writer.shutdown();
+    }
+}
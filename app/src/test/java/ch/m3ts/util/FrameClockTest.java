@@ -0,0 +1,87 @@
+package ch.m3ts.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FrameClockTest {
+    private FrameClock clock;
+    private List<String> ran;
+
+    @Before
+    public void setUp() {
+        clock = new FrameClock();
+        ran = new ArrayList<>();
+    }
+
+    @Test
+    public void runsTimeoutsInFrameTime() {
+        clock.advance(0);
+        clock.schedule(record("late"), 1500);
+        clock.schedule(record("early"), 100);
+        clock.advance(99_000);
+        assertTrue(ran.isEmpty());
+        clock.advance(100_000);
+        assertEquals(1, ran.size());
+        clock.advance(1_600_000);
+        assertEquals("early", ran.get(0));
+        assertEquals("late", ran.get(1));
+        assertEquals(1_600_000_000L, clock.nanoTime());
+    }
+
+    @Test
+    public void skipsCancelledTimeouts() {
+        clock.advance(0);
+        FrameClock.Timeout timeout = clock.schedule(record("cancelled"), 10);
+        clock.schedule(record("kept"), 10);
+        timeout.cancel();
+        clock.advance(20_000);
+        assertEquals(1, ran.size());
+        assertEquals("kept", ran.get(0));
+    }
+
+    @Test
+    public void continuesWhenPresentationTimesRestart() {
+        clock.advance(2_000_000);
+        clock.schedule(record("timeout"), 1000);
+        clock.advance(0);
+        long restartNs = clock.nanoTime();
+        assertTrue(restartNs > 2_000_000_000L);
+        clock.advance(500_000);
+        assertEquals(restartNs + 500_000_000L, clock.nanoTime());
+        assertTrue(ran.isEmpty());
+        clock.advance(1_000_000);
+        assertEquals(1, ran.size());
+    }
+
+    @Test
+    public void runsTimeoutsScheduledByTimeoutsWithinTheSameAdvance() {
+        clock.advanceTo(0);
+        clock.schedule(new Runnable() {
+            @Override
+            public void run() {
+                ran.add("first@" + clock.nanoTime());
+                clock.schedule(record("second"), 1500);
+            }
+        }, 1500);
+        clock.advanceTo(5_000_000_000L);
+        assertEquals(2, ran.size());
+        assertEquals("first@1500000000", ran.get(0));
+        assertEquals("second", ran.get(1));
+        assertEquals(5_000_000_000L, clock.nanoTime());
+    }
+
+    private Runnable record(final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                ran.add(name);
+            }
+        };
+    }
+}
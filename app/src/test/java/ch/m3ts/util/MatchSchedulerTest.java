@@ -0,0 +1,144 @@
+package ch.m3ts.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ch.m3ts.display.statistic.StatsCreator;
+import ch.m3ts.eventbus.TTEventBus;
+import ch.m3ts.tabletennis.match.Match;
+import ch.m3ts.tabletennis.match.MatchSettings;
+import ch.m3ts.tabletennis.match.MatchType;
+import ch.m3ts.tabletennis.match.Player;
+import ch.m3ts.tabletennis.match.ServeRules;
+import ch.m3ts.tabletennis.match.game.GameType;
+import ch.m3ts.tabletennis.match.referee.Referee;
+import ch.m3ts.tabletennis.match.referee.State;
+import cz.fmo.Lib;
+import cz.fmo.data.TrackSet;
+import cz.fmo.util.Config;
+import helper.DetectionGenerator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MatchSchedulerTest {
+    private static final long WAIT_MS = 5000;
+    private MatchScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        scheduler = new MatchScheduler("testScheduler");
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void runsScheduledTask() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        scheduler.schedule(countDown(latch), 10);
+        assertTrue(latch.await(WAIT_MS, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void skipsCancelledTask() throws InterruptedException {
+        CountDownLatch cancelled = new CountDownLatch(1);
+        CountDownLatch later = new CountDownLatch(1);
+        scheduler.schedule(countDown(cancelled), 50).cancel();
+        scheduler.schedule(countDown(later), 100);
+        assertTrue(later.await(WAIT_MS, TimeUnit.MILLISECONDS));
+        assertEquals(1, cancelled.getCount());
+    }
+
+    @Test
+    public void keepsRunningPeriodicTaskAfterAFailure() throws InterruptedException {
+        final AtomicInteger runs = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(3);
+        MatchScheduler.Handle handle = scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+                if (runs.incrementAndGet() == 1) throw new IllegalStateException("first run fails");
+            }
+        }, 0, 10);
+        assertTrue(latch.await(WAIT_MS, TimeUnit.MILLISECONDS));
+        handle.cancel();
+    }
+
+    @Test
+    public void ignoresTasksAfterShutdown() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        scheduler.shutdown();
+        assertTrue(scheduler.isShutDown());
+        scheduler.schedule(countDown(latch), 0).cancel();
+        scheduler.scheduleAtFixedRate(countDown(latch), 0, 10);
+        assertFalse(latch.await(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void keepsThreadCountFlatOverMatchRestarts() throws InterruptedException {
+        int threadsBefore = Thread.activeCount();
+        TTEventBus eventBus = new TTEventBus();
+        StatsCreator statsCreator = new StatsCreator();
+        MatchSettings settings = new MatchSettings(MatchType.BO1, GameType.G11, ServeRules.S2,
+                new Player("Hans"), new Player("Peter"), Side.LEFT);
+        Match match = null;
+        for (int i = 0; i < 50; i++) {
+            // restart like initMatch of the handlers
+            if (match != null) match.release();
+            match = new Match(settings, eventBus, statsCreator);
+            eventBus.register(match);
+            CountDownLatch latch = new CountDownLatch(1);
+            // like the refreshing of the debug views
+            match.getScheduler().scheduleAtFixedRate(countDown(latch), 0, 50);
+            Referee referee = match.getReferee();
+            serve(referee);
+            if (i % 2 == 0) {
+                referee.onTableSideChange(Side.RIGHT);
+                referee.onNearlyOutOfFrame(new Lib.Detection(), Side.RIGHT);
+            } else {
+                referee.onBounce(new Lib.Detection(), Side.LEFT);
+                referee.onTimeout();
+            }
+            // the out of frame timeout of the referee is still pending when the match restarts
+            assertEquals(State.OUT_OF_FRAME, referee.getState());
+            assertTrue(latch.await(WAIT_MS, TimeUnit.MILLISECONDS));
+        }
+        match.release();
+        statsCreator.shutdown();
+        long deadline = System.currentTimeMillis() + WAIT_MS;
+        while (Thread.activeCount() > threadsBefore && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(Thread.activeCount() <= threadsBefore);
+    }
+
+    private static void serve(Referee referee) {
+        TrackSet trackSet = new TrackSet();
+        trackSet.setConfig(new Config(30f));
+        long detectionTime = System.nanoTime();
+        for (Lib.Detection detection : DetectionGenerator.makeDetectionsInXDirectionOnTable(true)) {
+            detectionTime += TimeUnit.MILLISECONDS.toNanos(33);
+            trackSet.addDetections(new Lib.Detection[]{detection}, 1920, 1080, detectionTime);
+            referee.onStrikeFound(trackSet.getTracks().get(0));
+        }
+        assertEquals(State.SERVING, referee.getState());
+    }
+
+    private static Runnable countDown(final CountDownLatch latch) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        };
+    }
+}
@@ -0,0 +1,95 @@
+package cz.fmo.camera;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class Nv21PackerTest {
+    private static final int WIDTH = 4;
+    private static final int HEIGHT = 2;
+    private static final byte[] EXPECTED = new byte[]{
+            1, 2, 3, 4,
+            5, 6, 7, 8,
+            20, 10, 21, 11
+    };
+
+    @Test
+    public void packSemiPlanarVu() {
+        // interleaved VU memory as delivered by most devices, V and U are views with offset 0 and 1
+        ByteBuffer vu = ByteBuffer.wrap(new byte[]{20, 10, 21, 11});
+        ByteBuffer v = sliceOf(vu, 0, 3);
+        ByteBuffer u = sliceOf(vu, 1, 3);
+        byte[] out = new byte[Nv21Packer.getFrameSize(WIDTH, HEIGHT)];
+        Nv21Packer.pack(getLuminance(WIDTH), WIDTH, u, v, WIDTH, 2, WIDTH, HEIGHT, out);
+        assertArrayEquals(EXPECTED, out);
+        assertArrayEquals(new byte[]{20, 10, 21, 11}, vu.array());
+    }
+
+    @Test
+    public void packSemiPlanarUv() {
+        ByteBuffer uv = ByteBuffer.wrap(new byte[]{10, 20, 11, 21});
+        ByteBuffer u = sliceOf(uv, 0, 3);
+        ByteBuffer v = sliceOf(uv, 1, 3);
+        byte[] out = new byte[Nv21Packer.getFrameSize(WIDTH, HEIGHT)];
+        Nv21Packer.pack(getLuminance(WIDTH), WIDTH, u, v, WIDTH, 2, WIDTH, HEIGHT, out);
+        assertArrayEquals(EXPECTED, out);
+    }
+
+    @Test
+    public void packSemiPlanarVuOfDirectPlanes() {
+        ByteBuffer vu = ByteBuffer.allocateDirect(4);
+        vu.put(new byte[]{20, 10, 21, 11});
+        ByteBuffer v = sliceOf(vu, 0, 3).asReadOnlyBuffer();
+        ByteBuffer u = sliceOf(vu, 1, 3).asReadOnlyBuffer();
+        byte[] out = new byte[Nv21Packer.getFrameSize(WIDTH, HEIGHT)];
+        Nv21Packer.pack(getLuminance(WIDTH), WIDTH, u, v, WIDTH, 2, WIDTH, HEIGHT, out);
+        assertArrayEquals(EXPECTED, out);
+    }
+
+    @Test
+    public void packSeparateSemiPlanarPlanes() {
+        ByteBuffer v = ByteBuffer.wrap(new byte[]{20, 0, 21}).asReadOnlyBuffer();
+        ByteBuffer u = ByteBuffer.wrap(new byte[]{10, 0, 11}).asReadOnlyBuffer();
+        byte[] out = new byte[Nv21Packer.getFrameSize(WIDTH, HEIGHT)];
+        Nv21Packer.pack(getLuminance(WIDTH), WIDTH, u, v, WIDTH, 2, WIDTH, HEIGHT, out);
+        assertArrayEquals(EXPECTED, out);
+    }
+
+    @Test
+    public void packPlanar() {
+        ByteBuffer u = ByteBuffer.wrap(new byte[]{10, 11});
+        ByteBuffer v = ByteBuffer.wrap(new byte[]{20, 21});
+        byte[] out = new byte[Nv21Packer.getFrameSize(WIDTH, HEIGHT)];
+        Nv21Packer.pack(getLuminance(WIDTH), WIDTH, u, v, WIDTH / 2, 1, WIDTH, HEIGHT, out);
+        assertArrayEquals(EXPECTED, out);
+    }
+
+    @Test
+    public void packWithRowPadding() {
+        int rowStride = 6;
+        ByteBuffer u = ByteBuffer.wrap(new byte[]{10, 0, 11, 0, 0, 0});
+        ByteBuffer v = ByteBuffer.wrap(new byte[]{20, 0, 21, 0, 0, 0});
+        byte[] out = new byte[Nv21Packer.getFrameSize(WIDTH, HEIGHT)];
+        Nv21Packer.pack(getLuminance(rowStride), rowStride, u, v, rowStride, 2, WIDTH, HEIGHT, out);
+        assertArrayEquals(EXPECTED, out);
+    }
+
+    private static ByteBuffer getLuminance(int rowStride) {
+        byte[] y = new byte[rowStride * HEIGHT];
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                y[row * rowStride + col] = (byte) (row * WIDTH + col + 1);
+            }
+        }
+        return ByteBuffer.wrap(y);
+    }
+
+    private static ByteBuffer sliceOf(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer copy = buffer.duplicate();
+        copy.position(offset);
+        copy.limit(offset + length);
+        return copy.slice();
+    }
+}
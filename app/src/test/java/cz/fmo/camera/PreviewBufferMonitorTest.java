@@ -0,0 +1,100 @@
+package cz.fmo.camera;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PreviewBufferMonitorTest {
+    private static final long FRAME_INTERVAL_NS = (long) (1e9 / 30);
+    private static final int BUFFER_SIZE = 1000;
+    private long lastFrameTime = 0;
+
+    @Test
+    public void allFramesDelivered() {
+        PreviewBufferMonitor monitor = new PreviewBufferMonitor(BUFFER_SIZE, 4, 8 * BUFFER_SIZE);
+        assertEquals(PreviewBufferMonitor.Resize.NONE, feedWindow(monitor, 1, 1000));
+        assertEquals(0, monitor.getLastWindow().getLostFrames());
+        assertEquals(4, monitor.getBufferCount());
+    }
+
+    @Test
+    public void growsIfCameraRunsOutOfBuffers() {
+        PreviewBufferMonitor monitor = new PreviewBufferMonitor(BUFFER_SIZE, 4, 5 * BUFFER_SIZE);
+        assertNull(monitor.getLastWindow());
+        assertEquals(PreviewBufferMonitor.Resize.GROW, feedWindow(monitor, 2, 1000));
+        assertTrue(monitor.getLastWindow().isLosingFrames());
+        assertEquals(5, monitor.getBufferCount());
+        // memory budget reached
+        assertEquals(PreviewBufferMonitor.Resize.NONE, feedWindow(monitor, 2, 1000));
+        assertEquals(5, monitor.getBufferCount());
+        assertEquals(5, monitor.getMaxBuffers());
+    }
+
+    @Test
+    public void doesNotGrowIfDetectionIsSlow() {
+        PreviewBufferMonitor monitor = new PreviewBufferMonitor(BUFFER_SIZE, 4, 8 * BUFFER_SIZE);
+        assertEquals(PreviewBufferMonitor.Resize.NONE, feedWindow(monitor, 2, FRAME_INTERVAL_NS * 2));
+        assertTrue(monitor.getLastWindow().getLostFrames() > 0);
+        assertTrue(monitor.getLastWindow().isDetectionBound());
+        assertEquals(4, monitor.getBufferCount());
+    }
+
+    @Test
+    public void trimsOnceNoFramesAreLostAnymore() {
+        PreviewBufferMonitor monitor = new PreviewBufferMonitor(BUFFER_SIZE, 4, 8 * BUFFER_SIZE);
+        assertEquals(PreviewBufferMonitor.Resize.GROW, feedWindow(monitor, 2, 1000));
+        assertEquals(PreviewBufferMonitor.Resize.GROW, feedWindow(monitor, 2, 1000));
+        assertEquals(6, monitor.getBufferCount());
+        for (int i = 1; i < PreviewBufferMonitor.TRIM_AFTER_WINDOWS; i++) {
+            assertEquals(PreviewBufferMonitor.Resize.NONE, feedWindow(monitor, 1, 1000));
+        }
+        assertEquals(PreviewBufferMonitor.Resize.TRIM, feedWindow(monitor, 1, 1000));
+        assertEquals(5, monitor.getBufferCount());
+        for (int i = 0; i < 3 * PreviewBufferMonitor.TRIM_AFTER_WINDOWS; i++) feedWindow(monitor, 1, 1000);
+        // never below the initial buffers
+        assertEquals(4, monitor.getBufferCount());
+    }
+
+    @Test
+    public void comparesWithTheFramesTheSensorProduced() {
+        PreviewBufferMonitor monitor = new PreviewBufferMonitor(BUFFER_SIZE, 4, 8 * BUFFER_SIZE);
+        // only every second frame the sensor produced reaches the callback
+        assertEquals(PreviewBufferMonitor.Resize.GROW, feedWindow(monitor, 2, 1000));
+        PreviewBufferMonitor.Window window = monitor.getLastWindow();
+        assertEquals(window.getSensorFrames(), 2 * window.getDeliveredFrames(), 2);
+        assertEquals(FRAME_INTERVAL_NS, window.getFrameIntervalNs(), FRAME_INTERVAL_NS / 10);
+    }
+
+    @Test
+    public void toleratesFramesCountedInTheNeighbouringWindow() {
+        PreviewBufferMonitor monitor = new PreviewBufferMonitor(BUFFER_SIZE, 4, 8 * BUFFER_SIZE);
+        feedWindow(monitor, 1, 1000);
+        for (int i = 0; i < PreviewBufferMonitor.FRAME_COUNT_TOLERANCE; i++) monitor.onSensorFrame();
+        assertEquals(PreviewBufferMonitor.Resize.NONE, feedWindow(monitor, 1, 1000));
+        assertFalse(monitor.getLastWindow().isLosingFrames());
+        assertEquals(4, monitor.getBufferCount());
+    }
+
+    /**
+     * Produces sensor frames and delivers every n-th one until the monitor completes a window.
+     *
+     * @return the result of the last onFrame() call
+     */
+    private PreviewBufferMonitor.Resize feedWindow(PreviewBufferMonitor monitor, int everyNthFrame, long holdTimeNs) {
+        PreviewBufferMonitor.Window before = monitor.getLastWindow();
+        PreviewBufferMonitor.Resize result = PreviewBufferMonitor.Resize.NONE;
+        long time = before == null ? 0 : lastFrameTime + FRAME_INTERVAL_NS;
+        for (int frame = 0; monitor.getLastWindow() == before; frame++) {
+            monitor.onSensorFrame();
+            if (frame % everyNthFrame == 0) {
+                result = monitor.onFrame(time, time + holdTimeNs);
+            }
+            lastFrameTime = time;
+            time += FRAME_INTERVAL_NS;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,46 @@
+package cz.fmo.camera;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RenderPolicyTest {
+    private static final int FRAMES = 120;
+
+    @Test
+    public void everyFrame() {
+        assertEquals(FRAMES, countRendered(RenderPolicy.EVERY_FRAME, false));
+        assertSame(RenderPolicy.EVERY_FRAME, RenderPolicy.everyNthFrame(0));
+        assertSame(RenderPolicy.EVERY_FRAME, RenderPolicy.everyNthFrame(1));
+    }
+
+    @Test
+    public void everyNthFrame() {
+        RenderPolicy policy = RenderPolicy.everyNthFrame(4);
+        assertTrue(policy.shouldRender(0, false));
+        assertFalse(policy.shouldRender(1, false));
+        assertEquals(FRAMES / 4, countRendered(policy, false));
+    }
+
+    @Test
+    public void debugOnly() {
+        assertEquals(0, countRendered(RenderPolicy.DEBUG_ONLY, false));
+        assertEquals(FRAMES, countRendered(RenderPolicy.DEBUG_ONLY, true));
+    }
+
+    @Test
+    public void off() {
+        assertEquals(0, countRendered(RenderPolicy.OFF, true));
+    }
+
+    private static int countRendered(RenderPolicy policy, boolean isDebugOverlay) {
+        int rendered = 0;
+        for (int i = 0; i < FRAMES; i++) {
+            if (policy.shouldRender(i, isDebugOverlay)) rendered++;
+        }
+        return rendered;
+    }
+}
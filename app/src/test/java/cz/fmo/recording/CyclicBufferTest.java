@@ -0,0 +1,152 @@
+package cz.fmo.recording;
+
+import android.media.MediaCodec;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CyclicBufferTest {
+    // 1200 bytes of data and 20 metadata entries, room for 12 frames of FRAME_SIZE
+    private static final int BPS = 8000;
+    private static final float FPS = 10.f;
+    private static final float SECONDS = 1.f;
+    private static final int FRAME_SIZE = 100;
+    private static final long FRAME_US = 100_000L;
+    private CyclicBuffer buffer;
+    private ByteBuffer frame;
+    private int nFrames;
+
+    @Before
+    public void setUp() {
+        buffer = new CyclicBuffer(BPS, FPS, SECONDS);
+        frame = ByteBuffer.allocate(FRAME_SIZE);
+        nFrames = 0;
+    }
+
+    @Test
+    public void readTheFramesWritten() {
+        assertReadsTheFramesWritten(buffer);
+    }
+
+    @Test
+    public void readTheFramesWrittenToAMappedFile() throws IOException {
+        File file = File.createTempFile("buffer", ".bin");
+        CyclicBuffer mapped = CyclicBuffer.mapFile(BPS, FPS, SECONDS, file);
+        try {
+            assertReadsTheFramesWritten(mapped);
+        } finally {
+            mapped.release();
+        }
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void popOldFramesWhenFull() {
+        assertTrue(pushFrame(true));
+        for (int i = 0; i < 30; i++) assertTrue(pushFrame(false));
+        assertEquals(0, buffer.getDroppedFrames());
+        assertTrue(buffer.getTimeUs(buffer.begin()) > 0);
+    }
+
+    @Test
+    public void neverPopPinnedFrames() {
+        pushFrame(true);
+        int pinned = buffer.begin();
+        buffer.pin(pinned);
+        for (int i = 0; i < 30; i++) pushFrame(false);
+        assertEquals(pinned, buffer.begin());
+        assertEquals(0, buffer.getTimeUs(pinned));
+        assertTrue(buffer.isPinned(pinned));
+        assertTrue(buffer.getDroppedFrames() > 0);
+    }
+
+    @Test
+    public void neverPopHeldFrames() {
+        pushFrame(true);
+        pushFrame(false);
+        int held = buffer.next(buffer.begin());
+        buffer.hold(held);
+        for (int i = 0; i < 30; i++) pushFrame(false);
+        assertEquals(held, buffer.begin());
+        assertEquals(FRAME_US, buffer.getTimeUs(held));
+        assertTrue(buffer.getDroppedFrames() > 0);
+
+        buffer.releaseHold();
+        pushFrame(true);
+        assertTrue(buffer.getTimeUs(buffer.begin()) > FRAME_US);
+    }
+
+    @Test
+    public void dropFramesUntilTheNextIFrameAfterAnOverflow() {
+        pushFrame(true);
+        buffer.pin(buffer.begin());
+        int nAdded = 1;
+        while (pushFrame(false)) nAdded++;
+        assertEquals(1, buffer.getDroppedFrames());
+        assertEquals(nAdded, buffer.getNumFrames(buffer.begin(), buffer.end()));
+
+        // the frames following the dropped one can't be decoded without it
+        buffer.unpin();
+        assertFalse(pushFrame(false));
+        assertFalse(pushFrame(false));
+        assertEquals(3, buffer.getDroppedFrames());
+        assertTrue(pushFrame(true));
+        assertTrue(buffer.isIFrame(buffer.prev(buffer.end())));
+        assertTrue(pushFrame(false));
+        assertEquals(3, buffer.getDroppedFrames());
+    }
+
+    @Test
+    public void clearReleasesThePinAndTheHold() {
+        pushFrame(true);
+        buffer.pin(buffer.begin());
+        buffer.hold(buffer.begin());
+        for (int i = 0; i < 30; i++) pushFrame(false);
+        buffer.clear();
+        assertFalse(buffer.isPinned(0));
+        assertTrue(pushFrame(false));
+    }
+
+    private void assertReadsTheFramesWritten(CyclicBuffer tested) {
+        // more frames than fit, so the later ones wrap around to the start of the data
+        for (int i = 0; i < 20; i++) {
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+            info.set(3, FRAME_SIZE, i * FRAME_US, 0);
+            assertTrue(tested.pushBack(ByteBuffer.wrap(makeFrameData(i)), info));
+        }
+        ByteBuffer cache = tested.getCache();
+        MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+        for (int index = tested.begin(); index != tested.end(); index = tested.next(index)) {
+            tested.get(index, cache, info);
+            int frame = (int) (info.presentationTimeUs / FRAME_US);
+            byte[] data = new byte[info.size];
+            cache.get(data);
+            assertArrayEquals(Arrays.copyOfRange(makeFrameData(frame), 3, 3 + FRAME_SIZE), data);
+        }
+        assertEquals(19 * FRAME_US, tested.getTimeUs(tested.prev(tested.end())));
+    }
+
+    private static byte[] makeFrameData(int frame) {
+        byte[] data = new byte[FRAME_SIZE + 6];
+        for (int i = 0; i < data.length; i++) data[i] = (byte) (frame * 31 + i);
+        return data;
+    }
+
+    private boolean pushFrame(boolean isIFrame) {
+        MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+        //noinspection deprecation
+        info.set(0, FRAME_SIZE, nFrames * FRAME_US, isIFrame ? MediaCodec.BUFFER_FLAG_SYNC_FRAME : 0);
+        nFrames++;
+        return buffer.pushBack(frame, info);
+    }
+}
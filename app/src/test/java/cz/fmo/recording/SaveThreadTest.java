@@ -0,0 +1,94 @@
+package cz.fmo.recording;
+
+import android.media.MediaCodec;
+import android.media.MediaMuxer;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class SaveThreadTest {
+    private static final int FRAME_SIZE = 100;
+    private static final long FRAME_US = 100_000L;
+    private CyclicBuffer buffer;
+    private SaveThread saveThread;
+    private MediaMuxer muxer;
+    private List<Long> writtenTimesUs;
+
+    @Before
+    public void setUp() {
+        buffer = new CyclicBuffer(8000, 10.f, 1.f);
+        saveThread = new SaveThread(buffer, null);
+        muxer = mock(MediaMuxer.class);
+        writtenTimesUs = new ArrayList<>();
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_SIZE);
+        for (int i = 0; i < 5; i++) {
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+            //noinspection deprecation
+            info.set(0, FRAME_SIZE, i * FRAME_US, i == 0 ? MediaCodec.BUFFER_FLAG_SYNC_FRAME : 0);
+            buffer.pushBack(frame, info);
+        }
+    }
+
+    @Test
+    public void writeFramesMovesThePinAlong() {
+        recordWrites(-1);
+        int first = buffer.begin();
+        int last = buffer.end();
+        buffer.pin(first);
+        assertEquals(5, saveThread.writeFrames(first, last, muxer, 0));
+        assertEquals(5, writtenTimesUs.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i * FRAME_US, (long) writtenTimesUs.get(i));
+        }
+        assertTrue(buffer.isPinned(last));
+        assertFalse(buffer.isPinned(first));
+    }
+
+    @Test
+    public void writeFramesStopsWhenTheBufferIsCleared() {
+        // the buffer gets cleared by another thread while the second frame is written
+        recordWrites(1);
+        buffer.pin(buffer.begin());
+        assertEquals(2, saveThread.writeFrames(buffer.begin(), buffer.end(), muxer, 0));
+        assertEquals(2, writtenTimesUs.size());
+        assertTrue(buffer.empty());
+        assertFalse(buffer.isPinned(0));
+    }
+
+    @Test
+    public void writeFramesWritesNothingWithoutAPin() {
+        recordWrites(-1);
+        assertEquals(0, saveThread.writeFrames(buffer.begin(), buffer.end(), muxer, 0));
+        assertTrue(writtenTimesUs.isEmpty());
+    }
+
+    private void recordWrites(final int clearAtWrite) {
+        doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                MediaCodec.BufferInfo info = (MediaCodec.BufferInfo) invocation.getArguments()[2];
+                if (writtenTimesUs.size() == clearAtWrite) {
+                    synchronized (buffer) {
+                        buffer.clear();
+                    }
+                }
+                writtenTimesUs.add(info.presentationTimeUs);
+                return null;
+            }
+        }).when(muxer).writeSampleData(anyInt(), any(ByteBuffer.class), any(MediaCodec.BufferInfo.class));
+    }
+}
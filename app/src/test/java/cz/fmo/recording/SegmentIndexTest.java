@@ -0,0 +1,99 @@
+package cz.fmo.recording;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SegmentIndexTest {
+    private static final long SEGMENT_US = 30_000_000L;
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("segments", "");
+        assertEquals(true, dir.delete());
+        assertEquals(true, dir.mkdir());
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) file.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void findPoints() throws IOException {
+        SegmentIndexWriter writer = new SegmentIndexWriter(dir);
+        writer.writeSegment(0, 0);
+        writer.writePoint(0, 12_000_000L, 0, 12_000_000L);
+        writer.writeSegment(1, SEGMENT_US + 400_000L);
+        writer.writePoint(1, 41_000_000L, 1, 41_000_000L - SEGMENT_US - 400_000L);
+        writer.close();
+
+        SegmentIndex index = SegmentIndex.read(dir);
+        assertEquals(2, index.getSegmentCount());
+        assertEquals(2, index.getPointCount());
+        assertEquals(0, index.findPoint(0).getSegment());
+        assertEquals(12_000_000L, index.findPoint(0).getOffsetUs());
+        assertEquals(1, index.findPoint(1).getSegment());
+        assertEquals(10_600_000L, index.findPoint(1).getOffsetUs());
+        assertEquals(41_000_000L, index.findPoint(1).getTimeUs());
+        assertNull(index.findPoint(2));
+    }
+
+    @Test
+    public void findByTime() throws IOException {
+        SegmentIndexWriter writer = new SegmentIndexWriter(dir);
+        long[] startsUs = {0, SEGMENT_US + 700_000L, 2 * SEGMENT_US + 100_000L, 3 * SEGMENT_US + 900_000L};
+        for (int i = 0; i < startsUs.length; i++) {
+            writer.writeSegment(i, startsUs[i]);
+        }
+        writer.close();
+
+        SegmentIndex index = SegmentIndex.read(dir);
+        assertEquals(0, index.findByTime(-5).getSegment());
+        assertEquals(0, index.findByTime(SEGMENT_US + 600_000L).getSegment());
+        assertEquals(1, index.findByTime(SEGMENT_US + 700_000L).getSegment());
+        assertEquals(0, index.findByTime(SEGMENT_US + 700_000L).getOffsetUs());
+        assertEquals(2, index.findByTime(3 * SEGMENT_US).getSegment());
+        assertEquals(SEGMENT_US - 100_000L, index.findByTime(3 * SEGMENT_US).getOffsetUs());
+        assertEquals(3, index.findByTime(10 * SEGMENT_US).getSegment());
+    }
+
+    @Test
+    public void ignoreIncompleteRecord() throws IOException {
+        SegmentIndexWriter writer = new SegmentIndexWriter(dir);
+        writer.writeSegment(0, 0);
+        writer.writePoint(0, 5_000_000L, 0, 5_000_000L);
+        writer.writePoint(1, 9_000_000L, 0, 9_000_000L);
+        writer.close();
+
+        // simulate a crash while writing the last record
+        try (RandomAccessFile file = new RandomAccessFile(SegmentIndex.getIndexFile(dir), "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        SegmentIndex index = SegmentIndex.read(dir);
+        assertEquals(1, index.getSegmentCount());
+        assertEquals(1, index.getPointCount());
+        assertEquals(5_000_000L, index.findPoint(0).getOffsetUs());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectOtherFiles() throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(SegmentIndex.getIndexFile(dir), "rw")) {
+            file.writeLong(42);
+        }
+        SegmentIndex.read(dir);
+    }
+}
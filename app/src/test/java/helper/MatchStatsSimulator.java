@@ -0,0 +1,119 @@
+package helper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ch.m3ts.display.statistic.data.DetectionData;
+import ch.m3ts.display.statistic.data.GameData;
+import ch.m3ts.display.statistic.data.MatchData;
+import ch.m3ts.display.statistic.data.PointData;
+import ch.m3ts.display.statistic.data.TrackData;
+import ch.m3ts.util.Side;
+
+/**
+ * Statistics of a match played on the table of the RallySimulator, as the StatsCreator makes
+ * them: per game 11:9 points, per point a rally of strikes with their detections in mm, latest
+ * detection first. The tracks of the points are also available as they are handed to the
+ * StatsCreator, before they are processed.
+ */
+public final class MatchStatsSimulator {
+    public static final int DETECTIONS_PER_STRIKE = 20;
+    public static final int POINTS_PER_GAME = 20;
+    public static final int TRACKS_PER_STRIKE = 3;
+
+    private MatchStatsSimulator() {
+    }
+
+    public static MatchData makeMatch(int nGames) {
+        List<GameData> games = new ArrayList<>(nGames);
+        for (int g = 0; g < nGames; g++) {
+            Side gameWinner = g % 2 == 0 ? Side.LEFT : Side.RIGHT;
+            List<PointData> points = new ArrayList<>(POINTS_PER_GAME);
+            int winnerScore = 0;
+            int loserScore = 0;
+            for (int p = 0; p < POINTS_PER_GAME; p++) {
+                boolean isWonByGameWinner = p % 2 == 0 || p == POINTS_PER_GAME - 1;
+                if (isWonByGameWinner) winnerScore++;
+                else loserScore++;
+                Side winner = isWonByGameWinner ? gameWinner : Side.getOpposite(gameWinner);
+                Side server = (p / 2) % 2 == 0 ? Side.LEFT : Side.RIGHT;
+                int scoreLeft = gameWinner == Side.LEFT ? winnerScore : loserScore;
+                int scoreRight = gameWinner == Side.LEFT ? loserScore : winnerScore;
+                points.add(new PointData("Out of Frame for too long", makeStrikes(getStrikes(g, p), server),
+                        winner, scoreLeft, scoreRight, winner, server, server, 4 + p % 5));
+            }
+            games.add(new GameData(points));
+        }
+        Map<Side, Integer> tableCorners = new HashMap<>();
+        tableCorners.put(Side.LEFT, RallySimulator.TABLE_LEFT);
+        tableCorners.put(Side.RIGHT, RallySimulator.TABLE_RIGHT);
+        return new MatchData(games, "Hans", "Peter", "01.06.2020 10:00", tableCorners);
+    }
+
+    /**
+     * @return number of strikes in point p of game g, from 3 to 14
+     */
+    public static int getStrikes(int g, int p) {
+        return 3 + (g * 7 + p * 5) % 12;
+    }
+
+    /**
+     * @return tracks of a point in px of the RallySimulator video with z relative to the table, each
+     * strike split into TRACKS_PER_STRIKE tracks to be put together
+     */
+    public static List<TrackData> makeTracks(int nStrikes, Side server) {
+        List<TrackData> tracks = new ArrayList<>(nStrikes * TRACKS_PER_STRIKE);
+        int detectionsPerTrack = DETECTIONS_PER_STRIKE / TRACKS_PER_STRIKE;
+        for (int s = 0; s < nStrikes; s++) {
+            Side striker = s % 2 == 0 ? server : Side.getOpposite(server);
+            boolean toRight = striker == Side.LEFT;
+            for (int t = 0; t < TRACKS_PER_STRIKE; t++) {
+                List<DetectionData> detections = new ArrayList<>(detectionsPerTrack);
+                for (int i = 0; i < detectionsPerTrack; i++) {
+                    int step = t * detectionsPerTrack + detectionsPerTrack - 1 - i;
+                    int x = toRight ? 210 + step * 45 : 1090 - step * 45;
+                    int y = 300 + (step - 12) * (step - 12);
+                    double z = 0.3 + step * 0.017 + s * 0.011;
+                    detections.add(new DetectionData(x, y, z, 38.5f + step * 0.73f, step == 12, toRight ? 1 : -1));
+                }
+                tracks.add(new TrackData(detections, 40f + t, striker));
+            }
+        }
+        return tracks;
+    }
+
+    public static List<TrackData> copyTracks(List<TrackData> tracks) {
+        List<TrackData> copy = new ArrayList<>(tracks.size());
+        for (TrackData track : tracks) {
+            List<DetectionData> detections = new ArrayList<>(track.getDetections().size());
+            for (DetectionData d : track.getDetections()) {
+                detections.add(new DetectionData(d.getX(), d.getY(), d.getZ(), d.getVelocity(), d.wasBounce(), d.getDirectionX()));
+            }
+            copy.add(new TrackData(detections, track.getAverageVelocity(), track.getStriker()));
+        }
+        return copy;
+    }
+
+    /**
+     * @return strikes alternating between the players, so none of them are put together
+     */
+    public static List<TrackData> makeStrikes(int nStrikes, Side server) {
+        List<TrackData> strikes = new ArrayList<>(nStrikes);
+        for (int s = 0; s < nStrikes; s++) {
+            Side striker = s % 2 == 0 ? server : Side.getOpposite(server);
+            boolean toRight = striker == Side.LEFT;
+            List<DetectionData> detections = new ArrayList<>(DETECTIONS_PER_STRIKE);
+            for (int i = 0; i < DETECTIONS_PER_STRIKE; i++) {
+                int step = DETECTIONS_PER_STRIKE - 1 - i;
+                int x = toRight ? 100 + step * 130 : 2640 - step * 130;
+                int y = 300 + (step - 12) * (step - 12) * 2;
+                double z = 700 + step * 9.37 + s * 13.1;
+                detections.add(new DetectionData(x, y, z, 38.5f + step * 0.73f, step == 12, toRight ? 1 : -1));
+            }
+            strikes.add(new TrackData(detections, 45.3f + s * 3.7f, striker));
+        }
+        return strikes;
+    }
+}
@@ -0,0 +1,428 @@
+package helper;
+
+import android.graphics.Point;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import ch.m3ts.detection.trace.DetectionTraceHeader;
+import ch.m3ts.detection.trace.DetectionTraceRecord;
+import ch.m3ts.util.Side;
+import ch.m3ts.util.Table;
+import cz.fmo.Lib;
+
+/**
+ * Simulates table tennis rallies as FMO would detect them in a 1280x720 video of the table, for
+ * load and soak tests of the EventDetector and the Referee. Between strikes and bounces the ball
+ * flies in parabolas, the last strike ends the rally in one of the Outcomes. Optionally, distractor
+ * objects (arms and rackets of the players, balls on the floor) get detected as well and detections
+ * of the ball get lost.
+ * <p>
+ * Rallies are generated one after another from the seed, long runs keep no past rallies in memory.
+ */
+public class RallySimulator {
+    public static final int SRC_WIDTH = 1280;
+    public static final int SRC_HEIGHT = 720;
+    public static final double VIEWING_ANGLE = 66.5;
+    public static final float FRAME_RATE = 30.f;
+    public static final long FRAME_NS = (long) (1e9 / FRAME_RATE);
+    static final int TABLE_LEFT = 200;
+    static final int TABLE_RIGHT = 1100;
+    private static final int TABLE_Y = 500;
+    private static final int NET_X = 650;
+    private static final int NET_CLEARANCE_Y = 440;
+    // the Table reports a ball below it from 5% below the table surface
+    private static final int BELOW_TABLE_Y = 526;
+    // players hit the ball this far behind the end of the table
+    private static final int HIT_DISTANCE = 50;
+    private static final double GRAVITY = 1.0;
+    // frames without the ball before and after each rally
+    private static final int IDLE_FRAMES = 10;
+    private static final long AUDIO_BOUNCE_DELAY_NS = 5000000;
+    private static final double DISTRACTOR_MISS_RATE = 0.2;
+    private final Random random;
+    private int maxStrokes = 8;
+    private double dropoutRate = 0;
+    private double audioBounceRate = 0;
+    private Distractor[] distractors = new Distractor[0];
+    private int nextId = 1;
+
+    public RallySimulator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public static Table makeTable() {
+        return new Table(new Point[]{new Point(TABLE_LEFT, TABLE_Y), new Point(TABLE_RIGHT, TABLE_Y)},
+                new Point(NET_X, TABLE_Y));
+    }
+
+    public static DetectionTraceHeader makeHeader() {
+        return new DetectionTraceHeader(SRC_WIDTH, SRC_HEIGHT, VIEWING_ANGLE, FRAME_RATE, makeTable());
+    }
+
+    /**
+     * @param maxStrokes maximum number of strikes per rally, including the serve
+     */
+    public RallySimulator setMaxStrokes(int maxStrokes) {
+        this.maxStrokes = maxStrokes;
+        return this;
+    }
+
+    /**
+     * @param count number of objects besides the ball detected at the same time
+     */
+    public RallySimulator setDistractors(int count) {
+        this.distractors = new Distractor[count];
+        for (int i = 0; i < count; i++) {
+            distractors[i] = new Distractor();
+        }
+        return this;
+    }
+
+    /**
+     * @param dropoutRate probability of a ball detection getting lost, which also ends its track
+     */
+    public RallySimulator setDropoutRate(double dropoutRate) {
+        this.dropoutRate = dropoutRate;
+        return this;
+    }
+
+    /**
+     * @param audioBounceRate probability of a bounce on the table being heard
+     */
+    public RallySimulator setAudioBounceRate(double audioBounceRate) {
+        this.audioBounceRate = audioBounceRate;
+        return this;
+    }
+
+    /**
+     * @param server side serving in the rally, as the Referee expects it
+     * @return a rally of random length and outcome
+     */
+    public SimulatedRally nextRally(Side server) {
+        Outcome[] outcomes = Outcome.values();
+        return makeRally(server, 1 + random.nextInt(maxStrokes), outcomes[random.nextInt(outcomes.length)]);
+    }
+
+    /**
+     * @return detections per frame of a rally not returned after the given number of strikes, e.g.
+     * to feed a TrackSet or an EventDetector in a benchmark
+     */
+    public Lib.Detection[][] makeFrames(Side server, int strokes) {
+        List<Lib.Detection[]> frames = new ArrayList<>();
+        for (DetectionTraceRecord record : makeRally(server, strokes, Outcome.NOT_RETURNED).getRecords()) {
+            if (!record.isAudioBounce()) frames.add(record.getDetections());
+        }
+        return frames.toArray(new Lib.Detection[0][]);
+    }
+
+    /**
+     * @param strokes number of strikes, including the serve
+     * @param outcome how the last strike ends the rally
+     */
+    public SimulatedRally makeRally(Side server, int strokes, Outcome outcome) {
+        RallyBuilder rally = new RallyBuilder();
+        rally.idle(IDLE_FRAMES);
+        Side striker = server;
+        rally.startBall(hitX(server), 400 + random.nextInt(40));
+        rally.addEvent(SimulatedRally.EventType.SERVE, server);
+        rally.fly(xOnHalf(server, 0.45 + random.nextDouble() * 0.3), TABLE_Y, 8 + random.nextInt(3));
+        rally.bounce();
+        for (int stroke = 1; stroke < strokes; stroke++) {
+            Side opponent = Side.getOpposite(striker);
+            rally.flyOverNet(xOnHalf(opponent, 0.5 + random.nextDouble() * 0.35), 22 + random.nextInt(16));
+            rally.bounce();
+            rally.flyTo(hitX(opponent), 380 + random.nextInt(60));
+            striker = opponent;
+            rally.addEvent(SimulatedRally.EventType.STRIKE, striker);
+        }
+        Side winner = finish(rally, striker, outcome);
+        rally.removeBall();
+        rally.idle(IDLE_FRAMES);
+        return rally.build(outcome, winner);
+    }
+
+    private Side finish(RallyBuilder rally, Side striker, Outcome outcome) {
+        Side opponent = Side.getOpposite(striker);
+        switch (outcome) {
+            case NOT_RETURNED:
+                rally.flyOverNet(xOnHalf(opponent, 0.5 + random.nextDouble() * 0.35), 22 + random.nextInt(16));
+                rally.bounce();
+                rally.flyOutOfFrame(opponent);
+                return striker;
+            case DOUBLE_BOUNCE:
+                rally.flyOverNet(xOnHalf(opponent, 0.2 + random.nextDouble() * 0.15), 14 + random.nextInt(6));
+                rally.bounce();
+                rally.fly(rally.x + direction(opponent) * (120 + random.nextInt(60)), TABLE_Y, 8 + random.nextInt(3));
+                rally.bounce();
+                // the ball hops on and gets caught
+                rally.fly(rally.x + direction(opponent) * 20, TABLE_Y - 10, 3);
+                return striker;
+            case TOO_LONG:
+                // lands behind the table, out of the frame
+                rally.flyOverNet(opponent == Side.RIGHT ? SRC_WIDTH + 80 : -80, 24 + random.nextInt(14));
+                rally.addEvent(SimulatedRally.EventType.OUT_OF_FRAME, opponent);
+                return opponent;
+            case INTO_NET:
+                rally.fly(NET_X - direction(opponent) * 8, 465 + random.nextInt(25), 12 + random.nextInt(6));
+                rally.addEvent(SimulatedRally.EventType.NET, striker);
+                // the ball falls down in front of the net and stays there
+                rally.fly(NET_X - direction(opponent) * (25 + random.nextInt(15)), TABLE_Y, 5 + random.nextInt(3));
+                return opponent;
+            case DROPPED_SIDEWAYS:
+            default:
+                rally.flyOverNet(xOnHalf(opponent, 0.3 + random.nextDouble() * 0.25), 22 + random.nextInt(16));
+                rally.fallBesideTable();
+                return opponent;
+        }
+    }
+
+    private static int direction(Side towards) {
+        return towards == Side.RIGHT ? 1 : -1;
+    }
+
+    private static int hitX(Side side) {
+        return side == Side.LEFT ? TABLE_LEFT - HIT_DISTANCE : TABLE_RIGHT + HIT_DISTANCE;
+    }
+
+    /**
+     * @param fromNet 0 at the net, 1 at the end of the table
+     */
+    private static double xOnHalf(Side side, double fromNet) {
+        int halfLength = side == Side.LEFT ? NET_X - TABLE_LEFT : TABLE_RIGHT - NET_X;
+        return NET_X + direction(side) * fromNet * halfLength;
+    }
+
+    private static Side sideOf(double x) {
+        return x < NET_X ? Side.LEFT : Side.RIGHT;
+    }
+
+    private Lib.Detection makeDetection(double x, double y, float radius, double velocity, int predecessorId) {
+        Lib.Detection detection = new Lib.Detection();
+        detection.id = nextId++;
+        detection.predecessorId = predecessorId;
+        detection.centerX = (int) Math.round(x);
+        detection.centerY = (int) Math.round(y);
+        detection.radius = radius;
+        detection.velocity = (float) velocity;
+        detection.length = (float) velocity + 2 * radius;
+        return detection;
+    }
+
+    public enum Outcome {
+        // bounces on the side of the opponent, who does not return it
+        NOT_RETURNED,
+        // bounces twice on the side of the opponent
+        DOUBLE_BOUNCE,
+        // flies over the end of the table
+        TOO_LONG,
+        // hits the net and falls down on the side of the striker
+        INTO_NET,
+        // misses the table at the side and falls below it
+        DROPPED_SIDEWAYS
+    }
+
+    /**
+     * State of the rally being generated, the ball moves frame by frame.
+     */
+    private class RallyBuilder {
+        private final List<DetectionTraceRecord> records = new ArrayList<>();
+        private final List<SimulatedRally.Event> events = new ArrayList<>();
+        private int frame = 0;
+        private boolean hasBall = false;
+        private double x;
+        private double y;
+        private double vx;
+        private double vy;
+        private float ballRadius;
+        private int lastBallId = -1;
+
+        void idle(int frames) {
+            for (int i = 0; i < frames; i++) {
+                addFrame();
+            }
+        }
+
+        void startBall(double x, double y) {
+            this.x = x;
+            this.y = y;
+            // distance to the camera stays about the same during a rally
+            this.ballRadius = 5.0f + random.nextFloat() * 1.2f;
+            this.lastBallId = -1;
+            this.hasBall = true;
+        }
+
+        void removeBall() {
+            this.hasBall = false;
+        }
+
+        void addEvent(SimulatedRally.EventType type, Side side) {
+            events.add(new SimulatedRally.Event(getTimeNs(), type, side));
+        }
+
+        void bounce() {
+            addEvent(SimulatedRally.EventType.BOUNCE, sideOf(x));
+            if (random.nextDouble() < audioBounceRate) {
+                records.add(new DetectionTraceRecord(getTimeNs() + AUDIO_BOUNCE_DELAY_NS, null));
+            }
+        }
+
+        /**
+         * Moves the ball on a parabola to the target, reaching it in the given number of frames.
+         *
+         * @return false if the ball left the frame on the way
+         */
+        boolean fly(double targetX, double targetY, int frames) {
+            setVelocity(targetX, targetY, frames);
+            for (int i = 0; i < frames; i++) {
+                if (!step()) return false;
+            }
+            x = targetX;
+            y = targetY;
+            return true;
+        }
+
+        /**
+         * Flies to the target at about the current horizontal speed.
+         */
+        void flyTo(double targetX, double targetY) {
+            double speed = Math.max(Math.abs(vx), 10);
+            fly(targetX, targetY, Math.max(3, (int) Math.round(Math.abs(targetX - x) / speed)));
+        }
+
+        /**
+         * Flies onto the table at targetX, with an arc high enough to pass the net.
+         */
+        void flyOverNet(double targetX, double speed) {
+            int frames = Math.max(4, (int) Math.round(Math.abs(targetX - x) / speed));
+            while (frames < 60 && heightAtNet(targetX, frames) > NET_CLEARANCE_Y) {
+                frames++;
+            }
+            fly(targetX, TABLE_Y, frames);
+        }
+
+        void flyOutOfFrame(Side side) {
+            double targetX = side == Side.RIGHT ? SRC_WIDTH + 40 : -40;
+            flyTo(targetX, 360 + random.nextInt(80));
+            addEvent(SimulatedRally.EventType.OUT_OF_FRAME, side);
+        }
+
+        /**
+         * Keeps falling from the table surface, without bouncing, until the ball is below it.
+         */
+        void fallBesideTable() {
+            boolean isBelow = false;
+            while (step() && y < BELOW_TABLE_Y + 40) {
+                if (!isBelow && y >= BELOW_TABLE_Y) {
+                    isBelow = true;
+                    addEvent(SimulatedRally.EventType.DROPPED_SIDEWAYS, sideOf(x));
+                }
+            }
+        }
+
+        private void setVelocity(double targetX, double targetY, int frames) {
+            vx = (targetX - x) / frames;
+            // y after n frames is y + n * vy + GRAVITY * n * (n + 1) / 2
+            vy = (targetY - y - GRAVITY * frames * (frames + 1) / 2) / frames;
+        }
+
+        private double heightAtNet(double targetX, int frames) {
+            double startVy = (TABLE_Y - y - GRAVITY * frames * (frames + 1) / 2) / frames;
+            double framesToNet = (NET_X - x) / ((targetX - x) / frames);
+            if (framesToNet < 0 || framesToNet > frames) return 0;
+            return y + framesToNet * startVy + GRAVITY * framesToNet * (framesToNet + 1) / 2;
+        }
+
+        /**
+         * @return false if the ball left the frame
+         */
+        private boolean step() {
+            x += vx;
+            vy += GRAVITY;
+            y += vy;
+            if (x < 0 || x >= SRC_WIDTH || y >= SRC_HEIGHT) {
+                hasBall = false;
+                return false;
+            }
+            addFrame();
+            return true;
+        }
+
+        private void addFrame() {
+            List<Lib.Detection> detections = new ArrayList<>(distractors.length + 1);
+            if (hasBall) {
+                if (random.nextDouble() < dropoutRate) {
+                    lastBallId = -1;
+                } else {
+                    float radius = ballRadius + (random.nextFloat() - 0.5f) * 0.4f;
+                    Lib.Detection ball = makeDetection(x, y, radius, Math.hypot(vx, vy), lastBallId);
+                    lastBallId = ball.id;
+                    detections.add(ball);
+                }
+            }
+            for (Distractor distractor : distractors) {
+                distractor.addDetection(detections);
+            }
+            records.add(new DetectionTraceRecord(getTimeNs(), detections.toArray(new Lib.Detection[0])));
+            frame++;
+        }
+
+        private long getTimeNs() {
+            return frame * FRAME_NS;
+        }
+
+        SimulatedRally build(Outcome outcome, Side winner) {
+            return new SimulatedRally(records, events, outcome, winner, frame);
+        }
+    }
+
+    /**
+     * An object FMO detects besides the ball: the arm or racket of a player next to the table, or
+     * a ball rolling on the floor. Neither looks like a ball above the table.
+     */
+    private class Distractor {
+        private double x;
+        private double y;
+        private double vx;
+        private double vy;
+        private float radius;
+        private int framesLeft = 0;
+        private int lastId = -1;
+
+        private void respawn() {
+            if (random.nextInt(4) == 0) {
+                x = random.nextInt(SRC_WIDTH);
+                y = 620 + random.nextInt(60);
+                vx = (random.nextBoolean() ? 1 : -1) * (2 + random.nextInt(5));
+                vy = 0.5;
+                radius = 5;
+            } else {
+                x = random.nextBoolean() ? 30 + random.nextInt(150) : SRC_WIDTH - 30 - random.nextInt(150);
+                y = 250 + random.nextInt(350);
+                vx = random.nextGaussian() * 4;
+                vy = random.nextGaussian() * 4;
+                radius = 8 + random.nextInt(7);
+            }
+            framesLeft = 10 + random.nextInt(50);
+            lastId = -1;
+        }
+
+        void addDetection(List<Lib.Detection> detections) {
+            if (--framesLeft < 0) respawn();
+            x += vx;
+            y += vy;
+            if (x < 0 || x >= SRC_WIDTH || y < 0 || y >= SRC_HEIGHT) {
+                framesLeft = 0;
+                return;
+            }
+            if (random.nextDouble() < DISTRACTOR_MISS_RATE) {
+                lastId = -1;
+                return;
+            }
+            Lib.Detection detection = makeDetection(x, y, radius, Math.hypot(vx, vy), lastId);
+            lastId = detection.id;
+            detections.add(detection);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package helper;
+
+import java.util.List;
+
+import ch.m3ts.detection.trace.DetectionTraceRecord;
+import ch.m3ts.util.Side;
+
+/**
+ * A rally generated by the RallySimulator: the records to play through an EventDetector and what
+ * really happened in the rally (ground truth), so the decisions can be scored.
+ */
+public class SimulatedRally {
+    private final List<DetectionTraceRecord> records;
+    private final List<Event> events;
+    private final RallySimulator.Outcome outcome;
+    private final Side winner;
+    private final int frames;
+
+    SimulatedRally(List<DetectionTraceRecord> records, List<Event> events, RallySimulator.Outcome outcome,
+                   Side winner, int frames) {
+        this.records = records;
+        this.events = events;
+        this.outcome = outcome;
+        this.winner = winner;
+        this.frames = frames;
+    }
+
+    /**
+     * @return detection batches (one per frame) and audio bounces, times starting at 0
+     */
+    public List<DetectionTraceRecord> getRecords() {
+        return records;
+    }
+
+    /**
+     * @return events of the rally in the order they happened
+     */
+    public List<Event> getEvents() {
+        return events;
+    }
+
+    public RallySimulator.Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * @return side which won the point according to the rules
+     */
+    public Side getWinner() {
+        return winner;
+    }
+
+    public int getFrames() {
+        return frames;
+    }
+
+    public enum EventType {
+        SERVE,
+        STRIKE,
+        BOUNCE,
+        NET,
+        OUT_OF_FRAME,
+        DROPPED_SIDEWAYS
+    }
+
+    public static class Event {
+        private final long timeNs;
+        private final EventType type;
+        private final Side side;
+
+        Event(long timeNs, EventType type, Side side) {
+            this.timeNs = timeNs;
+            this.type = type;
+            this.side = side;
+        }
+
+        /**
+         * @return time of the frame showing the event, in the time base of the records
+         */
+        public long getTimeNs() {
+            return timeNs;
+        }
+
+        public EventType getType() {
+            return type;
+        }
+
+        /**
+         * @return side of the striker for strikes, side of the table otherwise
+         */
+        public Side getSide() {
+            return side;
+        }
+    }
+}
@@ -23,6 +23,14 @@ JNIEXPORT void JNICALL Java_cz_fmo_Lib_detectionStart
 JNIEXPORT void JNICALL Java_cz_fmo_Lib_detectionFrame
   (JNIEnv *, jclass, jbyteArray);
 
+/*
+ * Class:     cz_fmo_Lib
+ * Method:    detectionFrameSync
+ * Signature: ([B)V
+ */
+JNIEXPORT void JNICALL Java_cz_fmo_Lib_detectionFrameSync
+  (JNIEnv *, jclass, jbyteArray);
+
 /*
  * Class:     cz_fmo_Lib
  * Method:    detectionStop
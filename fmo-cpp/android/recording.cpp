@@ -5,6 +5,7 @@
 #include <fmo/processing.hpp>
 #include <fmo/stats.hpp>
 #include <iomanip>
+#include <memory>
 #include <thread>
 
 namespace {
@@ -12,7 +13,7 @@ namespace {
         std::mutex mutex;
         JavaVM* javaVM;
         std::atomic<bool> stop;
-        std::unique_ptr<fmo::Exchange<fmo::Image>> exchange;
+        std::shared_ptr<fmo::Exchange<fmo::Image>> exchange;
         Reference<Callback> callbackRef;
         fmo::Image image;
         fmo::Dims dims;
@@ -29,7 +30,7 @@ namespace {
         return oss.str();
     }
 
-    void threadImpl() {
+    void threadImpl(std::shared_ptr<fmo::Exchange<fmo::Image>> exchange) {
         Env threadEnv{global.javaVM, "Lib"};
         JNIEnv* env = threadEnv.get();
         fmo::FrameStats frameStats;
@@ -42,7 +43,7 @@ namespace {
         callback.log("Detection started");
 
         while (!global.stop) {
-            global.exchange->swapReceive(input);
+            exchange->swapReceive(input);
             if (global.stop) break;
 
             frameStats.tick();
@@ -56,17 +57,17 @@ namespace {
                 callback.log(stats.c_str());
             }
 
-            if (!output.detections.empty()) {
-                jint numDetections = jint(output.detections.size());
-                DetectionArray detections(env, numDetections);
+            // called for frames without detections as well, so that the callback sees every
+            // frame processed
+            jint numDetections = jint(output.detections.size());
+            DetectionArray detections(env, numDetections);
 
-                for (jint i = 0; i < numDetections; i++) {
-                    Detection d{env, *output.detections[i]};
-                    detections.set(i, d);
-                }
-
-                callback.onObjectsDetected(detections);
+            for (jint i = 0; i < numDetections; i++) {
+                Detection d{env, *output.detections[i]};
+                detections.set(i, d);
             }
+
+            callback.onObjectsDetected(detections);
         }
 
         global.callbackRef.release(env);
@@ -88,12 +89,30 @@ void Java_cz_fmo_Lib_detectionStart(JNIEnv* env, jclass, jint width, jint height
     global.exchange.reset(new fmo::Exchange<fmo::Image>(global.format, global.dims));
     global.callbackRef = {env, cbObj};
 
-    std::thread thread(threadImpl);
+    // the thread keeps its own reference, as a restart replaces global.exchange
+    std::thread thread(threadImpl, global.exchange);
     thread.detach();
 
     global.image.resize(global.format, global.dims);
 }
 
+void Java_cz_fmo_Lib_detectionFrameSync(JNIEnv* env, jclass, jbyteArray dataYUV420SP) {
+    // waiting for the detection thread with the lock held would block detectionStop() until the
+    // frame is processed, so neither global.image nor global.exchange may be used while waiting
+    thread_local fmo::Image image;
+    std::shared_ptr<fmo::Exchange<fmo::Image>> exchange;
+    {
+        std::unique_lock<std::mutex> lock(global.mutex);
+        if (!running()) return;
+        exchange = global.exchange;
+        jbyte* dataJ = env->GetByteArrayElements(dataYUV420SP, nullptr);
+        uint8_t* data = reinterpret_cast<uint8_t*>(dataJ);
+        image.assign(global.format, global.dims, data);
+        env->ReleaseByteArrayElements(dataYUV420SP, dataJ, JNI_ABORT);
+    }
+    exchange->swapSendAndWait(image);
+}
+
 void Java_cz_fmo_Lib_detectionStop(JNIEnv* env, jclass) {
     std::unique_lock<std::mutex> lock(global.mutex);
     if (!running()) return;
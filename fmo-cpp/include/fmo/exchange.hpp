@@ -31,11 +31,32 @@ namespace fmo {
             mWait.notify_all();
         }
 
+        /// Sends new data to the consumer without dropping anything. Blocks until the previous
+        /// payload has been processed, then until this one has been processed as well, i.e. until
+        /// the consumer calls swapReceive again. Returns early if the exit() method is called. Data
+        /// is stored by swapping.
+        void swapSendAndWait(T& payload) {
+            std::unique_lock<std::mutex> lock(mMutex);
+            auto idle = [this]() { return (!mHave && !mBusy) || mExit; };
+            mWait.wait(lock, idle);
+            if (mExit) { return; }
+
+            using std::swap;
+            swap(mPayload, payload);
+
+            mHave = true;
+            mWait.notify_all();
+            mWait.wait(lock, idle);
+        }
+
         /// Get the most recent payload deposited using swapSend. If there is no new, previously
         /// unreceived payload available, the method will block until there's new data or the exit()
-        /// method is called. Data is received by swapping.
+        /// method is called. Data is received by swapping. Calling this method again marks the
+        /// previously received payload as processed.
         void swapReceive(T& payload) {
             std::unique_lock<std::mutex> lock(mMutex);
+            mBusy = false;
+            mWait.notify_all();
             mWait.wait(lock, [this]() { return mHave || mExit; });
             if (mExit) { return; }
 
@@ -43,6 +64,7 @@ namespace fmo {
             swap(mPayload, payload);
 
             mHave = false;
+            mBusy = true;
         }
 
         /// Set the internal exit flag and wake up all waiting threads.
@@ -57,6 +79,7 @@ namespace fmo {
         std::mutex mMutex;
         std::condition_variable mWait;
         bool mHave = false;
+        bool mBusy = false;
         bool mExit = false;
     };
 }